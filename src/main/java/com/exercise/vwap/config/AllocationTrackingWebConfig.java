@@ -0,0 +1,43 @@
+package com.exercise.vwap.config;
+
+import com.exercise.vwap.service.metrics.AllocationTracker;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Charges the allocation of every API request, from handler dispatch until the response has
+ * been written, to its method and mapped path pattern.
+ */
+@Configuration
+@RequiredArgsConstructor
+public class AllocationTrackingWebConfig implements WebMvcConfigurer {
+
+    private final AllocationTracker allocationTracker;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (!allocationTracker.isEnabled()) {
+            return;
+        }
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                allocationTracker.begin();
+                return true;
+            }
+
+            @Override
+            public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                        Exception ex) {
+                Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+                allocationTracker.end(request.getMethod() + " " + (pattern != null ? pattern : "unmapped"));
+            }
+        }).addPathPatterns("/api/**").excludePathPatterns("/api/v1/metrics/**");
+    }
+}
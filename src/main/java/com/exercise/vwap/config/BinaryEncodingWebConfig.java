@@ -0,0 +1,20 @@
+package com.exercise.vwap.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Adds the binary VWAP encoding as a negotiable alternative. It goes last so that JSON
+ * stays the default when a client accepts anything.
+ */
+@Configuration
+public class BinaryEncodingWebConfig implements WebMvcConfigurer {
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new BinaryVwapResultConverter());
+    }
+}
@@ -0,0 +1,106 @@
+package com.exercise.vwap.config;
+
+import com.exercise.vwap.domain.VwapResult;
+import com.exercise.vwap.utils.BinaryTradeCodec;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.ZoneOffset;
+import java.util.Collection;
+
+/**
+ * Writes {@link VwapResult}s as fixed-layout little-endian records for clients that send
+ * {@code Accept: application/x-vwap-binary}.
+ * <pre>
+ *   record  24 bytes  pair (ASCII, first character in the lowest byte, zero padded),
+ *                     window start (int64 epoch seconds, UTC), vwap (float64)
+ *   list    int32 count followed by count records
+ * </pre>
+ * The whole body is encoded straight into one byte array sized up front, with no
+ * intermediate object tree, and sent with an exact Content-Length.
+ */
+public class BinaryVwapResultConverter extends AbstractGenericHttpMessageConverter<Object> {
+    public static final MediaType VWAP_BINARY = MediaType.parseMediaType("application/x-vwap-binary");
+    public static final int RECORD_SIZE = 24;
+    private static final int COUNT_SIZE = 4;
+
+    public BinaryVwapResultConverter() {
+        super(VWAP_BINARY);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return VwapResult.class.isAssignableFrom(clazz) || Collection.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        if (!canWrite(mediaType)) {
+            return false;
+        }
+        ResolvableType resolved = type != null ? ResolvableType.forType(type) : ResolvableType.forClass(clazz);
+        if (VwapResult.class.isAssignableFrom(resolved.toClass())) {
+            return true;
+        }
+        return Collection.class.isAssignableFrom(resolved.toClass())
+                && VwapResult.class.isAssignableFrom(resolved.asCollection().getGeneric(0).toClass());
+    }
+
+    @Override
+    protected Long getContentLength(Object result, MediaType contentType) {
+        return (long) encodedSize(result);
+    }
+
+    @Override
+    protected void writeInternal(Object result, Type type, HttpOutputMessage outputMessage) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(encodedSize(result)).order(ByteOrder.LITTLE_ENDIAN);
+        if (result instanceof VwapResult single) {
+            putRecord(buffer, single);
+        } else {
+            Collection<?> results = (Collection<?>) result;
+            buffer.putInt(results.size());
+            for (Object element : results) {
+                putRecord(buffer, (VwapResult) element);
+            }
+        }
+        outputMessage.getBody().write(buffer.array());
+    }
+
+    private static int encodedSize(Object result) {
+        return result instanceof Collection<?> results ? COUNT_SIZE + results.size() * RECORD_SIZE : RECORD_SIZE;
+    }
+
+    private static void putRecord(ByteBuffer buffer, VwapResult result) {
+        buffer.putLong(BinaryTradeCodec.encodePair(result.getCurrencyPair()));
+        buffer.putLong(result.getWindowStart().toEpochSecond(ZoneOffset.UTC));
+        buffer.putDouble(result.getVwap());
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Binary VWAP results are write-only", inputMessage);
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Binary VWAP results are write-only", inputMessage);
+    }
+}
@@ -0,0 +1,64 @@
+package com.exercise.vwap.config;
+
+import com.exercise.vwap.service.lanes.ExecutionLane;
+import com.exercise.vwap.service.lanes.ExecutionLanes;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Routes every VWAP request through its lane: GETs are queries, everything else is ingest.
+ * The permit is held until the response is complete. A request whose lane stays full is
+ * answered with 503 and a Retry-After header. Replication and node-to-node traffic are left
+ * out, so a query burst cannot make replicas fall behind and an ingest burst cannot turn away
+ * trades that peers have already accepted and forwarded.
+ */
+@Configuration
+@RequiredArgsConstructor
+@Slf4j
+public class ExecutionLaneWebConfig implements WebMvcConfigurer {
+    private static final String LANE_ATTRIBUTE = ExecutionLaneWebConfig.class.getName() + ".lane";
+
+    private final ExecutionLanes executionLanes;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (!executionLanes.isEnabled()) {
+            return;
+        }
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                ExecutionLane lane = HttpMethod.GET.matches(request.getMethod())
+                        ? executionLanes.getQuery()
+                        : executionLanes.getIngest();
+                if (!lane.tryEnter()) {
+                    log.warn("{} lane full, rejecting {} {}", lane.getName(), request.getMethod(),
+                            request.getRequestURI());
+                    response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+                    response.setHeader("Retry-After", "1");
+                    return false;
+                }
+                request.setAttribute(LANE_ATTRIBUTE, lane);
+                return true;
+            }
+
+            @Override
+            public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                        Exception ex) {
+                if (request.getAttribute(LANE_ATTRIBUTE) instanceof ExecutionLane lane) {
+                    request.removeAttribute(LANE_ATTRIBUTE);
+                    lane.exit();
+                }
+            }
+        }).addPathPatterns("/api/v1/vwap/**").excludePathPatterns("/api/v1/vwap/replication/**",
+                "/api/v1/vwap/internal/**");
+    }
+}
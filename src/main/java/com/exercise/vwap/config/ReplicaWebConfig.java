@@ -0,0 +1,47 @@
+package com.exercise.vwap.config;
+
+import com.exercise.vwap.service.replication.ReplicaSynchronizer;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Makes a replica read-only and keeps it from answering queries once it has fallen
+ * further behind the primary than the configured staleness bound.
+ */
+@Configuration
+@ConditionalOnProperty(name = "vwap.replication.role", havingValue = "replica")
+@RequiredArgsConstructor
+@Slf4j
+public class ReplicaWebConfig implements WebMvcConfigurer {
+
+    private final ReplicaSynchronizer replicaSynchronizer;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                if (!HttpMethod.GET.matches(request.getMethod())) {
+                    log.warn("Rejecting {} {} on read-only replica", request.getMethod(), request.getRequestURI());
+                    response.setStatus(HttpStatus.FORBIDDEN.value());
+                    return false;
+                }
+                if (!replicaSynchronizer.isWithinStalenessBound()) {
+                    response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+                    response.setHeader("Retry-After", "1");
+                    return false;
+                }
+                return true;
+            }
+        }).addPathPatterns("/api/v1/vwap/**").excludePathPatterns("/api/v1/vwap/replication/**");
+    }
+}
@@ -0,0 +1,41 @@
+package com.exercise.vwap.controller.v1;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.exercise.vwap.domain.IngestTuning;
+import com.exercise.vwap.service.WindowManager;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runtime tuning of this node's ingest queue, consumer threads, pair limit and retention.
+ */
+@RestController
+@RequestMapping("/api/v1/admin")
+@RequiredArgsConstructor
+@Slf4j
+public class AdminController {
+
+    private final WindowManager windowManager;
+
+    @GetMapping("/tuning")
+    public ResponseEntity<IngestTuning> getTuning() {
+        return ResponseEntity.ok(windowManager.getTuning());
+    }
+
+    @PutMapping("/tuning")
+    public ResponseEntity<IngestTuning> tune(@RequestBody IngestTuning changes) {
+        try {
+            return ResponseEntity.ok(windowManager.tune(changes));
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid tuning request {}: {}", changes, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
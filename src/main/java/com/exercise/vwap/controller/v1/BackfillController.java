@@ -0,0 +1,44 @@
+package com.exercise.vwap.controller.v1;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.exercise.vwap.domain.BackfillResult;
+import com.exercise.vwap.service.backfill.BackfillLoader;
+import com.exercise.vwap.service.metrics.AllocationTracker;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bulk replay of captured trade files from the backfill directory.
+ */
+@RestController
+@RequestMapping("/api/v1/vwap/backfill")
+@ConditionalOnProperty(name = "vwap.backfill.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class BackfillController {
+
+    private final BackfillLoader backfillLoader;
+    private final AllocationTracker allocationTracker;
+
+    @PostMapping
+    public ResponseEntity<BackfillResult> backfill(@RequestParam String file) {
+        try {
+            BackfillResult result = backfillLoader.load(file);
+            allocationTracker.countItems(result.getTrades());
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected backfill of {}: {}", file, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("Error backfilling from {}", file, e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.exercise.vwap.controller.v1;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.exercise.vwap.domain.PairActivity;
+import com.exercise.vwap.domain.Trade;
+import com.exercise.vwap.domain.TradeEvent;
+import com.exercise.vwap.domain.WindowSnapshot;
+import com.exercise.vwap.service.WindowManager;
+import com.exercise.vwap.service.impl.VwapCalculatorServiceImpl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Node-to-node endpoints used by the partitioned deployment. These always act on local
+ * state and never re-route, so a forwarded batch cannot bounce between nodes.
+ */
+@RestController
+@RequestMapping("/api/v1/vwap/internal")
+@ConditionalOnProperty(name = "vwap.cluster.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class ClusterController {
+
+    private final VwapCalculatorServiceImpl localCalculator;
+    private final WindowManager windowManager;
+
+    @PostMapping("/trades")
+    public ResponseEntity<Void> acceptForwardedTrades(@RequestBody List<TradeEvent> trades) {
+        log.debug("Accepting {} forwarded trades", trades.size());
+        List<Trade> parsed = new ArrayList<>(trades.size());
+        for (TradeEvent event : trades) {
+            try {
+                parsed.add(event.toTrade());
+            } catch (Exception e) {
+                log.error("Error processing forwarded trade: {}", event, e);
+            }
+        }
+        localCalculator.processTrades(parsed);
+        return ResponseEntity.ok().build();
+    }
+
+    @GetMapping("/windows")
+    public ResponseEntity<List<WindowSnapshot>> getWindows(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime windowStart,
+            @RequestParam(required = false) List<String> currencyPairs) {
+        List<String> filter = currencyPairs == null ? List.of() :
+                currencyPairs.stream().filter(pair -> !pair.isBlank()).toList();
+        List<WindowSnapshot> snapshots = new ArrayList<>();
+        windowManager.getWindows(windowStart).forEach((pair, window) -> {
+            if (filter.isEmpty() || filter.contains(pair)) {
+                snapshots.add(WindowSnapshot.of(pair, window));
+            }
+        });
+        return ResponseEntity.ok(snapshots);
+    }
+
+    @GetMapping("/top")
+    public ResponseEntity<List<PairActivity>> getTopPairs(@RequestParam int n,
+                                                          @RequestParam(defaultValue = "volume") String by) {
+        return ResponseEntity.ok(localCalculator.getTopPairs(n, by));
+    }
+}
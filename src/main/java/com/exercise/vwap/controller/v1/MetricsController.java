@@ -0,0 +1,71 @@
+package com.exercise.vwap.controller.v1;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.exercise.vwap.domain.AllocationStats;
+import com.exercise.vwap.domain.DedupStats;
+import com.exercise.vwap.domain.LaneStatus;
+import com.exercise.vwap.domain.TierStats;
+import com.exercise.vwap.service.dedup.TradeDeduplicator;
+import com.exercise.vwap.service.lanes.ExecutionLanes;
+import com.exercise.vwap.service.metrics.AllocationTracker;
+import com.exercise.vwap.service.tier.ColdPairStore;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Allocation per endpoint and per ingested trade, for heap sizing and regression hunting,
+ * request lane occupancy, duplicate-trade suppression and the cold pair tier.
+ */
+@RestController
+@RequestMapping("/api/v1/metrics")
+@RequiredArgsConstructor
+public class MetricsController {
+
+    private final AllocationTracker allocationTracker;
+    private final ExecutionLanes executionLanes;
+    private final TradeDeduplicator tradeDeduplicator;
+    private final Optional<ColdPairStore> coldPairStore;
+
+    @GetMapping("/allocation")
+    public ResponseEntity<List<AllocationStats>> getAllocation() {
+        if (!allocationTracker.isEnabled()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(allocationTracker.getStats());
+    }
+
+    @GetMapping("/lanes")
+    public ResponseEntity<List<LaneStatus>> getLanes() {
+        if (!executionLanes.isEnabled()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(executionLanes.getStatus());
+    }
+
+    @GetMapping("/dedup")
+    public ResponseEntity<DedupStats> getDedup() {
+        if (!tradeDeduplicator.isEnabled()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(tradeDeduplicator.getStats());
+    }
+
+    @GetMapping("/tier")
+    public ResponseEntity<TierStats> getTier() {
+        return ResponseEntity.of(coldPairStore.map(ColdPairStore::getStats));
+    }
+
+    @DeleteMapping("/allocation")
+    public ResponseEntity<Void> resetAllocation() {
+        allocationTracker.reset();
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,68 @@
+package com.exercise.vwap.controller.v1;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.exercise.vwap.domain.ReplicationBatch;
+import com.exercise.vwap.domain.ReplicationStatus;
+import com.exercise.vwap.domain.WindowState;
+import com.exercise.vwap.service.WindowManager;
+import com.exercise.vwap.service.replication.ReplicaSynchronizer;
+import com.exercise.vwap.service.replication.ReplicationLog;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Replication stream served by a primary, and lag reporting on both roles.
+ */
+@RestController
+@RequestMapping("/api/v1/vwap/replication")
+@RequiredArgsConstructor
+@Slf4j
+public class ReplicationController {
+    private static final int MAX_BATCH = 50_000;
+
+    private final ObjectProvider<ReplicationLog> replicationLog;
+    private final ObjectProvider<ReplicaSynchronizer> replicaSynchronizer;
+    private final WindowManager windowManager;
+
+    @GetMapping("/log")
+    public ResponseEntity<ReplicationBatch> getLog(
+            @RequestParam long after,
+            @RequestParam(defaultValue = "5000") int max) {
+        ReplicationLog primaryLog = replicationLog.getIfAvailable();
+        if (primaryLog == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(primaryLog.read(after, Math.min(Math.max(max, 1), MAX_BATCH)));
+    }
+
+    @GetMapping("/snapshot")
+    public ResponseEntity<WindowState> getSnapshot() {
+        if (replicationLog.getIfAvailable() == null) {
+            return ResponseEntity.notFound().build();
+        }
+        WindowState state = windowManager.exportState();
+        log.info("Serving replication snapshot at sequence {}", state.getSequence());
+        return ResponseEntity.ok(state);
+    }
+
+    @GetMapping("/status")
+    public ResponseEntity<ReplicationStatus> getStatus() {
+        ReplicaSynchronizer replica = replicaSynchronizer.getIfAvailable();
+        if (replica != null) {
+            return ResponseEntity.ok(replica.getStatus());
+        }
+        ReplicationLog primaryLog = replicationLog.getIfAvailable();
+        if (primaryLog != null) {
+            long head = primaryLog.getHeadSequence();
+            return ResponseEntity.ok(new ReplicationStatus("primary", head, head, 0, 0));
+        }
+        return ResponseEntity.notFound().build();
+    }
+}
@@ -2,23 +2,39 @@ package com.exercise.vwap.controller.v1;
 
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.List;
 
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.exercise.vwap.domain.PairActivity;
 import com.exercise.vwap.domain.Trade;
+import com.exercise.vwap.domain.TradeAmendment;
 import com.exercise.vwap.domain.TradeInput;
+import com.exercise.vwap.domain.VenueVwap;
+import com.exercise.vwap.domain.VolumeProfileResult;
+import com.exercise.vwap.domain.VwapBandsResult;
+import com.exercise.vwap.domain.VwapBarResult;
+import com.exercise.vwap.domain.VwapDistributionResult;
 import com.exercise.vwap.domain.VwapResult;
 import com.exercise.vwap.service.VwapCalculatorService;
+import com.exercise.vwap.service.cluster.NodeUnavailableException;
+import com.exercise.vwap.service.metrics.AllocationTracker;
 import com.exercise.vwap.utils.TimeParser;
 
 import lombok.RequiredArgsConstructor;
@@ -31,15 +47,18 @@ import lombok.extern.slf4j.Slf4j;
 public class VwapController {
 
     private final VwapCalculatorService vwapCalculator;
+    private final AllocationTracker allocationTracker;
     private static final DateTimeFormatter TIME_FORMATTER =
             DateTimeFormatter.ofPattern("hh:mm a");
+    private static final double[] DEFAULT_QUANTILES = {0.05, 0.25, 0.75, 0.95};
 
     @PostMapping("/trades")
     public ResponseEntity<Void> processTrades(@RequestBody List<Object[]> trades) {
         log.info("Processing {} trades", trades.size());
         try {
+            List<Trade> parsed = new ArrayList<>(trades.size());
             for (Object[] tradeData : trades) {
-                if (tradeData.length != 4) {
+                if (tradeData.length < 4 || tradeData.length > 6) {
                     log.error("Invalid trade data format: {}", (Object)tradeData);
                     continue;
                 }
@@ -51,19 +70,25 @@ public class VwapController {
                     String currencyPair = tradeData[1].toString();
 
                     // Parse price and volume
-                    double price = Double.parseDouble(tradeData[2].toString()
-                            .replace(",", ""));
-                    double volume = Double.parseDouble(tradeData[3].toString()
-                            .replace(",", ""));
-
-                    Trade trade = new Trade(timestamp, currencyPair, price, volume);
-                    log.info("Processing trade: {}", trade);
-                    vwapCalculator.processTrade(trade);
-                    log.info("Finished processing trades");
+                    double price = parseNumber(tradeData[2]);
+                    double volume = parseNumber(tradeData[3]);
+
+                    // Optional fifth element: the trade's id, needed to amend or cancel it later
+                    String id = tradeData.length >= 5 && tradeData[4] != null ? tradeData[4].toString() : null;
+
+                    // Optional sixth element: the venue the trade printed on
+                    String venue = tradeData.length == 6 && tradeData[5] != null ? tradeData[5].toString() : null;
+
+                    Trade trade = new Trade(timestamp, currencyPair, price, volume, id, venue);
+                    log.debug("Processing trade: {}", trade);
+                    parsed.add(trade);
                 } catch (Exception e) {
                     log.error("Error processing trade data: {}", (Object)tradeData, e);
                 }
             }
+            vwapCalculator.processTrades(parsed);
+            allocationTracker.countItems(parsed.size());
+            log.info("Finished processing trades");
             return ResponseEntity.ok().build();
         } catch (Exception e) {
             log.error("Error processing trades batch", e);
@@ -71,10 +96,38 @@ public class VwapController {
         }
     }
 
+    /**
+     * A sealed hour only changes through late trades and corrections, which bump its version,
+     * so its result carries an ETag and a matching If-None-Match gets 304. The tag also covers
+     * the VWAP itself, since versions restart from zero when the service does. Open hours
+     * change with every trade and get no validator.
+     */
+    private static ResponseEntity<VwapResult> withValidator(VwapResult vwap) {
+        if (vwap == null || !vwap.isSealed()) {
+            return ResponseEntity.ok(vwap);
+        }
+        String etag = "\"" + vwap.getWindowStart().toEpochSecond(ZoneOffset.UTC) + "-" + vwap.getVersion()
+                + "-" + Long.toHexString(Double.doubleToLongBits(vwap.getVwap())) + "\"";
+        return ResponseEntity.ok().eTag(etag).body(vwap);
+    }
+
+    /**
+     * JSON numbers arrive as {@link Number}s and are used directly; strings may carry
+     * thousands separators ("106,198").
+     */
+    private static double parseNumber(Object value) {
+        if (value instanceof Number number) {
+            return number.doubleValue();
+        }
+        String text = value.toString();
+        return Double.parseDouble(text.indexOf(',') < 0 ? text : text.replace(",", ""));
+    }
+
     // Alternative endpoint for structured input
     @PostMapping("/trades/structured")
     public ResponseEntity<Void> processStructuredTrades(@RequestBody List<TradeInput> trades) {
         try {
+            List<Trade> parsed = new ArrayList<>(trades.size());
             trades.forEach(tradeInput -> {
                 try {
                     LocalDateTime timestamp = TimeParser.parse(tradeInput.getTimestamp());
@@ -83,13 +136,17 @@ public class VwapController {
                             timestamp,
                             tradeInput.getCurrencyPair(),
                             tradeInput.getPrice(),
-                            tradeInput.getVolume()
+                            tradeInput.getVolume(),
+                            tradeInput.getId(),
+                            tradeInput.getVenue()
                     );
-                    vwapCalculator.processTrade(trade);
+                    parsed.add(trade);
                 } catch (Exception e) {
                     log.error("Error processing trade: {}", tradeInput, e);
                 }
             });
+            vwapCalculator.processTrades(parsed);
+            allocationTracker.countItems(parsed.size());
             return ResponseEntity.ok().build();
         } catch (Exception e) {
             log.error("Error processing structured trades batch", e);
@@ -101,15 +158,25 @@ public class VwapController {
     public ResponseEntity<VwapResult> getVwap(
             @PathVariable String base,
             @PathVariable String quote,
-            @RequestParam(required = false) String timestamp) {
+            @RequestParam(required = false) String timestamp,
+            @RequestParam(required = false) String strategy,
+            @RequestParam(required = false) String venue) {
         try {
             String currencyPair = base + "/" + quote;
             LocalDateTime time = timestamp != null ?
                     TimeParser.parse(timestamp) :
                     LocalDateTime.now();
 
-            VwapResult vwap = vwapCalculator.getVwap(currencyPair, time);
-            return ResponseEntity.ok(vwap);
+            return withValidator(vwap(currencyPair, time, strategy, venue));
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid VWAP request for {}/{}: {}", base, quote, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            log.warn("VWAP unavailable for {}/{}: {}", base, quote, e.getMessage());
+            return ResponseEntity.notFound().build();
+        } catch (NodeUnavailableException e) {
+            log.warn("VWAP for {}/{} incomplete: {}", base, quote, e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
         } catch (Exception e) {
             log.error("Error getting VWAP for {}/{}", base, quote, e);
             return ResponseEntity.internalServerError().build();
@@ -120,18 +187,280 @@ public class VwapController {
     @GetMapping(value = "/pair", params = "currencyPair")
     public ResponseEntity<VwapResult> getVwapByPair(
             @RequestParam String currencyPair,
-            @RequestParam(required = false) String timestamp) {
+            @RequestParam(required = false) String timestamp,
+            @RequestParam(required = false) String strategy,
+            @RequestParam(required = false) String venue) {
         try {
             String decodedPair = URLDecoder.decode(currencyPair, StandardCharsets.UTF_8);
             LocalDateTime time = timestamp != null ?
                     TimeParser.parse(timestamp) :
                     LocalDateTime.now();
 
-            VwapResult vwap = vwapCalculator.getVwap(decodedPair, time);
-            return ResponseEntity.ok(vwap);
+            return withValidator(vwap(decodedPair, time, strategy, venue));
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid VWAP request for {}: {}", currencyPair, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            log.warn("VWAP unavailable for {}: {}", currencyPair, e.getMessage());
+            return ResponseEntity.notFound().build();
+        } catch (NodeUnavailableException e) {
+            log.warn("VWAP for {} incomplete: {}", currencyPair, e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
         } catch (Exception e) {
             log.error("Error getting VWAP for {}", currencyPair, e);
             return ResponseEntity.internalServerError().build();
         }
     }
+
+    /**
+     * The pair's VWAP, optionally by a named strategy or over one venue's trades only; venue
+     * VWAPs are plain volume-weighted, so the two cannot be combined.
+     */
+    private VwapResult vwap(String currencyPair, LocalDateTime time, String strategy, String venue) {
+        if (venue != null) {
+            if (strategy != null) {
+                throw new IllegalArgumentException("A venue VWAP cannot be computed by strategy " + strategy);
+            }
+            return vwapCalculator.getVenueVwap(currencyPair, time, venue);
+        }
+        return strategy != null ?
+                vwapCalculator.getVwap(currencyPair, time, strategy) :
+                vwapCalculator.getVwap(currencyPair, time);
+    }
+
+    @GetMapping("/pair/{base}/{quote}/venues")
+    public ResponseEntity<List<VenueVwap>> getVenueBreakdown(
+            @PathVariable String base,
+            @PathVariable String quote,
+            @RequestParam(required = false) String timestamp) {
+        try {
+            String currencyPair = base + "/" + quote;
+            LocalDateTime time = timestamp != null ?
+                    TimeParser.parse(timestamp) :
+                    LocalDateTime.now();
+
+            return ResponseEntity.ok(vwapCalculator.getVenueBreakdown(currencyPair, time));
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid venue breakdown request for {}/{}: {}", base, quote, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            log.warn("Venue breakdown unavailable for {}/{}: {}", base, quote, e.getMessage());
+            return ResponseEntity.notFound().build();
+        } catch (Exception e) {
+            log.error("Error getting venue breakdown for {}/{}", base, quote, e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    @GetMapping("/pair/{base}/{quote}/profile")
+    public ResponseEntity<VolumeProfileResult> getVolumeProfile(
+            @PathVariable String base,
+            @PathVariable String quote,
+            @RequestParam(required = false) String date,
+            @RequestParam(defaultValue = "1") int bucketMinutes) {
+        try {
+            String currencyPair = base + "/" + quote;
+            LocalDate day = date != null ? LocalDate.parse(date) : LocalDate.now();
+
+            return ResponseEntity.ok(vwapCalculator.getVolumeProfile(currencyPair, day, bucketMinutes));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            log.warn("Invalid volume profile request for {}/{}: {}", base, quote, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            log.warn("Volume profile unavailable for {}/{}: {}", base, quote, e.getMessage());
+            return ResponseEntity.notFound().build();
+        } catch (Exception e) {
+            log.error("Error getting volume profile for {}/{}", base, quote, e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    @GetMapping("/pair/{base}/{quote}/distribution")
+    public ResponseEntity<VwapDistributionResult> getVwapDistribution(
+            @PathVariable String base,
+            @PathVariable String quote,
+            @RequestParam(required = false) String timestamp,
+            @RequestParam(required = false) double[] quantiles) {
+        try {
+            String currencyPair = base + "/" + quote;
+            LocalDateTime time = timestamp != null ?
+                    TimeParser.parse(timestamp) :
+                    LocalDateTime.now();
+
+            VwapDistributionResult result = vwapCalculator.getVwapDistribution(
+                    currencyPair, time, quantiles != null ? quantiles : DEFAULT_QUANTILES);
+            return ResponseEntity.ok(result);
+        } catch (IllegalStateException e) {
+            log.warn("Price distribution unavailable for {}/{}: {}", base, quote, e.getMessage());
+            return ResponseEntity.notFound().build();
+        } catch (Exception e) {
+            log.error("Error getting VWAP distribution for {}/{}", base, quote, e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    @GetMapping("/pair/{base}/{quote}/bar")
+    public ResponseEntity<VwapBarResult> getBar(
+            @PathVariable String base,
+            @PathVariable String quote,
+            @RequestParam(required = false) String timestamp) {
+        try {
+            String currencyPair = base + "/" + quote;
+            LocalDateTime time = timestamp != null ?
+                    TimeParser.parse(timestamp) :
+                    LocalDateTime.now();
+
+            return ResponseEntity.ok(vwapCalculator.getBar(currencyPair, time));
+        } catch (IllegalStateException e) {
+            log.warn("Bar unavailable for {}/{}: {}", base, quote, e.getMessage());
+            return ResponseEntity.notFound().build();
+        } catch (NodeUnavailableException e) {
+            log.warn("Bar for {}/{} incomplete: {}", base, quote, e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        } catch (Exception e) {
+            log.error("Error getting bar for {}/{}", base, quote, e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    @GetMapping("/pair/{base}/{quote}/bands")
+    public ResponseEntity<VwapBandsResult> getBands(
+            @PathVariable String base,
+            @PathVariable String quote,
+            @RequestParam(required = false) String timestamp,
+            @RequestParam(defaultValue = "2") double k) {
+        try {
+            String currencyPair = base + "/" + quote;
+            LocalDateTime time = timestamp != null ?
+                    TimeParser.parse(timestamp) :
+                    LocalDateTime.now();
+
+            return ResponseEntity.ok(vwapCalculator.getBands(currencyPair, time, k));
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid bands request for {}/{}: {}", base, quote, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            log.warn("Bands unavailable for {}/{}: {}", base, quote, e.getMessage());
+            return ResponseEntity.notFound().build();
+        } catch (NodeUnavailableException e) {
+            log.warn("Bands for {}/{} incomplete: {}", base, quote, e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        } catch (Exception e) {
+            log.error("Error getting bands for {}/{}", base, quote, e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    @DeleteMapping("/pair/{base}/{quote}/trades/{id}")
+    public ResponseEntity<VwapResult> cancelTrade(
+            @PathVariable String base,
+            @PathVariable String quote,
+            @PathVariable String id) {
+        try {
+            return ResponseEntity.ok(vwapCalculator.cancelTrade(base + "/" + quote, id));
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid cancel of trade {} for {}/{}: {}", id, base, quote, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            log.warn("Cannot cancel trade {} for {}/{}: {}", id, base, quote, e.getMessage());
+            return ResponseEntity.notFound().build();
+        } catch (Exception e) {
+            log.error("Error cancelling trade {} for {}/{}", id, base, quote, e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    @PutMapping("/pair/{base}/{quote}/trades/{id}")
+    public ResponseEntity<VwapResult> amendTrade(
+            @PathVariable String base,
+            @PathVariable String quote,
+            @PathVariable String id,
+            @RequestBody TradeAmendment amendment) {
+        try {
+            return ResponseEntity.ok(vwapCalculator.amendTrade(base + "/" + quote, id,
+                    amendment.getPrice(), amendment.getVolume()));
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid amendment of trade {} for {}/{}: {}", id, base, quote, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            log.warn("Cannot amend trade {} for {}/{}: {}", id, base, quote, e.getMessage());
+            return ResponseEntity.notFound().build();
+        } catch (Exception e) {
+            log.error("Error amending trade {} for {}/{}", id, base, quote, e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    @GetMapping("/pairs")
+    public ResponseEntity<List<VwapResult>> getVwaps(
+            @RequestParam List<String> currencyPairs,
+            @RequestParam(required = false) String timestamp,
+            @RequestParam(required = false) String strategy) {
+        try {
+            LocalDateTime time = timestamp != null ?
+                    TimeParser.parse(timestamp) :
+                    LocalDateTime.now();
+
+            return ResponseEntity.ok(strategy != null ?
+                    vwapCalculator.getVwaps(currencyPairs, time, strategy) :
+                    vwapCalculator.getVwaps(currencyPairs, time));
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid VWAP request for {}: {}", currencyPairs, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            log.warn("VWAP unavailable for {}: {}", currencyPairs, e.getMessage());
+            return ResponseEntity.notFound().build();
+        } catch (NodeUnavailableException e) {
+            log.warn("VWAP for {} incomplete: {}", currencyPairs, e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        } catch (Exception e) {
+            log.error("Error getting VWAP for {}", currencyPairs, e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    @GetMapping("/top")
+    public ResponseEntity<List<PairActivity>> getTopPairs(
+            @RequestParam(defaultValue = "10") int n,
+            @RequestParam(defaultValue = "volume") String by) {
+        try {
+            return ResponseEntity.ok(vwapCalculator.getTopPairs(n, by));
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid top pairs request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (NodeUnavailableException e) {
+            log.warn("Top pairs incomplete: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        } catch (Exception e) {
+            log.error("Error getting top pairs", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    @GetMapping("/snapshot")
+    public ResponseEntity<List<VwapResult>> getSnapshot(
+            @RequestParam(required = false) String timestamp,
+            @RequestParam(required = false) String strategy) {
+        try {
+            LocalDateTime time = timestamp != null ?
+                    TimeParser.parse(timestamp) :
+                    LocalDateTime.now();
+
+            return ResponseEntity.ok(strategy != null ?
+                    vwapCalculator.getSnapshot(time, strategy) :
+                    vwapCalculator.getSnapshot(time));
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid VWAP snapshot request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            log.warn("VWAP snapshot unavailable: {}", e.getMessage());
+            return ResponseEntity.notFound().build();
+        } catch (NodeUnavailableException e) {
+            log.warn("VWAP snapshot incomplete: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        } catch (Exception e) {
+            log.error("Error getting VWAP snapshot", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
 }
@@ -0,0 +1,13 @@
+package com.exercise.vwap.domain;
+
+import lombok.Value;
+
+@Value
+public class AllocationStats {
+  String endpoint;
+  long calls;
+  long items;          // trades ingested, 0 for queries
+  long allocatedBytes;
+  double bytesPerCall;
+  double bytesPerItem;
+}
@@ -0,0 +1,14 @@
+package com.exercise.vwap.domain;
+
+import lombok.Value;
+
+@Value
+public class BackfillResult {
+  String file;
+  long bytes;
+  long trades;
+  long rejected;
+  long duplicates; // suppressed as already seen
+  int windows; // (pair, hour) windows merged into the live state
+  long elapsedMillis;
+}
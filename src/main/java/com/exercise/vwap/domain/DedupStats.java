@@ -0,0 +1,14 @@
+package com.exercise.vwap.domain;
+
+import lombok.Value;
+
+@Value
+public class DedupStats {
+  int hours;
+  long expectedTradesPerHour;
+  double falsePositiveRate;
+  long sizeInBytes;
+  long checked;
+  long duplicates;
+  long unchecked; // older than the oldest hour still held
+}
@@ -0,0 +1,19 @@
+package com.exercise.vwap.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Ingest settings that can be changed at runtime. In a change request, null leaves a setting
+ * as it is.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IngestTuning {
+  private Integer queueCapacity;
+  private Integer consumers; // threads draining the queue
+  private Integer maxCurrencyPairs;
+  private Integer retentionHours;
+}
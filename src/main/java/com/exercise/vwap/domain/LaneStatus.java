@@ -0,0 +1,12 @@
+package com.exercise.vwap.domain;
+
+import lombok.Value;
+
+@Value
+public class LaneStatus {
+  String lane;
+  int maxConcurrent;
+  int active;
+  long admitted;
+  long rejected; // turned away with 503 after waiting for a permit
+}
@@ -0,0 +1,26 @@
+package com.exercise.vwap.domain;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A pair's traded volume and notional, sum(price * volume), in one hour. Exchanged between
+ * cluster nodes when merging top-N rankings.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PairActivity {
+  private String currencyPair;
+  private LocalDateTime windowStart;
+  private double volume;
+  private double notional;
+  private double vwap;
+
+  public static PairActivity of(String currencyPair, LocalDateTime windowStart, double volume, double notional) {
+    return new PairActivity(currencyPair, windowStart, volume, notional, volume == 0 ? 0.0 : notional / volume);
+  }
+}
@@ -0,0 +1,21 @@
+package com.exercise.vwap.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Open, high, low and close of one window, with the open and close times as nanoseconds
+ * from the window start so that bars from different nodes or chunks can be merged.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PriceBar {
+  private long openTime;
+  private double open;
+  private double high;
+  private double low;
+  private long closeTime;
+  private double close;
+}
@@ -0,0 +1,326 @@
+package com.exercise.vwap.domain;
+
+import java.util.Arrays;
+
+import lombok.Getter;
+
+/**
+ * Volume-weighted price distribution sketch based on the merging t-digest.
+ * <p>
+ * Each trade is recorded as a (price, volume) point. Points are buffered and periodically
+ * compressed into at most {@code compression} centroids, so memory stays bounded no matter
+ * how many trades the window sees. Two sketches can be merged without loss of the bound,
+ * which is what lets {@link TradeWindow#merge(TradeWindow)} combine partial windows.
+ * Storage arrays start small and grow on demand up to the compression bound, so quiet
+ * windows cost almost nothing.
+ */
+public class PriceDistributionSketch {
+  private static final int INITIAL_CAPACITY = 8;
+
+  @Getter
+  private final int compression;
+  private final int maxCentroids;
+  private final int maxBuffer;
+
+  private double[] means = new double[INITIAL_CAPACITY];
+  private double[] weights = new double[INITIAL_CAPACITY];
+  private int centroidCount;
+
+  private double[] bufferMeans = new double[INITIAL_CAPACITY];
+  private double[] bufferWeights = new double[INITIAL_CAPACITY];
+  private int bufferCount;
+
+  private double[] scratchMeans = new double[INITIAL_CAPACITY];
+  private double[] scratchWeights = new double[INITIAL_CAPACITY];
+
+  private double totalWeight;
+  private double min = Double.POSITIVE_INFINITY;
+  private double max = Double.NEGATIVE_INFINITY;
+
+  public PriceDistributionSketch(int compression) {
+    if (compression < 10) {
+      throw new IllegalArgumentException("Sketch compression must be at least 10, got: " + compression);
+    }
+    this.compression = compression;
+    // The arcsine scale function keeps the digest below `compression` centroids
+    this.maxCentroids = compression + 1;
+    this.maxBuffer = compression;
+  }
+
+  public synchronized void add(double price, double volume) {
+    if (volume <= 0 || Double.isNaN(price)) {
+      return;
+    }
+    if (bufferCount == bufferMeans.length) {
+      if (bufferCount >= maxBuffer) {
+        compress();
+      } else {
+        growBuffer();
+      }
+    }
+    bufferMeans[bufferCount] = price;
+    bufferWeights[bufferCount] = volume;
+    bufferCount++;
+    totalWeight += volume;
+    min = Math.min(min, price);
+    max = Math.max(max, price);
+  }
+
+  /**
+   * Folds another sketch into this one. The other sketch is read under its own lock and
+   * left unchanged.
+   */
+  public void merge(PriceDistributionSketch other) {
+    if (other == null || other == this) {
+      return;
+    }
+    double[] otherMeans;
+    double[] otherWeights;
+    int otherCount;
+    double otherMin;
+    double otherMax;
+    synchronized (other) {
+      other.compress();
+      otherCount = other.centroidCount;
+      otherMeans = Arrays.copyOf(other.means, otherCount);
+      otherWeights = Arrays.copyOf(other.weights, otherCount);
+      otherMin = other.min;
+      otherMax = other.max;
+    }
+    synchronized (this) {
+      for (int i = 0; i < otherCount; i++) {
+        add(otherMeans[i], otherWeights[i]);
+      }
+      // Centroid means understate the true extremes, so carry them over explicitly
+      min = Math.min(min, otherMin);
+      max = Math.max(max, otherMax);
+    }
+  }
+
+  /**
+   * Returns the volume-weighted price at quantile {@code q}, or 0.0 for an empty sketch
+   * (matching how an empty window reports its VWAP).
+   */
+  public synchronized double quantile(double q) {
+    if (q < 0 || q > 1) {
+      throw new IllegalArgumentException("Quantile must be between 0 and 1, got: " + q);
+    }
+    compress();
+    if (centroidCount == 0) {
+      return 0.0;
+    }
+    if (centroidCount == 1) {
+      return means[0];
+    }
+
+    double target = q * totalWeight;
+    double firstCenter = weights[0] / 2;
+    if (target <= firstCenter) {
+      return interpolate(min, means[0], 0, firstCenter, target);
+    }
+
+    double cumulative = 0;
+    for (int i = 0; i < centroidCount - 1; i++) {
+      double leftCenter = cumulative + weights[i] / 2;
+      double rightCenter = cumulative + weights[i] + weights[i + 1] / 2;
+      if (target <= rightCenter) {
+        return interpolate(means[i], means[i + 1], leftCenter, rightCenter, target);
+      }
+      cumulative += weights[i];
+    }
+
+    double lastCenter = totalWeight - weights[centroidCount - 1] / 2;
+    return interpolate(means[centroidCount - 1], max, lastCenter, totalWeight, target);
+  }
+
+  /**
+   * The compressed sketch as {@code min, max}, then {@code mean, weight} for each centroid,
+   * for persisting it. {@link #addCentroids(double[])} folds it back in.
+   */
+  public synchronized double[] toCentroids() {
+    compress();
+    double[] centroids = new double[2 + 2 * centroidCount];
+    centroids[0] = min;
+    centroids[1] = max;
+    for (int i = 0; i < centroidCount; i++) {
+      centroids[2 + 2 * i] = means[i];
+      centroids[3 + 2 * i] = weights[i];
+    }
+    return centroids;
+  }
+
+  /**
+   * Folds in centroids in the form {@link #toCentroids()} gives them.
+   */
+  public synchronized void addCentroids(double[] centroids) {
+    for (int i = 2; i + 1 < centroids.length; i += 2) {
+      add(centroids[i], centroids[i + 1]);
+    }
+    if (centroids.length >= 2) {
+      min = Math.min(min, centroids[0]);
+      max = Math.max(max, centroids[1]);
+    }
+  }
+
+  public synchronized double getTotalWeight() {
+    return totalWeight;
+  }
+
+  public synchronized int getCentroidCount() {
+    compress();
+    return centroidCount;
+  }
+
+  /**
+   * Heap the sketch retains once its arrays have grown to the compression bound: six arrays
+   * of at most {@code compression + 1} doubles each.
+   */
+  public long maxSizeInBytes() {
+    return 96 + 6L * (16 + 8L * maxCentroids);
+  }
+
+  private static double interpolate(double fromValue, double toValue,
+                                    double fromWeight, double toWeight, double target) {
+    if (toWeight <= fromWeight) {
+      return fromValue;
+    }
+    double fraction = (target - fromWeight) / (toWeight - fromWeight);
+    return fromValue + fraction * (toValue - fromValue);
+  }
+
+  /**
+   * Merges buffered points into the centroid list. The buffer is sorted in place and then
+   * merged with the (already sorted) centroids, so no per-call allocation is needed once
+   * the arrays have reached their working size.
+   */
+  private void compress() {
+    if (bufferCount == 0) {
+      return;
+    }
+    sort(bufferMeans, bufferWeights, 0, bufferCount - 1);
+
+    int total = centroidCount + bufferCount;
+    ensureScratchCapacity(Math.min(total, maxCentroids));
+
+    int out = 0;
+    int ci = 0;
+    int bi = 0;
+    double weightSoFar = 0;
+    double kLeft = scale(0);
+    double curMean = 0;
+    double curWeight = 0;
+    boolean hasCurrent = false;
+
+    while (ci < centroidCount || bi < bufferCount) {
+      double nextMean;
+      double nextWeight;
+      if (bi >= bufferCount || (ci < centroidCount && means[ci] <= bufferMeans[bi])) {
+        nextMean = means[ci];
+        nextWeight = weights[ci++];
+      } else {
+        nextMean = bufferMeans[bi];
+        nextWeight = bufferWeights[bi++];
+      }
+
+      if (!hasCurrent) {
+        curMean = nextMean;
+        curWeight = nextWeight;
+        hasCurrent = true;
+        continue;
+      }
+
+      double proposed = curWeight + nextWeight;
+      double qRight = (weightSoFar + proposed) / totalWeight;
+      if (scale(qRight) - kLeft <= 1.0 || out >= maxCentroids - 1) {
+        curMean += (nextMean - curMean) * nextWeight / proposed;
+        curWeight = proposed;
+      } else {
+        scratchMeans[out] = curMean;
+        scratchWeights[out] = curWeight;
+        out++;
+        weightSoFar += curWeight;
+        kLeft = scale(weightSoFar / totalWeight);
+        curMean = nextMean;
+        curWeight = nextWeight;
+      }
+    }
+    if (hasCurrent) {
+      scratchMeans[out] = curMean;
+      scratchWeights[out] = curWeight;
+      out++;
+    }
+
+    double[] swapMeans = means;
+    double[] swapWeights = weights;
+    means = scratchMeans;
+    weights = scratchWeights;
+    scratchMeans = swapMeans;
+    scratchWeights = swapWeights;
+    centroidCount = out;
+    bufferCount = 0;
+  }
+
+  private double scale(double q) {
+    double clamped = Math.max(0.0, Math.min(1.0, q));
+    return compression / (2 * Math.PI) * Math.asin(2 * clamped - 1);
+  }
+
+  private void growBuffer() {
+    int newSize = Math.min(maxBuffer, bufferMeans.length * 2);
+    bufferMeans = Arrays.copyOf(bufferMeans, newSize);
+    bufferWeights = Arrays.copyOf(bufferWeights, newSize);
+  }
+
+  private void ensureScratchCapacity(int required) {
+    if (scratchMeans.length < required) {
+      int newSize = Math.min(maxCentroids, Math.max(required, scratchMeans.length * 2));
+      scratchMeans = new double[newSize];
+      scratchWeights = new double[newSize];
+    }
+  }
+
+  // In-place quicksort of parallel arrays keyed on the first one
+  private static void sort(double[] keys, double[] values, int lo, int hi) {
+    while (lo < hi) {
+      if (hi - lo < 16) {
+        for (int i = lo + 1; i <= hi; i++) {
+          double key = keys[i];
+          double value = values[i];
+          int j = i - 1;
+          while (j >= lo && keys[j] > key) {
+            keys[j + 1] = keys[j];
+            values[j + 1] = values[j];
+            j--;
+          }
+          keys[j + 1] = key;
+          values[j + 1] = value;
+        }
+        return;
+      }
+      double pivot = keys[(lo + hi) >>> 1];
+      int i = lo;
+      int j = hi;
+      while (i <= j) {
+        while (keys[i] < pivot) i++;
+        while (keys[j] > pivot) j--;
+        if (i <= j) {
+          double tk = keys[i];
+          keys[i] = keys[j];
+          keys[j] = tk;
+          double tv = values[i];
+          values[i] = values[j];
+          values[j] = tv;
+          i++;
+          j--;
+        }
+      }
+      if (j - lo < hi - i) {
+        sort(keys, values, lo, j);
+        lo = i;
+      } else {
+        sort(keys, values, i, hi);
+        hi = j;
+      }
+    }
+  }
+}
@@ -0,0 +1,22 @@
+package com.exercise.vwap.domain;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Slice of the primary's replication log. {@code trades} carries consecutive sequences
+ * starting at {@code firstSequence}. When the requested position is no longer retained
+ * the batch is empty and {@code resyncRequired} tells the replica to load a full snapshot.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReplicationBatch {
+  private long firstSequence;
+  private long headSequence;
+  private List<TradeEvent> trades;
+  private boolean resyncRequired;
+}
@@ -0,0 +1,12 @@
+package com.exercise.vwap.domain;
+
+import lombok.Value;
+
+@Value
+public class ReplicationStatus {
+  String role;
+  long appliedSequence;
+  long primaryHeadSequence;
+  long lagTrades;
+  long stalenessMillis; // time since the replica last held everything the primary had
+}
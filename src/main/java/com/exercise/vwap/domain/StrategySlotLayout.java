@@ -0,0 +1,34 @@
+package com.exercise.vwap.domain;
+
+/**
+ * How a window keeps the per-trade state of incremental VWAP strategies: one {@code double[]}
+ * per window, split into a fixed range per strategy. The strategy registry implements it, so
+ * windows depend on this contract rather than on the strategies themselves.
+ */
+public interface StrategySlotLayout {
+  /**
+   * Fresh zeroed slots for a new window, or null when no strategy is updated per trade.
+   */
+  double[] newSlots();
+
+  void onTrade(double[] slots, long time, double price, double volume);
+
+  void onCancel(double[] slots, long time, double price, double volume);
+
+  /**
+   * Folds another partial of the same window into {@code target}.
+   */
+  void merge(double[] target, double[] source);
+
+  /**
+   * Offset of the reader's slots, or -1 if this layout does not hold them.
+   */
+  int offsetOf(SlotReader reader);
+
+  /**
+   * Computes one strategy's VWAP from its range of a window's slots.
+   */
+  interface SlotReader {
+    double calculateVwap(double[] slots, int offset);
+  }
+}
@@ -0,0 +1,12 @@
+package com.exercise.vwap.domain;
+
+import lombok.Value;
+
+@Value
+public class TierStats {
+  int pairs; // cold pairs held in the tier now
+  int windows;
+  long sizeInBytes; // file mapped so far
+  long spilledPairs;
+  long pagedInPairs;
+}
@@ -26,12 +26,35 @@ public class Trade {
     @Positive(message = "Volume must be positive")
     private final double volume;
 
+    // Optional id assigned by the source; only trades with an id can later be amended or cancelled
+    private final String id;
+
+    // Optional venue or source the trade printed on; trades with one also count towards its VWAP
+    private final String venue;
+
+    public static final int MAX_VENUE_LENGTH = 32;
+
     public Trade(LocalDateTime timestamp, String currencyPair, double price, double volume) {
+        this(timestamp, currencyPair, price, volume, null);
+    }
+
+    public Trade(LocalDateTime timestamp, String currencyPair, double price, double volume, String id) {
+        this(timestamp, currencyPair, price, volume, id, null);
+    }
+
+    public Trade(LocalDateTime timestamp, String currencyPair, double price, double volume, String id,
+                 String venue) {
         validateInputs(timestamp, currencyPair, price, volume);
+        if (venue != null && !isValidVenue(venue)) {
+            throw new IllegalArgumentException("Invalid venue. Expected 1 to " + MAX_VENUE_LENGTH
+                    + " letters, digits, '.', '_' or '-', got: " + venue);
+        }
         this.timestamp = timestamp;
         this.currencyPair = currencyPair;
         this.price = price;
         this.volume = volume;
+        this.id = id;
+        this.venue = venue;
     }
 
     private void validateInputs(LocalDateTime timestamp, String currencyPair, double price, double volume) {
@@ -41,15 +64,52 @@ public class Trade {
         if (currencyPair == null || currencyPair.trim().isEmpty()) {
             throw new IllegalArgumentException("Currency pair must not be null or empty");
         }
-        if (!currencyPair.matches("[A-Z]{3}/[A-Z]{3}")) {
+        if (!isValidCurrencyPair(currencyPair)) {
             throw new IllegalArgumentException(
                     "Invalid currency pair format. Expected format: XXX/YYY, got: " + currencyPair);
         }
-        if (price <= 0) {
-            throw new IllegalArgumentException("Price must be positive, got: " + price);
+        // Negated so NaN fails too; a NaN or infinity would poison every sum it is added to
+        if (!(price > 0) || Double.isInfinite(price)) {
+            throw new IllegalArgumentException("Price must be positive and finite, got: " + price);
+        }
+        if (!(volume > 0) || Double.isInfinite(volume)) {
+            throw new IllegalArgumentException("Volume must be positive and finite, got: " + volume);
+        }
+    }
+
+    /**
+     * Checks the XXX/YYY format of {@link #currencyPair} without a regex, which would
+     * compile a pattern and allocate a matcher for every trade.
+     */
+    public static boolean isValidCurrencyPair(String currencyPair) {
+        if (currencyPair.length() != 7 || currencyPair.charAt(3) != '/') {
+            return false;
+        }
+        for (int i = 0; i < 7; i++) {
+            char c = currencyPair.charAt(i);
+            if (i != 3 && (c < 'A' || c > 'Z')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks that a venue name is 1 to {@link #MAX_VENUE_LENGTH} ASCII letters, digits, dots,
+     * underscores or hyphens, again without a regex.
+     */
+    public static boolean isValidVenue(String venue) {
+        int length = venue.length();
+        if (length == 0 || length > MAX_VENUE_LENGTH) {
+            return false;
         }
-        if (volume <= 0) {
-            throw new IllegalArgumentException("Volume must be positive, got: " + volume);
+        for (int i = 0; i < length; i++) {
+            char c = venue.charAt(i);
+            if (!(c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z' || c >= '0' && c <= '9'
+                    || c == '.' || c == '_' || c == '-')) {
+                return false;
+            }
         }
+        return true;
     }
 }
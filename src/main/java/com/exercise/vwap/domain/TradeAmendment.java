@@ -0,0 +1,16 @@
+package com.exercise.vwap.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Corrected price and volume for an already ingested trade; the trade keeps its time.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TradeAmendment {
+  private double price;
+  private double volume;
+}
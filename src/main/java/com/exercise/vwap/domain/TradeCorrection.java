@@ -0,0 +1,14 @@
+package com.exercise.vwap.domain;
+
+import lombok.Value;
+
+/**
+ * An applied amendment or cancellation: the trade taken back out of its window and, for an
+ * amendment, the trade put in its place at the same time. Carried by the journal and the
+ * replication log so that corrections survive a restart and reach replicas.
+ */
+@Value
+public class TradeCorrection {
+  Trade original;
+  Trade amended; // null for a cancellation
+}
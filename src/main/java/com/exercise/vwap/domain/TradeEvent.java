@@ -0,0 +1,54 @@
+package com.exercise.vwap.domain;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Wire form of an already-parsed trade, exchanged between service instances.
+ * Unlike {@link TradeInput} it keeps the full timestamp. A replicated correction carries the
+ * trade it takes back in {@code corrects}; its own fields then hold the amended trade, or are
+ * empty for a cancellation.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TradeEvent {
+  private LocalDateTime timestamp;
+  private String currencyPair;
+  private double price;
+  private double volume;
+  private String id;
+  private String venue;
+  private TradeEvent corrects;
+
+  public TradeEvent(LocalDateTime timestamp, String currencyPair, double price, double volume, String id) {
+    this(timestamp, currencyPair, price, volume, id, null);
+  }
+
+  public TradeEvent(LocalDateTime timestamp, String currencyPair, double price, double volume, String id,
+                    String venue) {
+    this(timestamp, currencyPair, price, volume, id, venue, null);
+  }
+
+  public static TradeEvent of(Trade trade) {
+    return new TradeEvent(trade.getTimestamp(), trade.getCurrencyPair(), trade.getPrice(), trade.getVolume(),
+        trade.getId(), trade.getVenue());
+  }
+
+  public static TradeEvent of(TradeCorrection correction) {
+    TradeEvent event = correction.getAmended() == null ? new TradeEvent() : of(correction.getAmended());
+    event.setCorrects(of(correction.getOriginal()));
+    return event;
+  }
+
+  public Trade toTrade() {
+    return new Trade(timestamp, currencyPair, price, volume, id, venue);
+  }
+
+  public TradeCorrection toCorrection() {
+    return new TradeCorrection(corrects.toTrade(), timestamp == null ? null : toTrade());
+  }
+}
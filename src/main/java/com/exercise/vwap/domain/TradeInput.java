@@ -12,4 +12,14 @@ public class TradeInput {
   private String currencyPair; // "EUR/USD" format
   private double price;        // 1.1234 format
   private double volume;       // 100000 format
+  private String id;           // optional, needed to amend or cancel the trade later
+  private String venue;        // optional, "EBS" format
+
+  public TradeInput(String timestamp, String currencyPair, double price, double volume) {
+    this(timestamp, currencyPair, price, volume, null);
+  }
+
+  public TradeInput(String timestamp, String currencyPair, double price, double volume, String id) {
+    this(timestamp, currencyPair, price, volume, id, null);
+  }
 }
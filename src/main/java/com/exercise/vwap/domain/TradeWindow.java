@@ -3,33 +3,305 @@ package com.exercise.vwap.domain;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+import com.exercise.vwap.utils.BatchSums;
 import com.google.common.util.concurrent.AtomicDouble;
 import lombok.AccessLevel;
 import lombok.Getter;
-import lombok.RequiredArgsConstructor;
 import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 
 
-@RequiredArgsConstructor
 @Getter
 @Slf4j
 public class TradeWindow {
   private final LocalDateTime windowStart;
   private final AtomicDouble sumPriceVolume = new AtomicDouble(0.0);
   private final AtomicDouble sumVolume = new AtomicDouble(0.0);
+  // Second volume-weighted moment, sum(price^2 * volume); NaN when restored from totals without it
+  private final AtomicDouble sumPriceSquaredVolume = new AtomicDouble(0.0);
   private final AtomicInteger tradeCount = new AtomicInteger(0);
 
+  // Set once the pair's watermark passes the end of the window. Every later change (a late
+  // trade or a correction) bumps the version, so caches of a sealed hour know to refresh.
+  private volatile boolean sealed;
+  @Getter(AccessLevel.NONE)
+  private final AtomicLong version = new AtomicLong(0);
+
+  // Optional volume-weighted price distribution, null when sketches are disabled
+  @Getter(AccessLevel.NONE)
+  private final PriceDistributionSketch priceSketch;
+
+  // Optional open/high/low/close, null when bars are disabled
+  @Getter(AccessLevel.NONE)
+  private final BarAccumulator bar;
+
+  // Per-trade state of incremental strategies in one array, null when none are tracked
+  @Getter(AccessLevel.NONE)
+  private final StrategySlotLayout strategies;
+  @Getter(AccessLevel.NONE)
+  private final double[] strategySlots;
+  // Set once trades reach the sums without reaching the slots, which then no longer match them
+  @Getter(AccessLevel.NONE)
+  private volatile boolean strategiesUnknown;
+
+  // Sums per venue, created by the first trade that has one so windows without venues pay nothing
+  @Getter(AccessLevel.NONE)
+  private volatile VenueBreakdown venues;
+  // Set once trades reach the sums without their venues (restored totals, journal replay), so
+  // the split no longer covers the window
+  private volatile boolean venuesUnknown;
+
   private static final int MAX_TRADES_PER_WINDOW = 1_000_000;
 
-  public void addTrade(Trade trade) {
+  // Rough retained sizes with compressed oops: the window with its atomics, plus its entry and
+  // LocalDateTime key in a window map; and a bar accumulator
+  private static final int BASE_SIZE_BYTES = 320;
+  private static final int BAR_SIZE_BYTES = 72;
+
+  public TradeWindow(LocalDateTime windowStart) {
+    this(windowStart, 0);
+  }
+
+  /**
+   * @param sketchCompression t-digest compression for the price distribution sketch,
+   *                          or 0 to keep only the VWAP sums
+   */
+  public TradeWindow(LocalDateTime windowStart, int sketchCompression) {
+    this(windowStart, sketchCompression, false);
+  }
+
+  /**
+   * @param trackBar whether to keep open, high, low and close alongside the VWAP sums
+   */
+  public TradeWindow(LocalDateTime windowStart, int sketchCompression, boolean trackBar) {
+    this(windowStart, sketchCompression, trackBar, null);
+  }
+
+  /**
+   * @param strategies layout of the incremental strategies updated with every trade, or null
+   */
+  public TradeWindow(LocalDateTime windowStart, int sketchCompression, boolean trackBar,
+                     StrategySlotLayout strategies) {
+    this.windowStart = windowStart;
+    this.priceSketch = sketchCompression > 0 ? new PriceDistributionSketch(sketchCompression) : null;
+    this.bar = trackBar ? new BarAccumulator() : null;
+    this.strategySlots = strategies == null ? null : strategies.newSlots();
+    this.strategies = strategySlots == null ? null : strategies;
+  }
+
+  /**
+   * Rebuilds a window from its accumulated totals, e.g. when it was shipped from another node.
+   * The second moment is unknown, so the window reports no variance.
+   */
+  public static TradeWindow fromTotals(LocalDateTime windowStart, double sumPriceVolume,
+                                       double sumVolume, int tradeCount) {
+    return fromTotals(windowStart, sumPriceVolume, sumVolume, Double.NaN, tradeCount, null);
+  }
+
+  /**
+   * As {@link #fromTotals(LocalDateTime, double, double, int)}, also restoring the second moment
+   * (NaN if unknown) and the bar when {@code bar} is not null.
+   */
+  public static TradeWindow fromTotals(LocalDateTime windowStart, double sumPriceVolume, double sumVolume,
+                                       double sumPriceSquaredVolume, int tradeCount, PriceBar bar) {
+    TradeWindow window = new TradeWindow(windowStart, 0, bar != null);
+    if (bar != null) {
+      window.bar.merge(bar);
+    }
+    window.sumPriceVolume.set(sumPriceVolume);
+    window.sumVolume.set(sumVolume);
+    window.sumPriceSquaredVolume.set(sumPriceSquaredVolume);
+    window.tradeCount.set(tradeCount);
+    return window;
+  }
+
+  /**
+   * Adds a trade to the sums and, when tracked, the sketch, bar and incremental strategies.
+   * Returns false if the window is full.
+   */
+  public boolean addTrade(Trade trade) {
+    return addTrade(trade, -1);
+  }
+
+  /**
+   * As {@link #addTrade(Trade)}, also counting the trade towards {@code venue}, an interned
+   * venue id, unless it is negative.
+   */
+  public boolean addTrade(Trade trade, int venue) {
+    if (!addToSums(trade.getPrice(), trade.getVolume())) {
+      return false;
+    }
+    if (venue >= 0) {
+      venues().add(venue, trade.getPrice(), trade.getVolume());
+    }
+    if (bar == null && strategySlots == null) {
+      return true;
+    }
+    long time = BarAccumulator.timeInHour(trade.getTimestamp());
+    if (bar != null) {
+      bar.add(time, trade.getPrice());
+    }
+    if (strategySlots != null) {
+      synchronized (strategySlots) {
+        strategies.onTrade(strategySlots, time, trade.getPrice(), trade.getVolume());
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Adds an already validated trade without materialising a {@link Trade}, for bulk loaders.
+   * There is no trade time here, so the bar is not updated and incremental strategies are
+   * reported as unknown from then on. Returns false if the window is full.
+   */
+  public boolean addTrade(double price, double volume) {
+    if (!addToSums(price, volume)) {
+      return false;
+    }
+    if (strategySlots != null) {
+      strategiesUnknown = true;
+    }
+    return true;
+  }
+
+  private boolean addToSums(double price, double volume) {
     if (tradeCount.incrementAndGet() <= MAX_TRADES_PER_WINDOW) {
-      sumPriceVolume.addAndGet(trade.getPrice() * trade.getVolume());
-      sumVolume.addAndGet(trade.getVolume());
+      double priceVolume = price * volume;
+      add(sumPriceVolume, priceVolume);
+      add(sumVolume, volume);
+      add(sumPriceSquaredVolume, price * priceVolume);
+      if (priceSketch != null) {
+        priceSketch.add(price, volume);
+      }
+      return true;
     } else {
       tradeCount.decrementAndGet();
       log.warn("Maximum trades per window reached for window starting at: {}", windowStart);
+      return false;
+    }
+  }
+
+  /**
+   * Adds a batch of already validated trades from parallel time, price and volume columns.
+   * The sums are computed with {@link BatchSums} and applied with one atomic update each, and
+   * the bar takes its lock once for the whole batch. Times are nanoseconds from the start of
+   * the hour, as given by {@link BarAccumulator#timeInHour}. Returns how many trades, from the
+   * front of the batch, the window took before reaching its trade limit.
+   */
+  public int addTrades(long[] times, double[] prices, double[] volumes, int from, int to) {
+    return addTrades(times, prices, volumes, null, from, to);
+  }
+
+  /**
+   * As {@link #addTrades(long[], double[], double[], int, int)}, also counting each trade
+   * towards its interned venue id in {@code venueIds} unless that is negative. The venue
+   * column may be null when no trade has a venue.
+   */
+  public int addTrades(long[] times, double[] prices, double[] volumes, int[] venueIds, int from, int to) {
+    int count = to - from;
+    if (count <= 0) {
+      return 0;
+    }
+    int before = tradeCount.getAndAdd(count);
+    int accepted = Math.min(count, Math.max(0, MAX_TRADES_PER_WINDOW - before));
+    if (accepted < count) {
+      tradeCount.addAndGet(accepted - count);
+      log.warn("Maximum trades per window reached for window starting at: {}", windowStart);
+      if (accepted == 0) {
+        return 0;
+      }
+    }
+    double[] sums = new double[3];
+    BatchSums.sums(prices, volumes, from, from + accepted, sums);
+    add(sumPriceVolume, sums[0]);
+    add(sumVolume, sums[1]);
+    add(sumPriceSquaredVolume, sums[2]);
+    if (priceSketch != null) {
+      for (int i = from; i < from + accepted; i++) {
+        priceSketch.add(prices[i], volumes[i]);
+      }
+    }
+    if (bar != null) {
+      bar.addAll(times, prices, from, from + accepted);
+    }
+    if (venueIds != null && hasVenue(venueIds, from, from + accepted)) {
+      venues().addAll(venueIds, prices, volumes, from, from + accepted);
+    }
+    if (strategySlots != null) {
+      synchronized (strategySlots) {
+        for (int i = from; i < from + accepted; i++) {
+          strategies.onTrade(strategySlots, times[i], prices[i], volumes[i]);
+        }
+      }
+    }
+    return accepted;
+  }
+
+  /**
+   * Takes a trade back out of the window in O(1), for cancels and amendments; the arguments must
+   * be those the trade was added with. The sums, second moment, trade count and incremental
+   * strategies are reversed up to floating point rounding. The bar and the price sketch cannot
+   * give a print back and keep it. {@code time} is as for {@link #addTrades}.
+   */
+  public void removeTrade(long time, double price, double volume) {
+    removeTrade(time, price, volume, -1);
+  }
+
+  /**
+   * As {@link #removeTrade(long, double, double)}, also taking the trade back out of
+   * {@code venue}'s sums unless it is negative.
+   */
+  public void removeTrade(long time, double price, double volume, int venue) {
+    if (venue >= 0) {
+      venues().remove(venue, price, volume);
+    }
+    double priceVolume = price * volume;
+    add(sumPriceVolume, -priceVolume);
+    add(sumVolume, -volume);
+    add(sumPriceSquaredVolume, -price * priceVolume);
+    tradeCount.decrementAndGet();
+    if (strategySlots != null) {
+      synchronized (strategySlots) {
+        strategies.onCancel(strategySlots, time, price, volume);
+      }
+    }
+  }
+
+  private VenueBreakdown venues() {
+    VenueBreakdown current = venues;
+    if (current == null) {
+      synchronized (this) {
+        current = venues;
+        if (current == null) {
+          current = new VenueBreakdown();
+          venues = current;
+        }
+      }
+    }
+    return current;
+  }
+
+  private static boolean hasVenue(int[] venueIds, int from, int to) {
+    for (int i = from; i < to; i++) {
+      if (venueIds[i] >= 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Lock-free add. Guava's {@link AtomicDouble#addAndGet} goes through a capturing lambda and
+   * allocates on every call, which would put garbage on the per-trade path.
+   */
+  private static void add(AtomicDouble target, double delta) {
+    while (true) {
+      double current = target.get();
+      if (target.compareAndSet(current, current + delta)) {
+        return;
+      }
     }
   }
 
@@ -38,13 +310,210 @@ public class TradeWindow {
     return volume == 0 ? 0.0 : sumPriceVolume.get() / volume;
   }
 
+  /**
+   * Volume-weighted variance of trade prices around the VWAP, from the running moments as
+   * {@code sum(p^2 v) / sum(v) - vwap^2}. Doubles leave about eight significant digits for the
+   * variance of FX-scale prices, which is ample for bands. Returns 0 for an empty window and
+   * NaN when the second moment is unknown.
+   */
+  public double getVwapVariance() {
+    double volume = sumVolume.get();
+    if (volume == 0) {
+      return 0.0;
+    }
+    double vwap = sumPriceVolume.get() / volume;
+    return Math.max(0.0, sumPriceSquaredVolume.get() / volume - vwap * vwap);
+  }
+
+  public double getVwapStdDev() {
+    return Math.sqrt(getVwapVariance());
+  }
+
+  public boolean hasPriceDistribution() {
+    return priceSketch != null;
+  }
+
+  /**
+   * Volume-weighted price at quantile {@code q} (0.5 is the volume-weighted median).
+   * Returns NaN when this window does not carry a price sketch.
+   */
+  public double getPriceQuantile(double q) {
+    return priceSketch == null ? Double.NaN : priceSketch.quantile(q);
+  }
+
+  /**
+   * The price sketch in the form {@link PriceDistributionSketch#toCentroids()} gives, or null
+   * when this window does not carry one.
+   */
+  public double[] getPriceSketchCentroids() {
+    return priceSketch == null ? null : priceSketch.toCentroids();
+  }
+
+  /**
+   * Folds persisted centroids into this window's price sketch, if it has one.
+   */
+  public void addPriceSketchCentroids(double[] centroids) {
+    if (priceSketch != null && centroids != null) {
+      priceSketch.addCentroids(centroids);
+    }
+  }
+
+  public boolean hasBar() {
+    return bar != null;
+  }
+
+  /**
+   * Open, high, low and close so far, or null when bars are not tracked or there are no trades.
+   */
+  public PriceBar getBar() {
+    return bar == null ? null : bar.snapshot();
+  }
+
+  /**
+   * The sums split by venue, or null if no trade in the window had a venue. Check
+   * {@link #isVenuesUnknown()} first: the split may miss trades whose venue was not kept.
+   */
+  public VenueBreakdown getVenueBreakdown() {
+    return venues;
+  }
+
+  /**
+   * Flags the venue split as incomplete if the window has trades, for windows whose trades
+   * arrived without the venue they were printed on.
+   */
+  public void markVenuesUnknown() {
+    if (tradeCount.get() > 0) {
+      venuesUnknown = true;
+    }
+  }
+
+  /**
+   * Value of an incremental strategy for this window, or NaN if the window does not track it or
+   * has taken trades its strategies did not see.
+   */
+  public double getStrategyVwap(StrategySlotLayout.SlotReader strategy) {
+    int offset = strategies == null || strategiesUnknown ? -1 : strategies.offsetOf(strategy);
+    if (offset < 0) {
+      return Double.NaN;
+    }
+    synchronized (strategySlots) {
+      return strategy.calculateVwap(strategySlots, offset);
+    }
+  }
+
+  /**
+   * A copy of the incremental strategies' state, or null when none are tracked or they are unknown.
+   */
+  public double[] getStrategySlots() {
+    if (strategySlots == null || strategiesUnknown) {
+      return null;
+    }
+    synchronized (strategySlots) {
+      return strategySlots.clone();
+    }
+  }
+
+  /**
+   * Restores the incremental strategies' state from a copy taken with the same registry layout.
+   * Returns false, leaving the state as it is, if this window does not track the same number of
+   * slots.
+   */
+  public boolean restoreStrategySlots(double[] slots) {
+    if (strategySlots == null || slots == null || slots.length != strategySlots.length) {
+      return false;
+    }
+    synchronized (strategySlots) {
+      System.arraycopy(slots, 0, strategySlots, 0, slots.length);
+    }
+    strategiesUnknown = false;
+    return true;
+  }
+
+  /**
+   * Estimate of the heap this window retains, including its slot in a window map. A price
+   * sketch is counted at its full size, which it grows towards as the window fills.
+   */
+  public long estimateSizeInBytes() {
+    long size = BASE_SIZE_BYTES;
+    if (priceSketch != null) {
+      size += priceSketch.maxSizeInBytes();
+    }
+    if (bar != null) {
+      size += BAR_SIZE_BYTES;
+    }
+    if (strategySlots != null) {
+      size += 16 + 8L * strategySlots.length;
+    }
+    return size;
+  }
+
+  /**
+   * Restores the seal and version of a window rebuilt from a copy of it.
+   */
+  public void restoreVersion(boolean sealed, long version) {
+    this.sealed = sealed;
+    this.version.set(version);
+  }
+
+  public void seal() {
+    sealed = true;
+  }
+
+  /**
+   * Records a change to a sealed window and returns the new version.
+   */
+  public long bumpVersion() {
+    return version.incrementAndGet();
+  }
+
+  public long getVersion() {
+    return version.get();
+  }
+
+  public LocalDateTime getWindowEnd() {
+    return windowStart.plusHours(1);
+  }
+
   public boolean isExpired(LocalDateTime currentTime) {
     return ChronoUnit.HOURS.between(windowStart, currentTime) >= 1;
   }
 
+  /**
+   * Folds another partial of the same hour into this window. Incremental strategies are merged
+   * only from a partial laid out by the same {@link StrategySlotLayout}; a partial with trades
+   * but no such slots leaves them unknown, so strategy queries fail rather than undercount. An
+   * unknown venue split carries over the same way.
+   */
   public void merge(TradeWindow other) {
-    sumPriceVolume.addAndGet(other.sumPriceVolume.get());
-    sumVolume.addAndGet(other.sumVolume.get());
+    add(sumPriceVolume, other.sumPriceVolume.get());
+    add(sumVolume, other.sumVolume.get());
+    add(sumPriceSquaredVolume, other.sumPriceSquaredVolume.get());
     tradeCount.addAndGet(other.tradeCount.get());
+    if (priceSketch != null && other.priceSketch != null) {
+      priceSketch.merge(other.priceSketch);
+    }
+    if (bar != null && other.bar != null) {
+      bar.merge(other.bar);
+    }
+    if (other.venues != null) {
+      venues().merge(other.venues);
+    }
+    if (other.venuesUnknown) {
+      venuesUnknown = true;
+    }
+    if (strategySlots != null && (other.strategies != strategies || other.strategiesUnknown)) {
+      // The other partial's trades never reached slots laid out like these
+      if (other.tradeCount.get() > 0) {
+        strategiesUnknown = true;
+      }
+    } else if (strategySlots != null) {
+      double[] source;
+      synchronized (other.strategySlots) {
+        source = other.strategySlots.clone();
+      }
+      synchronized (strategySlots) {
+        strategies.merge(strategySlots, source);
+      }
+    }
   }
 }
@@ -0,0 +1,120 @@
+package com.exercise.vwap.domain;
+
+import java.util.Arrays;
+
+/**
+ * A window's sums split by venue, kept sparsely: one slot per venue that has traded in the
+ * window, keyed by the venue's interned id and found by a linear scan, which beats hashing for
+ * the handful of venues a pair trades on. Memory grows with the (pair, venue) combinations that
+ * are actually active, not with the number of venues known.
+ */
+public class VenueBreakdown {
+  private static final int INITIAL_CAPACITY = 2;
+  private static final int PRICE_VOLUME = 0;
+  private static final int VOLUME = 1;
+  private static final int COUNT = 2;
+  private static final int FIELDS = 3;
+
+  // All guarded by this
+  private int[] ids = new int[INITIAL_CAPACITY];
+  private double[] sums = new double[FIELDS * INITIAL_CAPACITY];
+  private int size;
+
+  synchronized void add(int venue, double price, double volume) {
+    accumulate(slotOf(venue), price * volume, volume, 1);
+  }
+
+  /**
+   * Adds the trades in {@code [from, to)} that have a venue, taking the lock once.
+   */
+  synchronized void addAll(int[] venues, double[] prices, double[] volumes, int from, int to) {
+    for (int i = from; i < to; i++) {
+      if (venues[i] >= 0) {
+        accumulate(slotOf(venues[i]), prices[i] * volumes[i], volumes[i], 1);
+      }
+    }
+  }
+
+  synchronized void remove(int venue, double price, double volume) {
+    accumulate(slotOf(venue), -price * volume, -volume, -1);
+  }
+
+  void merge(VenueBreakdown other) {
+    int[] otherIds;
+    double[] otherSums;
+    int otherSize;
+    synchronized (other) {
+      otherSize = other.size;
+      otherIds = Arrays.copyOf(other.ids, otherSize);
+      otherSums = Arrays.copyOf(other.sums, FIELDS * otherSize);
+    }
+    synchronized (this) {
+      for (int i = 0; i < otherSize; i++) {
+        accumulate(slotOf(otherIds[i]), otherSums[FIELDS * i + PRICE_VOLUME], otherSums[FIELDS * i + VOLUME],
+            otherSums[FIELDS * i + COUNT]);
+      }
+    }
+  }
+
+  /**
+   * Ids of the venues with trades in the window, in order of their first trade.
+   */
+  public synchronized int[] venueIds() {
+    int[] active = new int[size];
+    int count = 0;
+    for (int i = 0; i < size; i++) {
+      if (sums[FIELDS * i + COUNT] > 0) {
+        active[count++] = ids[i];
+      }
+    }
+    return Arrays.copyOf(active, count);
+  }
+
+  /**
+   * The venue's part of the window as a detached window holding its sums, or null if the
+   * venue has no trades in it. The second moment is not split by venue, so the window
+   * reports no variance.
+   */
+  public synchronized TradeWindow toWindow(int venue, TradeWindow whole) {
+    int slot = find(venue);
+    if (slot < 0 || sums[FIELDS * slot + COUNT] <= 0) {
+      return null;
+    }
+    TradeWindow window = TradeWindow.fromTotals(whole.getWindowStart(), sums[FIELDS * slot + PRICE_VOLUME],
+        sums[FIELDS * slot + VOLUME], (int) sums[FIELDS * slot + COUNT]);
+    window.restoreVersion(whole.isSealed(), whole.getVersion());
+    return window;
+  }
+
+  public synchronized int size() {
+    return size;
+  }
+
+  private int find(int venue) {
+    for (int i = 0; i < size; i++) {
+      if (ids[i] == venue) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private int slotOf(int venue) {
+    int slot = find(venue);
+    if (slot >= 0) {
+      return slot;
+    }
+    if (size == ids.length) {
+      ids = Arrays.copyOf(ids, size * 2);
+      sums = Arrays.copyOf(sums, FIELDS * size * 2);
+    }
+    ids[size] = venue;
+    return size++;
+  }
+
+  private void accumulate(int slot, double priceVolume, double volume, double count) {
+    sums[FIELDS * slot + PRICE_VOLUME] += priceVolume;
+    sums[FIELDS * slot + VOLUME] += volume;
+    sums[FIELDS * slot + COUNT] += count;
+  }
+}
@@ -0,0 +1,19 @@
+package com.exercise.vwap.domain;
+
+import lombok.Value;
+
+/**
+ * One venue's share of a pair's hour: its VWAP over the trades it printed, with their volume
+ * and count.
+ */
+@Value
+public class VenueVwap {
+  String venue;
+  double vwap;
+  double volume;
+  int tradeCount;
+
+  public static VenueVwap of(String venue, TradeWindow window) {
+    return new VenueVwap(venue, window.getVwap(), window.getSumVolume().get(), window.getTradeCount().get());
+  }
+}
@@ -0,0 +1,19 @@
+package com.exercise.vwap.domain;
+
+import java.time.LocalDate;
+
+import lombok.Value;
+
+/**
+ * Expected share of a pair's daily volume in each bucket of the trading day, first bucket at
+ * midnight. {@code cumulative[i]} is the share expected by the end of bucket {@code i}.
+ */
+@Value
+public class VolumeProfileResult {
+  String currencyPair;
+  LocalDate tradingDay;
+  int daysObserved; // completed days folded into the curve
+  int bucketMinutes;
+  double[] fractions;
+  double[] cumulative;
+}
@@ -0,0 +1,19 @@
+package com.exercise.vwap.domain;
+
+import java.time.LocalDateTime;
+
+import lombok.Value;
+
+/**
+ * VWAP with bands {@code k} volume-weighted standard deviations either side of it.
+ */
+@Value
+public class VwapBandsResult {
+  String currencyPair;
+  LocalDateTime windowStart;
+  double vwap;
+  double stdDev;
+  double k;
+  double lower;
+  double upper;
+}
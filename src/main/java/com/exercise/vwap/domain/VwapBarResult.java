@@ -0,0 +1,29 @@
+package com.exercise.vwap.domain;
+
+import java.time.LocalDateTime;
+
+import lombok.Value;
+
+/**
+ * VWAP of a window together with its open, high, low and close, trade count, volume and
+ * notional (sum of price times volume), all from the same accumulator.
+ */
+@Value
+public class VwapBarResult {
+  String currencyPair;
+  LocalDateTime windowStart;
+  double vwap;
+  double open;
+  double high;
+  double low;
+  double close;
+  int tradeCount;
+  double volume;
+  double notional;
+
+  public static VwapBarResult of(String currencyPair, double vwap, TradeWindow window, PriceBar bar) {
+    return new VwapBarResult(currencyPair, window.getWindowStart(), vwap,
+        bar.getOpen(), bar.getHigh(), bar.getLow(), bar.getClose(),
+        window.getTradeCount().get(), window.getSumVolume().get(), window.getSumPriceVolume().get());
+  }
+}
@@ -0,0 +1,15 @@
+package com.exercise.vwap.domain;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import lombok.Value;
+
+@Value
+public class VwapDistributionResult {
+  String currencyPair;
+  LocalDateTime windowStart;
+  double vwap;
+  double median;
+  Map<Double, Double> quantiles; // quantile -> volume-weighted price
+}
@@ -2,11 +2,24 @@ package com.exercise.vwap.domain;
 
 import java.time.LocalDateTime;
 
+import lombok.AllArgsConstructor;
 import lombok.Value;
 
 @Value
+@AllArgsConstructor
 public class VwapResult {
   String currencyPair;
   LocalDateTime windowStart;
   double vwap;
+  // Whether the hour is closed by the pair's watermark, and how often it changed since
+  boolean sealed;
+  long version;
+
+  public VwapResult(String currencyPair, LocalDateTime windowStart, double vwap) {
+    this(currencyPair, windowStart, vwap, false, 0);
+  }
+
+  public static VwapResult of(String currencyPair, TradeWindow window, double vwap) {
+    return new VwapResult(currencyPair, window.getWindowStart(), vwap, window.isSealed(), window.getVersion());
+  }
 }
@@ -0,0 +1,13 @@
+package com.exercise.vwap.domain;
+
+import lombok.Value;
+
+/**
+ * Window state paired with the last journal record it contains. Replaying the journal
+ * after {@code journalSequence} on top of {@code state} restores the full state.
+ */
+@Value
+public class WindowCheckpoint {
+  long journalSequence;
+  WindowState state;
+}
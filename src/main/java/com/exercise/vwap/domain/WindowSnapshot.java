@@ -0,0 +1,80 @@
+package com.exercise.vwap.domain;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Wire form of a window's accumulated totals, exchanged between cluster nodes.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WindowSnapshot {
+  private String currencyPair;
+  private LocalDateTime windowStart;
+  private double sumPriceVolume;
+  private double sumVolume;
+  // NaN when the sender did not track it
+  private double sumPriceSquaredVolume = Double.NaN;
+  private int tradeCount;
+  // Null when the window does not keep a bar
+  private PriceBar bar;
+  // Price sketch as min, max, then mean and weight per centroid; null when the window has none
+  private double[] priceSketch;
+  // Incremental strategy state in the sender's registry layout; null when none is tracked
+  private double[] strategySlots;
+
+  public WindowSnapshot(String currencyPair, LocalDateTime windowStart, double sumPriceVolume,
+                        double sumVolume, int tradeCount) {
+    this(currencyPair, windowStart, sumPriceVolume, sumVolume, Double.NaN, tradeCount, null);
+  }
+
+  public WindowSnapshot(String currencyPair, LocalDateTime windowStart, double sumPriceVolume,
+                        double sumVolume, double sumPriceSquaredVolume, int tradeCount, PriceBar bar) {
+    this(currencyPair, windowStart, sumPriceVolume, sumVolume, sumPriceSquaredVolume, tradeCount, bar, null, null);
+  }
+
+  public static WindowSnapshot of(String currencyPair, TradeWindow window) {
+    return new WindowSnapshot(
+        currencyPair,
+        window.getWindowStart(),
+        window.getSumPriceVolume().get(),
+        window.getSumVolume().get(),
+        window.getSumPriceSquaredVolume().get(),
+        window.getTradeCount().get(),
+        window.getBar(),
+        window.getPriceSketchCentroids(),
+        window.getStrategySlots());
+  }
+
+  /**
+   * The window's totals. Snapshots carry no venue sums, so the window's venue split is unknown.
+   */
+  public TradeWindow toTradeWindow() {
+    TradeWindow window = TradeWindow.fromTotals(windowStart, sumPriceVolume, sumVolume, sumPriceSquaredVolume,
+        tradeCount, bar);
+    window.markVenuesUnknown();
+    return window;
+  }
+
+  /**
+   * As {@link #toTradeWindow()}, also restoring the price sketch and the incremental strategies
+   * where this snapshot carries them. Strategy state is only restored into the same number of
+   * slots; otherwise, and for snapshots without it, the window tracks no strategies.
+   */
+  public TradeWindow toTradeWindow(int sketchCompression, StrategySlotLayout strategies) {
+    double[] slots = strategies == null ? null : strategies.newSlots();
+    boolean restoreSlots = slots != null && strategySlots != null && strategySlots.length == slots.length;
+    TradeWindow window = new TradeWindow(windowStart, priceSketch != null ? sketchCompression : 0, bar != null,
+        restoreSlots ? strategies : null);
+    window.merge(toTradeWindow());
+    window.addPriceSketchCentroids(priceSketch);
+    if (restoreSlots) {
+      window.restoreStrategySlots(strategySlots);
+    }
+    return window;
+  }
+}
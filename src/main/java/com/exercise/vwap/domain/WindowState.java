@@ -0,0 +1,19 @@
+package com.exercise.vwap.domain;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Point-in-time copy of every window held by a window manager, together with the sequence
+ * of the last trade it contains.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WindowState {
+  private long sequence;
+  private List<WindowSnapshot> windows;
+}
@@ -0,0 +1,13 @@
+package com.exercise.vwap.service;
+
+/**
+ * When an ingest call returns to its caller.
+ */
+public enum AckMode {
+  /** Once the trade is queued for processing. */
+  ENQUEUE,
+  /** Once the trade is durable in the journal. */
+  JOURNAL,
+  /** Once the trade is durable and applied to its window. */
+  APPLY
+}
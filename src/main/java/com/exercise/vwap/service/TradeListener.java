@@ -0,0 +1,21 @@
+package com.exercise.vwap.service;
+
+import com.exercise.vwap.domain.Trade;
+import com.exercise.vwap.domain.TradeCorrection;
+import com.exercise.vwap.domain.TradeWindow;
+
+/**
+ * Callback for trades that have been applied to a window. Sequence numbers are assigned
+ * by the window manager, start at 1 and have no gaps, so listeners see trades in the
+ * order they became visible to queries. Amendments and cancellations take a sequence of their
+ * own in the same series, as does each pre-aggregated window merged in by a backfill.
+ */
+public interface TradeListener {
+  void onTradeApplied(long sequence, Trade trade);
+
+  default void onTradeCorrected(long sequence, TradeCorrection correction) {
+  }
+
+  default void onWindowMerged(long sequence, String currencyPair, TradeWindow partial) {
+  }
+}
@@ -1,11 +1,34 @@
 package com.exercise.vwap.service;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.List;
 
+import com.exercise.vwap.domain.PairActivity;
 import com.exercise.vwap.domain.Trade;
+import com.exercise.vwap.domain.VenueVwap;
+import com.exercise.vwap.domain.VolumeProfileResult;
+import com.exercise.vwap.domain.VwapBandsResult;
+import com.exercise.vwap.domain.VwapBarResult;
+import com.exercise.vwap.domain.VwapDistributionResult;
 import com.exercise.vwap.domain.VwapResult;
 
 public interface VwapCalculatorService {
   void processTrade(Trade trade);
+  void processTrades(List<Trade> trades);
   VwapResult getVwap(String currencyPair, LocalDateTime timestamp);
+  VwapResult getVwap(String currencyPair, LocalDateTime timestamp, String strategy);
+  List<VwapResult> getVwaps(List<String> currencyPairs, LocalDateTime timestamp);
+  List<VwapResult> getVwaps(List<String> currencyPairs, LocalDateTime timestamp, String strategy);
+  List<VwapResult> getSnapshot(LocalDateTime timestamp);
+  List<VwapResult> getSnapshot(LocalDateTime timestamp, String strategy);
+  VwapDistributionResult getVwapDistribution(String currencyPair, LocalDateTime timestamp, double[] quantiles);
+  VwapBarResult getBar(String currencyPair, LocalDateTime timestamp);
+  VwapBandsResult getBands(String currencyPair, LocalDateTime timestamp, double k);
+  VwapResult cancelTrade(String currencyPair, String tradeId);
+  VwapResult amendTrade(String currencyPair, String tradeId, double price, double volume);
+  List<PairActivity> getTopPairs(int n, String by);
+  VwapResult getVenueVwap(String currencyPair, LocalDateTime timestamp, String venue);
+  List<VenueVwap> getVenueBreakdown(String currencyPair, LocalDateTime timestamp);
+  VolumeProfileResult getVolumeProfile(String currencyPair, LocalDate day, int bucketMinutes);
 }
@@ -1,12 +1,39 @@
 package com.exercise.vwap.service;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 
+import com.exercise.vwap.domain.IngestTuning;
+import com.exercise.vwap.domain.PairActivity;
 import com.exercise.vwap.domain.Trade;
+import com.exercise.vwap.domain.TradeCorrection;
 import com.exercise.vwap.domain.TradeWindow;
+import com.exercise.vwap.domain.VenueVwap;
+import com.exercise.vwap.domain.VolumeProfileResult;
+import com.exercise.vwap.domain.WindowState;
 
 public interface WindowManager {
   void addTrade(Trade trade);
+  void applyTrade(Trade trade);
+  void replayTrade(Trade trade);
+  void awaitQueueDrained();
   TradeWindow getWindow(String currencyPair, LocalDateTime timestamp);
+  Map<String, TradeWindow> getWindows(LocalDateTime timestamp);
+  TradeWindow getVenueWindow(String currencyPair, LocalDateTime timestamp, String venue);
+  List<VenueVwap> getVenueBreakdown(String currencyPair, LocalDateTime timestamp);
+  List<PairActivity> getTopPairs(int n, boolean byNotional);
+  VolumeProfileResult getVolumeProfile(String currencyPair, LocalDate day, int bucketMinutes);
   void cleanupExpiredWindows(LocalDateTime currentTime);
+  void addTradeListener(TradeListener listener);
+  WindowState exportState();
+  void importState(WindowState state);
+  void mergeWindow(String currencyPair, TradeWindow partial);
+  int prewarmWindows(LocalDateTime windowStart);
+  TradeWindow cancelTrade(String currencyPair, String tradeId);
+  TradeWindow amendTrade(String currencyPair, String tradeId, double price, double volume);
+  TradeWindow applyCorrection(TradeCorrection correction);
+  IngestTuning getTuning();
+  IngestTuning tune(IngestTuning changes);
 }
@@ -0,0 +1,624 @@
+package com.exercise.vwap.service.backfill;
+
+import com.exercise.vwap.domain.BackfillResult;
+import com.exercise.vwap.domain.BarAccumulator;
+import com.exercise.vwap.domain.TradeWindow;
+import com.exercise.vwap.service.WindowManager;
+import com.exercise.vwap.service.checkpoint.CheckpointScheduler;
+import com.exercise.vwap.service.dedup.TradeDeduplicator;
+import com.exercise.vwap.service.journal.TradeJournal;
+import com.exercise.vwap.service.strategy.VwapStrategyRegistry;
+import com.exercise.vwap.utils.BinaryTradeCodec;
+import com.exercise.vwap.utils.TimeParser;
+import com.exercise.vwap.utils.TradeColumns;
+import com.exercise.vwap.utils.TradeLineParser;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Bulk-loads captured trades straight into the windows, bypassing the REST layer, the
+ * journal and the single-consumer trade queue.
+ * <p>
+ * Because the journal never sees the trades, a load is made durable by writing a checkpoint
+ * once its windows are merged, and the loader refuses to start with the journal but without
+ * checkpoints. Replicas pick the merged windows up from the next state snapshot.
+ * <p>
+ * The capture file is split into newline-aligned chunks that are memory-mapped and parsed
+ * in parallel on a {@link ForkJoinPool}. Each chunk aggregates into its own partial windows,
+ * partials are combined with {@link TradeWindow#merge(TradeWindow)} as the fork/join tree
+ * unwinds, and the result is folded into the live windows once per (pair, hour).
+ * <p>
+ * Each line is either CSV ({@code timestamp,currencyPair,price,volume}) or an NDJSON object
+ * with the same fields as the structured trade endpoint. Timestamps are ISO-8601 local
+ * date-times, or the {@code h:mm AM} form accepted by {@link TimeParser}. Blank lines and
+ * lines starting with {@code #} or a letter (comments and CSV headers) are skipped; any
+ * other line that does not parse is counted as rejected.
+ */
+@Service
+@ConditionalOnProperty(name = "vwap.backfill.enabled", havingValue = "true")
+@Slf4j
+public class BackfillLoader {
+    private static final int MAX_LINE_LENGTH = 4096;
+    private static final int ISO_HOUR_LENGTH = 13; // yyyy-MM-ddTHH
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final int COLUMN_SIZE = 1024;
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final long NANOS_PER_MINUTE = 60 * NANOS_PER_SECOND;
+    // Nanoseconds per unit of an n-digit fraction of a second
+    private static final long[] NANOS_PER_FRACTION_DIGIT = {
+            0, 100_000_000, 10_000_000, 1_000_000, 100_000, 10_000, 1_000, 100, 10, 1};
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final WindowManager windowManager;
+    private final Path baseDirectory;
+    private final int sketchCompression;
+    private final boolean trackBars;
+    private final long chunkSize;
+    private final ForkJoinPool pool;
+    private TradeDeduplicator deduplicator;
+    private CheckpointScheduler checkpointScheduler;
+    private VwapStrategyRegistry strategyRegistry;
+
+    @Autowired
+    public BackfillLoader(WindowManager windowManager,
+                          Optional<TradeJournal> tradeJournal,
+                          Optional<CheckpointScheduler> checkpointScheduler,
+                          @Value("${vwap.backfill.dir:./data/backfill}") String baseDirectory,
+                          @Value("${vwap.backfill.parallelism:0}") int parallelism,
+                          @Value("${vwap.backfill.chunk-size-mb:8}") int chunkSizeMb,
+                          @Value("${vwap.sketch.compression:0}") int sketchCompression,
+                          @Value("${vwap.bars.enabled:false}") boolean trackBars) {
+        this(windowManager, Path.of(baseDirectory), parallelism, chunkSizeMb * 1024L * 1024L, sketchCompression,
+                trackBars);
+        if (tradeJournal.isPresent() && checkpointScheduler.isEmpty()) {
+            throw new IllegalStateException("Backfill bypasses the trade journal, so it needs checkpoints enabled "
+                    + "(vwap.checkpoint.enabled=true) to survive a restart");
+        }
+        this.checkpointScheduler = checkpointScheduler.orElse(null);
+    }
+
+    public BackfillLoader(WindowManager windowManager, Path baseDirectory, int parallelism,
+                          long chunkSize, int sketchCompression) {
+        this(windowManager, baseDirectory, parallelism, chunkSize, sketchCompression, false);
+    }
+
+    public BackfillLoader(WindowManager windowManager, Path baseDirectory, int parallelism,
+                          long chunkSize, int sketchCompression, boolean trackBars) {
+        if (chunkSize <= 0 || chunkSize > Integer.MAX_VALUE - MAX_LINE_LENGTH) {
+            throw new IllegalArgumentException("Backfill chunk size out of range: " + chunkSize);
+        }
+        this.windowManager = windowManager;
+        this.baseDirectory = baseDirectory.toAbsolutePath().normalize();
+        this.chunkSize = chunkSize;
+        this.sketchCompression = sketchCompression;
+        this.trackBars = trackBars;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors(),
+                p -> {
+                    var worker = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+                    worker.setName("backfill-" + worker.getPoolIndex());
+                    worker.setDaemon(true);
+                    return worker;
+                }, null, false);
+    }
+
+    /**
+     * Suppresses trades the live path or an earlier backfill has already seen. Lines without
+     * an id are only checked when the deduplicator hashes trade content.
+     */
+    @Autowired(required = false)
+    public void setDeduplicator(TradeDeduplicator deduplicator) {
+        this.deduplicator = deduplicator != null && deduplicator.isEnabled() ? deduplicator : null;
+    }
+
+    /**
+     * Checkpoints after every load that merged windows, so that the load is durable once it
+     * returns.
+     */
+    public void setCheckpointScheduler(CheckpointScheduler checkpointScheduler) {
+        this.checkpointScheduler = checkpointScheduler;
+    }
+
+    /**
+     * Feeds backfilled trades to the incremental strategies too. Partial windows must share the
+     * live windows' registry, or merging them leaves the live windows' strategies unknown.
+     */
+    @Autowired(required = false)
+    public void setStrategyRegistry(VwapStrategyRegistry strategyRegistry) {
+        this.strategyRegistry = strategyRegistry != null && strategyRegistry.newSlots() != null
+                ? strategyRegistry : null;
+    }
+
+    /**
+     * Loads a capture file, given relative to the backfill directory. Symbolic links are
+     * followed before the check, so a link cannot reach a file outside the directory.
+     */
+    public BackfillResult load(String fileName) {
+        Path file;
+        try {
+            file = baseDirectory.resolve(fileName).toRealPath();
+            if (!file.startsWith(baseDirectory.toRealPath())) {
+                throw new IllegalArgumentException("Backfill file must be inside " + baseDirectory + ": " + fileName);
+            }
+        } catch (NoSuchFileException e) {
+            throw new IllegalArgumentException("Backfill file not found: " + fileName);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to resolve backfill file " + fileName, e);
+        }
+        if (!Files.isRegularFile(file)) {
+            throw new IllegalArgumentException("Backfill file not found: " + fileName);
+        }
+        return load(file);
+    }
+
+    public BackfillResult load(Path file) {
+        long started = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<long[]> chunks = split(channel);
+            PartialWindows result = chunks.isEmpty()
+                    ? new PartialWindows()
+                    : pool.invoke(new ChunkTask(channel, chunks, 0, chunks.size()));
+
+            int windows = 0;
+            for (Map.Entry<String, Map<LocalDateTime, TradeWindow>> pair : result.windows.entrySet()) {
+                for (TradeWindow window : pair.getValue().values()) {
+                    windowManager.mergeWindow(pair.getKey(), window);
+                    windows++;
+                }
+            }
+            if (windows > 0 && checkpointScheduler != null && !checkpointScheduler.checkpoint()) {
+                throw new IllegalStateException("Backfilled " + windows + " windows from " + file
+                        + " but could not checkpoint them");
+            }
+
+            long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+            log.info("Backfilled {} trades into {} windows from {} ({} bytes, {} chunks, {} rejected, "
+                            + "{} duplicates) in {}ms", result.trades, windows, file, channel.size(), chunks.size(),
+                    result.rejected, result.duplicates, elapsedMillis);
+            return new BackfillResult(file.getFileName().toString(), channel.size(), result.trades,
+                    result.rejected, result.duplicates, windows, elapsedMillis);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to backfill from " + file, e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Cuts the file into {start, end} ranges of roughly {@code chunkSize} bytes, each ending
+     * just after a newline (or at end of file) so no line straddles two chunks.
+     */
+    private List<long[]> split(FileChannel channel) throws IOException {
+        long size = channel.size();
+        List<long[]> chunks = new ArrayList<>();
+        ByteBuffer probe = ByteBuffer.allocate(MAX_LINE_LENGTH);
+        long start = 0;
+        while (start < size) {
+            long end = Math.min(size, start + chunkSize);
+            if (end < size) {
+                end = nextLineStart(channel, end, probe);
+            }
+            chunks.add(new long[]{start, end});
+            start = end;
+        }
+        return chunks;
+    }
+
+    private static long nextLineStart(FileChannel channel, long position, ByteBuffer probe) throws IOException {
+        while (true) {
+            probe.clear();
+            int read = channel.read(probe, position);
+            if (read <= 0) {
+                return position;
+            }
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+    }
+
+    private static final class PartialWindows {
+        final Map<String, Map<LocalDateTime, TradeWindow>> windows = new HashMap<>();
+        long trades;
+        long rejected;
+        long duplicates;
+
+        void mergeFrom(PartialWindows other) {
+            other.windows.forEach((pair, otherWindows) -> {
+                Map<LocalDateTime, TradeWindow> target = windows.computeIfAbsent(pair, k -> new HashMap<>());
+                otherWindows.forEach((start, window) -> target.merge(start, window, (a, b) -> {
+                    a.merge(b);
+                    return a;
+                }));
+            });
+            trades += other.trades;
+            rejected += other.rejected;
+            duplicates += other.duplicates;
+        }
+    }
+
+    private final class ChunkTask extends RecursiveTask<PartialWindows> {
+        private final FileChannel channel;
+        private final List<long[]> chunks;
+        private final int from;
+        private final int to;
+
+        ChunkTask(FileChannel channel, List<long[]> chunks, int from, int to) {
+            this.channel = channel;
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected PartialWindows compute() {
+            if (to - from == 1) {
+                long[] chunk = chunks.get(from);
+                try {
+                    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, chunk[0], chunk[1] - chunk[0]);
+                    return new ChunkParser(buffer).parse();
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to map backfill chunk at offset " + chunk[0], e);
+                }
+            }
+            int mid = (from + to) >>> 1;
+            ChunkTask right = new ChunkTask(channel, chunks, mid, to);
+            right.fork();
+            PartialWindows left = new ChunkTask(channel, chunks, from, mid).compute();
+            left.mergeFrom(right.join());
+            return left;
+        }
+    }
+
+    /**
+     * Parses one mapped chunk. Lines are copied into a reusable scratch array and parsed in
+     * place; the last (pair, hour) window is cached because captures are mostly time-ordered
+     * runs of the same few pairs.
+     */
+    private final class ChunkParser {
+        private final MappedByteBuffer buffer;
+        private final PartialWindows result = new PartialWindows();
+        private final byte[] line = new byte[MAX_LINE_LENGTH];
+
+        private final byte[] lastHour = new byte[ISO_HOUR_LENGTH];
+        private LocalDateTime lastWindowStart;
+        private long lastPairKey;
+        private String lastPair;
+        private LocalDateTime lastWindowKey;
+        private TradeWindow lastWindow;
+        private TradeColumns lastColumns;
+        // Trades are staged per window and added a column at a time
+        private final Map<TradeWindow, TradeColumns> columns = new IdentityHashMap<>();
+
+        ChunkParser(MappedByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        PartialWindows parse() {
+            int limit = buffer.limit();
+            int start = 0;
+            while (start < limit) {
+                int end = start;
+                while (end < limit && buffer.get(end) != '\n') {
+                    end++;
+                }
+                int length = end - start;
+                if (length > 0 && buffer.get(end - 1) == '\r') {
+                    length--;
+                }
+                if (length > MAX_LINE_LENGTH) {
+                    result.rejected++;
+                } else if (length > 0) {
+                    buffer.get(start, line, 0, length);
+                    parseLine(length);
+                }
+                start = end + 1;
+            }
+            columns.forEach((window, pending) -> pending.flushInto(window));
+            return result;
+        }
+
+        private void parseLine(int length) {
+            byte first = line[0];
+            if (first == '#' || Character.isLetter(first)) {
+                return;
+            }
+            try {
+                boolean accepted = first == '{' ? parseJson(length) : parseCsv(length);
+                if (!accepted) {
+                    result.rejected++;
+                }
+            } catch (RuntimeException | IOException e) {
+                result.rejected++;
+            }
+        }
+
+        private boolean parseCsv(int length) {
+            int c1 = indexOf(',', 0, length);
+            int c2 = c1 < 0 ? -1 : indexOf(',', c1 + 1, length);
+            int c3 = c2 < 0 ? -1 : indexOf(',', c2 + 1, length);
+            if (c3 < 0) {
+                return false;
+            }
+            int from = trim(0, c1);
+            int to = trimEnd(0, c1);
+            LocalDateTime windowStart = windowStart(from, to);
+            long time = needsTime() ? timeInHour(from, to) : 0;
+            return accumulate(windowStart, time, c1 + 1, c2,
+                    parseDouble(c2 + 1, c3), parseDouble(c3 + 1, length), null);
+        }
+
+        private boolean parseJson(int length) throws IOException {
+            String timestamp = null;
+            String pair = null;
+            double price = Double.NaN;
+            double volume = Double.NaN;
+            String id = null;
+            try (JsonParser parser = JSON_FACTORY.createParser(line, 0, length)) {
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    return false;
+                }
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    JsonToken value = parser.nextToken();
+                    switch (field) {
+                        case "timestamp" -> timestamp = parser.getValueAsString();
+                        case "currencyPair" -> pair = parser.getValueAsString();
+                        case "price" -> price = numberValue(parser, value);
+                        case "volume" -> volume = numberValue(parser, value);
+                        case "id" -> id = deduplicator == null ? null : parser.getValueAsString();
+                        default -> parser.skipChildren();
+                    }
+                }
+            }
+            if (timestamp == null || pair == null) {
+                return false;
+            }
+            byte[] pairBytes = pair.getBytes(StandardCharsets.US_ASCII);
+            if (pairBytes.length != 7) {
+                return false;
+            }
+            LocalDateTime parsed = TradeLineParser.parseTimestamp(timestamp.strip());
+            long time = needsTime() ? BarAccumulator.timeInHour(parsed) : 0;
+            // Re-use the byte-level pair check and cache by staging the pair in the scratch line
+            System.arraycopy(pairBytes, 0, line, 0, pairBytes.length);
+            return accumulate(parsed.truncatedTo(ChronoUnit.HOURS), time, 0, pairBytes.length, price, volume, id);
+        }
+
+        private double numberValue(JsonParser parser, JsonToken token) throws IOException {
+            if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+                return parser.getDoubleValue();
+            }
+            if (token == JsonToken.VALUE_STRING) {
+                return Double.parseDouble(parser.getText().replace(",", "").strip());
+            }
+            return Double.NaN;
+        }
+
+        private boolean needsTime() {
+            return trackBars || deduplicator != null || strategyRegistry != null;
+        }
+
+        private boolean accumulate(LocalDateTime windowStart, long time, int pairFrom, int pairTo,
+                                   double price, double volume, String id) {
+            if (windowStart == null || !(price > 0) || !(volume > 0)
+                    || Double.isInfinite(price) || Double.isInfinite(volume)) {
+                return false;
+            }
+            int from = trim(pairFrom, pairTo);
+            int to = trimEnd(pairFrom, pairTo);
+            if (to - from != 7 || line[from + 3] != '/'
+                    || !isUpper(from, from + 3) || !isUpper(from + 4, from + 7)) {
+                return false;
+            }
+            if (deduplicator != null && isDuplicate(windowStart, time, from, price, volume, id)) {
+                result.duplicates++;
+                return true;
+            }
+
+            long pairKey = 0;
+            for (int i = from; i < to; i++) {
+                pairKey = (pairKey << 8) | line[i];
+            }
+            if (lastWindow == null || pairKey != lastPairKey || !windowStart.equals(lastWindowKey)) {
+                if (lastPair == null || pairKey != lastPairKey) {
+                    lastPair = new String(line, from, 7, StandardCharsets.US_ASCII);
+                    lastPairKey = pairKey;
+                }
+                lastWindowKey = windowStart;
+                lastWindow = result.windows
+                        .computeIfAbsent(lastPair, k -> new HashMap<>())
+                        .computeIfAbsent(windowStart, k -> new TradeWindow(k, sketchCompression, trackBars,
+                                strategyRegistry));
+                lastColumns = columns.computeIfAbsent(lastWindow, k -> new TradeColumns(COLUMN_SIZE));
+            }
+            if (lastColumns.add(time, price, volume)) {
+                lastColumns.flushInto(lastWindow);
+            }
+            result.trades++;
+            return true;
+        }
+
+        /**
+         * Checks the line against the deduplicator with the same identity the live path gives
+         * the trade, so replaying a capture of trades that were ingested live adds nothing.
+         */
+        private boolean isDuplicate(LocalDateTime windowStart, long time, int pairFrom, double price,
+                                    double volume, String id) {
+            long pair = 0;
+            for (int i = pairFrom + 6; i >= pairFrom; i--) {
+                pair = (pair << 8) | line[i];
+            }
+            long epochNanos = BinaryTradeCodec.toEpochNanos(windowStart) + time;
+            return id != null
+                    ? deduplicator.isDuplicate(pair, epochNanos, id)
+                    : deduplicator.isDuplicate(pair, epochNanos, price, volume);
+        }
+
+        /**
+         * Resolves the window start of an ISO timestamp from its first 13 bytes alone, reusing
+         * the previous result while the hour is unchanged. Anything else goes through the
+         * slow string path.
+         */
+        private LocalDateTime windowStart(int from, int to) {
+            if (to - from >= ISO_HOUR_LENGTH && line[from + 4] == '-' && line[from + 7] == '-'
+                    && (line[from + 10] == 'T' || line[from + 10] == ' ')) {
+                if (lastWindowStart != null && Arrays.equals(
+                        line, from, from + ISO_HOUR_LENGTH, lastHour, 0, ISO_HOUR_LENGTH)) {
+                    return lastWindowStart;
+                }
+                LocalDateTime start = LocalDateTime.of(
+                        digits(from, from + 4), digits(from + 5, from + 7), digits(from + 8, from + 10),
+                        digits(from + 11, from + 13), 0);
+                System.arraycopy(line, from, lastHour, 0, ISO_HOUR_LENGTH);
+                lastWindowStart = start;
+                return start;
+            }
+            return windowStart(new String(line, from, to - from, StandardCharsets.US_ASCII));
+        }
+
+        /**
+         * Nanoseconds from the start of the hour of an ISO timestamp, read from its minute,
+         * second and fraction bytes. Anything else goes through the slow string path.
+         */
+        private long timeInHour(int from, int to) {
+            int length = to - from;
+            if (length >= 16 && line[from + 13] == ':') {
+                long minutes = digits(from + 14, from + 16);
+                if (length == 16) {
+                    return minutes * NANOS_PER_MINUTE;
+                }
+                if (length >= 19 && line[from + 16] == ':') {
+                    long time = minutes * NANOS_PER_MINUTE + digits(from + 17, from + 19) * NANOS_PER_SECOND;
+                    int fractionDigits = length - 20;
+                    if (length == 19) {
+                        return time;
+                    }
+                    if (line[from + 19] == '.' && fractionDigits >= 1 && fractionDigits <= 9) {
+                        return time + digits(from + 20, to) * NANOS_PER_FRACTION_DIGIT[fractionDigits];
+                    }
+                }
+            }
+            return BarAccumulator.timeInHour(TradeLineParser.parseTimestamp(
+                    new String(line, from, length, StandardCharsets.US_ASCII)));
+        }
+
+        private LocalDateTime windowStart(String timestamp) {
+            return TradeLineParser.parseTimestamp(timestamp).truncatedTo(ChronoUnit.HOURS);
+        }
+
+        private int digits(int from, int to) {
+            int value = 0;
+            for (int i = from; i < to; i++) {
+                int digit = line[i] - '0';
+                if (digit < 0 || digit > 9) {
+                    throw new NumberFormatException("Invalid digit in timestamp");
+                }
+                value = value * 10 + digit;
+            }
+            return value;
+        }
+
+        /**
+         * Parses plain decimals ({@code 123.456}) exactly when the digits fit in a double's
+         * mantissa; exponents, signs and longer inputs fall back to {@link Double#parseDouble}.
+         */
+        private double parseDouble(int from, int to) {
+            from = trim(from, to);
+            to = trimEnd(from, to);
+            long mantissa = 0;
+            int scale = -1;
+            int i = from;
+            for (; i < to; i++) {
+                byte b = line[i];
+                if (b >= '0' && b <= '9') {
+                    mantissa = mantissa * 10 + (b - '0');
+                    if (mantissa >= MAX_EXACT_MANTISSA) {
+                        break;
+                    }
+                    if (scale >= 0) {
+                        scale++;
+                    }
+                } else if (b == '.' && scale < 0) {
+                    scale = 0;
+                } else {
+                    break;
+                }
+            }
+            if (i == to && i > from && scale < POWERS_OF_TEN.length) {
+                return scale <= 0 ? mantissa : mantissa / POWERS_OF_TEN[scale];
+            }
+            return Double.parseDouble(new String(line, from, to - from, StandardCharsets.US_ASCII));
+        }
+
+        private boolean isUpper(int from, int to) {
+            for (int i = from; i < to; i++) {
+                if (line[i] < 'A' || line[i] > 'Z') {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int indexOf(char c, int from, int to) {
+            for (int i = from; i < to; i++) {
+                if (line[i] == c) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private int trim(int from, int to) {
+            while (from < to && line[from] == ' ') {
+                from++;
+            }
+            return from;
+        }
+
+        private int trimEnd(int from, int to) {
+            while (to > from && line[to - 1] == ' ') {
+                to--;
+            }
+            return to;
+        }
+    }
+}
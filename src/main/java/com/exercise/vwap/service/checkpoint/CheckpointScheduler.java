@@ -0,0 +1,113 @@
+package com.exercise.vwap.service.checkpoint;
+
+import com.exercise.vwap.domain.WindowCheckpoint;
+import com.exercise.vwap.service.WindowManager;
+import com.exercise.vwap.service.impl.VwapCalculatorServiceImpl;
+import com.exercise.vwap.service.journal.TradeJournal;
+import com.exercise.vwap.service.profile.IntradayVolumeProfiles;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes a checkpoint on a fixed interval, on shutdown and after each backfill, then discards
+ * journal segments that both retained checkpoints already cover. Ingest pauses only while the
+ * state is copied; encoding and writing happen afterwards. With the journal on, volume profiles
+ * are copied in the same pause and saved after the checkpoint, so a restart replays into
+ * profiles that match the checkpoint.
+ */
+@Component
+@ConditionalOnProperty(name = "vwap.checkpoint.enabled", havingValue = "true")
+@Slf4j
+public class CheckpointScheduler {
+    private final VwapCalculatorServiceImpl calculatorService;
+    private final WindowManager windowManager;
+    private final CheckpointStore checkpointStore;
+    private final TradeJournal tradeJournal;
+    // Saved with each checkpoint, null unless both profiles and the journal are on
+    private final IntradayVolumeProfiles volumeProfiles;
+    private final ScheduledExecutorService scheduler;
+
+    public CheckpointScheduler(VwapCalculatorServiceImpl calculatorService,
+                               WindowManager windowManager,
+                               CheckpointStore checkpointStore,
+                               Optional<TradeJournal> tradeJournal,
+                               Optional<IntradayVolumeProfiles> volumeProfiles,
+                               @Value("${vwap.checkpoint.interval-seconds:60}") long intervalSeconds) {
+        this.calculatorService = calculatorService;
+        this.windowManager = windowManager;
+        this.checkpointStore = checkpointStore;
+        this.tradeJournal = tradeJournal.orElse(null);
+        this.volumeProfiles = this.tradeJournal == null ? null : volumeProfiles.orElse(null);
+        if (this.volumeProfiles != null) {
+            this.volumeProfiles.saveWithCheckpoints();
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "window-checkpointer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::checkpoint, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Writes a checkpoint now. Returns false, having logged why, if it could not be written.
+     */
+    public synchronized boolean checkpoint() {
+        try {
+            long started = System.nanoTime();
+            Cut cut = calculatorService.withIngestPaused(() -> {
+                long journalSequence = tradeJournal != null ? tradeJournal.getWrittenSequence() : 0;
+                return new Cut(new WindowCheckpoint(journalSequence, windowManager.exportState()),
+                        volumeProfiles != null ? volumeProfiles.encode(journalSequence) : null);
+            });
+            WindowCheckpoint checkpoint = cut.checkpoint;
+            long pausedMicros = (System.nanoTime() - started) / 1_000;
+
+            checkpointStore.write(checkpoint);
+            if (cut.profiles != null) {
+                try {
+                    volumeProfiles.write(cut.profiles);
+                } catch (Exception e) {
+                    // The next restart then rebuilds the current day from the replay alone
+                    log.error("Saving volume profiles with the checkpoint failed", e);
+                }
+            }
+            if (tradeJournal != null) {
+                tradeJournal.deleteSegmentsUpTo(checkpointStore.getPreviousJournalSequence());
+            }
+            log.info("Checkpointed {} windows at journal sequence {} (ingest paused {}us, total {}ms)",
+                    checkpoint.getState().getWindows().size(), checkpoint.getJournalSequence(),
+                    pausedMicros, (System.nanoTime() - started) / 1_000_000);
+            return true;
+        } catch (Exception e) {
+            log.error("Checkpoint failed", e);
+            return false;
+        }
+    }
+
+    // What one ingest pause copies
+    private static final class Cut {
+        private final WindowCheckpoint checkpoint;
+        private final ByteBuffer profiles;
+
+        Cut(WindowCheckpoint checkpoint, ByteBuffer profiles) {
+            this.checkpoint = checkpoint;
+            this.profiles = profiles;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdown();
+        checkpoint();
+    }
+}
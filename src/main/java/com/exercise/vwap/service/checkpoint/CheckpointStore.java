@@ -0,0 +1,295 @@
+package com.exercise.vwap.service.checkpoint;
+
+import com.exercise.vwap.domain.PriceBar;
+import com.exercise.vwap.domain.WindowCheckpoint;
+import com.exercise.vwap.domain.WindowSnapshot;
+import com.exercise.vwap.domain.WindowState;
+import com.exercise.vwap.service.WindowManager;
+import com.exercise.vwap.utils.BinaryTradeCodec;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Compact binary images of all window accumulators.
+ * <pre>
+ *   header  48 bytes  magic, version, journal sequence, applied sequence, created at, window count
+ *   window  104+ bytes  pair, window start (epoch seconds), sum(price * volume), sum(volume), trade count,
+ *                       bar open time, open, high, low, close time, close (open is NaN without a bar),
+ *                       sum(price^2 * volume), price sketch length n, strategy slot count m (each -1 when
+ *                       absent), n price sketch values (min, max, then mean and weight per centroid),
+ *                       m strategy slots
+ *   trailer  4 bytes  CRC32C of everything before it
+ * </pre>
+ * Older images are still read: version 1 windows are 40 bytes and end at the trade count,
+ * version 2 windows are 88 bytes and end at the bar, and version 3 windows are 96 bytes and end
+ * at the second moment. Versions 1 and 2 report no variance, and none of them restore a price
+ * sketch or strategy state.
+ * A new image is written to a temporary file, forced, and then atomically renamed over
+ * the current one, which is kept as the previous image. Loading maps the file read-only
+ * and falls back to the previous image if the current one fails validation.
+ */
+@Component
+@ConditionalOnProperty(name = "vwap.checkpoint.enabled", havingValue = "true")
+@Slf4j
+public class CheckpointStore {
+    static final String CURRENT = "checkpoint.bin";
+    static final String PREVIOUS = "checkpoint.prev";
+    private static final String TEMPORARY = "checkpoint.tmp";
+
+    private static final int MAGIC = 0x5657434B; // "VWCK"
+    private static final int VERSION = 4;
+    private static final int HEADER_SIZE = 48;
+    private static final int WINDOW_SIZE = 104; // without the price sketch and strategy slots
+    private static final int[] WINDOW_SIZES = {0, 40, 88, 96, WINDOW_SIZE}; // by version
+    private static final int TRAILER_SIZE = 4;
+
+    private final Path directory;
+    private volatile long currentJournalSequence;
+    private volatile long previousJournalSequence;
+
+    /**
+     * Opens the store and restores the newest valid checkpoint into {@code windowManager}.
+     */
+    @Autowired
+    public CheckpointStore(WindowManager windowManager,
+                           @Value("${vwap.checkpoint.dir:./data/checkpoint}") String directory) {
+        this(Path.of(directory));
+        WindowCheckpoint checkpoint = load();
+        if (checkpoint != null) {
+            windowManager.importState(checkpoint.getState());
+        }
+    }
+
+    public CheckpointStore(Path directory) {
+        this.directory = directory;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create checkpoint directory " + directory, e);
+        }
+    }
+
+    /**
+     * Reads the newest valid checkpoint, or returns null when there is none.
+     */
+    public WindowCheckpoint load() {
+        long started = System.nanoTime();
+        WindowCheckpoint checkpoint = read(directory.resolve(CURRENT));
+        WindowCheckpoint previous = read(directory.resolve(PREVIOUS));
+        if (checkpoint == null) {
+            checkpoint = previous;
+        } else if (previous != null) {
+            previousJournalSequence = previous.getJournalSequence();
+        }
+        if (checkpoint == null) {
+            log.info("No checkpoint found in {}", directory);
+            return null;
+        }
+        currentJournalSequence = checkpoint.getJournalSequence();
+        log.info("Loaded checkpoint with {} windows at journal sequence {} in {}ms",
+                checkpoint.getState().getWindows().size(), checkpoint.getJournalSequence(),
+                (System.nanoTime() - started) / 1_000_000);
+        return checkpoint;
+    }
+
+    public void write(WindowCheckpoint checkpoint) {
+        List<WindowSnapshot> windows = checkpoint.getState().getWindows();
+        long size = HEADER_SIZE + TRAILER_SIZE;
+        for (WindowSnapshot window : windows) {
+            size += WINDOW_SIZE + 8L * (length(window.getPriceSketch()) + length(window.getStrategySlots()));
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Checkpoint of " + windows.size() + " windows is too large: " + size);
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect((int) size);
+
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putLong(8, checkpoint.getJournalSequence());
+        buffer.putLong(16, checkpoint.getState().getSequence());
+        buffer.putLong(24, System.currentTimeMillis());
+        buffer.putInt(32, windows.size());
+        int offset = HEADER_SIZE;
+        for (WindowSnapshot window : windows) {
+            buffer.putLong(offset, BinaryTradeCodec.encodePair(window.getCurrencyPair()));
+            buffer.putLong(offset + 8, window.getWindowStart().toEpochSecond(ZoneOffset.UTC));
+            buffer.putDouble(offset + 16, window.getSumPriceVolume());
+            buffer.putDouble(offset + 24, window.getSumVolume());
+            buffer.putInt(offset + 32, window.getTradeCount());
+            PriceBar bar = window.getBar();
+            buffer.putLong(offset + 40, bar != null ? bar.getOpenTime() : 0);
+            buffer.putDouble(offset + 48, bar != null ? bar.getOpen() : Double.NaN);
+            buffer.putDouble(offset + 56, bar != null ? bar.getHigh() : Double.NaN);
+            buffer.putDouble(offset + 64, bar != null ? bar.getLow() : Double.NaN);
+            buffer.putLong(offset + 72, bar != null ? bar.getCloseTime() : 0);
+            buffer.putDouble(offset + 80, bar != null ? bar.getClose() : Double.NaN);
+            buffer.putDouble(offset + 88, window.getSumPriceSquaredVolume());
+            double[] sketch = window.getPriceSketch();
+            double[] slots = window.getStrategySlots();
+            buffer.putInt(offset + 96, sketch != null ? sketch.length : -1);
+            buffer.putInt(offset + 100, slots != null ? slots.length : -1);
+            offset = putDoubles(buffer, offset + WINDOW_SIZE, sketch);
+            offset = putDoubles(buffer, offset, slots);
+        }
+        buffer.putInt(offset, crc(buffer, offset));
+
+        Path temporary = directory.resolve(TEMPORARY);
+        Path current = directory.resolve(CURRENT);
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                buffer.clear();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            if (Files.exists(current)) {
+                Files.move(current, directory.resolve(PREVIOUS), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+                previousJournalSequence = currentJournalSequence;
+            }
+            Files.move(temporary, current, StandardCopyOption.ATOMIC_MOVE);
+            currentJournalSequence = checkpoint.getJournalSequence();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write checkpoint to " + directory, e);
+        }
+    }
+
+    /**
+     * Journal sequence covered by the newest checkpoint; replay must start after it.
+     */
+    public long getJournalSequence() {
+        return currentJournalSequence;
+    }
+
+    /**
+     * Journal sequence covered by the fallback checkpoint. Journal records up to here are
+     * safe to discard because both images already contain them.
+     */
+    public long getPreviousJournalSequence() {
+        return previousJournalSequence;
+    }
+
+    private WindowCheckpoint read(Path path) {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE + TRAILER_SIZE) {
+                log.error("Checkpoint {} is truncated", path);
+                return null;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            int version = buffer.getInt(4);
+            if (buffer.getInt(0) != MAGIC || version < 1 || version > VERSION) {
+                log.error("Checkpoint {} failed validation", path);
+                return null;
+            }
+            int windowSize = WINDOW_SIZES[version];
+            int count = buffer.getInt(32);
+            long minimumSize = HEADER_SIZE + (long) count * windowSize + TRAILER_SIZE;
+            int trailer = (int) (fileSize - TRAILER_SIZE);
+            if (count < 0 || (version < 4 ? minimumSize != fileSize : minimumSize > fileSize)
+                    || buffer.getInt(trailer) != crc(buffer, trailer)) {
+                log.error("Checkpoint {} failed validation", path);
+                return null;
+            }
+
+            List<WindowSnapshot> windows = new ArrayList<>(count);
+            int offset = HEADER_SIZE;
+            for (int i = 0; i < count; i++) {
+                PriceBar bar = null;
+                if (version >= 2 && !Double.isNaN(buffer.getDouble(offset + 48))) {
+                    bar = new PriceBar(buffer.getLong(offset + 40), buffer.getDouble(offset + 48),
+                            buffer.getDouble(offset + 56), buffer.getDouble(offset + 64),
+                            buffer.getLong(offset + 72), buffer.getDouble(offset + 80));
+                }
+                double[] sketch = null;
+                double[] slots = null;
+                int next = offset + windowSize;
+                if (version >= 4) {
+                    int sketchLength = buffer.getInt(offset + 96);
+                    int slotCount = buffer.getInt(offset + 100);
+                    long end = next + 8L * (Math.max(sketchLength, 0) + Math.max(slotCount, 0));
+                    if (sketchLength < -1 || slotCount < -1 || end > trailer) {
+                        log.error("Checkpoint {} failed validation", path);
+                        return null;
+                    }
+                    sketch = getDoubles(buffer, next, sketchLength);
+                    slots = getDoubles(buffer, next + 8 * Math.max(sketchLength, 0), slotCount);
+                    next = (int) end;
+                }
+                windows.add(new WindowSnapshot(
+                        BinaryTradeCodec.decodePair(buffer.getLong(offset)),
+                        LocalDateTime.ofEpochSecond(buffer.getLong(offset + 8), 0, ZoneOffset.UTC),
+                        buffer.getDouble(offset + 16),
+                        buffer.getDouble(offset + 24),
+                        version >= 3 ? buffer.getDouble(offset + 88) : Double.NaN,
+                        buffer.getInt(offset + 32),
+                        bar,
+                        sketch,
+                        slots));
+                offset = next;
+            }
+            if (offset != trailer) {
+                log.error("Checkpoint {} failed validation", path);
+                return null;
+            }
+            return new WindowCheckpoint(buffer.getLong(8), new WindowState(buffer.getLong(16), windows));
+        } catch (IOException e) {
+            log.error("Failed to read checkpoint {}", path, e);
+            return null;
+        }
+    }
+
+    private static int length(double[] values) {
+        return values == null ? 0 : values.length;
+    }
+
+    private static int putDoubles(ByteBuffer buffer, int offset, double[] values) {
+        if (values != null) {
+            for (double value : values) {
+                buffer.putDouble(offset, value);
+                offset += 8;
+            }
+        }
+        return offset;
+    }
+
+    private static double[] getDoubles(ByteBuffer buffer, int offset, int length) {
+        if (length < 0) {
+            return null;
+        }
+        double[] values = new double[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = buffer.getDouble(offset + 8 * i);
+        }
+        return values;
+    }
+
+    private static int crc(ByteBuffer buffer, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(0, length));
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,62 @@
+package com.exercise.vwap.service.cluster;
+
+import com.exercise.vwap.domain.PairActivity;
+import com.exercise.vwap.domain.TradeEvent;
+import com.exercise.vwap.domain.WindowSnapshot;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.RestClient;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * HTTP client for the internal endpoints exposed by peer nodes.
+ */
+public class ClusterNodeClient {
+    private static final String INTERNAL_PATH = "/api/v1/vwap/internal";
+    private static final ParameterizedTypeReference<List<WindowSnapshot>> SNAPSHOT_LIST =
+            new ParameterizedTypeReference<>() {};
+    private static final ParameterizedTypeReference<List<PairActivity>> ACTIVITY_LIST =
+            new ParameterizedTypeReference<>() {};
+
+    private final RestClient restClient;
+
+    public ClusterNodeClient(RestClient restClient) {
+        this.restClient = restClient;
+    }
+
+    public void forwardTrades(String node, List<TradeEvent> trades) {
+        restClient.post()
+                .uri(node + INTERNAL_PATH + "/trades")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(trades)
+                .retrieve()
+                .toBodilessEntity();
+    }
+
+    /**
+     * Fetches the node's local windows for the hour containing {@code windowStart}.
+     * A null or empty pair list returns every pair the node holds.
+     */
+    public List<WindowSnapshot> fetchWindows(String node, LocalDateTime windowStart, List<String> currencyPairs) {
+        List<WindowSnapshot> windows = restClient.get()
+                .uri(node + INTERNAL_PATH + "/windows?windowStart={windowStart}&currencyPairs={pairs}",
+                        windowStart,
+                        currencyPairs == null ? "" : String.join(",", currencyPairs))
+                .retrieve()
+                .body(SNAPSHOT_LIST);
+        return windows == null ? List.of() : windows;
+    }
+
+    /**
+     * Fetches the node's own top {@code n} pairs of its latest hour.
+     */
+    public List<PairActivity> fetchTopPairs(String node, int n, boolean byNotional) {
+        List<PairActivity> top = restClient.get()
+                .uri(node + INTERNAL_PATH + "/top?n={n}&by={by}", n, byNotional ? "notional" : "volume")
+                .retrieve()
+                .body(ACTIVITY_LIST);
+        return top == null ? List.of() : top;
+    }
+}
@@ -0,0 +1,20 @@
+package com.exercise.vwap.service.cluster;
+
+import java.util.List;
+
+/**
+ * Thrown when a query fans out to nodes and some of them do not answer, so any merged result
+ * would be missing their pairs. The controller answers 503.
+ */
+public class NodeUnavailableException extends RuntimeException {
+    private final List<String> nodes;
+
+    public NodeUnavailableException(List<String> nodes, Throwable cause) {
+        super("No answer from " + nodes, cause);
+        this.nodes = List.copyOf(nodes);
+    }
+
+    public List<String> getNodes() {
+        return nodes;
+    }
+}
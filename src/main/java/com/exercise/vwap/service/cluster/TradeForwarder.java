@@ -0,0 +1,96 @@
+package com.exercise.vwap.service.cluster;
+
+import com.exercise.vwap.domain.Trade;
+import com.exercise.vwap.domain.TradeEvent;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Buffers trades owned by remote nodes and ships them in batches.
+ * A batch is sent as soon as it is full, and partial batches are flushed on a fixed
+ * interval so that quiet pairs are not held back. When a node's buffer is full the
+ * caller flushes it synchronously, mirroring the local queue's caller-runs fallback.
+ * Forwarded batches bypass the owner's request lanes, so a failed send is not retried: the
+ * batch is dropped and counted, and a caller flushing a full buffer always gets through.
+ */
+@Slf4j
+public class TradeForwarder implements AutoCloseable {
+    private final ClusterNodeClient client;
+    private final int batchSize;
+    private final int bufferCapacity;
+    private final Map<String, BlockingQueue<TradeEvent>> buffers = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher;
+    private final AtomicLong forwardedTrades = new AtomicLong();
+    private final AtomicLong droppedTrades = new AtomicLong();
+
+    public TradeForwarder(ClusterNodeClient client, int batchSize, long flushIntervalMillis) {
+        this.client = client;
+        this.batchSize = batchSize;
+        this.bufferCapacity = batchSize * 10;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "cluster-trade-forwarder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushAll, flushIntervalMillis, flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    public void forward(String node, Trade trade) {
+        BlockingQueue<TradeEvent> buffer = buffers.computeIfAbsent(node,
+                k -> new ArrayBlockingQueue<>(bufferCapacity));
+        TradeEvent event = TradeEvent.of(trade);
+        while (!buffer.offer(event)) {
+            log.warn("Forward buffer full for {}, flushing in calling thread", node);
+            flush(node, buffer);
+        }
+        if (buffer.size() >= batchSize) {
+            flusher.execute(() -> flush(node, buffer));
+        }
+    }
+
+    public void flushAll() {
+        buffers.forEach(this::flush);
+    }
+
+    private void flush(String node, BlockingQueue<TradeEvent> buffer) {
+        // One flush per node at a time keeps batches in arrival order
+        synchronized (buffer) {
+            while (!buffer.isEmpty()) {
+                List<TradeEvent> batch = new ArrayList<>(batchSize);
+                buffer.drainTo(batch, batchSize);
+                try {
+                    client.forwardTrades(node, batch);
+                    forwardedTrades.addAndGet(batch.size());
+                } catch (Exception e) {
+                    droppedTrades.addAndGet(batch.size());
+                    log.error("Failed to forward {} trades to {}", batch.size(), node, e);
+                }
+            }
+        }
+    }
+
+    public long getForwardedTrades() {
+        return forwardedTrades.get();
+    }
+
+    public long getDroppedTrades() {
+        return droppedTrades.get();
+    }
+
+    @Override
+    public void close() {
+        flusher.shutdown();
+        flushAll();
+    }
+}
@@ -0,0 +1,187 @@
+package com.exercise.vwap.service.dedup;
+
+import com.exercise.vwap.domain.DedupStats;
+import com.exercise.vwap.domain.Trade;
+import com.exercise.vwap.utils.BinaryTradeCodec;
+import com.exercise.vwap.utils.BlockedBloomFilter;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Probabilistic duplicate-trade suppression for feed reconnects and replayed captures.
+ * <p>
+ * A trade's identity is its id when it has one, otherwise (if content hashing is on) a hash
+ * of its pair, exact timestamp, price and volume. Identities go into one Bloom filter per
+ * trade hour, in a ring of {@code hours} filters that is reused as trade time moves on, so
+ * memory is fixed at start-up whatever the volume. A duplicate always lands in the same hour
+ * as its original, so a check costs one filter lookup: two hashes and one cache line.
+ * <p>
+ * A false positive drops a genuine trade; the rate is configurable and applies to each hour
+ * that receives no more than the expected number of trades. Trades older than the ring, and
+ * trades without an id while content hashing is off, are let through unchecked.
+ */
+@Component
+@Slf4j
+public class TradeDeduplicator {
+    private static final long SECONDS_PER_HOUR = 3600;
+    private static final long NANOS_PER_HOUR = SECONDS_PER_HOUR * 1_000_000_000L;
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final long SECOND_HASH_SEED = 0x9E3779B97F4A7C15L;
+    private static final long CONTENT_SEED = 0x632BE59BD9B4E019L;
+
+    @Getter
+    private final boolean enabled;
+    private final boolean hashContent;
+    private final double falsePositiveRate;
+    private final long expectedTradesPerHour;
+    private final HourFilter[] filters;
+
+    private final LongAdder checked = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder unchecked = new LongAdder();
+
+    @Autowired
+    public TradeDeduplicator(@Value("${vwap.dedup.enabled:false}") boolean enabled,
+                             @Value("${vwap.dedup.hours:24}") int hours,
+                             @Value("${vwap.dedup.expected-trades-per-hour:1000000}") long expectedTradesPerHour,
+                             @Value("${vwap.dedup.false-positive-rate:0.001}") double falsePositiveRate,
+                             @Value("${vwap.dedup.content-hash:false}") boolean hashContent) {
+        if (enabled && hours <= 0) {
+            throw new IllegalArgumentException("Deduplication must cover at least one hour, got: " + hours);
+        }
+        this.enabled = enabled;
+        this.hashContent = hashContent;
+        this.falsePositiveRate = falsePositiveRate;
+        this.expectedTradesPerHour = expectedTradesPerHour;
+        this.filters = new HourFilter[enabled ? hours : 0];
+        for (int i = 0; i < filters.length; i++) {
+            filters[i] = new HourFilter(new BlockedBloomFilter(expectedTradesPerHour, falsePositiveRate));
+        }
+        if (enabled) {
+            log.info("Trade deduplication over {} hours, {} trades per hour at false positive rate {}, {} MB",
+                    hours, expectedTradesPerHour, falsePositiveRate, sizeInBytes() >> 20);
+        }
+    }
+
+    /**
+     * Records the trade and returns whether it was probably seen before.
+     */
+    public boolean isDuplicate(Trade trade) {
+        if (!enabled) {
+            return false;
+        }
+        long pair = BinaryTradeCodec.encodePair(trade.getCurrencyPair());
+        LocalDateTime timestamp = trade.getTimestamp();
+        long hash;
+        if (trade.getId() != null) {
+            hash = idHash(pair, trade.getId());
+        } else if (hashContent) {
+            hash = contentHash(pair, BinaryTradeCodec.toEpochNanos(timestamp), trade.getPrice(), trade.getVolume());
+        } else {
+            return false;
+        }
+        return isDuplicate(Math.floorDiv(timestamp.toEpochSecond(ZoneOffset.UTC), SECONDS_PER_HOUR), hash);
+    }
+
+    /**
+     * As {@link #isDuplicate(Trade)} for a trade without an id that has not been materialised,
+     * e.g. a backfill line. {@code pair} is packed as by {@link BinaryTradeCodec#encodePair}.
+     */
+    public boolean isDuplicate(long pair, long epochNanos, double price, double volume) {
+        if (!enabled || !hashContent) {
+            return false;
+        }
+        return isDuplicate(Math.floorDiv(epochNanos, NANOS_PER_HOUR), contentHash(pair, epochNanos, price, volume));
+    }
+
+    /**
+     * As {@link #isDuplicate(Trade)} for a trade with an id that has not been materialised.
+     */
+    public boolean isDuplicate(long pair, long epochNanos, String id) {
+        if (!enabled) {
+            return false;
+        }
+        return isDuplicate(Math.floorDiv(epochNanos, NANOS_PER_HOUR), idHash(pair, id));
+    }
+
+    private boolean isDuplicate(long hour, long hash) {
+        HourFilter filter = filters[(int) Math.floorMod(hour, filters.length)];
+        if (filter.hour != hour && !filter.rotateTo(hour)) {
+            unchecked.increment();
+            return false;
+        }
+        checked.increment();
+        if (filter.bloom.put(hash, mix(hash ^ SECOND_HASH_SEED))) {
+            duplicates.increment();
+            return true;
+        }
+        return false;
+    }
+
+    static long idHash(long pair, String id) {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < id.length(); i++) {
+            hash = (hash ^ id.charAt(i)) * FNV_PRIME;
+        }
+        return mix(hash ^ mix(pair));
+    }
+
+    static long contentHash(long pair, long epochNanos, double price, double volume) {
+        long hash = mix(pair ^ CONTENT_SEED);
+        hash = mix(hash ^ epochNanos);
+        hash = mix(hash ^ Double.doubleToLongBits(price));
+        return mix(hash ^ Double.doubleToLongBits(volume));
+    }
+
+    // MurmurHash3 finalizer
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    public long sizeInBytes() {
+        long bytes = 0;
+        for (HourFilter filter : filters) {
+            bytes += filter.bloom.sizeInBytes();
+        }
+        return bytes;
+    }
+
+    public DedupStats getStats() {
+        return new DedupStats(filters.length, expectedTradesPerHour, falsePositiveRate, sizeInBytes(),
+                checked.sum(), duplicates.sum(), unchecked.sum());
+    }
+
+    /**
+     * The filter for one trade hour. Moving it to a later hour clears it; a trade for an hour
+     * older than the filter's is not checked.
+     */
+    private static final class HourFilter {
+        private final BlockedBloomFilter bloom;
+        private volatile long hour = Long.MIN_VALUE;
+
+        HourFilter(BlockedBloomFilter bloom) {
+            this.bloom = bloom;
+        }
+
+        synchronized boolean rotateTo(long newHour) {
+            if (hour < newHour) {
+                bloom.clear();
+                hour = newHour;
+            }
+            return hour == newHour;
+        }
+    }
+}
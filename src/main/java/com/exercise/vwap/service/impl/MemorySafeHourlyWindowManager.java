@@ -1,20 +1,44 @@
 package com.exercise.vwap.service.impl;
 
+import com.exercise.vwap.domain.BarAccumulator;
+import com.exercise.vwap.domain.IngestTuning;
+import com.exercise.vwap.domain.PairActivity;
 import com.exercise.vwap.domain.Trade;
+import com.exercise.vwap.domain.TradeCorrection;
 import com.exercise.vwap.domain.TradeWindow;
+import com.exercise.vwap.domain.VenueBreakdown;
+import com.exercise.vwap.domain.VenueVwap;
+import com.exercise.vwap.domain.VolumeProfileResult;
+import com.exercise.vwap.domain.WindowSnapshot;
+import com.exercise.vwap.domain.WindowState;
+import com.exercise.vwap.service.TradeListener;
 import com.exercise.vwap.service.WindowManager;
+import com.exercise.vwap.service.dedup.TradeDeduplicator;
+import com.exercise.vwap.service.profile.IntradayVolumeProfiles;
+import com.exercise.vwap.service.strategy.VwapStrategyRegistry;
+import com.exercise.vwap.service.tier.ColdPairStore;
+import com.exercise.vwap.utils.BinaryTradeCodec;
+import com.exercise.vwap.utils.TradeColumns;
+import com.exercise.vwap.utils.VenueInterner;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 @Service
 @Slf4j
@@ -22,24 +46,128 @@ public class MemorySafeHourlyWindowManager implements WindowManager {
     private static final int DEFAULT_QUEUE_CAPACITY = 10000;
     private static final int DEFAULT_MAX_CURRENCY_PAIRS = 1000;
     private static final int DEFAULT_WINDOW_RETENTION_HOURS = 24;
-    private static final int HOUR_IN_MINUTES = 60;
+    private static final int MAX_CONSUMERS = 64;
     private static final ChronoUnit WINDOW_UNIT = ChronoUnit.HOURS;
     private static final long WINDOW_SIZE = 1; // 1 hour windows
+    private static final int MAX_DRAIN = 1024;
+    private static final int MAX_CACHED_COLUMNS = 64;
+    private static final int DEFAULT_BAND_FILTER_MIN_TRADES = 30;
+    private static final double DEFAULT_BAND_FILTER_MIN_WIDTH_BPS = 10;
+    private static final int DEFAULT_TRADE_INDEX_CAPACITY = 100_000;
+    private static final int DEFAULT_MAX_VENUES = 64;
+    private static final long DEFAULT_MAX_OUT_OF_ORDERNESS_SECONDS = 5;
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final long NANOS_PER_HOUR = 3600 * NANOS_PER_SECOND;
+    // Rough heap cost of a pair apart from its windows: its window map and its LRU and published entries
+    private static final int PAIR_SIZE_BYTES = 256;
+    // Spilling stops once resident state is this far under the budget, so it does not run per trade
+    private static final double SPILL_TARGET = 0.9;
 
-    // Main storage using LRU cache for currency pairs
+    // Main storage using LRU cache for currency pairs; only the ingest side touches it
     private final Map<String, Map<LocalDateTime, TradeWindow>> currencyPairWindows;
-    private final BlockingQueue<Trade> incomingTradeQueue;
-    private final ExecutorService processExecutor;
+    // Published view of the same per-pair maps for queries, which read it without locking and
+    // never contend with ingest on the LRU map's monitor
+    private final Map<String, Map<LocalDateTime, TradeWindow>> publishedWindows = new ConcurrentHashMap<>();
+    // Producers offer to the current queue; a resize swaps in a new one and moves what is left over
+    private volatile BlockingQueue<Trade> incomingTradeQueue;
+    // Threads draining the queue, each applying its own batches; guarded by itself
+    private final List<TradeConsumer> tradeConsumers = new ArrayList<>();
+    private int consumerSequence; // guarded by tradeConsumers
 
-    private final int queueCapacity;
-    private final int maxCurrencyPairs;
-    private final int windowRetentionHours;
+    // Trades apply under the read lock; export/import take the write lock so that a state
+    // copy always matches the applied sequence exactly
+    private final ReentrantReadWriteLock stateLock = new ReentrantReadWriteLock();
+    private final Object sequenceLock = new Object();
+    private final List<TradeListener> tradeListeners = new CopyOnWriteArrayList<>();
+    private long appliedSequence; // guarded by sequenceLock
+
+    // Trades offered to the queue but not yet applied
+    private final AtomicLong pendingTrades = new AtomicLong();
+
+    // Tunable at runtime, see tune()
+    private volatile int queueCapacity;
+    private volatile int maxCurrencyPairs;
+    private volatile int windowRetentionHours;
+
+    // t-digest compression for per-window price sketches, 0 disables them
+    @Value("${vwap.sketch.compression:0}")
+    private int sketchCompression;
+
+    // Whether windows keep open, high, low and close alongside the VWAP sums
+    @Value("${vwap.bars.enabled:false}")
+    private boolean trackBars;
+
+    // Ingest filter: trades further than k standard deviations from their window's VWAP are
+    // dropped once the window has enough trades; the band is never narrower than min-width-bps
+    // of the VWAP either side. k = 0 disables the filter.
+    @Value("${vwap.bands.filter.k:0}")
+    private double bandFilterK;
+    @Value("${vwap.bands.filter.min-trades:30}")
+    private int bandFilterMinTrades = DEFAULT_BAND_FILTER_MIN_TRADES;
+    @Value("${vwap.bands.filter.min-width-bps:10}")
+    private double bandFilterMinWidthBps = DEFAULT_BAND_FILTER_MIN_WIDTH_BPS;
+    private final AtomicLong bandRejectedTrades = new AtomicLong();
+
+    // Incremental strategies updated with every trade, if any are registered
+    private VwapStrategyRegistry strategyRegistry;
+
+    // Event-time watermark per pair: the latest trade time seen, less the out-of-orderness bound.
+    // A window is sealed once its pair's watermark passes its end; trades for it after that are
+    // late. Late trades are applied up to the allowed lateness (negative: however late) and bump
+    // the window's version.
+    private final Map<String, AtomicLong> maxEventTimes = new ConcurrentHashMap<>();
+    @Value("${vwap.watermark.max-out-of-orderness-seconds:5}")
+    private long maxOutOfOrdernessSeconds = DEFAULT_MAX_OUT_OF_ORDERNESS_SECONDS;
+    @Value("${vwap.watermark.allowed-lateness-seconds:-1}")
+    private long allowedLatenessSeconds = -1;
+    private final AtomicLong lateTrades = new AtomicLong();
+    private final AtomicLong droppedLateTrades = new AtomicLong();
+
+    // Drops trades seen before, if enabled
+    private TradeDeduplicator deduplicator;
+
+    // Pairs by volume and notional in the latest hour, maintained per trade for top-N queries
+    private final PairActivityRanking activity = new PairActivityRanking();
+
+    // Expected volume by minute of day per pair, if enabled; fed by the same ingest pass
+    private IntradayVolumeProfiles volumeProfiles;
+
+    // Compact ids for trade venues; windows keep per-venue sums keyed by them
+    private int maxVenues = DEFAULT_MAX_VENUES;
+    private List<String> allowedVenues = List.of();
+    private VenueInterner venues = new VenueInterner(DEFAULT_MAX_VENUES);
+
+    // Recently applied trades with an id, for amendments and cancels
+    private RecentTradeIndex recentTrades = new RecentTradeIndex(DEFAULT_TRADE_INDEX_CAPACITY);
+
+    // Heap budget for window state in bytes, 0 for none. Over budget, or over the pair limit when
+    // there is a cold tier, the least recently used pairs move to the tier, or are dropped
+    // without one. Cold pairs are paged back in by their next trade or correction.
+    @Value("${vwap.memory.heap-budget-bytes:0}")
+    private long heapBudgetBytes;
+    private final AtomicLong residentBytes = new AtomicLong();
+    private ColdPairStore coldPairs;
 
     public MemorySafeHourlyWindowManager() {
         this(DEFAULT_QUEUE_CAPACITY, DEFAULT_MAX_CURRENCY_PAIRS, DEFAULT_WINDOW_RETENTION_HOURS);
     }
 
-    public MemorySafeHourlyWindowManager(int queueCapacity, int maxCurrencyPairs, int windowRetentionHours) {
+    @Autowired
+    public MemorySafeHourlyWindowManager(@Value("${vwap.queue.capacity:10000}") int queueCapacity,
+                                         @Value("${vwap.max.currency.pairs:1000}") int maxCurrencyPairs,
+                                         @Value("${vwap.window.retention.hours:24}") int windowRetentionHours) {
+        this(queueCapacity, maxCurrencyPairs, windowRetentionHours, 0);
+    }
+
+    public MemorySafeHourlyWindowManager(int queueCapacity, int maxCurrencyPairs, int windowRetentionHours,
+                                         int sketchCompression) {
+        this(queueCapacity, maxCurrencyPairs, windowRetentionHours, sketchCompression, false);
+    }
+
+    public MemorySafeHourlyWindowManager(int queueCapacity, int maxCurrencyPairs, int windowRetentionHours,
+                                         int sketchCompression, boolean trackBars) {
+        this.sketchCompression = sketchCompression;
+        this.trackBars = trackBars;
         this.queueCapacity = queueCapacity;
         this.maxCurrencyPairs = maxCurrencyPairs;
         this.windowRetentionHours = windowRetentionHours;
@@ -49,23 +177,80 @@ public class MemorySafeHourlyWindowManager implements WindowManager {
                         maxCurrencyPairs + 1, 0.75f, true) {
                     @Override
                     protected boolean removeEldestEntry(Map.Entry<String, Map<LocalDateTime, TradeWindow>> eldest) {
-                        boolean shouldRemove = size() > maxCurrencyPairs;
+                        // With a cold tier the pair limit is enforced by spilling instead
+                        boolean shouldRemove = size() > MemorySafeHourlyWindowManager.this.maxCurrencyPairs
+                                && coldPairs == null;
                         if (shouldRemove) {
                             log.warn("Removing least recently used currency pair: {}", eldest.getKey());
+                            release(eldest.getValue());
+                            publishedWindows.remove(eldest.getKey());
+                            maxEventTimes.remove(eldest.getKey());
                         }
                         return shouldRemove;
                     }
                 });
 
         this.incomingTradeQueue = new ArrayBlockingQueue<>(queueCapacity);
-        this.processExecutor = new ThreadPoolExecutor(
-                2, 4,
-                60L, TimeUnit.SECONDS,
-                new ArrayBlockingQueue<>(100),
-                new ThreadPoolExecutor.CallerRunsPolicy()
-        );
+        startConsumers(1);
+    }
+
+    @Autowired(required = false)
+    public void setStrategyRegistry(VwapStrategyRegistry strategyRegistry) {
+        this.strategyRegistry = strategyRegistry;
+    }
+
+    @Autowired(required = false)
+    public void setDeduplicator(TradeDeduplicator deduplicator) {
+        this.deduplicator = deduplicator;
+    }
+
+    @Autowired(required = false)
+    public void setColdPairStore(ColdPairStore coldPairs) {
+        this.coldPairs = coldPairs;
+    }
+
+    @Autowired(required = false)
+    public void setVolumeProfiles(IntradayVolumeProfiles volumeProfiles) {
+        this.volumeProfiles = volumeProfiles;
+    }
+
+    /**
+     * How many of the most recent trades with an id can still be amended or cancelled; 0 stops
+     * indexing trades altogether.
+     */
+    @Value("${vwap.corrections.index-capacity:100000}")
+    public void setTradeIndexCapacity(int capacity) {
+        this.recentTrades = new RecentTradeIndex(capacity);
+    }
+
+    /**
+     * How many distinct venues get their own VWAP; trades on venues beyond that only count
+     * towards their pair.
+     */
+    @Value("${vwap.venues.max:64}")
+    public void setMaxVenues(int maxVenues) {
+        this.maxVenues = maxVenues;
+        this.venues = new VenueInterner(maxVenues, allowedVenues);
+    }
+
+    /**
+     * The only venues that get their own VWAP, when not empty; trades on others only count
+     * towards their pair.
+     */
+    @Value("${vwap.venues.allowed:}")
+    public void setAllowedVenues(List<String> allowedVenues) {
+        this.allowedVenues = allowedVenues.stream().map(String::strip).filter(venue -> !venue.isEmpty()).toList();
+        this.venues = new VenueInterner(maxVenues, this.allowedVenues);
+    }
 
-        startTradeProcessor();
+    /**
+     * How many threads drain the trade queue. Trades are applied in arrival order only with a
+     * single consumer; with more, batches from different consumers interleave, so more than one
+     * is refused while anything depends on that order (see {@link #orderDependency()}).
+     */
+    @Value("${vwap.queue.consumers:1}")
+    public void setConsumers(int consumers) {
+        tune(new IngestTuning(null, consumers, null, null));
     }
 
     private LocalDateTime getWindowStart(LocalDateTime timestamp) {
@@ -80,13 +265,60 @@ public class MemorySafeHourlyWindowManager implements WindowManager {
         return WINDOW_UNIT.between(windowStart, tradeTime) < WINDOW_SIZE;
     }
 
-    private void startTradeProcessor() {
-        Thread processor = new Thread(() -> {
-            while (!Thread.currentThread().isInterrupted()) {
+    private void startConsumers(int count) {
+        synchronized (tradeConsumers) {
+            for (int i = 0; i < count; i++) {
+                TradeConsumer consumer = new TradeConsumer("hourly-trade-processor-" + consumerSequence++);
+                tradeConsumers.add(consumer);
+                consumer.thread.start();
+            }
+        }
+    }
+
+    // Stopped consumers finish the batch in hand and exit within one poll interval
+    private void stopConsumers(int count) {
+        synchronized (tradeConsumers) {
+            for (int i = 0; i < count; i++) {
+                tradeConsumers.remove(tradeConsumers.size() - 1).running = false;
+            }
+        }
+    }
+
+    /**
+     * Drains the current queue: everything queued behind the first trade is drained and
+     * applied as one batch. The queue is read afresh on every poll, so a resized queue is
+     * picked up within one poll interval.
+     */
+    private final class TradeConsumer implements Runnable {
+        private final Thread thread;
+        private volatile boolean running = true;
+
+        private TradeConsumer(String name) {
+            this.thread = new Thread(this, name);
+            thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            List<Trade> batch = new ArrayList<>(MAX_DRAIN);
+            Map<TradeWindow, PairColumns> columns = new IdentityHashMap<>();
+            while (running && !Thread.currentThread().isInterrupted()) {
                 try {
-                    Trade trade = incomingTradeQueue.poll(100, TimeUnit.MILLISECONDS);
+                    BlockingQueue<Trade> queue = incomingTradeQueue;
+                    Trade trade = queue.poll(100, TimeUnit.MILLISECONDS);
                     if (trade != null) {
-                        processTradeInternal(trade);
+                        batch.add(trade);
+                        queue.drainTo(batch, MAX_DRAIN - 1);
+                        try {
+                            if (batch.size() == 1) {
+                                processTradeInternal(trade);
+                            } else {
+                                processBatchInternal(batch, columns);
+                            }
+                        } finally {
+                            pendingTrades.addAndGet(-batch.size());
+                            batch.clear();
+                        }
                     }
                 } catch (InterruptedException e) {
                     Thread.currentThread().interrupt();
@@ -95,54 +327,824 @@ public class MemorySafeHourlyWindowManager implements WindowManager {
                     log.error("Error processing trade", e);
                 }
             }
-        });
-        processor.setName("hourly-trade-processor");
-        processor.setDaemon(true);
-        processor.start();
+        }
     }
 
     @Override
     public void addTrade(Trade trade) {
-        if (!incomingTradeQueue.offer(trade)) {
+        // Count before offering so the processor can never decrement ahead of us
+        pendingTrades.incrementAndGet();
+        BlockingQueue<Trade> queue = incomingTradeQueue;
+        if (!queue.offer(trade)) {
+            pendingTrades.decrementAndGet();
             log.warn("Trade queue full, processing in calling thread for {}",
                     trade.getCurrencyPair());
             processTradeInternal(trade);
+        } else if (queue != incomingTradeQueue) {
+            // The queue was replaced while we offered and its leftovers may have been moved already
+            requeue(queue);
         }
     }
 
+    // Moves trades left in a replaced queue to the current one, applying them here once it is full
+    private void requeue(BlockingQueue<Trade> retired) {
+        Trade trade;
+        while ((trade = retired.poll()) != null) {
+            if (!incomingTradeQueue.offer(trade)) {
+                try {
+                    processTradeInternal(trade);
+                } finally {
+                    pendingTrades.decrementAndGet();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void applyTrade(Trade trade) {
+        processTradeInternal(trade);
+    }
+
+    /**
+     * As {@link #applyTrade(Trade)}, for trades replayed from the journal. Its records do not
+     * keep the venue, so the window's venue split is flagged as unknown.
+     */
+    @Override
+    public void replayTrade(Trade trade) {
+        processTradeInternal(trade, true);
+    }
+
     private void processTradeInternal(Trade trade) {
-        try {
-            LocalDateTime windowStart = getWindowStart(trade.getTimestamp());
+        processTradeInternal(trade, false);
+    }
 
-            // Validate if the trade belongs to the current window
-            if (!isWithinCurrentWindow(trade.getTimestamp(), windowStart)) {
-                log.warn("Trade timestamp outside current window: {}", trade);
+    private void processTradeInternal(Trade trade, boolean venueLost) {
+        stateLock.readLock().lock();
+        try {
+            if (isDuplicate(trade)) {
+                return;
+            }
+            long lateness = advanceWatermark(trade);
+            if (isTooLate(trade, lateness)) {
                 return;
             }
+            TradeWindow window = resolveWindow(trade);
+            if (window == null || isOutsideBands(window, trade)) {
+                return;
+            }
+            if (lateness >= 0) {
+                window.seal();
+            }
+            int venue = venues.intern(trade.getVenue());
+            if (window.addTrade(trade, venue)) {
+                if (venueLost) {
+                    window.markVenuesUnknown();
+                }
+                activity.record(trade.getCurrencyPair(), window.getWindowStart(),
+                        trade.getPrice() * trade.getVolume(), trade.getVolume());
+                if (volumeProfiles != null) {
+                    volumeProfiles.record(trade.getCurrencyPair(), trade.getTimestamp(), trade.getVolume());
+                }
+                if (trade.getId() != null && recentTrades.isEnabled()) {
+                    recentTrades.put(trade, window.getWindowStart(), venue);
+                }
+            }
+            if (lateness >= 0) {
+                window.bumpVersion();
+                lateTrades.incrementAndGet();
+            }
+            publishApplied(trade);
+        } catch (Exception e) {
+            log.error("Error processing trade: {}", trade, e);
+        } finally {
+            stateLock.readLock().unlock();
+        }
+        if (isOverBudget()) {
+            relieveMemory();
+        }
+    }
+
+    /**
+     * Applies a drained batch: trades are grouped into per-window time/price/volume columns, each
+     * window is updated once through the batch kernel, and then every trade is published in
+     * its original order. With the band filter on, a window's staged trades are flushed before
+     * the next trade for it is judged, so every trade is judged against the same state as on the
+     * trade-by-trade path that replay and replicas take. A sealed window's version is bumped once
+     * per flush. The pair's activity, its volume profile and the index of recent trades are fed
+     * from the trades the window took, as {@link TradeWindow#addTrade} reports them on the
+     * trade-by-trade path.
+     */
+    private void processBatchInternal(List<Trade> trades, Map<TradeWindow, PairColumns> columns) {
+        stateLock.readLock().lock();
+        try {
+            int applied = 0;
+            for (int i = 0; i < trades.size(); i++) {
+                Trade trade = trades.get(i);
+                if (isDuplicate(trade)) {
+                    continue;
+                }
+                long lateness = advanceWatermark(trade);
+                if (isTooLate(trade, lateness)) {
+                    continue;
+                }
+                TradeWindow window = resolveWindow(trade);
+                if (window != null && bandFilterK > 0) {
+                    flush(window, columns.get(window));
+                }
+                if (window != null && !isOutsideBands(window, trade)) {
+                    if (lateness >= 0) {
+                        window.seal();
+                        lateTrades.incrementAndGet();
+                    }
+                    int venue = venues.intern(trade.getVenue());
+                    PairColumns pending = columns.get(window);
+                    if (pending == null) {
+                        pending = new PairColumns(trade.getCurrencyPair());
+                        columns.put(window, pending);
+                    }
+                    pending.stage(trade, venue);
+                    trades.set(applied++, trade);
+                }
+            }
+            columns.forEach(this::flush);
+            publishApplied(trades.subList(0, applied));
+        } catch (Exception e) {
+            log.error("Error processing batch of {} trades", trades.size(), e);
+        } finally {
+            // Column buffers are reused across batches; drop them once stale windows pile up
+            if (columns.size() > MAX_CACHED_COLUMNS) {
+                columns.clear();
+            }
+            stateLock.readLock().unlock();
+        }
+        if (isOverBudget()) {
+            relieveMemory();
+        }
+    }
 
-            Map<LocalDateTime, TradeWindow> windows = currencyPairWindows
-                    .computeIfAbsent(trade.getCurrencyPair(), k ->
-                            Collections.synchronizedMap(new ConcurrentHashMap<>()));
+    private void flush(TradeWindow window, PairColumns pending) {
+        if (pending != null && pending.size() > 0) {
+            boolean late = window.isSealed();
+            int staged = pending.size();
+            int accepted = pending.flushInto(window, pending.taken);
+            if (late) {
+                window.bumpVersion();
+            }
+            activity.record(pending.currencyPair, window.getWindowStart(), pending.taken[0], pending.taken[1]);
+            for (int i = 0; i < staged; i++) {
+                Trade trade = pending.trades[i];
+                // Trades past the window's limit were never added, so a later cancel must not find them
+                if (i < accepted) {
+                    if (volumeProfiles != null) {
+                        volumeProfiles.record(trade.getCurrencyPair(), trade.getTimestamp(), trade.getVolume());
+                    }
+                    if (trade.getId() != null && recentTrades.isEnabled()) {
+                        recentTrades.put(trade, window.getWindowStart(), pending.venueIds[i]);
+                    }
+                }
+                pending.trades[i] = null;
+            }
+        }
+    }
 
-            TradeWindow window = windows.computeIfAbsent(windowStart,
-                    k -> new TradeWindow(windowStart));
+    /**
+     * A window's staged trades along with its pair, so the pair's activity, volume profile and
+     * recent trades can be fed once the window has taken them.
+     */
+    private static final class PairColumns extends TradeColumns {
+        private final String currencyPair;
+        private final double[] taken = new double[2];
+        private final Trade[] trades = new Trade[MAX_DRAIN];
+        private final int[] venueIds = new int[MAX_DRAIN];
 
-            window.addTrade(trade);
-        } catch (Exception e) {
-            log.error("Error processing trade: {}", trade, e);
+        PairColumns(String currencyPair) {
+            super(MAX_DRAIN);
+            this.currencyPair = currencyPair;
+        }
+
+        void stage(Trade trade, int venue) {
+            trades[size()] = trade;
+            venueIds[size()] = venue;
+            add(BarAccumulator.timeInHour(trade.getTimestamp()), trade.getPrice(), trade.getVolume(), venue);
+        }
+    }
+
+    /**
+     * Returns the window a trade belongs to, creating it if needed, or null if the trade
+     * falls outside its window.
+     */
+    private TradeWindow resolveWindow(Trade trade) {
+        LocalDateTime windowStart = getWindowStart(trade.getTimestamp());
+
+        // Validate if the trade belongs to the current window
+        if (!isWithinCurrentWindow(trade.getTimestamp(), windowStart)) {
+            log.warn("Trade timestamp outside current window: {}", trade);
+            return null;
+        }
+
+        Map<LocalDateTime, TradeWindow> windows = windowsFor(trade.getCurrencyPair());
+
+        // Look up first: the creating lambda captures windowStart and would allocate per trade
+        TradeWindow window = windows.get(windowStart);
+        if (window != null) {
+            return window;
+        }
+        return windows.computeIfAbsent(windowStart, k -> track(newWindow(windowStart)));
+    }
+
+    /**
+     * Whether the band filter rejects the trade. Windows with unknown variance, e.g. restored
+     * from an old checkpoint, accept everything.
+     */
+    private boolean isOutsideBands(TradeWindow window, Trade trade) {
+        if (bandFilterK <= 0 || window.getTradeCount().get() < bandFilterMinTrades) {
+            return false;
+        }
+        double vwap = window.getVwap();
+        double halfWidth = Math.max(bandFilterK * window.getVwapStdDev(), vwap * bandFilterMinWidthBps / 10_000);
+        if (Double.isNaN(halfWidth) || Math.abs(trade.getPrice() - vwap) <= halfWidth) {
+            return false;
+        }
+        bandRejectedTrades.incrementAndGet();
+        log.debug("Trade outside {} sigma band of VWAP {}: {}", bandFilterK, vwap, trade);
+        return true;
+    }
+
+    /**
+     * Advances the trade's pair's watermark, sealing the pair's windows it moves past, and
+     * returns how far the watermark is past the end of the trade's window in nanoseconds:
+     * negative while that window is open. Allocation-free once the pair has been seen.
+     */
+    private long advanceWatermark(Trade trade) {
+        long eventTime = BinaryTradeCodec.toEpochNanos(trade.getTimestamp());
+        AtomicLong maxEventTime = maxEventTimes.get(trade.getCurrencyPair());
+        if (maxEventTime == null) {
+            maxEventTime = maxEventTimes.computeIfAbsent(trade.getCurrencyPair(), k -> new AtomicLong(Long.MIN_VALUE));
+        }
+        long previous = maxEventTime.get();
+        while (eventTime > previous && !maxEventTime.compareAndSet(previous, eventTime)) {
+            previous = maxEventTime.get();
+        }
+        long lag = maxOutOfOrdernessSeconds * NANOS_PER_SECOND;
+        long watermark = Math.max(previous, eventTime) - lag;
+        if (eventTime > previous && (previous == Long.MIN_VALUE
+                || Math.floorDiv(previous - lag, NANOS_PER_HOUR) < Math.floorDiv(watermark, NANOS_PER_HOUR))) {
+            sealWindows(trade.getCurrencyPair(), watermark);
+        }
+        return watermark - (Math.floorDiv(eventTime, NANOS_PER_HOUR) + 1) * NANOS_PER_HOUR;
+    }
+
+    private void sealWindows(String currencyPair, long watermark) {
+        Map<LocalDateTime, TradeWindow> windows = publishedWindows.get(currencyPair);
+        if (windows == null) {
+            if (coldPairs != null) {
+                coldPairs.seal(currencyPair, watermark);
+            }
+            return;
+        }
+        for (TradeWindow window : windows.values()) {
+            if (!window.isSealed() && BinaryTradeCodec.toEpochNanos(window.getWindowEnd()) <= watermark) {
+                window.seal();
+            }
+        }
+    }
+
+    private boolean isTooLate(Trade trade, long lateness) {
+        if (allowedLatenessSeconds < 0 || lateness <= allowedLatenessSeconds * NANOS_PER_SECOND) {
+            return false;
         }
+        droppedLateTrades.incrementAndGet();
+        log.debug("Trade {}s past its window's seal, dropping: {}", lateness / NANOS_PER_SECOND, trade);
+        return true;
     }
 
+    private boolean isDuplicate(Trade trade) {
+        if (deduplicator == null || !deduplicator.isDuplicate(trade)) {
+            return false;
+        }
+        log.debug("Dropping duplicate trade: {}", trade);
+        return true;
+    }
+
+    private TradeWindow newWindow(LocalDateTime windowStart) {
+        return new TradeWindow(windowStart, sketchCompression, trackBars, strategyRegistry);
+    }
+
+    /**
+     * Returns the pair's window map, creating and publishing it if needed, with the pair's
+     * windows paged back in if it is cold. Also marks the pair as recently used. Callers hold
+     * the state lock, so a page-in never overlaps a spill.
+     */
+    private Map<LocalDateTime, TradeWindow> windowsFor(String currencyPair) {
+        return currencyPairWindows.computeIfAbsent(currencyPair, pair -> {
+            Map<LocalDateTime, TradeWindow> windows = new ConcurrentHashMap<>();
+            residentBytes.addAndGet(PAIR_SIZE_BYTES);
+            List<TradeWindow> cold = coldPairs == null ? null : coldPairs.load(pair);
+            if (cold != null) {
+                for (TradeWindow window : cold) {
+                    windows.put(window.getWindowStart(), track(window));
+                }
+            }
+            // Published before leaving the tier, so lock-free queries always find the pair in one
+            publishedWindows.put(pair, windows);
+            if (cold != null) {
+                coldPairs.remove(pair);
+                log.debug("Paged {} windows of {} back in from the cold tier", cold.size(), pair);
+            }
+            return windows;
+        });
+    }
+
+    private TradeWindow track(TradeWindow window) {
+        residentBytes.addAndGet(window.estimateSizeInBytes());
+        return window;
+    }
+
+    private void release(Map<LocalDateTime, TradeWindow> windows) {
+        long size = PAIR_SIZE_BYTES;
+        for (TradeWindow window : windows.values()) {
+            size += window.estimateSizeInBytes();
+        }
+        residentBytes.addAndGet(-size);
+    }
+
+    // A single resident pair is never moved out, so it alone cannot trigger relief on every trade
+    private boolean isOverBudget() {
+        return heapBudgetBytes > 0 && residentBytes.get() > heapBudgetBytes && publishedWindows.size() > 1
+                || coldPairs != null && publishedWindows.size() > maxCurrencyPairs;
+    }
+
+    /**
+     * Moves least recently used pairs out of the heap until resident window state is under
+     * {@link #SPILL_TARGET} of the budget and within the pair limit: into the cold tier when
+     * there is one and it has room, otherwise they are dropped. The most recently used pair
+     * always stays.
+     */
+    private void relieveMemory() {
+        long target = (long) (heapBudgetBytes * SPILL_TARGET);
+        int spilled = 0;
+        stateLock.writeLock().lock();
+        try {
+            synchronized (currencyPairWindows) {
+                Iterator<Map.Entry<String, Map<LocalDateTime, TradeWindow>>> pairs =
+                        currencyPairWindows.entrySet().iterator();
+                while (pairs.hasNext() && currencyPairWindows.size() > 1
+                        && (heapBudgetBytes > 0 && residentBytes.get() > target
+                        || currencyPairWindows.size() > maxCurrencyPairs)) {
+                    Map.Entry<String, Map<LocalDateTime, TradeWindow>> eldest = pairs.next();
+                    String pair = eldest.getKey();
+                    Map<LocalDateTime, TradeWindow> windows = eldest.getValue();
+                    if (!windows.isEmpty() && coldPairs != null && coldPairs.spill(pair, windows.values())) {
+                        spilled++;
+                    } else {
+                        if (!windows.isEmpty()) {
+                            log.warn("Removing least recently used currency pair: {}", pair);
+                        }
+                        maxEventTimes.remove(pair);
+                    }
+                    publishedWindows.remove(pair);
+                    release(windows);
+                    pairs.remove();
+                }
+            }
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+        if (spilled > 0) {
+            log.info("Spilled {} currency pairs to the cold tier, {} KB of window state resident",
+                    spilled, residentBytes.get() >> 10);
+        }
+    }
+
+    private void publishApplied(Trade trade) {
+        synchronized (sequenceLock) {
+            notifyListeners(++appliedSequence, trade);
+        }
+    }
+
+    private void publishApplied(List<Trade> trades) {
+        synchronized (sequenceLock) {
+            for (Trade trade : trades) {
+                notifyListeners(++appliedSequence, trade);
+            }
+        }
+    }
+
+    private void publishCorrected(TradeCorrection correction) {
+        synchronized (sequenceLock) {
+            long sequence = ++appliedSequence;
+            for (TradeListener listener : tradeListeners) {
+                try {
+                    listener.onTradeCorrected(sequence, correction);
+                } catch (Exception e) {
+                    log.error("Trade listener failed for correction at sequence {}", sequence, e);
+                }
+            }
+        }
+    }
+
+    private void publishMerged(String currencyPair, TradeWindow partial) {
+        synchronized (sequenceLock) {
+            long sequence = ++appliedSequence;
+            for (TradeListener listener : tradeListeners) {
+                try {
+                    listener.onWindowMerged(sequence, currencyPair, partial);
+                } catch (Exception e) {
+                    log.error("Trade listener failed for merged window at sequence {}", sequence, e);
+                }
+            }
+        }
+    }
+
+    private void notifyListeners(long sequence, Trade trade) {
+        for (TradeListener listener : tradeListeners) {
+            try {
+                listener.onTradeApplied(sequence, trade);
+            } catch (Exception e) {
+                log.error("Trade listener failed for sequence {}", sequence, e);
+            }
+        }
+    }
+
+    @Override
+    public void awaitQueueDrained() {
+        while (pendingTrades.get() > 0 && hasLiveConsumer()) {
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted waiting for trade queue to drain", e);
+            }
+        }
+    }
+
+    private boolean hasLiveConsumer() {
+        synchronized (tradeConsumers) {
+            for (TradeConsumer consumer : tradeConsumers) {
+                if (consumer.thread.isAlive()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    @Override
+    public IngestTuning getTuning() {
+        synchronized (tradeConsumers) {
+            return new IngestTuning(queueCapacity, tradeConsumers.size(), maxCurrencyPairs, windowRetentionHours);
+        }
+    }
+
+    /**
+     * Applies the settings given in {@code changes} without losing state, and returns those now
+     * in force. A new queue capacity swaps in a new queue and moves queued trades over, applying
+     * any that do not fit in the calling thread. A lower pair limit moves the least recently
+     * used pairs out as the heap budget would, and a shorter retention drops expired windows
+     * straight away. Nothing is changed if any setting is out of range.
+     */
+    @Override
+    public IngestTuning tune(IngestTuning changes) {
+        Integer capacity = changes.getQueueCapacity();
+        Integer consumers = changes.getConsumers();
+        Integer pairs = changes.getMaxCurrencyPairs();
+        Integer retention = changes.getRetentionHours();
+        if (capacity != null && capacity < 1) {
+            throw new IllegalArgumentException("Queue capacity must be positive: " + capacity);
+        }
+        if (consumers != null && (consumers < 1 || consumers > MAX_CONSUMERS)) {
+            throw new IllegalArgumentException("Consumers must be between 1 and " + MAX_CONSUMERS + ": " + consumers);
+        }
+        String dependency = consumers != null && consumers > 1 ? orderDependency() : null;
+        if (dependency != null) {
+            throw new IllegalArgumentException("Only one consumer is allowed while " + dependency
+                    + " depends on trade order: " + consumers);
+        }
+        if (pairs != null && pairs < 1) {
+            throw new IllegalArgumentException("Maximum currency pairs must be positive: " + pairs);
+        }
+        if (retention != null && retention < 1) {
+            throw new IllegalArgumentException("Retention must be at least one hour: " + retention);
+        }
+
+        synchronized (tradeConsumers) {
+            if (capacity != null && capacity != queueCapacity) {
+                BlockingQueue<Trade> retired = incomingTradeQueue;
+                queueCapacity = capacity;
+                incomingTradeQueue = new ArrayBlockingQueue<>(capacity);
+                requeue(retired);
+            }
+            if (consumers != null && consumers > tradeConsumers.size()) {
+                startConsumers(consumers - tradeConsumers.size());
+            } else if (consumers != null) {
+                stopConsumers(tradeConsumers.size() - consumers);
+            }
+        }
+        if (pairs != null) {
+            maxCurrencyPairs = pairs;
+            if (publishedWindows.size() > pairs) {
+                relieveMemory();
+            }
+        }
+        if (retention != null) {
+            boolean shorter = retention < windowRetentionHours;
+            windowRetentionHours = retention;
+            if (shorter) {
+                cleanupExpiredWindows(LocalDateTime.now());
+            }
+        }
+
+        IngestTuning tuning = getTuning();
+        log.info("Ingest tuned to queue capacity {}, {} consumers, {} currency pairs, {} hours retention",
+                tuning.getQueueCapacity(), tuning.getConsumers(), tuning.getMaxCurrencyPairs(),
+                tuning.getRetentionHours());
+        return tuning;
+    }
+
+    /**
+     * Listeners see trades in the order they are applied and record that order, so they can only
+     * be added while a single consumer drains the queue.
+     */
+    @Override
+    public void addTradeListener(TradeListener listener) {
+        synchronized (tradeConsumers) {
+            if (tradeConsumers.size() > 1) {
+                throw new IllegalStateException("Trade listeners need a single queue consumer, not "
+                        + tradeConsumers.size());
+            }
+            tradeListeners.add(listener);
+        }
+    }
+
+    /**
+     * What would see different results if trades were applied out of arrival order: the journal
+     * records trades in queue order and the replication log in apply order, which agree only with
+     * one consumer, and the band filter and allowed lateness judge each trade against the trades
+     * applied before it. Null if nothing does.
+     */
+    private String orderDependency() {
+        if (!tradeListeners.isEmpty()) {
+            return "the trade journal or replication log";
+        }
+        if (bandFilterK > 0) {
+            return "the band filter";
+        }
+        if (allowedLatenessSeconds >= 0) {
+            return "allowed lateness";
+        }
+        return null;
+    }
+
+    @Override
+    public WindowState exportState() {
+        stateLock.writeLock().lock();
+        try {
+            List<WindowSnapshot> snapshots = new ArrayList<>();
+            currencyPairWindows.forEach((pair, windows) -> windows.values().forEach(window -> {
+                if (window.getTradeCount().get() > 0) {
+                    snapshots.add(WindowSnapshot.of(pair, window));
+                }
+            }));
+            if (coldPairs != null) {
+                snapshots.addAll(coldPairs.snapshots());
+            }
+            synchronized (sequenceLock) {
+                return new WindowState(appliedSequence, snapshots);
+            }
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void importState(WindowState state) {
+        stateLock.writeLock().lock();
+        try {
+            currencyPairWindows.clear();
+            publishedWindows.clear();
+            maxEventTimes.clear();
+            residentBytes.set(0);
+            if (coldPairs != null) {
+                coldPairs.clear();
+            }
+            // Imported windows already hold whatever the indexed trades contributed, or not
+            recentTrades.clear();
+            activity.clear();
+            for (WindowSnapshot snapshot : state.getWindows()) {
+                windowsFor(snapshot.getCurrencyPair()).put(snapshot.getWindowStart(),
+                        track(snapshot.toTradeWindow(sketchCompression, strategyRegistry)));
+                activity.record(snapshot.getCurrencyPair(), snapshot.getWindowStart(),
+                        snapshot.getSumPriceVolume(), snapshot.getSumVolume());
+            }
+            synchronized (sequenceLock) {
+                appliedSequence = state.getSequence();
+            }
+            log.info("Imported {} windows at sequence {}", state.getWindows().size(), state.getSequence());
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+        if (isOverBudget()) {
+            relieveMemory();
+        }
+    }
+
+    /**
+     * Folds a pre-aggregated window into the live one for the same hour. The merge takes one
+     * applied sequence and is published to trade listeners as a whole; its trades do not
+     * advance the watermark. Merging into a sealed window bumps its version.
+     */
+    @Override
+    public void mergeWindow(String currencyPair, TradeWindow partial) {
+        stateLock.readLock().lock();
+        try {
+            LocalDateTime windowStart = getWindowStart(partial.getWindowStart());
+            TradeWindow window = windowsFor(currencyPair)
+                    .computeIfAbsent(windowStart, k -> track(newWindow(windowStart)));
+            window.merge(partial);
+            activity.record(currencyPair, windowStart, partial.getSumPriceVolume().get(), partial.getSumVolume().get());
+            if (window.isSealed()) {
+                window.bumpVersion();
+            }
+            publishMerged(currencyPair, partial);
+        } finally {
+            stateLock.readLock().unlock();
+        }
+        if (isOverBudget()) {
+            relieveMemory();
+        }
+    }
+
+    /**
+     * Creates the windows starting at {@code windowStart} for every pair that traded in the
+     * window before it, so that the first trades after the boundary find their window on the
+     * lookup fast path instead of all creating one at once. Pairs are not touched for LRU
+     * purposes. A pre-created window stays out of snapshots and exports until it has trades.
+     * Returns the number of windows created.
+     */
+    @Override
+    public int prewarmWindows(LocalDateTime windowStart) {
+        LocalDateTime start = getWindowStart(windowStart);
+        LocalDateTime previous = start.minus(WINDOW_SIZE, WINDOW_UNIT);
+        int created = 0;
+        stateLock.readLock().lock();
+        try {
+            for (Map<LocalDateTime, TradeWindow> windows : publishedWindows.values()) {
+                TradeWindow current = windows.get(previous);
+                if (current != null && current.getTradeCount().get() > 0 && !windows.containsKey(start)) {
+                    TradeWindow window = newWindow(start);
+                    if (windows.putIfAbsent(start, window) == null) {
+                        track(window);
+                        created++;
+                    }
+                }
+            }
+        } finally {
+            stateLock.readLock().unlock();
+        }
+        return created;
+    }
+
+    /**
+     * Cancels a recently applied trade by id: what it contributed is subtracted from the window
+     * it landed in, in O(1). Returns that window.
+     */
+    @Override
+    public TradeWindow cancelTrade(String currencyPair, String tradeId) {
+        RecentTradeIndex.Entry entry = takeIndexed(currencyPair, tradeId);
+        return correct(new TradeCorrection(indexedTrade(currencyPair, tradeId, entry), null), entry.getVenue(),
+                true);
+    }
+
+    /**
+     * Replaces the price and volume of a recently applied trade by id: the original contribution
+     * is subtracted and the amended one added to the same window, keeping the trade's time and
+     * venue. Corrections bypass the band filter. Returns the window.
+     */
+    @Override
+    public TradeWindow amendTrade(String currencyPair, String tradeId, double price, double volume) {
+        RecentTradeIndex.Entry entry = takeIndexed(currencyPair, tradeId);
+        Trade original = indexedTrade(currencyPair, tradeId, entry);
+        Trade amended = new Trade(original.getTimestamp(), currencyPair, price, volume, tradeId, original.getVenue());
+        return correct(new TradeCorrection(original, amended), entry.getVenue(), true);
+    }
+
+    /**
+     * Applies a correction replayed from the journal or the replication log. The original trade
+     * is taken back as recorded, so no index lookup is needed. Returns null, after logging, if
+     * its window is no longer held.
+     */
+    @Override
+    public TradeWindow applyCorrection(TradeCorrection correction) {
+        Trade original = correction.getOriginal();
+        if (original.getId() != null) {
+            recentTrades.remove(original.getId(), original.getCurrencyPair());
+        }
+        try {
+            return correct(correction, venues.idOf(original.getVenue()), false);
+        } catch (IllegalStateException e) {
+            log.warn("Skipping correction of {}: {}", original, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Removes a trade from the index. A trade that is not indexed yet may still be queued, so a
+     * miss waits for the queue to drain and looks again once.
+     */
+    private RecentTradeIndex.Entry takeIndexed(String currencyPair, String tradeId) {
+        RecentTradeIndex.Entry entry = recentTrades.remove(tradeId, currencyPair);
+        if (entry == null && pendingTrades.get() > 0) {
+            awaitQueueDrained();
+            entry = recentTrades.remove(tradeId, currencyPair);
+        }
+        if (entry == null) {
+            throw new IllegalStateException("Trade " + tradeId + " for " + currencyPair
+                    + " is not among the recently applied trades");
+        }
+        return entry;
+    }
+
+    private Trade indexedTrade(String currencyPair, String tradeId, RecentTradeIndex.Entry entry) {
+        return new Trade(entry.getWindowStart().plusNanos(entry.getTime()), currencyPair, entry.getPrice(),
+                entry.getVolume(), tradeId, venues.nameOf(entry.getVenue()));
+    }
+
+    /**
+     * Takes the original trade back out of its window and adds the amended one, if any, in its
+     * place, then publishes the correction to trade listeners under its own sequence. An
+     * index entry taken for a correction that cannot be applied is put back.
+     */
+    private TradeWindow correct(TradeCorrection correction, int venue, boolean restoreOnMiss) {
+        Trade original = correction.getOriginal();
+        String currencyPair = original.getCurrencyPair();
+        LocalDateTime windowStart = getWindowStart(original.getTimestamp());
+        stateLock.readLock().lock();
+        try {
+            Map<LocalDateTime, TradeWindow> windows = publishedWindows.get(currencyPair);
+            if (windows == null && coldPairs != null && coldPairs.contains(currencyPair)) {
+                windows = windowsFor(currencyPair);
+            }
+            TradeWindow window = windows == null ? null : windows.get(windowStart);
+            if (window == null) {
+                if (restoreOnMiss && original.getId() != null && recentTrades.isEnabled()) {
+                    recentTrades.put(original, windowStart, venue);
+                }
+                throw new IllegalStateException("Window " + windowStart + " of trade " + original.getId()
+                        + " is no longer held for " + currencyPair);
+            }
+            window.removeTrade(BarAccumulator.timeInHour(original.getTimestamp()), original.getPrice(),
+                    original.getVolume(), venue);
+            activity.record(currencyPair, windowStart, -original.getPrice() * original.getVolume(),
+                    -original.getVolume());
+            if (volumeProfiles != null) {
+                volumeProfiles.record(currencyPair, original.getTimestamp(), -original.getVolume());
+            }
+            Trade amended = correction.getAmended();
+            if (amended != null && window.addTrade(amended, venue)) {
+                if (amended.getId() != null && recentTrades.isEnabled()) {
+                    recentTrades.put(amended, windowStart, venue);
+                }
+                activity.record(currencyPair, windowStart, amended.getPrice() * amended.getVolume(),
+                        amended.getVolume());
+                if (volumeProfiles != null) {
+                    volumeProfiles.record(currencyPair, amended.getTimestamp(), amended.getVolume());
+                }
+            }
+            if (window.isSealed()) {
+                window.bumpVersion();
+            }
+            publishCorrected(correction);
+            log.debug("{} trade {} for {} in window {}", amended == null ? "Cancelled" : "Amended",
+                    original.getId(), currencyPair, windowStart);
+            return window;
+        } finally {
+            stateLock.readLock().unlock();
+        }
+    }
+
+    public long getAppliedSequence() {
+        synchronized (sequenceLock) {
+            return appliedSequence;
+        }
+    }
+
+    /**
+     * Reads the published view only: no lock is taken, and a query does not count as use of
+     * the pair for LRU eviction. A cold pair is read from the tier without being paged in.
+     */
     @Override
     public TradeWindow getWindow(String currencyPair, LocalDateTime timestamp) {
         LocalDateTime windowStart = getWindowStart(timestamp);
 
-        Map<LocalDateTime, TradeWindow> windows = currencyPairWindows.get(currencyPair);
+        Map<LocalDateTime, TradeWindow> windows = publishedWindows.get(currencyPair);
         if (windows != null) {
             TradeWindow window = windows.get(windowStart);
             if (window != null) {
-                // Update LRU by accessing the currency pair
-                currencyPairWindows.get(currencyPair);
+                return window;
+            }
+        } else if (coldPairs != null) {
+            TradeWindow window = coldPairs.read(currencyPair, windowStart);
+            if (window != null) {
                 return window;
             }
         }
@@ -150,8 +1152,102 @@ public class MemorySafeHourlyWindowManager implements WindowManager {
         return new TradeWindow(windowStart);
     }
 
+    /**
+     * The pair's window restricted to the trades printed on {@code venue}, as a detached copy of
+     * the venue's sums; an empty window if the venue has no trades in it. Throws
+     * IllegalStateException if the window holds trades whose venue was not kept.
+     */
+    @Override
+    public TradeWindow getVenueWindow(String currencyPair, LocalDateTime timestamp, String venue) {
+        TradeWindow window = venueSplitWindow(currencyPair, timestamp);
+        VenueBreakdown breakdown = window.getVenueBreakdown();
+        int id = venues.idOf(venue);
+        TradeWindow venueWindow = breakdown == null || id < 0 ? null : breakdown.toWindow(id, window);
+        if (venueWindow != null) {
+            return venueWindow;
+        }
+        TradeWindow empty = new TradeWindow(window.getWindowStart());
+        empty.restoreVersion(window.isSealed(), window.getVersion());
+        return empty;
+    }
+
+    /**
+     * VWAP, volume and trade count of every venue with trades in the pair's window, in order of
+     * each venue's first trade there. Throws IllegalStateException as
+     * {@link #getVenueWindow(String, LocalDateTime, String)} does.
+     */
+    @Override
+    public List<VenueVwap> getVenueBreakdown(String currencyPair, LocalDateTime timestamp) {
+        TradeWindow window = venueSplitWindow(currencyPair, timestamp);
+        VenueBreakdown breakdown = window.getVenueBreakdown();
+        if (breakdown == null) {
+            return List.of();
+        }
+        List<VenueVwap> result = new ArrayList<>();
+        for (int id : breakdown.venueIds()) {
+            TradeWindow venueWindow = breakdown.toWindow(id, window);
+            if (venueWindow != null) {
+                result.add(VenueVwap.of(venues.nameOf(id), venueWindow));
+            }
+        }
+        return result;
+    }
+
+    // Restored windows (checkpoint, cold tier, state transfer, journal replay) lost their split
+    private TradeWindow venueSplitWindow(String currencyPair, LocalDateTime timestamp) {
+        TradeWindow window = getWindow(currencyPair, timestamp);
+        if (window.isVenuesUnknown()) {
+            throw new IllegalStateException("Venue split of " + currencyPair + " at " + window.getWindowStart()
+                    + " was not kept when the window was restored");
+        }
+        return window;
+    }
+
+    /**
+     * The pair's expected intraday volume curve for {@code day}, or null if profiles are not
+     * enabled or the pair has no finished day yet.
+     */
+    @Override
+    public VolumeProfileResult getVolumeProfile(String currencyPair, LocalDate day, int bucketMinutes) {
+        return volumeProfiles == null ? null : volumeProfiles.profile(currencyPair, day, bucketMinutes);
+    }
+
+    /**
+     * The {@code n} most active pairs of the latest hour with trades, by notional or by volume,
+     * read off the incrementally maintained ranking in O(n). Pairs spilled to the cold tier
+     * stay ranked.
+     */
+    @Override
+    public List<PairActivity> getTopPairs(int n, boolean byNotional) {
+        return activity.top(n, byNotional ? PairActivityRanking.NOTIONAL : PairActivityRanking.VOLUME);
+    }
+
+    @Override
+    public Map<String, TradeWindow> getWindows(LocalDateTime timestamp) {
+        LocalDateTime windowStart = getWindowStart(timestamp);
+        Map<String, TradeWindow> result = new HashMap<>();
+        publishedWindows.forEach((pair, windows) -> {
+            TradeWindow window = windows.get(windowStart);
+            if (window != null && window.getTradeCount().get() > 0) {
+                result.put(pair, window);
+            }
+        });
+        if (coldPairs != null) {
+            coldPairs.forEachWindow(windowStart, (pair, window) -> {
+                if (window.getTradeCount().get() > 0) {
+                    result.putIfAbsent(pair, window);
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * Drops windows older than the retention period, here and in the cold tier, and pairs left
+     * without windows. Run periodically by {@link com.exercise.vwap.service.rollover.WindowCleaner}
+     * and straight away when retention is shortened.
+     */
     @Override
-    @Scheduled(fixedRate = HOUR_IN_MINUTES * 1000) // Run hourly
     public void cleanupExpiredWindows(LocalDateTime currentTime) {
         try {
             int totalWindowsBefore = countTotalWindows();
@@ -159,29 +1255,52 @@ public class MemorySafeHourlyWindowManager implements WindowManager {
 
             currencyPairWindows.forEach((pair, windows) -> {
                 // Remove expired windows
-                windows.entrySet().removeIf(entry ->
-                        isWindowExpired(entry.getValue().getWindowStart(), currentTime)
-                );
+                windows.entrySet().removeIf(entry -> {
+                    boolean expired = isWindowExpired(entry.getValue().getWindowStart(), currentTime);
+                    if (expired) {
+                        residentBytes.addAndGet(-entry.getValue().estimateSizeInBytes());
+                    }
+                    return expired;
+                });
             });
 
-            // Remove empty currency pairs
-            currencyPairWindows.entrySet().removeIf(entry -> entry.getValue().isEmpty());
+            // Remove empty currency pairs; the write lock keeps a trade from landing in a map
+            // that is being dropped
+            stateLock.writeLock().lock();
+            try {
+                synchronized (currencyPairWindows) {
+                    currencyPairWindows.entrySet().removeIf(entry -> {
+                        boolean empty = entry.getValue().isEmpty();
+                        if (empty) {
+                            publishedWindows.remove(entry.getKey());
+                            maxEventTimes.remove(entry.getKey());
+                            residentBytes.addAndGet(-PAIR_SIZE_BYTES);
+                        }
+                        return empty;
+                    });
+                }
+            } finally {
+                stateLock.writeLock().unlock();
+            }
+            if (coldPairs != null) {
+                coldPairs.removeExpired(start -> isWindowExpired(start, currentTime)).forEach(maxEventTimes::remove);
+            }
 
             int totalWindowsAfter = countTotalWindows();
             int pairsAfter = currencyPairWindows.size();
 
-            log.info("Hourly cleanup completed - Removed {} windows and {} currency pairs",
+            log.info("Window cleanup completed - Removed {} windows and {} currency pairs",
                     totalWindowsBefore - totalWindowsAfter,
                     pairsBefore - pairsAfter);
 
             logMemoryStatus();
         } catch (Exception e) {
-            log.error("Error during hourly cleanup", e);
+            log.error("Error during window cleanup", e);
         }
     }
 
     private int countTotalWindows() {
-        return currencyPairWindows.values().stream()
+        return publishedWindows.values().stream()
                 .mapToInt(Map::size)
                 .sum();
     }
@@ -191,25 +1310,63 @@ public class MemorySafeHourlyWindowManager implements WindowManager {
         long usedMemory = (runtime.totalMemory() - runtime.freeMemory()) / 1024 / 1024;
         long maxMemory = runtime.maxMemory() / 1024 / 1024;
 
-        log.info("Memory usage: {}MB / {}MB, Active currency pairs: {}, Queue size: {}",
+        log.info("Memory usage: {}MB / {}MB, Active currency pairs: {}, Cold currency pairs: {}, "
+                        + "Resident window state: {}KB, Queue size: {}",
                 usedMemory, maxMemory,
                 currencyPairWindows.size(),
+                coldPairs == null ? 0 : coldPairs.getPairCount(),
+                residentBytes.get() >> 10,
                 incomingTradeQueue.size());
     }
 
     // For monitoring
     public Map<String, Integer> getWindowCounts() {
         Map<String, Integer> counts = new HashMap<>();
-        currencyPairWindows.forEach((pair, windows) ->
+        publishedWindows.forEach((pair, windows) ->
                 counts.put(pair, windows.size()));
         return counts;
     }
 
+    /**
+     * Estimated heap held by resident windows and pairs, as counted against the heap budget.
+     */
+    public long getResidentBytes() {
+        return residentBytes.get();
+    }
+
+    public int getIndexedTrades() {
+        return recentTrades.size();
+    }
+
+    /**
+     * The pair's event-time watermark, or null if it has no trades since start-up.
+     */
+    public LocalDateTime getWatermark(String currencyPair) {
+        AtomicLong maxEventTime = maxEventTimes.get(currencyPair);
+        long max = maxEventTime == null ? Long.MIN_VALUE : maxEventTime.get();
+        return max == Long.MIN_VALUE ? null
+                : BinaryTradeCodec.fromEpochNanos(max - maxOutOfOrdernessSeconds * NANOS_PER_SECOND);
+    }
+
+    public long getLateTrades() {
+        return lateTrades.get();
+    }
+
+    public long getDroppedLateTrades() {
+        return droppedLateTrades.get();
+    }
+
+    public long getBandRejectedTrades() {
+        return bandRejectedTrades.get();
+    }
+
     public int getQueueSize() {
         return incomingTradeQueue.size();
     }
 
     public int getActiveThreads() {
-        return ((ThreadPoolExecutor) processExecutor).getActiveCount();
+        synchronized (tradeConsumers) {
+            return tradeConsumers.size();
+        }
     }
 }
@@ -0,0 +1,215 @@
+package com.exercise.vwap.service.impl;
+
+import com.exercise.vwap.domain.PairActivity;
+import com.google.common.util.concurrent.AtomicDouble;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pairs ranked by volume and by notional in the latest hour that has trades, kept in order as
+ * trades arrive. Each ranking is an array sorted in descending order, with every pair knowing
+ * its own position, so a change moves the pair past only the pairs it overtakes, usually none
+ * or one, and the top N is read straight off the front of the array.
+ * <p>
+ * Recording a trade adds to its pair's totals lock-free and marks the pair as moved. The
+ * recording thread then repositions the moved pairs if it gets the ranking's lock without
+ * waiting; if another thread holds it, that thread repositions them before letting go, so
+ * ingest threads never wait on each other or on readers. A query takes the lock, repositions
+ * any pairs still marked and copies the first N entries.
+ * <p>
+ * The first trade of a later hour starts the rankings afresh; trades for earlier hours are not
+ * ranked. Recording a trade allocates nothing once its pair is ranked in the hour. As with a
+ * window's sums, a query may see a pair's volume updated by a trade a moment before its notional.
+ */
+class PairActivityRanking {
+    static final int VOLUME = 0;
+    static final int NOTIONAL = 1;
+    private static final int METRICS = 2;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final AtomicReference<Hour> current = new AtomicReference<>(new Hour(null));
+
+    /**
+     * Adds a trade, or with negative amounts takes one back out, for the pair in the hour
+     * starting at {@code windowStart}.
+     */
+    void record(String currencyPair, LocalDateTime windowStart, double notional, double volume) {
+        Hour hour = current.get();
+        while (hour.start == null || windowStart.isAfter(hour.start)) {
+            Hour later = new Hour(windowStart);
+            if (current.compareAndSet(hour, later)) {
+                hour = later;
+            } else {
+                hour = current.get();
+            }
+        }
+        if (windowStart.isBefore(hour.start)) {
+            return;
+        }
+        Entry entry = hour.entries.get(currencyPair);
+        if (entry == null) {
+            entry = hour.entries.computeIfAbsent(currencyPair, Entry::new);
+        }
+        add(entry.totals[VOLUME], volume);
+        add(entry.totals[NOTIONAL], notional);
+        hour.moved(entry);
+    }
+
+    /**
+     * The first {@code n} pairs by {@code metric}, largest first.
+     */
+    List<PairActivity> top(int n, int metric) {
+        return current.get().top(n, metric);
+    }
+
+    void clear() {
+        current.set(new Hour(null));
+    }
+
+    int size() {
+        return current.get().entries.size();
+    }
+
+    // As TradeWindow's, without the capturing lambda of AtomicDouble#addAndGet
+    private static void add(AtomicDouble target, double delta) {
+        while (true) {
+            double total = target.get();
+            if (target.compareAndSet(total, total + delta)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * One hour's rankings. Recorders touch the entries' totals and push moved entries onto
+     * {@link #moved}; the orders and each entry's ranked totals and positions are guarded by
+     * {@link #lock}.
+     */
+    private static final class Hour {
+        private final LocalDateTime start;
+        private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+        // Stack of entries whose totals changed since they were last placed, linked through them
+        private final AtomicReference<Entry> moved = new AtomicReference<>();
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Entry[][] orders = new Entry[METRICS][INITIAL_CAPACITY];
+        private int count;
+
+        Hour(LocalDateTime start) {
+            this.start = start;
+        }
+
+        void moved(Entry entry) {
+            // Already on the stack: whoever places it reads its totals after taking it off
+            if (entry.moved.compareAndSet(0, 1)) {
+                Entry head;
+                do {
+                    head = moved.get();
+                    entry.nextMoved = head;
+                } while (!moved.compareAndSet(head, entry));
+            }
+            // Another recorder holding the lock checks again after letting go, and a query places
+            // whatever is left before reading
+            while (moved.get() != null && lock.tryLock()) {
+                try {
+                    placeMoved();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+
+        List<PairActivity> top(int n, int metric) {
+            lock.lock();
+            try {
+                placeMoved();
+                int size = Math.min(n, count);
+                List<PairActivity> top = new ArrayList<>(size);
+                Entry[] order = orders[metric];
+                for (int i = 0; i < size && order[i].ranked[metric] > 0; i++) {
+                    Entry entry = order[i];
+                    top.add(PairActivity.of(entry.currencyPair, start, entry.ranked[VOLUME],
+                            entry.ranked[NOTIONAL]));
+                }
+                return top;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void placeMoved() {
+            Entry entry = moved.getAndSet(null);
+            while (entry != null) {
+                Entry next = entry.nextMoved;
+                entry.nextMoved = null;
+                // Cleared before the totals are read, so a later change pushes the entry again
+                entry.moved.set(0);
+                entry.ranked[VOLUME] = entry.totals[VOLUME].get();
+                entry.ranked[NOTIONAL] = entry.totals[NOTIONAL].get();
+                if (entry.ranks[VOLUME] < 0) {
+                    append(entry);
+                }
+                reposition(VOLUME, entry);
+                reposition(NOTIONAL, entry);
+                entry = next;
+            }
+        }
+
+        private void append(Entry entry) {
+            if (count == orders[0].length) {
+                for (int metric = 0; metric < METRICS; metric++) {
+                    orders[metric] = Arrays.copyOf(orders[metric], count * 2);
+                }
+            }
+            for (int metric = 0; metric < METRICS; metric++) {
+                orders[metric][count] = entry;
+                entry.ranks[metric] = count;
+            }
+            count++;
+        }
+
+        // One insertion-sort step in whichever direction the entry's total moved
+        private void reposition(int metric, Entry entry) {
+            Entry[] order = orders[metric];
+            double total = entry.ranked[metric];
+            int rank = entry.ranks[metric];
+            while (rank > 0 && order[rank - 1].ranked[metric] < total) {
+                move(order, metric, rank - 1, rank);
+                rank--;
+            }
+            while (rank < count - 1 && order[rank + 1].ranked[metric] > total) {
+                move(order, metric, rank + 1, rank);
+                rank++;
+            }
+            order[rank] = entry;
+            entry.ranks[metric] = rank;
+        }
+
+        private static void move(Entry[] order, int metric, int from, int to) {
+            order[to] = order[from];
+            order[to].ranks[metric] = to;
+        }
+    }
+
+    private static final class Entry {
+        private final String currencyPair;
+        private final AtomicDouble[] totals = {new AtomicDouble(), new AtomicDouble()};
+        // 1 while the entry is on its hour's moved stack
+        private final AtomicInteger moved = new AtomicInteger();
+        private Entry nextMoved;
+        // Totals as of the entry's last placing, and its positions; guarded by the hour's lock
+        private final double[] ranked = new double[METRICS];
+        private final int[] ranks = {-1, -1};
+
+        Entry(String currencyPair) {
+            this.currencyPair = currencyPair;
+        }
+    }
+}
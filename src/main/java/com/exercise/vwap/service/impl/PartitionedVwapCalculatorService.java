@@ -0,0 +1,438 @@
+package com.exercise.vwap.service.impl;
+
+import com.exercise.vwap.domain.PairActivity;
+import com.exercise.vwap.domain.PriceBar;
+import com.exercise.vwap.domain.Trade;
+import com.exercise.vwap.domain.TradeWindow;
+import com.exercise.vwap.domain.VenueVwap;
+import com.exercise.vwap.domain.VolumeProfileResult;
+import com.exercise.vwap.domain.VwapBandsResult;
+import com.exercise.vwap.domain.VwapBarResult;
+import com.exercise.vwap.domain.VwapDistributionResult;
+import com.exercise.vwap.domain.VwapResult;
+import com.exercise.vwap.domain.WindowSnapshot;
+import com.exercise.vwap.service.VwapCalculatorService;
+import com.exercise.vwap.service.WindowManager;
+import com.exercise.vwap.service.cluster.ClusterNodeClient;
+import com.exercise.vwap.service.cluster.ConsistentHashRing;
+import com.exercise.vwap.service.cluster.NodeUnavailableException;
+import com.exercise.vwap.service.cluster.TradeForwarder;
+import com.exercise.vwap.service.strategy.VwapStrategy;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClient;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Cluster-aware calculator that partitions currency pairs across nodes with a consistent
+ * hash ring. Trades for pairs owned by this node go straight to the local service; all
+ * others are batched to their owner. Queries fan out to the owning nodes and the returned
+ * window totals are combined with {@link TradeWindow#merge(TradeWindow)}, so a pair whose
+ * state is split across nodes (e.g. after a membership change) still reports one VWAP.
+ * If any node asked does not answer, the query fails with {@link NodeUnavailableException}
+ * rather than reporting that node's pairs as empty.
+ */
+@Service
+@Primary
+@ConditionalOnProperty(name = "vwap.cluster.enabled", havingValue = "true")
+@Slf4j
+public class PartitionedVwapCalculatorService implements VwapCalculatorService {
+    private final VwapCalculatorService localService;
+    private final WindowManager windowManager;
+    private final VwapStrategy vwapStrategy;
+    private final ConsistentHashRing ring;
+    private final String selfNode;
+    private final ClusterNodeClient client;
+    private final TradeForwarder forwarder;
+    private final ExecutorService fanOutExecutor;
+
+    @Autowired
+    public PartitionedVwapCalculatorService(
+            VwapCalculatorServiceImpl localService,
+            WindowManager windowManager,
+            VwapStrategy vwapStrategy,
+            @Value("${vwap.cluster.self}") String selfNode,
+            @Value("${vwap.cluster.nodes}") List<String> nodes,
+            @Value("${vwap.cluster.virtual-nodes:128}") int virtualNodes,
+            @Value("${vwap.cluster.forward.batch-size:500}") int batchSize,
+            @Value("${vwap.cluster.forward.flush-interval-ms:50}") long flushIntervalMillis) {
+        this(localService, windowManager, vwapStrategy,
+                new ConsistentHashRing(nodes, virtualNodes), selfNode,
+                new ClusterNodeClient(RestClient.create()), batchSize, flushIntervalMillis);
+    }
+
+    PartitionedVwapCalculatorService(VwapCalculatorService localService, WindowManager windowManager,
+                                     VwapStrategy vwapStrategy, ConsistentHashRing ring, String selfNode,
+                                     ClusterNodeClient client, int batchSize, long flushIntervalMillis) {
+        if (!ring.getNodes().contains(selfNode)) {
+            throw new IllegalStateException("Cluster node list does not contain this node: " + selfNode);
+        }
+        this.localService = localService;
+        this.windowManager = windowManager;
+        this.vwapStrategy = vwapStrategy;
+        this.ring = ring;
+        this.selfNode = selfNode;
+        this.client = client;
+        this.forwarder = new TradeForwarder(client, batchSize, flushIntervalMillis);
+        this.fanOutExecutor = Executors.newFixedThreadPool(ring.getNodes().size(), r -> {
+            Thread thread = new Thread(r, "cluster-query-fan-out");
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("Cluster mode enabled: self={}, nodes={}", selfNode, ring.getNodes());
+    }
+
+    @Override
+    public void processTrade(Trade trade) {
+        if (trade == null) {
+            throw new IllegalArgumentException("Trade must not be null");
+        }
+        String owner = ring.ownerOf(trade.getCurrencyPair());
+        if (selfNode.equals(owner)) {
+            localService.processTrade(trade);
+        } else {
+            forwarder.forward(owner, trade);
+        }
+    }
+
+    @Override
+    public void processTrades(List<Trade> trades) {
+        List<Trade> localTrades = new ArrayList<>(trades.size());
+        for (Trade trade : trades) {
+            String owner = ring.ownerOf(trade.getCurrencyPair());
+            if (selfNode.equals(owner)) {
+                localTrades.add(trade);
+            } else {
+                forwarder.forward(owner, trade);
+            }
+        }
+        if (!localTrades.isEmpty()) {
+            localService.processTrades(localTrades);
+        }
+    }
+
+    @Override
+    public VwapResult getVwap(String currencyPair, LocalDateTime timestamp) {
+        VwapCalculatorServiceImpl.validateVwapInput(currencyPair, timestamp);
+        if (selfNode.equals(ring.ownerOf(currencyPair))) {
+            return localService.getVwap(currencyPair, timestamp);
+        }
+        return getVwaps(List.of(currencyPair), timestamp).get(0);
+    }
+
+    @Override
+    public List<VwapResult> getVwaps(List<String> currencyPairs, LocalDateTime timestamp) {
+        if (currencyPairs == null || currencyPairs.isEmpty()) {
+            throw new IllegalArgumentException("Currency pairs must not be null or empty");
+        }
+        currencyPairs.forEach(pair -> VwapCalculatorServiceImpl.validateVwapInput(pair, timestamp));
+
+        Map<String, List<String>> pairsByOwner = new HashMap<>();
+        for (String pair : currencyPairs) {
+            pairsByOwner.computeIfAbsent(ring.ownerOf(pair), k -> new ArrayList<>()).add(pair);
+        }
+        Map<String, TradeWindow> merged = gather(pairsByOwner, timestamp);
+
+        LocalDateTime windowStart = timestamp.truncatedTo(ChronoUnit.HOURS);
+        List<VwapResult> results = new ArrayList<>(currencyPairs.size());
+        for (String pair : currencyPairs) {
+            TradeWindow window = merged.getOrDefault(pair, new TradeWindow(windowStart));
+            results.add(new VwapResult(pair, windowStart, vwapStrategy.calculateVwap(window)));
+        }
+        return results;
+    }
+
+    @Override
+    public List<VwapResult> getSnapshot(LocalDateTime timestamp) {
+        if (timestamp == null) {
+            throw new IllegalArgumentException("Timestamp must not be null");
+        }
+        Map<String, List<String>> allPairsByNode = new LinkedHashMap<>();
+        ring.getNodes().forEach(node -> allPairsByNode.put(node, null));
+        Map<String, TradeWindow> merged = gather(allPairsByNode, timestamp);
+
+        LocalDateTime windowStart = timestamp.truncatedTo(ChronoUnit.HOURS);
+        List<VwapResult> results = new ArrayList<>(merged.size());
+        merged.forEach((pair, window) ->
+                results.add(new VwapResult(pair, windowStart, vwapStrategy.calculateVwap(window))));
+        results.sort(Comparator.comparing(VwapResult::getCurrencyPair));
+        return results;
+    }
+
+    /**
+     * Strategy state is not shipped between nodes, so a named strategy is only served by the
+     * pair's owner.
+     */
+    @Override
+    public VwapResult getVwap(String currencyPair, LocalDateTime timestamp, String strategy) {
+        if (strategy == null) {
+            return getVwap(currencyPair, timestamp);
+        }
+        VwapCalculatorServiceImpl.validateVwapInput(currencyPair, timestamp);
+        String owner = ring.ownerOf(currencyPair);
+        if (!selfNode.equals(owner)) {
+            throw new IllegalStateException("VWAP strategy " + strategy + " for " + currencyPair
+                    + " is served by " + owner);
+        }
+        return localService.getVwap(currencyPair, timestamp, strategy);
+    }
+
+    @Override
+    public List<VwapResult> getVwaps(List<String> currencyPairs, LocalDateTime timestamp, String strategy) {
+        if (strategy == null) {
+            return getVwaps(currencyPairs, timestamp);
+        }
+        if (currencyPairs == null || currencyPairs.isEmpty()) {
+            throw new IllegalArgumentException("Currency pairs must not be null or empty");
+        }
+        List<VwapResult> results = new ArrayList<>(currencyPairs.size());
+        for (String pair : currencyPairs) {
+            results.add(getVwap(pair, timestamp, strategy));
+        }
+        return results;
+    }
+
+    /**
+     * With a named strategy the snapshot covers only the pairs this node owns.
+     */
+    @Override
+    public List<VwapResult> getSnapshot(LocalDateTime timestamp, String strategy) {
+        if (strategy == null) {
+            return getSnapshot(timestamp);
+        }
+        return localService.getSnapshot(timestamp, strategy).stream()
+                .filter(result -> selfNode.equals(ring.ownerOf(result.getCurrencyPair())))
+                .toList();
+    }
+
+    @Override
+    public VwapDistributionResult getVwapDistribution(String currencyPair, LocalDateTime timestamp,
+                                                      double[] quantiles) {
+        VwapCalculatorServiceImpl.validateVwapInput(currencyPair, timestamp);
+        if (!selfNode.equals(ring.ownerOf(currencyPair))) {
+            // Sketches are not shipped between nodes; only the owner can answer
+            throw new IllegalStateException("Price distribution for " + currencyPair
+                    + " is served by " + ring.ownerOf(currencyPair));
+        }
+        return localService.getVwapDistribution(currencyPair, timestamp, quantiles);
+    }
+
+    /**
+     * Bars travel with the window totals, so a pair split across nodes still gets one bar.
+     */
+    @Override
+    public VwapBarResult getBar(String currencyPair, LocalDateTime timestamp) {
+        VwapCalculatorServiceImpl.validateVwapInput(currencyPair, timestamp);
+        if (selfNode.equals(ring.ownerOf(currencyPair))) {
+            return localService.getBar(currencyPair, timestamp);
+        }
+        TradeWindow window = gather(Map.of(ring.ownerOf(currencyPair), List.of(currencyPair)), timestamp)
+                .get(currencyPair);
+        PriceBar bar = window == null ? null : window.getBar();
+        if (bar == null) {
+            throw new IllegalStateException("No bar for " + currencyPair + " in window "
+                    + timestamp.truncatedTo(ChronoUnit.HOURS));
+        }
+        return VwapBarResult.of(currencyPair, vwapStrategy.calculateVwap(window), window, bar);
+    }
+
+    /**
+     * The running moments travel with the window totals, so bands merge across nodes like VWAP.
+     */
+    @Override
+    public VwapBandsResult getBands(String currencyPair, LocalDateTime timestamp, double k) {
+        VwapCalculatorServiceImpl.validateVwapInput(currencyPair, timestamp);
+        VwapCalculatorServiceImpl.validateBandWidth(k);
+        if (selfNode.equals(ring.ownerOf(currencyPair))) {
+            return localService.getBands(currencyPair, timestamp, k);
+        }
+        TradeWindow window = gather(Map.of(ring.ownerOf(currencyPair), List.of(currencyPair)), timestamp)
+                .getOrDefault(currencyPair, new TradeWindow(timestamp.truncatedTo(ChronoUnit.HOURS)));
+        return VwapCalculatorServiceImpl.bands(currencyPair, window, vwapStrategy, k);
+    }
+
+    /**
+     * Only the owner indexes a pair's trades, so only the owner can correct them.
+     */
+    @Override
+    public VwapResult cancelTrade(String currencyPair, String tradeId) {
+        VwapCalculatorServiceImpl.validateCorrection(currencyPair, tradeId);
+        requireOwner(currencyPair);
+        return localService.cancelTrade(currencyPair, tradeId);
+    }
+
+    @Override
+    public VwapResult amendTrade(String currencyPair, String tradeId, double price, double volume) {
+        VwapCalculatorServiceImpl.validateCorrection(currencyPair, tradeId);
+        VwapCalculatorServiceImpl.validateAmount(price, volume);
+        requireOwner(currencyPair);
+        return localService.amendTrade(currencyPair, tradeId, price, volume);
+    }
+
+    /**
+     * Each node ranks the pairs it holds, so every node is asked for its own top {@code n} and
+     * the lists are merged. Only the latest hour any node reports is kept, and a pair split
+     * across nodes, e.g. after a membership change, is summed over the nodes that ranked it.
+     * A node that does not answer fails the query, since its pairs could belong in the top.
+     */
+    @Override
+    public List<PairActivity> getTopPairs(int n, String by) {
+        boolean byNotional = VwapCalculatorServiceImpl.isRankedByNotional(n, by);
+        Map<String, CompletableFuture<List<PairActivity>>> futures = new LinkedHashMap<>();
+        for (String node : ring.getNodes()) {
+            futures.put(node, CompletableFuture.supplyAsync(() -> selfNode.equals(node)
+                    ? windowManager.getTopPairs(n, byNotional)
+                    : client.fetchTopPairs(node, n, byNotional), fanOutExecutor));
+        }
+
+        Map<String, PairActivity> merged = new HashMap<>();
+        LocalDateTime latest = null;
+        for (List<PairActivity> ranked : joinAll(futures, "top pairs")) {
+            for (PairActivity activity : ranked) {
+                if (latest == null || activity.getWindowStart().isAfter(latest)) {
+                    latest = activity.getWindowStart();
+                    merged.clear();
+                } else if (activity.getWindowStart().isBefore(latest)) {
+                    continue;
+                }
+                PairActivity other = merged.get(activity.getCurrencyPair());
+                merged.put(activity.getCurrencyPair(), other == null ? activity : PairActivity.of(
+                        activity.getCurrencyPair(), latest, activity.getVolume() + other.getVolume(),
+                        activity.getNotional() + other.getNotional()));
+            }
+        }
+        return merged.values().stream()
+                .sorted(Comparator.comparingDouble(
+                        byNotional ? PairActivity::getNotional : PairActivity::getVolume).reversed())
+                .limit(n)
+                .toList();
+    }
+
+    /**
+     * Venue sums are not shipped between nodes, so only the pair's owner serves them.
+     */
+    @Override
+    public VwapResult getVenueVwap(String currencyPair, LocalDateTime timestamp, String venue) {
+        VwapCalculatorServiceImpl.validateVwapInput(currencyPair, timestamp);
+        VwapCalculatorServiceImpl.validateVenue(venue);
+        requireVenueOwner(currencyPair);
+        return localService.getVenueVwap(currencyPair, timestamp, venue);
+    }
+
+    @Override
+    public List<VenueVwap> getVenueBreakdown(String currencyPair, LocalDateTime timestamp) {
+        VwapCalculatorServiceImpl.validateVwapInput(currencyPair, timestamp);
+        requireVenueOwner(currencyPair);
+        return localService.getVenueBreakdown(currencyPair, timestamp);
+    }
+
+    /**
+     * Only the owner sees a pair's trades minute by minute, so only the owner keeps its profile.
+     */
+    @Override
+    public VolumeProfileResult getVolumeProfile(String currencyPair, LocalDate day, int bucketMinutes) {
+        VwapCalculatorServiceImpl.validateVolumeProfileInput(currencyPair, day, bucketMinutes);
+        String owner = ring.ownerOf(currencyPair);
+        if (!selfNode.equals(owner)) {
+            throw new IllegalStateException("Volume profile for " + currencyPair + " is served by " + owner);
+        }
+        return localService.getVolumeProfile(currencyPair, day, bucketMinutes);
+    }
+
+    private void requireVenueOwner(String currencyPair) {
+        String owner = ring.ownerOf(currencyPair);
+        if (!selfNode.equals(owner)) {
+            throw new IllegalStateException("Venue VWAPs for " + currencyPair + " are served by " + owner);
+        }
+    }
+
+    private void requireOwner(String currencyPair) {
+        String owner = ring.ownerOf(currencyPair);
+        if (!selfNode.equals(owner)) {
+            throw new IllegalStateException("Trades for " + currencyPair + " are corrected by " + owner);
+        }
+    }
+
+    /**
+     * Scatters window requests to the given nodes (a null pair list means every pair) and
+     * merges the returned windows per pair. A pair missing from the result had no trades on
+     * any node; if a node does not answer, {@link NodeUnavailableException} is thrown instead.
+     */
+    private Map<String, TradeWindow> gather(Map<String, List<String>> pairsByNode, LocalDateTime timestamp) {
+        LocalDateTime windowStart = timestamp.truncatedTo(ChronoUnit.HOURS);
+        Map<String, CompletableFuture<List<WindowSnapshot>>> futures = new LinkedHashMap<>();
+        pairsByNode.forEach((node, pairs) -> futures.put(node,
+                CompletableFuture.supplyAsync(() -> fetch(node, windowStart, pairs), fanOutExecutor)));
+
+        Map<String, TradeWindow> merged = new HashMap<>();
+        for (List<WindowSnapshot> snapshots : joinAll(futures, "windows")) {
+            for (WindowSnapshot snapshot : snapshots) {
+                // The first window for a pair is kept as is, so it carries its bar into the merge
+                merged.merge(snapshot.getCurrencyPair(), snapshot.toTradeWindow(), (a, b) -> {
+                    a.merge(b);
+                    return a;
+                });
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Waits for every node's answer, in node order, failing if any node did not give one.
+     */
+    private static <T> List<T> joinAll(Map<String, CompletableFuture<T>> futures, String what) {
+        List<T> answers = new ArrayList<>(futures.size());
+        List<String> failed = new ArrayList<>();
+        Throwable cause = null;
+        for (Map.Entry<String, CompletableFuture<T>> entry : futures.entrySet()) {
+            try {
+                answers.add(entry.getValue().join());
+            } catch (CompletionException e) {
+                log.error("Failed to fetch {} from {}", what, entry.getKey(), e.getCause());
+                failed.add(entry.getKey());
+                cause = e.getCause();
+            }
+        }
+        if (!failed.isEmpty()) {
+            throw new NodeUnavailableException(failed, cause);
+        }
+        return answers;
+    }
+
+    private List<WindowSnapshot> fetch(String node, LocalDateTime windowStart, List<String> pairs) {
+        if (!selfNode.equals(node)) {
+            return client.fetchWindows(node, windowStart, pairs);
+        }
+        List<WindowSnapshot> local = new ArrayList<>();
+        windowManager.getWindows(windowStart).forEach((pair, window) -> {
+            if (pairs == null || pairs.contains(pair)) {
+                local.add(WindowSnapshot.of(pair, window));
+            }
+        });
+        return local;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        forwarder.close();
+        fanOutExecutor.shutdown();
+    }
+}
@@ -0,0 +1,83 @@
+package com.exercise.vwap.service.impl;
+
+import com.exercise.vwap.domain.BarAccumulator;
+import com.exercise.vwap.domain.Trade;
+import lombok.Value;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded index of recently applied trades that carry an id, keeping what each one contributed
+ * to its window so that an amendment or cancel can take exactly that back out. Once more than
+ * {@code capacity} trades are indexed the oldest are forgotten and can no longer be corrected.
+ * Trades without an id are never indexed and cost nothing here.
+ */
+class RecentTradeIndex {
+    private final int capacity;
+    private final Map<String, Entry> entries; // guarded by this
+
+    RecentTradeIndex(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Trade index capacity must not be negative, got: " + capacity);
+        }
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(Math.min(capacity, 1 << 16) + 1, 0.75f) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > RecentTradeIndex.this.capacity;
+            }
+        };
+    }
+
+    boolean isEnabled() {
+        return capacity > 0;
+    }
+
+    /**
+     * Records an applied trade under its id, replacing any earlier trade with the same id.
+     * {@code venue} is the trade's interned venue id, negative for none.
+     */
+    synchronized void put(Trade trade, LocalDateTime windowStart, int venue) {
+        entries.put(trade.getId(), new Entry(trade.getCurrencyPair(), windowStart,
+                BarAccumulator.timeInHour(trade.getTimestamp()), trade.getPrice(), trade.getVolume(), venue));
+    }
+
+    synchronized Entry get(String id) {
+        return entries.get(id);
+    }
+
+    /**
+     * Removes and returns the trade indexed under {@code id} if it is for {@code currencyPair},
+     * otherwise returns null and leaves the index as it was.
+     */
+    synchronized Entry remove(String id, String currencyPair) {
+        Entry entry = entries.get(id);
+        if (entry == null || !entry.getCurrencyPair().equals(currencyPair)) {
+            return null;
+        }
+        return entries.remove(id);
+    }
+
+    synchronized void clear() {
+        entries.clear();
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * A trade's contribution to its window. {@code time} is nanoseconds from the start of the hour.
+     */
+    @Value
+    static class Entry {
+        String currencyPair;
+        LocalDateTime windowStart;
+        long time;
+        double price;
+        double volume;
+        int venue;
+    }
+}
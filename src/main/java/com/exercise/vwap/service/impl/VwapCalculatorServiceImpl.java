@@ -1,27 +1,77 @@
 package com.exercise.vwap.service.impl;
 
+import com.exercise.vwap.domain.PairActivity;
+import com.exercise.vwap.domain.PriceBar;
 import com.exercise.vwap.domain.Trade;
+import com.exercise.vwap.domain.TradeWindow;
+import com.exercise.vwap.domain.VenueVwap;
+import com.exercise.vwap.domain.VolumeProfileResult;
+import com.exercise.vwap.domain.VwapBandsResult;
+import com.exercise.vwap.domain.VwapBarResult;
+import com.exercise.vwap.domain.VwapDistributionResult;
 import com.exercise.vwap.domain.VwapResult;
+import com.exercise.vwap.service.AckMode;
 import com.exercise.vwap.service.VwapCalculatorService;
+import com.exercise.vwap.service.journal.TradeJournal;
+import com.exercise.vwap.service.profile.IntradayVolumeProfiles;
 import com.exercise.vwap.service.strategy.VwapStrategy;
+import com.exercise.vwap.service.strategy.VwapStrategyRegistry;
 import com.exercise.vwap.service.WindowManager;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
 
 @Service
 @Slf4j
 public class VwapCalculatorServiceImpl implements VwapCalculatorService {
+    static final int MAX_TOP_PAIRS = 1000;
+
     private final WindowManager windowManager;
     private final VwapStrategy vwapStrategy;
+    private final TradeJournal tradeJournal;
+    private final AckMode ackMode;
+    private final VwapStrategyRegistry strategyRegistry;
+    // Journaled ingest holds the read side from journal append until the trade is queued
+    private final ReentrantReadWriteLock ingestLock = new ReentrantReadWriteLock();
+    // Held from a journal append until the trade is submitted, so the journal holds trades in
+    // queue order and replay judges them in the order they were applied
+    private final Object journalOrder = new Object();
 
-    @Autowired
     public VwapCalculatorServiceImpl(WindowManager windowManager, VwapStrategy vwapStrategy) {
+        this(windowManager, vwapStrategy, Optional.empty(), AckMode.ENQUEUE);
+    }
+
+    public VwapCalculatorServiceImpl(WindowManager windowManager, VwapStrategy vwapStrategy,
+                                     Optional<TradeJournal> tradeJournal, AckMode ackMode) {
+        this(windowManager, vwapStrategy, tradeJournal, ackMode, Optional.empty());
+    }
+
+    @Autowired
+    public VwapCalculatorServiceImpl(WindowManager windowManager, VwapStrategy vwapStrategy,
+                                     Optional<TradeJournal> tradeJournal,
+                                     @Value("${vwap.ingest.ack-mode:ENQUEUE}") AckMode ackMode,
+                                     Optional<VwapStrategyRegistry> strategyRegistry) {
         this.windowManager = windowManager;
+        this.strategyRegistry = strategyRegistry.orElse(null);
         this.vwapStrategy = vwapStrategy;
+        this.tradeJournal = tradeJournal.orElse(null);
+        this.ackMode = ackMode;
+        if (this.tradeJournal == null && ackMode == AckMode.JOURNAL) {
+            log.warn("Ack mode JOURNAL requested but the trade journal is disabled, acking on enqueue");
+        }
     }
 
 
@@ -29,15 +79,337 @@ public class VwapCalculatorServiceImpl implements VwapCalculatorService {
     public void processTrade(Trade trade) {
         validateTrade(trade);
         log.debug("Processing trade: {}", trade);
-        windowManager.addTrade(trade);
+        if (tradeJournal == null) {
+            submit(trade);
+            return;
+        }
+        ingestLock.readLock().lock();
+        try {
+            long sequence;
+            synchronized (journalOrder) {
+                sequence = tradeJournal.append(trade);
+                submit(trade);
+            }
+            if (ackMode != AckMode.ENQUEUE) {
+                tradeJournal.awaitDurable(sequence);
+            }
+        } finally {
+            ingestLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Journals and submits a whole batch before waiting for it to become durable, so the batch
+     * costs one group commit instead of one per trade. A trade can therefore be applied a group
+     * commit before it is durable; the call still returns only once it is both.
+     */
+    @Override
+    public void processTrades(List<Trade> trades) {
+        trades.forEach(this::validateTrade);
+        if (tradeJournal == null) {
+            trades.forEach(this::submit);
+            return;
+        }
+        ingestLock.readLock().lock();
+        try {
+            long lastSequence = 0;
+            synchronized (journalOrder) {
+                for (Trade trade : trades) {
+                    lastSequence = tradeJournal.append(trade);
+                }
+                trades.forEach(this::submit);
+            }
+            if (ackMode != AckMode.ENQUEUE && !trades.isEmpty()) {
+                tradeJournal.awaitDurable(lastSequence);
+            }
+        } finally {
+            ingestLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Runs {@code action} while no journaled trade is between its journal append and its
+     * window update, so the journal position and the window state it observes agree.
+     */
+    public <T> T withIngestPaused(Supplier<T> action) {
+        ingestLock.writeLock().lock();
+        try {
+            windowManager.awaitQueueDrained();
+            return action.get();
+        } finally {
+            ingestLock.writeLock().unlock();
+        }
+    }
+
+    private void submit(Trade trade) {
+        if (ackMode == AckMode.APPLY) {
+            windowManager.applyTrade(trade);
+        } else {
+            windowManager.addTrade(trade);
+        }
     }
 
     @Override
     public VwapResult getVwap(String currencyPair, LocalDateTime timestamp) {
+        return getVwap(currencyPair, timestamp, null);
+    }
+
+    @Override
+    public VwapResult getVwap(String currencyPair, LocalDateTime timestamp, String strategy) {
+        validateVwapInput(currencyPair, timestamp);
+        VwapStrategy selected = strategyFor(strategy);
+        var window = windowManager.getWindow(currencyPair, timestamp);
+        return result(currencyPair, window, selected, timestamp.truncatedTo(ChronoUnit.HOURS));
+    }
+
+    @Override
+    public List<VwapResult> getVwaps(List<String> currencyPairs, LocalDateTime timestamp) {
+        return getVwaps(currencyPairs, timestamp, null);
+    }
+
+    @Override
+    public List<VwapResult> getVwaps(List<String> currencyPairs, LocalDateTime timestamp, String strategy) {
+        if (currencyPairs == null || currencyPairs.isEmpty()) {
+            throw new IllegalArgumentException("Currency pairs must not be null or empty");
+        }
+        List<VwapResult> results = new ArrayList<>(currencyPairs.size());
+        for (String currencyPair : currencyPairs) {
+            results.add(getVwap(currencyPair, timestamp, strategy));
+        }
+        return results;
+    }
+
+    @Override
+    public List<VwapResult> getSnapshot(LocalDateTime timestamp) {
+        return getSnapshot(timestamp, null);
+    }
+
+    @Override
+    public List<VwapResult> getSnapshot(LocalDateTime timestamp, String strategy) {
+        if (timestamp == null) {
+            throw new IllegalArgumentException("Timestamp must not be null");
+        }
+        VwapStrategy selected = strategyFor(strategy);
+        LocalDateTime windowStart = timestamp.truncatedTo(ChronoUnit.HOURS);
+        List<VwapResult> results = new ArrayList<>();
+        windowManager.getWindows(timestamp).forEach((pair, window) ->
+                results.add(result(pair, window, selected, windowStart)));
+        results.sort(Comparator.comparing(VwapResult::getCurrencyPair));
+        return results;
+    }
+
+    /**
+     * The configured strategy for a null name, otherwise the registered strategy of that name.
+     */
+    VwapStrategy strategyFor(String name) {
+        if (name == null) {
+            return vwapStrategy;
+        }
+        if (strategyRegistry == null) {
+            if (name.equals(vwapStrategy.getName())) {
+                return vwapStrategy;
+            }
+            throw new IllegalArgumentException("Unknown VWAP strategy: " + name);
+        }
+        return strategyRegistry.get(name);
+    }
+
+    private static VwapResult result(String currencyPair, TradeWindow window, VwapStrategy strategy,
+                                     LocalDateTime windowStart) {
+        double vwap = strategy.calculateVwap(window);
+        if (Double.isNaN(vwap)) {
+            // Incremental strategies have no state for windows restored from snapshots
+            throw new IllegalStateException("Strategy " + strategy.getName() + " is not tracked for "
+                    + currencyPair + " in window " + windowStart);
+        }
+        return new VwapResult(currencyPair, windowStart, vwap, window.isSealed(), window.getVersion());
+    }
+
+    @Override
+    public VwapDistributionResult getVwapDistribution(String currencyPair, LocalDateTime timestamp,
+                                                      double[] quantiles) {
         validateVwapInput(currencyPair, timestamp);
+        validateQuantiles(quantiles);
         var window = windowManager.getWindow(currencyPair, timestamp);
-        var vwap = vwapStrategy.calculateVwap(window);
-        return new VwapResult(currencyPair, timestamp.truncatedTo(ChronoUnit.HOURS), vwap);
+        if (!window.hasPriceDistribution()) {
+            throw new IllegalStateException("Price distribution is not tracked for " + currencyPair);
+        }
+        Map<Double, Double> prices = new LinkedHashMap<>();
+        for (double q : quantiles) {
+            prices.put(q, window.getPriceQuantile(q));
+        }
+        return new VwapDistributionResult(currencyPair, timestamp.truncatedTo(ChronoUnit.HOURS),
+                vwapStrategy.calculateVwap(window), window.getPriceQuantile(0.5), prices);
+    }
+
+    @Override
+    public VwapBarResult getBar(String currencyPair, LocalDateTime timestamp) {
+        validateVwapInput(currencyPair, timestamp);
+        var window = windowManager.getWindow(currencyPair, timestamp);
+        PriceBar bar = window.getBar();
+        if (bar == null) {
+            throw new IllegalStateException("No bar for " + currencyPair + " in window " + window.getWindowStart());
+        }
+        return VwapBarResult.of(currencyPair, vwapStrategy.calculateVwap(window), window, bar);
+    }
+
+    @Override
+    public VwapBandsResult getBands(String currencyPair, LocalDateTime timestamp, double k) {
+        validateVwapInput(currencyPair, timestamp);
+        validateBandWidth(k);
+        return bands(currencyPair, windowManager.getWindow(currencyPair, timestamp), vwapStrategy, k);
+    }
+
+    /**
+     * Cancels a recently ingested trade by id and returns the corrected VWAP of its window.
+     * The journal records the correction as the window manager applies it; unless acking on
+     * enqueue, this returns once that record is durable.
+     */
+    @Override
+    public VwapResult cancelTrade(String currencyPair, String tradeId) {
+        validateCorrection(currencyPair, tradeId);
+        TradeWindow window = correct(() -> windowManager.cancelTrade(currencyPair, tradeId));
+        return VwapResult.of(currencyPair, window, vwapStrategy.calculateVwap(window));
+    }
+
+    /**
+     * Replaces the price and volume of a recently ingested trade by id and returns the corrected
+     * VWAP of its window. Journaled as for {@link #cancelTrade}.
+     */
+    @Override
+    public VwapResult amendTrade(String currencyPair, String tradeId, double price, double volume) {
+        validateCorrection(currencyPair, tradeId);
+        validateAmount(price, volume);
+        TradeWindow window = correct(() -> windowManager.amendTrade(currencyPair, tradeId, price, volume));
+        return VwapResult.of(currencyPair, window, vwapStrategy.calculateVwap(window));
+    }
+
+    // Held against checkpoints like a journaled trade, so a checkpoint sees a correction together with its record
+    private TradeWindow correct(Supplier<TradeWindow> correction) {
+        if (tradeJournal == null) {
+            return correction.get();
+        }
+        ingestLock.readLock().lock();
+        try {
+            TradeWindow window = correction.get();
+            if (ackMode != AckMode.ENQUEUE) {
+                tradeJournal.awaitDurable(tradeJournal.getWrittenSequence());
+            }
+            return window;
+        } finally {
+            ingestLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The {@code n} most active pairs of the latest hour with trades, ranked by {@code by}:
+     * "volume" (the default) or "notional".
+     */
+    @Override
+    public List<PairActivity> getTopPairs(int n, String by) {
+        return windowManager.getTopPairs(n, isRankedByNotional(n, by));
+    }
+
+    /**
+     * VWAP of the pair's trades printed on {@code venue}. Incremental strategies are tracked per
+     * pair, not per venue, so this is always the plain volume-weighted average.
+     */
+    @Override
+    public VwapResult getVenueVwap(String currencyPair, LocalDateTime timestamp, String venue) {
+        validateVwapInput(currencyPair, timestamp);
+        validateVenue(venue);
+        TradeWindow window = windowManager.getVenueWindow(currencyPair, timestamp, venue);
+        return VwapResult.of(currencyPair, window, window.getVwap());
+    }
+
+    @Override
+    public List<VenueVwap> getVenueBreakdown(String currencyPair, LocalDateTime timestamp) {
+        validateVwapInput(currencyPair, timestamp);
+        return windowManager.getVenueBreakdown(currencyPair, timestamp);
+    }
+
+    /**
+     * Expected share of the pair's daily volume per bucket of {@code bucketMinutes}, which must
+     * divide the day evenly.
+     */
+    @Override
+    public VolumeProfileResult getVolumeProfile(String currencyPair, LocalDate day, int bucketMinutes) {
+        validateVolumeProfileInput(currencyPair, day, bucketMinutes);
+        VolumeProfileResult profile = windowManager.getVolumeProfile(currencyPair, day, bucketMinutes);
+        if (profile == null) {
+            throw new IllegalStateException("No volume profile for " + currencyPair + " on " + day);
+        }
+        return profile;
+    }
+
+    static void validateVolumeProfileInput(String currencyPair, LocalDate day, int bucketMinutes) {
+        validateVwapInput(currencyPair, day == null ? null : day.atStartOfDay());
+        if (bucketMinutes <= 0 || IntradayVolumeProfiles.MINUTES_PER_DAY % bucketMinutes != 0) {
+            throw new IllegalArgumentException("Bucket minutes must divide the day evenly, got: " + bucketMinutes);
+        }
+    }
+
+    static void validateVenue(String venue) {
+        if (venue == null || venue.isBlank()) {
+            throw new IllegalArgumentException("Venue must not be null or empty");
+        }
+    }
+
+    /**
+     * Validates a top-N request and returns whether it ranks by notional rather than volume.
+     */
+    static boolean isRankedByNotional(int n, String by) {
+        if (n <= 0 || n > MAX_TOP_PAIRS) {
+            throw new IllegalArgumentException("Number of pairs must be between 1 and " + MAX_TOP_PAIRS
+                    + ", got: " + n);
+        }
+        if (by == null || by.equals("volume")) {
+            return false;
+        }
+        if (by.equals("notional")) {
+            return true;
+        }
+        throw new IllegalArgumentException("Pairs are ranked by volume or notional, got: " + by);
+    }
+
+    static void validateCorrection(String currencyPair, String tradeId) {
+        if (currencyPair == null || currencyPair.trim().isEmpty()) {
+            throw new IllegalArgumentException("Currency pair must not be null or empty");
+        }
+        validateCurrencyPairFormat(currencyPair);
+        if (tradeId == null || tradeId.isBlank()) {
+            throw new IllegalArgumentException("Trade id must not be null or empty");
+        }
+    }
+
+    static void validateAmount(double price, double volume) {
+        if (!(price > 0)) {
+            throw new IllegalArgumentException("Trade price must be positive, got: " + price);
+        }
+        if (!(volume > 0)) {
+            throw new IllegalArgumentException("Trade volume must be positive, got: " + volume);
+        }
+    }
+
+    /**
+     * Bands around the strategy's VWAP from the window's running moments, in O(1).
+     */
+    static VwapBandsResult bands(String currencyPair, TradeWindow window, VwapStrategy vwapStrategy, double k) {
+        double stdDev = window.getVwapStdDev();
+        if (Double.isNaN(stdDev)) {
+            throw new IllegalStateException("Price variance is not known for " + currencyPair
+                    + " in window " + window.getWindowStart());
+        }
+        double vwap = vwapStrategy.calculateVwap(window);
+        return new VwapBandsResult(currencyPair, window.getWindowStart(), vwap, stdDev, k,
+                vwap - k * stdDev, vwap + k * stdDev);
+    }
+
+    static void validateBandWidth(double k) {
+        if (!(k > 0) || Double.isInfinite(k)) {
+            throw new IllegalArgumentException(
+                    "Band width must be a positive number of standard deviations, got: " + k);
+        }
     }
 
     private void validateTrade(Trade trade) {
@@ -59,7 +431,7 @@ public class VwapCalculatorServiceImpl implements VwapCalculatorService {
         validateCurrencyPairFormat(trade.getCurrencyPair());
     }
 
-    private void validateVwapInput(String currencyPair, LocalDateTime timestamp) {
+    static void validateVwapInput(String currencyPair, LocalDateTime timestamp) {
         if (currencyPair == null || currencyPair.trim().isEmpty()) {
             throw new IllegalArgumentException("Currency pair must not be null or empty");
         }
@@ -69,9 +441,20 @@ public class VwapCalculatorServiceImpl implements VwapCalculatorService {
         validateCurrencyPairFormat(currencyPair);
     }
 
-    private void validateCurrencyPairFormat(String currencyPair) {
+    private void validateQuantiles(double[] quantiles) {
+        if (quantiles == null) {
+            throw new IllegalArgumentException("Quantiles must not be null");
+        }
+        for (double q : quantiles) {
+            if (q < 0 || q > 1) {
+                throw new IllegalArgumentException("Quantile must be between 0 and 1, got: " + q);
+            }
+        }
+    }
+
+    private static void validateCurrencyPairFormat(String currencyPair) {
         // Basic currency pair format validation (e.g., "EUR/USD")
-        if (!currencyPair.matches("[A-Z]{3}/[A-Z]{3}")) {
+        if (!Trade.isValidCurrencyPair(currencyPair)) {
             throw new IllegalArgumentException(
                     "Invalid currency pair format. Expected format: XXX/YYY, got: " + currencyPair);
         }
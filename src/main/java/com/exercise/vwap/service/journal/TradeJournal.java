@@ -0,0 +1,469 @@
+package com.exercise.vwap.service.journal;
+
+import com.exercise.vwap.domain.Trade;
+import com.exercise.vwap.domain.TradeCorrection;
+import com.exercise.vwap.service.TradeListener;
+import com.exercise.vwap.service.WindowManager;
+import com.exercise.vwap.service.checkpoint.CheckpointStore;
+import com.exercise.vwap.service.profile.IntradayVolumeProfiles;
+import com.exercise.vwap.utils.BinaryTradeCodec;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Write-ahead journal of ingested trades in memory-mapped, fixed-size segment files.
+ * <p>
+ * Each trade is written as a 48-byte record: an 8-byte sequence, the 32-byte
+ * {@link BinaryTradeCodec} body, a CRC32C of the first 40 bytes and a magic marker.
+ * The marker also tells trades from corrections: a cancellation is one record holding the
+ * trade taken back, and an amendment is that record followed by one holding its replacement.
+ * Both records of an amendment go into the same segment, and replay stops at an amendment
+ * without its replacement. Trades are appended by the ingest service before they are queued;
+ * corrections are appended as the window manager publishes them.
+ * Appends only copy bytes into the mapped segment. A single group-commit thread forces
+ * everything written since its last pass in one call, so concurrent producers share one
+ * fsync. On startup the segments are scanned up to the first invalid record, and the
+ * valid records are replayed into the window manager.
+ */
+@Component
+@ConditionalOnProperty(name = "vwap.journal.enabled", havingValue = "true")
+@Slf4j
+public class TradeJournal implements TradeListener, AutoCloseable {
+    static final int RECORD_SIZE = 48;
+    private static final int SEQUENCE_OFFSET = 0;
+    private static final int BODY_OFFSET = 8;
+    private static final int CRC_OFFSET = 40;
+    private static final int MAGIC_OFFSET = 44;
+    private static final int MAGIC = 0x56574150; // "VWAP"
+    private static final int CANCEL_MAGIC = 0x56574158; // "VWAX"
+    private static final int AMEND_MAGIC = 0x5657414D; // "VWAM"
+    private static final int REPLACEMENT_MAGIC = 0x56574152; // "VWAR"
+    // The largest size in MB whose byte count still fits in an int
+    static final int MAX_SEGMENT_SIZE_MB = Integer.MAX_VALUE / (1024 * 1024);
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final long groupCommitIntervalNanos;
+
+    // Writer state, guarded by writeLock
+    private final Object writeLock = new Object();
+    private final CRC32C writeCrc = new CRC32C();
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private int writePosition;
+    private int forcedPosition;
+    private long nextSequence;
+
+    private volatile long writtenSequence;
+    private volatile long durableSequence;
+    private final Object durableMonitor = new Object();
+    private final Thread groupCommitThread;
+    private volatile boolean running = true;
+
+    /**
+     * When checkpoints are enabled the store has already restored its image into the
+     * window manager, so only records after the checkpoint are replayed. The journal then
+     * listens for corrections, so replayed ones are not journaled again.
+     */
+    @Autowired
+    public TradeJournal(WindowManager windowManager,
+                        Optional<CheckpointStore> checkpointStore,
+                        Optional<IntradayVolumeProfiles> volumeProfiles,
+                        @Value("${vwap.journal.dir:./data/journal}") String directory,
+                        @Value("${vwap.journal.segment-size-mb:64}") int segmentSizeMb,
+                        @Value("${vwap.journal.group-commit-interval-us:200}") long groupCommitIntervalMicros) {
+        this(Path.of(directory), segmentBytes(segmentSizeMb), groupCommitIntervalMicros, windowManager::replayTrade,
+                windowManager::applyCorrection, replayStart(checkpointStore, volumeProfiles));
+        windowManager.addTradeListener(this);
+    }
+
+    private static long replayStart(Optional<CheckpointStore> checkpointStore,
+                                    Optional<IntradayVolumeProfiles> volumeProfiles) {
+        long replayAfter = checkpointStore.map(CheckpointStore::getJournalSequence).orElse(0L);
+        volumeProfiles.ifPresent(profiles -> profiles.prepareForReplay(replayAfter));
+        return replayAfter;
+    }
+
+    /**
+     * A segment is mapped as one buffer, so its size in bytes must fit in an int.
+     */
+    static int segmentBytes(int segmentSizeMb) {
+        if (segmentSizeMb < 1 || segmentSizeMb > MAX_SEGMENT_SIZE_MB) {
+            throw new IllegalArgumentException("Journal segment size must be between 1 and " + MAX_SEGMENT_SIZE_MB
+                    + " MB, got: " + segmentSizeMb);
+        }
+        return segmentSizeMb * 1024 * 1024;
+    }
+
+    public TradeJournal(Path directory, int segmentSize, long groupCommitIntervalMicros,
+                        Consumer<Trade> replayTarget) {
+        this(directory, segmentSize, groupCommitIntervalMicros, replayTarget, 0);
+    }
+
+    public TradeJournal(Path directory, int segmentSize, long groupCommitIntervalMicros,
+                        Consumer<Trade> replayTarget, long replayAfter) {
+        this(directory, segmentSize, groupCommitIntervalMicros, replayTarget, correction -> {
+            throw new IllegalStateException("Journal in " + directory + " holds corrections but none can be replayed");
+        }, replayAfter);
+    }
+
+    /**
+     * Opens (or creates) the journal in {@code directory}, replaying every valid record
+     * after {@code replayAfter} into {@code replayTarget}, or {@code correctionTarget} for
+     * corrections, before accepting appends.
+     */
+    public TradeJournal(Path directory, int segmentSize, long groupCommitIntervalMicros,
+                        Consumer<Trade> replayTarget, Consumer<TradeCorrection> correctionTarget, long replayAfter) {
+        if (segmentSize < 2 * RECORD_SIZE) {
+            throw new IllegalArgumentException("Journal segment size must hold at least two records");
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize - segmentSize % RECORD_SIZE;
+        this.groupCommitIntervalNanos = TimeUnit.MICROSECONDS.toNanos(groupCommitIntervalMicros);
+        try {
+            Files.createDirectories(directory);
+            recover(replayTarget, correctionTarget, replayAfter);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open trade journal in " + directory, e);
+        }
+        this.groupCommitThread = new Thread(this::groupCommitLoop, "journal-group-commit");
+        groupCommitThread.setDaemon(true);
+        groupCommitThread.start();
+    }
+
+    /**
+     * Appends a trade and returns its journal sequence. The record is visible to the
+     * operating system immediately but only durable once {@link #awaitDurable(long)} returns.
+     */
+    public long append(Trade trade) {
+        long sequence;
+        synchronized (writeLock) {
+            if (writePosition + RECORD_SIZE > segmentSize) {
+                rollSegment();
+            }
+            sequence = write(trade, MAGIC);
+        }
+        LockSupport.unpark(groupCommitThread);
+        return sequence;
+    }
+
+    /**
+     * Appends a correction and returns the sequence of its last record, on the same terms as
+     * {@link #append(Trade)}.
+     */
+    public long appendCorrection(TradeCorrection correction) {
+        long sequence;
+        synchronized (writeLock) {
+            int records = correction.getAmended() == null ? 1 : 2;
+            if (writePosition + records * RECORD_SIZE > segmentSize) {
+                rollSegment();
+            }
+            if (correction.getAmended() == null) {
+                sequence = write(correction.getOriginal(), CANCEL_MAGIC);
+            } else {
+                write(correction.getOriginal(), AMEND_MAGIC);
+                sequence = write(correction.getAmended(), REPLACEMENT_MAGIC);
+            }
+        }
+        LockSupport.unpark(groupCommitThread);
+        return sequence;
+    }
+
+    // Caller holds writeLock and has made room for the record
+    private long write(Trade trade, int magic) {
+        long sequence = nextSequence++;
+        int offset = writePosition;
+        segment.putLong(offset + SEQUENCE_OFFSET, sequence);
+        BinaryTradeCodec.encode(segment, offset + BODY_OFFSET, trade);
+        segment.putInt(offset + CRC_OFFSET, crc(writeCrc, segment, offset));
+        segment.putInt(offset + MAGIC_OFFSET, magic);
+        writePosition += RECORD_SIZE;
+        writtenSequence = sequence;
+        return sequence;
+    }
+
+    /**
+     * Trades are journaled by the ingest service before they are applied, so only corrections
+     * are taken from the window manager.
+     */
+    @Override
+    public void onTradeApplied(long sequence, Trade trade) {
+    }
+
+    @Override
+    public void onTradeCorrected(long sequence, TradeCorrection correction) {
+        appendCorrection(correction);
+    }
+
+    public void awaitDurable(long sequence) {
+        if (durableSequence >= sequence) {
+            return;
+        }
+        synchronized (durableMonitor) {
+            while (durableSequence < sequence) {
+                if (!running) {
+                    throw new IllegalStateException("Trade journal is closed");
+                }
+                try {
+                    durableMonitor.wait(1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted waiting for journal commit", e);
+                }
+            }
+        }
+    }
+
+    public long getWrittenSequence() {
+        return writtenSequence;
+    }
+
+    public long getDurableSequence() {
+        return durableSequence;
+    }
+
+    private void groupCommitLoop() {
+        while (running) {
+            MappedByteBuffer target;
+            int from;
+            int to;
+            long sequence;
+            synchronized (writeLock) {
+                sequence = writtenSequence;
+                target = segment;
+                from = forcedPosition;
+                to = writePosition;
+            }
+            if (sequence <= durableSequence) {
+                LockSupport.parkNanos(groupCommitIntervalNanos);
+                continue;
+            }
+            try {
+                if (to > from) {
+                    target.force(from, to - from);
+                }
+                synchronized (writeLock) {
+                    if (target == segment) {
+                        forcedPosition = Math.max(forcedPosition, to);
+                    }
+                }
+                publishDurable(sequence);
+            } catch (Exception e) {
+                log.error("Journal group commit failed", e);
+                LockSupport.parkNanos(groupCommitIntervalNanos);
+            }
+        }
+    }
+
+    private void publishDurable(long sequence) {
+        synchronized (durableMonitor) {
+            durableSequence = sequence;
+            durableMonitor.notifyAll();
+        }
+    }
+
+    private void rollSegment() {
+        try {
+            // Records in the full segment must be durable before the group-commit thread
+            // moves on to the new one
+            segment.force();
+            channel.close();
+            openSegment(nextSequence, 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to roll journal segment", e);
+        }
+    }
+
+    private void openSegment(long firstSequence, int position) throws IOException {
+        Path path = directory.resolve(segmentName(firstSequence));
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        writePosition = position;
+        forcedPosition = position;
+    }
+
+    private void recover(Consumer<Trade> replayTarget, Consumer<TradeCorrection> correctionTarget,
+                         long replayAfter) throws IOException {
+        List<Path> segments = listSegments();
+        long expected = -1;
+        long replayed = 0;
+        CRC32C crc = new CRC32C();
+
+        for (int i = 0; i < segments.size(); i++) {
+            Path path = segments.get(i);
+            boolean last = i == segments.size() - 1;
+            int tail = 0;
+            try (FileChannel readChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+                int size = (int) Math.min(readChannel.size(), segmentSize);
+                MappedByteBuffer buffer = readChannel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                while (tail + RECORD_SIZE <= size) {
+                    long sequence = buffer.getLong(tail + SEQUENCE_OFFSET);
+                    int magic = buffer.getInt(tail + MAGIC_OFFSET);
+                    if (magic != MAGIC && magic != CANCEL_MAGIC && magic != AMEND_MAGIC
+                            || !isValid(buffer, tail, sequence, expected, crc)) {
+                        break;
+                    }
+                    int records = 1;
+                    if (magic == AMEND_MAGIC) {
+                        // An amendment is only replayed together with its replacement
+                        int replacement = tail + RECORD_SIZE;
+                        if (replacement + RECORD_SIZE > size
+                                || buffer.getInt(replacement + MAGIC_OFFSET) != REPLACEMENT_MAGIC
+                                || !isValid(buffer, replacement, buffer.getLong(replacement + SEQUENCE_OFFSET),
+                                sequence + 1, crc)) {
+                            break;
+                        }
+                        records = 2;
+                    }
+                    if (expected < 0) {
+                        expected = sequence;
+                    }
+                    if (sequence > replayAfter) {
+                        Trade trade = BinaryTradeCodec.decode(buffer, tail + BODY_OFFSET);
+                        if (magic == MAGIC) {
+                            replayTarget.accept(trade);
+                        } else {
+                            correctionTarget.accept(new TradeCorrection(trade, records == 1 ? null
+                                    : BinaryTradeCodec.decode(buffer, tail + RECORD_SIZE + BODY_OFFSET)));
+                        }
+                        replayed++;
+                    }
+                    expected += records;
+                    tail += records * RECORD_SIZE;
+                }
+            }
+            // An amendment that did not fit leaves the last slot of its segment unused
+            if (!last && tail + RECORD_SIZE <= segmentSize && firstSequenceOf(segments.get(i + 1)) != expected) {
+                throw new IllegalStateException("Trade journal segment " + path + " is truncated at offset "
+                        + tail + " but is not the last segment");
+            }
+            if (last) {
+                nextSequence = expected >= 0 ? expected : firstSequenceOf(path);
+                openSegment(firstSequenceOf(path), tail);
+                // Clear anything past the tail so stale records cannot reappear after another crash
+                for (int offset = tail; offset < segmentSize; offset += Long.BYTES) {
+                    segment.putLong(offset, 0L);
+                }
+                segment.force();
+            }
+        }
+
+        if (!segments.isEmpty() && nextSequence <= replayAfter) {
+            // The checkpoint is ahead of every journaled record, so none of them are needed
+            log.warn("Trade journal ends at sequence {} before checkpoint sequence {}, starting a new journal",
+                    nextSequence - 1, replayAfter);
+            channel.close();
+            for (Path path : segments) {
+                Files.delete(path);
+            }
+            segments = List.of();
+        }
+        if (segments.isEmpty()) {
+            nextSequence = Math.max(1, replayAfter + 1);
+            openSegment(nextSequence, 0);
+        }
+        writtenSequence = nextSequence - 1;
+        durableSequence = writtenSequence;
+        log.info("Trade journal opened in {}: replayed {} trades and corrections, next sequence {}",
+                directory, replayed, nextSequence);
+    }
+
+    private boolean isValid(MappedByteBuffer buffer, int offset, long sequence, long expected, CRC32C crc) {
+        return buffer.getInt(offset + CRC_OFFSET) == crc(crc, buffer, offset) && (expected < 0 || sequence == expected);
+    }
+
+    /**
+     * Deletes segments whose records are all at or below {@code sequence}. The segment
+     * currently being written is always kept.
+     */
+    public int deleteSegmentsUpTo(long sequence) {
+        int deleted = 0;
+        try {
+            List<Path> segments = listSegments();
+            for (int i = 0; i < segments.size() - 1; i++) {
+                if (firstSequenceOf(segments.get(i + 1)) > sequence + 1) {
+                    break;
+                }
+                Files.delete(segments.get(i));
+                deleted++;
+            }
+        } catch (IOException e) {
+            log.error("Failed to delete journal segments up to sequence {}", sequence, e);
+        }
+        if (deleted > 0) {
+            log.info("Deleted {} journal segments covered by checkpoint sequence {}", deleted, sequence);
+        }
+        return deleted;
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> segments = new ArrayList<>(files
+                    .filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX)
+                            && path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList());
+            return segments;
+        }
+    }
+
+    private static String segmentName(long firstSequence) {
+        return String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX);
+    }
+
+    private static long firstSequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    // Callers own the buffer (writer lock or private mapping), so borrowing its position is safe
+    private static int crc(CRC32C crc, MappedByteBuffer buffer, int offset) {
+        crc.reset();
+        buffer.limit(offset + CRC_OFFSET).position(offset);
+        crc.update(buffer);
+        buffer.limit(buffer.capacity()).position(0);
+        return (int) crc.getValue();
+    }
+
+    @PreDestroy
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(groupCommitThread);
+        synchronized (writeLock) {
+            try {
+                segment.force();
+                publishDurable(writtenSequence);
+                channel.close();
+            } catch (IOException e) {
+                log.error("Failed to close trade journal", e);
+            }
+        }
+        synchronized (durableMonitor) {
+            durableMonitor.notifyAll();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.exercise.vwap.service.lanes;
+
+import com.exercise.vwap.domain.LaneStatus;
+import lombok.Getter;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bulkhead: caps how many requests of one kind run at the same time. A request waits up to
+ * {@code maxWaitMillis} for a permit and is turned away after that, so a burst in one lane
+ * queues or sheds inside that lane instead of tying up threads that the other lane needs.
+ */
+public class ExecutionLane {
+    @Getter
+    private final String name;
+    @Getter
+    private final int maxConcurrent;
+    private final long maxWaitMillis;
+    private final Semaphore permits;
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public ExecutionLane(String name, int maxConcurrent, long maxWaitMillis) {
+        if (maxConcurrent <= 0 || maxWaitMillis < 0) {
+            throw new IllegalArgumentException("Lane " + name + " needs a positive concurrency limit and a"
+                    + " non-negative wait, got: " + maxConcurrent + ", " + maxWaitMillis);
+        }
+        this.name = name;
+        this.maxConcurrent = maxConcurrent;
+        this.maxWaitMillis = maxWaitMillis;
+        this.permits = new Semaphore(maxConcurrent);
+    }
+
+    /**
+     * Takes a permit, waiting up to the lane's limit. Returns false if the lane stayed full;
+     * a caller that gets true must call {@link #exit()} when done.
+     */
+    public boolean tryEnter() {
+        boolean entered;
+        try {
+            entered = maxWaitMillis == 0
+                    ? permits.tryAcquire()
+                    : permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            entered = false;
+        }
+        (entered ? admitted : rejected).increment();
+        return entered;
+    }
+
+    public void exit() {
+        permits.release();
+    }
+
+    public LaneStatus getStatus() {
+        return new LaneStatus(name, maxConcurrent, maxConcurrent - permits.availablePermits(),
+                admitted.sum(), rejected.sum());
+    }
+}
@@ -0,0 +1,39 @@
+package com.exercise.vwap.service.lanes;
+
+import com.exercise.vwap.domain.LaneStatus;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * The two request lanes: ingest (trade posts and backfill) and queries.
+ * Ingest may wait longer for a permit, since its clients retry whole batches; queries get a
+ * larger share and a short wait so they stay fast.
+ */
+@Component
+public class ExecutionLanes {
+    @Getter
+    private final boolean enabled;
+    @Getter
+    private final ExecutionLane ingest;
+    @Getter
+    private final ExecutionLane query;
+
+    @Autowired
+    public ExecutionLanes(@Value("${vwap.lanes.enabled:true}") boolean enabled,
+                          @Value("${vwap.lanes.ingest.max-concurrent:8}") int ingestMaxConcurrent,
+                          @Value("${vwap.lanes.ingest.max-wait-ms:1000}") long ingestMaxWaitMillis,
+                          @Value("${vwap.lanes.query.max-concurrent:64}") int queryMaxConcurrent,
+                          @Value("${vwap.lanes.query.max-wait-ms:10}") long queryMaxWaitMillis) {
+        this.enabled = enabled;
+        this.ingest = new ExecutionLane("ingest", ingestMaxConcurrent, ingestMaxWaitMillis);
+        this.query = new ExecutionLane("query", queryMaxConcurrent, queryMaxWaitMillis);
+    }
+
+    public List<LaneStatus> getStatus() {
+        return List.of(ingest.getStatus(), query.getStatus());
+    }
+}
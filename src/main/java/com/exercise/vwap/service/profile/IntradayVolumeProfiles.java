@@ -0,0 +1,392 @@
+package com.exercise.vwap.service.profile;
+
+import com.exercise.vwap.domain.VolumeProfileResult;
+import com.exercise.vwap.utils.BinaryTradeCodec;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+/**
+ * Per-pair intraday volume profiles: the expected share of a day's volume traded in each
+ * minute, for VWAP execution schedules. Each pair keeps the current day's volume per minute
+ * and a curve of minute shares averaged over earlier days with exponential decay, so a day
+ * {@code halfLifeDays} back carries half the weight of the latest one. Both are flat primitive
+ * arrays of one slot per minute of the day; recording a trade adds its volume to one slot and
+ * allocates nothing once the pair has a profile.
+ * <p>
+ * The first trade of a later day folds the finished day into the curve. A query for a day
+ * after the last one with trades folds it into a copy instead, so the curve including the
+ * previous day is served from the open, before the new day's first trade. Days without
+ * trades are skipped rather than decayed, so weekends do not fade the curve. Trades for days
+ * that have already been folded are ignored.
+ * <p>
+ * Profiles are saved to a small binary file on a fixed interval and on shutdown, and loaded
+ * on start-up:
+ * <pre>
+ *   header   24 bytes     magic, version, profile count, reserved, journal sequence
+ *   profile  17304 bytes  pair, current day (epoch day), days folded, reserved,
+ *                         curve as 1440 float32 shares, current day as 1440 float64 volumes
+ *   trailer  4 bytes      CRC32C of everything before it
+ * </pre>
+ * The journal sequence is the last journal record the current days include, or -1 when the
+ * file was not saved at a known point of the journal. A journal replay re-records its trades,
+ * so the loaded current days are only kept if the replay starts right after that sequence.
+ * With checkpoints and the journal both on, profiles are therefore saved with each checkpoint
+ * instead of on their own schedule. Version 1 files have a 16-byte header and no sequence.
+ */
+@Component
+@ConditionalOnProperty(name = "vwap.profile.enabled", havingValue = "true")
+@Slf4j
+public class IntradayVolumeProfiles implements Closeable {
+    public static final int MINUTES_PER_DAY = 24 * 60;
+    static final String FILE_NAME = "volume-profiles.bin";
+    private static final String TEMPORARY = "volume-profiles.tmp";
+    private static final int MAGIC = 0x56575650; // "VWVP"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 24;
+    private static final int V1_HEADER_SIZE = 16;
+    private static final long NO_SEQUENCE = -1;
+    private static final int PROFILE_SIZE = 24 + 4 * MINUTES_PER_DAY + 8 * MINUTES_PER_DAY;
+    private static final int TRAILER_SIZE = 4;
+
+    // Weight of the latest day in the curve
+    private final double decay;
+    // Where profiles are saved, null when they are not
+    private final Path directory;
+    private final Map<String, Profile> profiles = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+    // Journal sequence the loaded current days were saved at
+    private long loadedSequence = NO_SEQUENCE;
+    // Set when checkpoints save the profiles, which then skip their own saves
+    private volatile boolean savedWithCheckpoints;
+
+    @Autowired
+    public IntradayVolumeProfiles(@Value("${vwap.profile.half-life-days:10}") double halfLifeDays,
+                                  @Value("${vwap.profile.dir:./data/profile}") String directory,
+                                  @Value("${vwap.profile.save-interval-seconds:300}") long saveIntervalSeconds) {
+        this(halfLifeDays, directory.isBlank() ? null : Path.of(directory));
+        if (this.directory != null && saveIntervalSeconds > 0) {
+            scheduler.scheduleWithFixedDelay(this::saveUnlessCheckpointed, saveIntervalSeconds, saveIntervalSeconds,
+                    TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * @param directory where profiles are loaded from and saved to, or null to keep them in memory only
+     */
+    public IntradayVolumeProfiles(double halfLifeDays, Path directory) {
+        if (!(halfLifeDays > 0)) {
+            throw new IllegalArgumentException("Volume profile half-life must be a positive number of days, got: "
+                    + halfLifeDays);
+        }
+        this.decay = 1 - Math.pow(0.5, 1 / halfLifeDays);
+        this.directory = directory;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "volume-profile-saver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (directory != null) {
+            load();
+        }
+    }
+
+    /**
+     * Adds {@code volume} to the pair's minute at {@code timestamp}; a negative volume takes a
+     * corrected trade back out.
+     */
+    public void record(String currencyPair, LocalDateTime timestamp, double volume) {
+        long day = timestamp.toLocalDate().toEpochDay();
+        Profile profile = profiles.get(currencyPair);
+        if (profile == null) {
+            profile = profiles.computeIfAbsent(currencyPair, k -> new Profile(day));
+        }
+        synchronized (profile) {
+            if (day > profile.day) {
+                profile.days = fold(profile, profile.curve);
+                Arrays.fill(profile.today, 0);
+                profile.day = day;
+            } else if (day < profile.day) {
+                return;
+            }
+            profile.today[timestamp.getHour() * 60 + timestamp.getMinute()] += volume;
+        }
+    }
+
+    /**
+     * The pair's expected volume shares for {@code day} in buckets of {@code bucketMinutes},
+     * or null if no day with trades has finished yet. Only the curve for the latest day with
+     * trades and the days after it is kept.
+     *
+     * @throws IllegalStateException if {@code day} is before the pair's latest day with trades
+     */
+    public VolumeProfileResult profile(String currencyPair, LocalDate day, int bucketMinutes) {
+        Profile profile = profiles.get(currencyPair);
+        if (profile == null) {
+            return null;
+        }
+        float[] curve = new float[MINUTES_PER_DAY];
+        int days;
+        synchronized (profile) {
+            long requested = day.toEpochDay();
+            if (requested < profile.day) {
+                throw new IllegalStateException("Volume profile of " + currencyPair + " is kept from "
+                        + LocalDate.ofEpochDay(profile.day) + " only, not for " + day);
+            }
+            if (requested > profile.day) {
+                days = fold(profile, curve);
+            } else {
+                System.arraycopy(profile.curve, 0, curve, 0, MINUTES_PER_DAY);
+                days = profile.days;
+            }
+        }
+        if (days == 0) {
+            return null;
+        }
+        int buckets = MINUTES_PER_DAY / bucketMinutes;
+        double[] fractions = new double[buckets];
+        double[] cumulative = new double[buckets];
+        double total = 0;
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            for (int minute = bucket * bucketMinutes; minute < (bucket + 1) * bucketMinutes; minute++) {
+                fractions[bucket] += curve[minute];
+            }
+            total += fractions[bucket];
+            cumulative[bucket] = total;
+        }
+        return new VolumeProfileResult(currencyPair, day, days, bucketMinutes, fractions, cumulative);
+    }
+
+    public int getPairCount() {
+        return profiles.size();
+    }
+
+    /**
+     * Called before the journal replays its records after {@code replayAfter}. Unless the
+     * profiles were saved at exactly that sequence, their current days may already hold some of
+     * the replayed trades, so those days are cleared and rebuilt by the replay alone.
+     */
+    public void prepareForReplay(long replayAfter) {
+        if (loadedSequence == replayAfter || profiles.isEmpty()) {
+            return;
+        }
+        for (Profile profile : profiles.values()) {
+            synchronized (profile) {
+                Arrays.fill(profile.today, 0);
+            }
+        }
+        log.warn("Volume profiles were saved at journal sequence {}, not at {} where replay starts; "
+                + "rebuilding the current day from the replay", loadedSequence, replayAfter);
+    }
+
+    /**
+     * Leaves saving to checkpoints, which pass {@link #encode(long)} the journal sequence they
+     * cover and {@link #write(ByteBuffer)} the result once the checkpoint is written.
+     */
+    public void saveWithCheckpoints() {
+        savedWithCheckpoints = true;
+    }
+
+    /**
+     * Writes the curve with {@code profile}'s current day folded in to {@code target}, which may
+     * be the profile's own curve, and returns the number of days in it. A day without volume
+     * leaves the curve as it is. Called with the profile's lock held.
+     */
+    private int fold(Profile profile, float[] target) {
+        double total = 0;
+        for (double volume : profile.today) {
+            total += Math.max(0, volume);
+        }
+        if (total <= 0) {
+            if (target != profile.curve) {
+                System.arraycopy(profile.curve, 0, target, 0, MINUTES_PER_DAY);
+            }
+            return profile.days;
+        }
+        double weight = profile.days == 0 ? 1 : decay;
+        for (int minute = 0; minute < MINUTES_PER_DAY; minute++) {
+            double share = Math.max(0, profile.today[minute]) / total;
+            target[minute] = (float) ((1 - weight) * profile.curve[minute] + weight * share);
+        }
+        return profile.days + 1;
+    }
+
+    /**
+     * Writes every profile to a temporary file and atomically renames it over the current one,
+     * at no known journal sequence.
+     */
+    public void save() {
+        if (directory != null) {
+            write(encode(NO_SEQUENCE));
+        }
+    }
+
+    /**
+     * Every profile in the file layout, as of {@code journalSequence}.
+     */
+    public ByteBuffer encode(long journalSequence) {
+        List<Map.Entry<String, Profile>> entries = new ArrayList<>(profiles.entrySet());
+        int size = HEADER_SIZE + entries.size() * PROFILE_SIZE + TRAILER_SIZE;
+        ByteBuffer buffer = ByteBuffer.allocateDirect(size);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, entries.size());
+        buffer.putLong(16, journalSequence);
+        int offset = HEADER_SIZE;
+        for (Map.Entry<String, Profile> entry : entries) {
+            Profile profile = entry.getValue();
+            buffer.putLong(offset, BinaryTradeCodec.encodePair(entry.getKey()));
+            synchronized (profile) {
+                buffer.putLong(offset + 8, profile.day);
+                buffer.putInt(offset + 16, profile.days);
+                int position = offset + 24;
+                for (float share : profile.curve) {
+                    buffer.putFloat(position, share);
+                    position += 4;
+                }
+                for (double volume : profile.today) {
+                    buffer.putDouble(position, volume);
+                    position += 8;
+                }
+            }
+            offset += PROFILE_SIZE;
+        }
+        buffer.putInt(offset, crc(buffer, offset));
+        return buffer;
+    }
+
+    /**
+     * Writes profiles encoded by {@link #encode(long)} to a temporary file and atomically renames
+     * it over the current one.
+     */
+    public synchronized void write(ByteBuffer buffer) {
+        if (directory == null) {
+            return;
+        }
+        int count = buffer.getInt(8);
+        Path temporary = directory.resolve(TEMPORARY);
+        try {
+            Files.createDirectories(directory);
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                buffer.clear();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            Files.move(temporary, directory.resolve(FILE_NAME), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to save volume profiles to " + directory, e);
+        }
+        log.debug("Saved {} volume profiles", count);
+    }
+
+    private void saveUnlessCheckpointed() {
+        if (!savedWithCheckpoints) {
+            saveQuietly();
+        }
+    }
+
+    private void saveQuietly() {
+        try {
+            save();
+        } catch (Exception e) {
+            log.error("Saving volume profiles failed", e);
+        }
+    }
+
+    private void load() {
+        Path path = directory.resolve(FILE_NAME);
+        if (!Files.exists(path)) {
+            log.info("No volume profiles found in {}", directory);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE + TRAILER_SIZE || fileSize > Integer.MAX_VALUE) {
+                log.error("Volume profiles {} failed validation, starting empty", path);
+                return;
+            }
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            int version = buffer.getInt(4);
+            int headerSize = version == 1 ? V1_HEADER_SIZE : HEADER_SIZE;
+            int count = buffer.getInt(8);
+            int trailer = (int) fileSize - TRAILER_SIZE;
+            if (buffer.getInt(0) != MAGIC || version < 1 || version > VERSION || count < 0
+                    || headerSize + (long) count * PROFILE_SIZE + TRAILER_SIZE != fileSize
+                    || buffer.getInt(trailer) != crc(buffer, trailer)) {
+                log.error("Volume profiles {} failed validation, starting empty", path);
+                return;
+            }
+            loadedSequence = version == 1 ? NO_SEQUENCE : buffer.getLong(16);
+            int offset = headerSize;
+            for (int i = 0; i < count; i++) {
+                Profile profile = new Profile(buffer.getLong(offset + 8));
+                profile.days = buffer.getInt(offset + 16);
+                int position = offset + 24;
+                for (int minute = 0; minute < MINUTES_PER_DAY; minute++, position += 4) {
+                    profile.curve[minute] = buffer.getFloat(position);
+                }
+                for (int minute = 0; minute < MINUTES_PER_DAY; minute++, position += 8) {
+                    profile.today[minute] = buffer.getDouble(position);
+                }
+                profiles.put(BinaryTradeCodec.decodePair(buffer.getLong(offset)), profile);
+                offset += PROFILE_SIZE;
+            }
+            log.info("Loaded {} volume profiles from {} at journal sequence {}", count, path, loadedSequence);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load volume profiles from " + path, e);
+        }
+    }
+
+    private static int crc(ByteBuffer buffer, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(0, length));
+        return (int) crc.getValue();
+    }
+
+    @PreDestroy
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        saveUnlessCheckpointed();
+    }
+
+    // Guarded by its own monitor
+    private static final class Profile {
+        private long day; // epoch day being accumulated in today
+        private int days; // days folded into curve
+        private final float[] curve = new float[MINUTES_PER_DAY];
+        private final double[] today = new double[MINUTES_PER_DAY];
+
+        Profile(long day) {
+            this.day = day;
+        }
+    }
+}
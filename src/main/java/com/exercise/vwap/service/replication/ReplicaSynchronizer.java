@@ -0,0 +1,141 @@
+package com.exercise.vwap.service.replication;
+
+import com.exercise.vwap.domain.ReplicationBatch;
+import com.exercise.vwap.domain.ReplicationStatus;
+import com.exercise.vwap.domain.TradeEvent;
+import com.exercise.vwap.domain.WindowState;
+import com.exercise.vwap.service.WindowManager;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replica-side tailer of the primary's replication log. Polls for trades and corrections after
+ * the last applied sequence and applies them to the local window manager in order. A replica
+ * that is too far behind (or has just started) first loads the primary's full state.
+ */
+@Component
+@ConditionalOnProperty(name = "vwap.replication.role", havingValue = "replica")
+@Slf4j
+public class ReplicaSynchronizer {
+    private static final String REPLICATION_PATH = "/api/v1/vwap/replication";
+
+    private final WindowManager windowManager;
+    private final RestClient restClient;
+    private final String primaryUrl;
+    private final int batchSize;
+    private final long maxStalenessMillis;
+    private final ScheduledExecutorService poller;
+
+    private volatile long appliedSequence;
+    private volatile long primaryHeadSequence;
+    private volatile long lastCaughtUpMillis;
+    private volatile boolean initialized;
+
+    @Autowired
+    public ReplicaSynchronizer(WindowManager windowManager,
+                               @Value("${vwap.replication.primary-url}") String primaryUrl,
+                               @Value("${vwap.replication.batch-size:5000}") int batchSize,
+                               @Value("${vwap.replication.poll-interval-ms:100}") long pollIntervalMillis,
+                               @Value("${vwap.replication.max-staleness-ms:5000}") long maxStalenessMillis) {
+        this(windowManager, RestClient.create(), primaryUrl, batchSize, pollIntervalMillis, maxStalenessMillis);
+    }
+
+    ReplicaSynchronizer(WindowManager windowManager, RestClient restClient, String primaryUrl,
+                        int batchSize, long pollIntervalMillis, long maxStalenessMillis) {
+        this.windowManager = windowManager;
+        this.restClient = restClient;
+        this.primaryUrl = primaryUrl;
+        this.batchSize = batchSize;
+        this.maxStalenessMillis = maxStalenessMillis;
+        this.poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "replica-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        poller.scheduleWithFixedDelay(this::poll, 0, pollIntervalMillis, TimeUnit.MILLISECONDS);
+        log.info("Replica mode enabled, tailing {}", primaryUrl);
+    }
+
+    void poll() {
+        try {
+            ReplicationBatch batch;
+            do {
+                batch = restClient.get()
+                        .uri(primaryUrl + REPLICATION_PATH + "/log?after={after}&max={max}",
+                                appliedSequence, batchSize)
+                        .retrieve()
+                        .body(ReplicationBatch.class);
+                if (batch == null) {
+                    return;
+                }
+                if (batch.isResyncRequired()) {
+                    if (!resync()) {
+                        return;
+                    }
+                    continue;
+                }
+                apply(batch);
+            } while (batch.isResyncRequired() || batch.getTrades().size() == batchSize);
+        } catch (Exception e) {
+            log.warn("Replication poll against {} failed: {}", primaryUrl, e.getMessage());
+        }
+    }
+
+    void apply(ReplicationBatch batch) {
+        long sequence = batch.getFirstSequence();
+        for (TradeEvent event : batch.getTrades()) {
+            if (event.getCorrects() != null) {
+                windowManager.applyCorrection(event.toCorrection());
+            } else {
+                windowManager.applyTrade(event.toTrade());
+            }
+            appliedSequence = sequence++;
+        }
+        primaryHeadSequence = batch.getHeadSequence();
+        if (appliedSequence >= primaryHeadSequence) {
+            lastCaughtUpMillis = System.currentTimeMillis();
+            initialized = true;
+        }
+    }
+
+    private boolean resync() {
+        log.info("Replica at sequence {} is behind the primary log, loading snapshot", appliedSequence);
+        WindowState state = restClient.get()
+                .uri(primaryUrl + REPLICATION_PATH + "/snapshot")
+                .retrieve()
+                .body(WindowState.class);
+        if (state == null) {
+            return false;
+        }
+        windowManager.importState(state);
+        appliedSequence = state.getSequence();
+        return true;
+    }
+
+    public boolean isWithinStalenessBound() {
+        return initialized && getStalenessMillis() <= maxStalenessMillis;
+    }
+
+    public long getStalenessMillis() {
+        return initialized ? System.currentTimeMillis() - lastCaughtUpMillis : Long.MAX_VALUE;
+    }
+
+    public ReplicationStatus getStatus() {
+        return new ReplicationStatus("replica", appliedSequence, primaryHeadSequence,
+                Math.max(0, primaryHeadSequence - appliedSequence), getStalenessMillis());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        poller.shutdownNow();
+    }
+}
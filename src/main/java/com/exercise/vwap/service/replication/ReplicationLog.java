@@ -0,0 +1,89 @@
+package com.exercise.vwap.service.replication;
+
+import com.exercise.vwap.domain.ReplicationBatch;
+import com.exercise.vwap.domain.Trade;
+import com.exercise.vwap.domain.TradeCorrection;
+import com.exercise.vwap.domain.TradeEvent;
+import com.exercise.vwap.domain.TradeWindow;
+import com.exercise.vwap.service.TradeListener;
+import com.exercise.vwap.service.WindowManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Primary-side replication log: a fixed-size ring of the most recently applied trades and
+ * corrections, indexed by the window manager's apply sequence. Replicas that fall further
+ * behind than the ring retains are told to resynchronise from a full state snapshot.
+ */
+@Component
+@ConditionalOnProperty(name = "vwap.replication.role", havingValue = "primary")
+@Slf4j
+public class ReplicationLog implements TradeListener {
+    private final TradeEvent[] entries;
+    private final int capacity;
+    private long firstSequence = 1;
+    private long headSequence;
+
+    public ReplicationLog(WindowManager windowManager,
+                          @Value("${vwap.replication.log-capacity:100000}") int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Replication log capacity must be positive, got: " + capacity);
+        }
+        this.capacity = capacity;
+        this.entries = new TradeEvent[capacity];
+        windowManager.addTradeListener(this);
+        log.info("Replication log enabled with capacity {}", capacity);
+    }
+
+    @Override
+    public synchronized void onTradeApplied(long sequence, Trade trade) {
+        append(sequence, TradeEvent.of(trade));
+    }
+
+    @Override
+    public synchronized void onTradeCorrected(long sequence, TradeCorrection correction) {
+        append(sequence, TradeEvent.of(correction));
+    }
+
+    /**
+     * A merged window has no trade-by-trade form, so the log restarts after it and replicas
+     * that are behind it pick it up from the next snapshot.
+     */
+    @Override
+    public synchronized void onWindowMerged(long sequence, String currencyPair, TradeWindow partial) {
+        firstSequence = sequence + 1;
+        headSequence = sequence;
+    }
+
+    private void append(long sequence, TradeEvent event) {
+        if (sequence != headSequence + 1) {
+            // State was replaced underneath us (e.g. imported), earlier entries no longer apply
+            log.warn("Replication log gap: expected sequence {}, got {}", headSequence + 1, sequence);
+            firstSequence = sequence;
+        }
+        entries[(int) (sequence % capacity)] = event;
+        headSequence = sequence;
+    }
+
+    public synchronized ReplicationBatch read(long afterSequence, int maxEntries) {
+        long oldestRetained = Math.max(firstSequence, headSequence - capacity + 1);
+        if (afterSequence > headSequence || afterSequence + 1 < oldestRetained) {
+            return new ReplicationBatch(afterSequence + 1, headSequence, List.of(), true);
+        }
+        long last = Math.min(headSequence, afterSequence + maxEntries);
+        List<TradeEvent> trades = new ArrayList<>((int) (last - afterSequence));
+        for (long sequence = afterSequence + 1; sequence <= last; sequence++) {
+            trades.add(entries[(int) (sequence % capacity)]);
+        }
+        return new ReplicationBatch(afterSequence + 1, headSequence, trades, false);
+    }
+
+    public synchronized long getHeadSequence() {
+        return headSequence;
+    }
+}
@@ -0,0 +1,56 @@
+package com.exercise.vwap.service.rollover;
+
+import com.exercise.vwap.service.WindowManager;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drops windows past the retention period on a fixed interval, so retention applies without
+ * anything else having to trigger it.
+ */
+@Component
+@Slf4j
+public class WindowCleaner {
+    private final WindowManager windowManager;
+    private final ScheduledExecutorService scheduler;
+
+    @Autowired
+    public WindowCleaner(WindowManager windowManager,
+                         @Value("${vwap.window.cleanup-interval-seconds:300}") long intervalSeconds) {
+        this(windowManager, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    WindowCleaner(WindowManager windowManager, long interval, TimeUnit unit) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("Window cleanup interval must be positive, got: " + interval);
+        }
+        this.windowManager = windowManager;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "window-cleaner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::cleanup, interval, interval, unit);
+    }
+
+    public void cleanup() {
+        try {
+            windowManager.cleanupExpiredWindows(LocalDateTime.now());
+        } catch (Exception e) {
+            log.error("Error cleaning up expired windows", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,94 @@
+package com.exercise.vwap.service.rollover;
+
+import com.exercise.vwap.service.WindowManager;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shortly before each hour boundary, creates the next hour's windows for the pairs that are
+ * trading now. Without this, every active pair creates its new window in the same instant
+ * just as the new hour's volume arrives.
+ */
+@Component
+@ConditionalOnProperty(name = "vwap.window.prewarm.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class WindowPrewarmer {
+    private final WindowManager windowManager;
+    private final long leadSeconds;
+    private final ScheduledExecutorService scheduler;
+
+    @Autowired
+    public WindowPrewarmer(WindowManager windowManager,
+                           @Value("${vwap.window.prewarm.lead-seconds:30}") long leadSeconds) {
+        this(windowManager, leadSeconds, true);
+    }
+
+    WindowPrewarmer(WindowManager windowManager, long leadSeconds, boolean schedule) {
+        if (leadSeconds <= 0 || leadSeconds >= ChronoUnit.HOURS.getDuration().toSeconds()) {
+            throw new IllegalArgumentException("Pre-warm lead must be between 1 and 3599 seconds, got: " + leadSeconds);
+        }
+        this.windowManager = windowManager;
+        this.leadSeconds = leadSeconds;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "window-prewarmer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (schedule) {
+            scheduleNext();
+        }
+    }
+
+    /**
+     * Creates the windows of the hour after the one containing {@code now}.
+     */
+    public int prewarm(LocalDateTime now) {
+        LocalDateTime nextHour = now.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+        int created = windowManager.prewarmWindows(nextHour);
+        log.info("Pre-created {} windows for {}", created, nextHour);
+        return created;
+    }
+
+    /**
+     * Delay until {@code leadSeconds} before the next hour boundary that is still ahead.
+     */
+    static long millisUntilNextRun(LocalDateTime now, long leadSeconds) {
+        LocalDateTime run = now.truncatedTo(ChronoUnit.HOURS).plusHours(1).minusSeconds(leadSeconds);
+        if (!run.isAfter(now)) {
+            run = run.plusHours(1);
+        }
+        return Duration.between(now, run).toMillis();
+    }
+
+    private void scheduleNext() {
+        scheduler.schedule(this::run, millisUntilNextRun(LocalDateTime.now(), leadSeconds), TimeUnit.MILLISECONDS);
+    }
+
+    private void run() {
+        try {
+            prewarm(LocalDateTime.now());
+        } catch (Exception e) {
+            log.error("Error pre-creating next hour's windows", e);
+        } finally {
+            if (!scheduler.isShutdown()) {
+                scheduleNext();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
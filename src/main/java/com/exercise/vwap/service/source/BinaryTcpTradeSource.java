@@ -0,0 +1,276 @@
+package com.exercise.vwap.service.source;
+
+import com.exercise.vwap.domain.Trade;
+import com.exercise.vwap.utils.BinaryTradeCodec;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * TCP listener for length-prefixed binary trade batches, an alternative to JSON over HTTP.
+ * <pre>
+ *   request  int32 length (of everything after it), int64 batch id, int32 count,
+ *            count x 32-byte trade record (see {@link BinaryTradeCodec})
+ *   ack      int64 batch id, int32 status (0 = accepted, 1 = failed), int32 accepted trades
+ * </pre>
+ * All integers are big-endian. Clients may pipeline any number of batches without waiting;
+ * every complete batch in the receive buffer is decoded in place, handed to the ingest path
+ * in a single call (so journaled ingest waits for durability once), and acknowledged in
+ * order with a single write. Trades that fail validation are dropped and show up as
+ * {@code count - accepted}; a malformed frame closes the connection.
+ * <p>
+ * Each connection is served by its own thread with blocking channel I/O, which suits the
+ * handful of co-located feed handlers this is meant for.
+ */
+@Component
+@ConditionalOnProperty(name = "vwap.source.tcp.enabled", havingValue = "true")
+@Slf4j
+public class BinaryTcpTradeSource implements TradeSource {
+    public static final int LENGTH_PREFIX = 4;
+    public static final int HEADER_SIZE = 12;
+    public static final int ACK_SIZE = 16;
+    public static final int STATUS_ACCEPTED = 0;
+    public static final int STATUS_FAILED = 1;
+
+    private final String bindAddress;
+    private final int port;
+    private final int maxBatchSize;
+    private final int receiveBufferSize;
+    private final ThreadPoolExecutor connectionExecutor;
+    private final Set<SocketChannel> connections = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean running;
+    private volatile ServerSocketChannel serverChannel;
+    private Thread acceptor;
+    private Consumer<List<Trade>> sink;
+
+    @Autowired
+    public BinaryTcpTradeSource(@Value("${vwap.source.tcp.bind-address:127.0.0.1}") String bindAddress,
+                                @Value("${vwap.source.tcp.port:9099}") int port,
+                                @Value("${vwap.source.tcp.max-batch-size:10000}") int maxBatchSize,
+                                @Value("${vwap.source.tcp.max-connections:16}") int maxConnections) {
+        if (maxBatchSize <= 0 || maxConnections <= 0) {
+            throw new IllegalArgumentException("TCP source batch size and connection limit must be positive");
+        }
+        this.bindAddress = bindAddress;
+        this.port = port;
+        this.maxBatchSize = maxBatchSize;
+        // Room for two maximum frames so a full frame never has to wait for the buffer to drain
+        this.receiveBufferSize = 2 * (LENGTH_PREFIX + HEADER_SIZE + maxBatchSize * BinaryTradeCodec.TRADE_SIZE);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.connectionExecutor = new ThreadPoolExecutor(0, maxConnections, 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), r -> {
+            Thread thread = new Thread(r, "binary-ingest-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public String getName() {
+        return "tcp:" + bindAddress + ":" + port;
+    }
+
+    @Override
+    public synchronized void start(Consumer<List<Trade>> sink) {
+        if (running) {
+            throw new IllegalStateException("Trade source already started: " + getName());
+        }
+        try {
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            serverChannel.bind(new InetSocketAddress(bindAddress, port));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to listen on " + bindAddress + ":" + port, e);
+        }
+        this.sink = sink;
+        this.running = true;
+        acceptor = new Thread(this::acceptLoop, "binary-ingest-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        log.info("Binary trade listener on {}", serverChannel.socket().getLocalSocketAddress());
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        closeQuietly(serverChannel);
+        connections.forEach(this::closeQuietly);
+        connectionExecutor.shutdownNow();
+        if (acceptor != null) {
+            try {
+                acceptor.join(5_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            acceptor = null;
+        }
+    }
+
+    public int getLocalPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            SocketChannel connection;
+            try {
+                connection = serverChannel.accept();
+            } catch (IOException e) {
+                if (running) {
+                    log.error("Error accepting binary ingest connection", e);
+                }
+                continue;
+            }
+            try {
+                connectionExecutor.execute(() -> serve(connection));
+            } catch (RejectedExecutionException e) {
+                log.warn("Binary ingest connection limit reached, closing {}", remoteAddress(connection));
+                closeQuietly(connection);
+            }
+        }
+    }
+
+    private void serve(SocketChannel connection) {
+        String remote = remoteAddress(connection);
+        connections.add(connection);
+        log.info("Binary ingest connection from {}", remote);
+        try {
+            connection.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            new ConnectionHandler(connection).run();
+        } catch (IOException e) {
+            if (running) {
+                log.warn("Binary ingest connection from {} failed: {}", remote, e.getMessage());
+            }
+        } finally {
+            connections.remove(connection);
+            closeQuietly(connection);
+            log.info("Binary ingest connection from {} closed", remote);
+        }
+    }
+
+    /**
+     * Per-connection decode loop. The receive and ack buffers and the pair cache are reused
+     * across reads.
+     */
+    private final class ConnectionHandler {
+        private final SocketChannel connection;
+        private final ByteBuffer in = ByteBuffer.allocateDirect(receiveBufferSize);
+        private final ByteBuffer acks;
+        private final BinaryTradeCodec.PairCache pairs = new BinaryTradeCodec.PairCache();
+        private List<Trade> trades = new ArrayList<>();
+
+        ConnectionHandler(SocketChannel connection) {
+            this.connection = connection;
+            // Upper bound on the number of (empty) frames one buffer can hold
+            this.acks = ByteBuffer.allocate(receiveBufferSize / (LENGTH_PREFIX + HEADER_SIZE) * ACK_SIZE);
+        }
+
+        void run() throws IOException {
+            while (running) {
+                if (connection.read(in) < 0) {
+                    return;
+                }
+                in.flip();
+                decodeFrames();
+                in.compact();
+                if (acks.position() > 0) {
+                    acknowledge();
+                }
+            }
+        }
+
+        private void decodeFrames() throws IOException {
+            while (in.remaining() >= LENGTH_PREFIX) {
+                int frameStart = in.position();
+                int length = in.getInt(frameStart);
+                int payload = length - HEADER_SIZE;
+                if (payload < 0 || payload % BinaryTradeCodec.TRADE_SIZE != 0
+                        || payload / BinaryTradeCodec.TRADE_SIZE > maxBatchSize) {
+                    throw new IOException("Malformed frame length " + length);
+                }
+                if (in.remaining() < LENGTH_PREFIX + length) {
+                    return; // wait for the rest of the frame
+                }
+                int base = frameStart + LENGTH_PREFIX;
+                long batchId = in.getLong(base);
+                int count = in.getInt(base + 8);
+                if (count != payload / BinaryTradeCodec.TRADE_SIZE) {
+                    throw new IOException("Frame " + batchId + " declares " + count + " trades in " + length + " bytes");
+                }
+                int accepted = 0;
+                for (int i = 0; i < count; i++) {
+                    try {
+                        trades.add(BinaryTradeCodec.decode(in, base + HEADER_SIZE + i * BinaryTradeCodec.TRADE_SIZE, pairs));
+                        accepted++;
+                    } catch (RuntimeException e) {
+                        log.debug("Dropping invalid trade in batch {}: {}", batchId, e.getMessage());
+                    }
+                }
+                acks.putLong(batchId).putInt(STATUS_ACCEPTED).putInt(accepted);
+                in.position(base + length);
+            }
+        }
+
+        private void acknowledge() throws IOException {
+            try {
+                if (!trades.isEmpty()) {
+                    sink.accept(trades);
+                }
+            } catch (Exception e) {
+                log.error("Failed to ingest {} binary trades", trades.size(), e);
+                for (int ack = 0; ack < acks.position(); ack += ACK_SIZE) {
+                    acks.putInt(ack + 8, STATUS_FAILED);
+                    acks.putInt(ack + 12, 0);
+                }
+            } finally {
+                trades = new ArrayList<>(trades.size());
+            }
+            acks.flip();
+            while (acks.hasRemaining()) {
+                connection.write(acks);
+            }
+            acks.clear();
+        }
+    }
+
+    private static String remoteAddress(SocketChannel connection) {
+        try {
+            return String.valueOf(connection.getRemoteAddress());
+        } catch (IOException e) {
+            return "unknown";
+        }
+    }
+
+    private void closeQuietly(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            log.debug("Error closing {}", closeable, e);
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package com.exercise.vwap.service.source;
+
+import com.exercise.vwap.domain.Trade;
+import com.exercise.vwap.utils.TradeLineParser;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Follows a growing capture file written by a co-located feed handler.
+ * <p>
+ * The file is read through a {@link FileChannel} from the last consumed offset; only complete
+ * lines are consumed, so a record that is still being written is picked up on a later poll.
+ * Rotation is detected by the file's identity (inode) changing under the same path: the old
+ * file is read to its end before the new one is opened from the start. A file that shrinks
+ * below the offset is treated as truncated and re-read from the start.
+ * <p>
+ * The offset, together with the identity of the file it belongs to, is persisted after the
+ * sink accepts a batch. Delivery is at-least-once: a crash between the two can replay the
+ * last batch.
+ */
+@Component
+@ConditionalOnProperty(name = "vwap.source.file.enabled", havingValue = "true")
+@Slf4j
+public class FileTailTradeSource implements TradeSource {
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final long OFFSET_FLUSH_INTERVAL_MS = 100;
+    private static final long ERROR_BACKOFF_MS = 1000;
+
+    private final Path file;
+    private final Path offsetFile;
+    private final long pollMillis;
+    private final int batchSize;
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+
+    private volatile boolean running;
+    private Thread tailer;
+    private Consumer<List<Trade>> sink;
+
+    // Owned by the tailer thread
+    private FileChannel channel;
+    private String fileKey;
+    private long offset;
+    private long persistedOffset = -1;
+    private long lastPersistMillis;
+    private boolean discardingLongLine;
+    private long rejected;
+
+    @Autowired
+    public FileTailTradeSource(@Value("${vwap.source.file.path:./data/feed/trades.csv}") String file,
+                               @Value("${vwap.source.file.offset-file:./data/feed/trades.offset}") String offsetFile,
+                               @Value("${vwap.source.file.poll-millis:10}") long pollMillis,
+                               @Value("${vwap.source.file.batch-size:1000}") int batchSize) {
+        this(Path.of(file), Path.of(offsetFile), pollMillis, batchSize);
+    }
+
+    public FileTailTradeSource(Path file, Path offsetFile, long pollMillis, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Trade source batch size must be positive, got: " + batchSize);
+        }
+        this.file = file;
+        this.offsetFile = offsetFile;
+        this.pollMillis = pollMillis;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public String getName() {
+        return "file-tail:" + file;
+    }
+
+    @Override
+    public synchronized void start(Consumer<List<Trade>> sink) {
+        if (running) {
+            throw new IllegalStateException("Trade source already started: " + getName());
+        }
+        this.sink = sink;
+        this.running = true;
+        this.tailer = new Thread(this::run, "trade-source-file-tail");
+        tailer.setDaemon(true);
+        tailer.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        if (tailer != null) {
+            tailer.interrupt();
+            try {
+                tailer.join(5_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            tailer = null;
+        }
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public long getRejectedLines() {
+        return rejected;
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                try {
+                    if (!poll()) {
+                        Thread.sleep(pollMillis);
+                    }
+                } catch (InterruptedException e) {
+                    break;
+                } catch (Exception e) {
+                    log.error("Error tailing {}, retrying", file, e);
+                    Thread.sleep(ERROR_BACKOFF_MS);
+                }
+            }
+        } catch (InterruptedException e) {
+            // Stopping
+        } finally {
+            try {
+                persistOffset(true);
+            } catch (Exception e) {
+                log.error("Failed to persist offset for {}", file, e);
+            }
+            closeChannel();
+        }
+    }
+
+    /**
+     * Consumes whatever complete lines are available. Returns true if any bytes were consumed,
+     * so the caller polls again immediately instead of sleeping.
+     */
+    boolean poll() throws IOException {
+        if (channel == null && !open()) {
+            return false;
+        }
+        if (readAvailable()) {
+            persistOffset(false);
+            return true;
+        }
+        return checkRotation();
+    }
+
+    private boolean open() throws IOException {
+        String currentKey;
+        try {
+            currentKey = fileKey(file);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        fileKey = currentKey;
+        offset = 0;
+
+        StoredOffset stored = loadOffset();
+        if (stored != null) {
+            if (!stored.getFileKey().equals(currentKey)) {
+                log.warn("{} was rotated while stopped, reading the new file from the start", file);
+            } else if (stored.getOffset() > channel.size()) {
+                log.warn("{} is shorter than its stored offset {}, reading from the start", file, stored.getOffset());
+            } else {
+                offset = stored.getOffset();
+            }
+        }
+        log.info("Tailing {} from offset {}", file, offset);
+        return true;
+    }
+
+    private boolean readAvailable() throws IOException {
+        boolean consumed = false;
+        List<Trade> batch = new ArrayList<>(batchSize);
+        while (running) {
+            readBuffer.clear();
+            long base = offset;
+            int read = channel.read(readBuffer, base);
+            if (read <= 0) {
+                break;
+            }
+            byte[] bytes = readBuffer.array();
+            int lineStart = 0;
+            for (int i = 0; i < read; i++) {
+                if (bytes[i] != '\n') {
+                    continue;
+                }
+                if (discardingLongLine) {
+                    discardingLongLine = false;
+                } else {
+                    parseLine(bytes, lineStart, i, batch);
+                    if (batch.size() >= batchSize) {
+                        deliver(batch, base + i + 1);
+                        batch = new ArrayList<>(batchSize);
+                    }
+                }
+                lineStart = i + 1;
+            }
+            if (lineStart == 0 && read == readBuffer.capacity()) {
+                // A line longer than the buffer can never complete within it; drop it
+                if (!discardingLongLine) {
+                    log.warn("Skipping line longer than {} bytes at offset {} in {}", READ_BUFFER_SIZE, base, file);
+                    rejected++;
+                    discardingLongLine = true;
+                }
+                lineStart = read;
+            }
+            if (lineStart == 0) {
+                break; // only a partial line is available
+            }
+            if (!batch.isEmpty()) {
+                deliver(batch, base + lineStart);
+                batch = new ArrayList<>(batchSize);
+            } else {
+                offset = base + lineStart;
+            }
+            consumed = true;
+        }
+        return consumed;
+    }
+
+    private void parseLine(byte[] bytes, int from, int to, List<Trade> batch) {
+        String line = new String(bytes, from, to - from, StandardCharsets.UTF_8);
+        try {
+            Trade trade = TradeLineParser.parse(line);
+            if (trade != null) {
+                batch.add(trade);
+            }
+        } catch (RuntimeException e) {
+            rejected++;
+            log.warn("Skipping invalid trade line in {}: {}", file, line.strip());
+        }
+    }
+
+    private void deliver(List<Trade> batch, long nextOffset) {
+        sink.accept(batch);
+        offset = nextOffset;
+    }
+
+    /**
+     * Called at end of file: switches to a rotated file or rewinds a truncated one.
+     */
+    private boolean checkRotation() throws IOException {
+        String currentKey;
+        try {
+            currentKey = fileKey(file);
+        } catch (NoSuchFileException e) {
+            return false; // rotation in progress, keep draining the old file
+        }
+        if (!currentKey.equals(fileKey)) {
+            log.info("{} rotated after offset {}, switching to the new file", file, offset);
+            closeChannel();
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            fileKey = currentKey;
+            offset = 0;
+            persistOffset(true);
+            return true;
+        }
+        if (channel.size() < offset) {
+            log.warn("{} truncated below offset {}, reading from the start", file, offset);
+            offset = 0;
+            persistOffset(true);
+            return true;
+        }
+        return false;
+    }
+
+    private void persistOffset(boolean force) throws IOException {
+        if (fileKey == null || offset == persistedOffset) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (!force && now - lastPersistMillis < OFFSET_FLUSH_INTERVAL_MS) {
+            return;
+        }
+        Path parent = offsetFile.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temporary = parent.resolve(offsetFile.getFileName() + ".tmp");
+        Files.writeString(temporary, fileKey + "\n" + offset + "\n", StandardCharsets.UTF_8);
+        Files.move(temporary, offsetFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        persistedOffset = offset;
+        lastPersistMillis = now;
+    }
+
+    private StoredOffset loadOffset() {
+        if (!Files.exists(offsetFile)) {
+            return null;
+        }
+        try {
+            List<String> lines = Files.readAllLines(offsetFile, StandardCharsets.UTF_8);
+            return new StoredOffset(lines.get(0), Long.parseLong(lines.get(1).strip()));
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignoring unreadable offset file {}", offsetFile, e);
+            return null;
+        }
+    }
+
+    private static String fileKey(Path path) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        // Not every file system exposes an inode; fall back to the creation time
+        return String.valueOf(Objects.requireNonNullElse(attributes.fileKey(), attributes.creationTime()));
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to close " + file, e);
+            } finally {
+                channel = null;
+            }
+        }
+    }
+
+    @lombok.Value
+    private static class StoredOffset {
+        String fileKey;
+        long offset;
+    }
+}
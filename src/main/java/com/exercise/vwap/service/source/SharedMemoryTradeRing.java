@@ -0,0 +1,181 @@
+package com.exercise.vwap.service.source;
+
+import com.exercise.vwap.domain.Trade;
+import com.exercise.vwap.utils.BinaryTradeCodec;
+import lombok.Getter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Single-producer/single-consumer ring of trades in a memory-mapped file, shared between a
+ * publisher process and this service.
+ * <pre>
+ *   offset  size
+ *   0       16       magic, version, capacity (slots, power of two), slot size (32)
+ *   128     8        producer sequence: number of trades published
+ *   256     8        consumer sequence: number of trades consumed
+ *   384     32 x n   slots, trade i at slot (i mod capacity), see {@link BinaryTradeCodec}
+ * </pre>
+ * All values are big-endian. The two sequences sit on separate 128-byte blocks so the
+ * producer and consumer never write the same cache line (or its adjacent-line prefetch
+ * pair). The producer writes a slot and then publishes it with a release store of its
+ * sequence; the consumer reads with an acquire load, decodes, and releases its own sequence
+ * to free the slots. Neither side enters the kernel on the hot path. Because the consumer
+ * sequence lives in the file, a restarted consumer resumes where it stopped.
+ */
+public class SharedMemoryTradeRing implements Closeable {
+    private static final int MAGIC = 0x56575247; // "VWRG"
+    private static final int VERSION = 1;
+    private static final int PRODUCER_OFFSET = 128;
+    private static final int CONSUMER_OFFSET = 256;
+    private static final int DATA_OFFSET = 384;
+    private static final int SLOT_SIZE = BinaryTradeCodec.TRADE_SIZE;
+    private static final int MAX_CAPACITY = 1 << 25;
+
+    private static final VarHandle LONGS =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    @Getter
+    private final int capacity;
+    private final int mask;
+    private final BinaryTradeCodec.PairCache pairs = new BinaryTradeCodec.PairCache();
+
+    // Each side caches the other's sequence and only re-reads the shared line when it must
+    private long cachedConsumerSequence;
+    private long cachedProducerSequence;
+    @Getter
+    private long rejected;
+
+    /**
+     * Maps the ring at {@code path}, creating and initialising it with {@code capacity} slots
+     * if the file does not exist yet. An existing ring keeps its own capacity.
+     */
+    public static SharedMemoryTradeRing open(Path path, int capacity) {
+        if (capacity <= 0 || capacity > MAX_CAPACITY || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ring capacity must be a power of two up to " + MAX_CAPACITY
+                    + ", got: " + capacity);
+        }
+        try {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            try {
+                if (channel.size() == 0) {
+                    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                            DATA_OFFSET + (long) capacity * SLOT_SIZE);
+                    buffer.putInt(4, VERSION).putInt(8, capacity).putInt(12, SLOT_SIZE);
+                    // Magic last, so a concurrently opening producer never sees a half-written header
+                    buffer.putInt(0, MAGIC);
+                    buffer.force();
+                    return new SharedMemoryTradeRing(channel, buffer, capacity);
+                }
+                MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, DATA_OFFSET);
+                int existing = header.getInt(8);
+                if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION || header.getInt(12) != SLOT_SIZE
+                        || existing <= 0 || existing > MAX_CAPACITY || Integer.bitCount(existing) != 1
+                        || channel.size() < DATA_OFFSET + (long) existing * SLOT_SIZE) {
+                    throw new IllegalStateException("Not a trade ring file: " + path);
+                }
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                        DATA_OFFSET + (long) existing * SLOT_SIZE);
+                return new SharedMemoryTradeRing(channel, buffer, existing);
+            } catch (RuntimeException | IOException e) {
+                channel.close();
+                throw e;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open trade ring " + path, e);
+        }
+    }
+
+    private SharedMemoryTradeRing(FileChannel channel, MappedByteBuffer buffer, int capacity) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.cachedConsumerSequence = consumerSequence();
+        this.cachedProducerSequence = producerSequence();
+    }
+
+    /**
+     * Producer side: writes {@code trade} to the next slot and publishes it. Returns false
+     * without blocking if the ring is full.
+     */
+    public boolean offer(Trade trade) {
+        long sequence = (long) LONGS.getOpaque(buffer, PRODUCER_OFFSET);
+        if (sequence - cachedConsumerSequence >= capacity) {
+            cachedConsumerSequence = consumerSequence();
+            if (sequence - cachedConsumerSequence >= capacity) {
+                return false;
+            }
+        }
+        BinaryTradeCodec.encode(buffer, slotOffset(sequence), trade);
+        LONGS.setRelease(buffer, PRODUCER_OFFSET, sequence + 1);
+        return true;
+    }
+
+    /**
+     * Consumer side: decodes up to {@code max} published trades into {@code into} without
+     * freeing their slots, so nothing is lost if the consumer stops before handing them on.
+     * Records that fail validation are skipped. Returns the number of slots read, including
+     * skipped ones, which is what must be passed to {@link #release(int)}.
+     */
+    public int poll(List<Trade> into, int max) {
+        long sequence = (long) LONGS.getOpaque(buffer, CONSUMER_OFFSET);
+        if (sequence >= cachedProducerSequence) {
+            cachedProducerSequence = producerSequence();
+            if (sequence >= cachedProducerSequence) {
+                return 0;
+            }
+        }
+        int available = (int) Math.min(max, cachedProducerSequence - sequence);
+        for (int i = 0; i < available; i++) {
+            try {
+                into.add(BinaryTradeCodec.decode(buffer, slotOffset(sequence + i), pairs));
+            } catch (RuntimeException e) {
+                rejected++;
+            }
+        }
+        return available;
+    }
+
+    /**
+     * Consumer side: frees the next {@code count} slots for the producer.
+     */
+    public void release(int count) {
+        long sequence = (long) LONGS.getOpaque(buffer, CONSUMER_OFFSET);
+        LONGS.setRelease(buffer, CONSUMER_OFFSET, sequence + count);
+    }
+
+    public long producerSequence() {
+        return (long) LONGS.getAcquire(buffer, PRODUCER_OFFSET);
+    }
+
+    public long consumerSequence() {
+        return (long) LONGS.getAcquire(buffer, CONSUMER_OFFSET);
+    }
+
+    private int slotOffset(long sequence) {
+        return DATA_OFFSET + (int) (sequence & mask) * SLOT_SIZE;
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close trade ring", e);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.exercise.vwap.service.source;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.exercise.vwap.domain.Trade;
+
+/**
+ * A feed of trades that is pulled into the service directly rather than posted over HTTP.
+ * Every {@code TradeSource} bean is started once the application is ready and stopped on
+ * shutdown. Batches handed to the sink go through the normal ingest path (validation,
+ * journal, window queue); a sink call that returns has accepted the whole batch and keeps no
+ * reference to the list, so a source may reuse it for the next batch.
+ */
+public interface TradeSource {
+  String getName();
+  void start(Consumer<List<Trade>> sink);
+  void stop();
+}
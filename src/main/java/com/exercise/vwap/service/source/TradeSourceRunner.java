@@ -0,0 +1,60 @@
+package com.exercise.vwap.service.source;
+
+import com.exercise.vwap.domain.Trade;
+import com.exercise.vwap.service.VwapCalculatorService;
+import com.exercise.vwap.service.metrics.AllocationTracker;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Starts all {@link TradeSource} beans once startup (including journal replay) has finished,
+ * feeding them into {@link VwapCalculatorService#processTrades}. Each delivered batch is
+ * charged to the source in the {@link AllocationTracker}.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TradeSourceRunner {
+    private final ObjectProvider<TradeSource> tradeSources;
+    private final VwapCalculatorService calculatorService;
+    private final AllocationTracker allocationTracker;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startSources() {
+        tradeSources.orderedStream().forEach(source -> {
+            log.info("Starting trade source {}", source.getName());
+            source.start(trackedSink("source " + source.getName()));
+        });
+    }
+
+    private Consumer<List<Trade>> trackedSink(String endpoint) {
+        return trades -> {
+            allocationTracker.begin();
+            try {
+                calculatorService.processTrades(trades);
+                allocationTracker.countItems(trades.size());
+            } finally {
+                allocationTracker.end(endpoint);
+            }
+        };
+    }
+
+    @PreDestroy
+    public void stopSources() {
+        tradeSources.orderedStream().forEach(source -> {
+            try {
+                source.stop();
+            } catch (Exception e) {
+                log.error("Error stopping trade source {}", source.getName(), e);
+            }
+        });
+    }
+}
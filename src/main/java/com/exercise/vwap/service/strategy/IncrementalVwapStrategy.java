@@ -0,0 +1,48 @@
+package com.exercise.vwap.service.strategy;
+
+import com.exercise.vwap.domain.StrategySlotLayout;
+import com.exercise.vwap.domain.TradeWindow;
+
+/**
+ * A strategy that has to see every trade instead of only the window's final sums, such as a
+ * time-decayed or volume-capped VWAP.
+ * <p>
+ * Each window reserves {@link #slotCount()} doubles for the strategy in one array shared by all
+ * incremental strategies, and the strategy only touches {@code slots[offset]} up to
+ * {@code slots[offset + slotCount() - 1]}. Slots start at zero. The window serializes all calls
+ * for its slots, so implementations hold no per-window state of their own.
+ */
+public interface IncrementalVwapStrategy extends VwapStrategy, StrategySlotLayout.SlotReader {
+  int slotCount();
+
+  /**
+   * Folds one trade into the slots in O(1) and without allocating. {@code time} is nanoseconds
+   * from the start of the hour; trades can arrive out of time order.
+   */
+  void onTrade(double[] slots, int offset, long time, double price, double volume);
+
+  /**
+   * Takes back a trade previously passed to {@link #onTrade}, for cancels and amendments. The
+   * default folds in the same trade with negated volume, which is exact for strategies linear in
+   * volume; strategies that transform the volume must override it.
+   */
+  default void onCancel(double[] slots, int offset, long time, double price, double volume) {
+    onTrade(slots, offset, time, price, -volume);
+  }
+
+  /**
+   * Folds another partial of the same window into {@code target}.
+   */
+  void merge(double[] target, double[] source, int offset);
+
+  @Override
+  double calculateVwap(double[] slots, int offset);
+
+  /**
+   * Reads the window's slots for this strategy, or NaN if the window did not track them.
+   */
+  @Override
+  default double calculateVwap(TradeWindow window) {
+    return window.getStrategyVwap(this);
+  }
+}
@@ -4,4 +4,9 @@ import com.exercise.vwap.domain.TradeWindow;
 
 public interface VwapStrategy {
   double calculateVwap(TradeWindow window);
+
+  /**
+   * Name the strategy is selected by on the query endpoints.
+   */
+  String getName();
 }
@@ -0,0 +1,105 @@
+package com.exercise.vwap.service.strategy;
+
+import com.exercise.vwap.domain.StrategySlotLayout;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Looks strategies up by name and lays out the per-window slots of the incremental ones.
+ * <p>
+ * Every incremental strategy gets a fixed range of one {@code double[]} per window, so a trade
+ * updates all of them in one pass over that array under one lock, and merging two partial
+ * windows is one pass as well.
+ */
+@Component
+@Slf4j
+public class VwapStrategyRegistry implements StrategySlotLayout {
+    private final Map<String, VwapStrategy> byName = new LinkedHashMap<>();
+    private final IncrementalVwapStrategy[] incremental;
+    private final int[] offsets;
+    private final int slotCount;
+
+    public VwapStrategyRegistry(List<VwapStrategy> strategies) {
+        this(strategies, true);
+    }
+
+    @Autowired
+    public VwapStrategyRegistry(List<VwapStrategy> strategies,
+                                @Value("${vwap.strategy.incremental.enabled:true}") boolean incrementalEnabled) {
+        List<IncrementalVwapStrategy> tracked = new ArrayList<>();
+        for (VwapStrategy strategy : strategies) {
+            if (byName.putIfAbsent(strategy.getName(), strategy) != null) {
+                throw new IllegalStateException("Duplicate VWAP strategy name: " + strategy.getName());
+            }
+            if (incrementalEnabled && strategy instanceof IncrementalVwapStrategy incrementalStrategy) {
+                tracked.add(incrementalStrategy);
+            }
+        }
+        this.incremental = tracked.toArray(new IncrementalVwapStrategy[0]);
+        this.offsets = new int[incremental.length];
+        int slots = 0;
+        for (int i = 0; i < incremental.length; i++) {
+            offsets[i] = slots;
+            slots += incremental[i].slotCount();
+        }
+        this.slotCount = slots;
+        log.info("VWAP strategies: {}, updated per trade: {}", byName.keySet(),
+                tracked.stream().map(VwapStrategy::getName).toList());
+    }
+
+    public VwapStrategy get(String name) {
+        VwapStrategy strategy = byName.get(name);
+        if (strategy == null) {
+            throw new IllegalArgumentException(
+                    "Unknown VWAP strategy: " + name + ", expected one of " + byName.keySet());
+        }
+        return strategy;
+    }
+
+    public List<String> getNames() {
+        return List.copyOf(byName.keySet());
+    }
+
+    @Override
+    public double[] newSlots() {
+        return slotCount == 0 ? null : new double[slotCount];
+    }
+
+    @Override
+    public void onTrade(double[] slots, long time, double price, double volume) {
+        for (int i = 0; i < incremental.length; i++) {
+            incremental[i].onTrade(slots, offsets[i], time, price, volume);
+        }
+    }
+
+    @Override
+    public void onCancel(double[] slots, long time, double price, double volume) {
+        for (int i = 0; i < incremental.length; i++) {
+            incremental[i].onCancel(slots, offsets[i], time, price, volume);
+        }
+    }
+
+    @Override
+    public void merge(double[] target, double[] source) {
+        for (int i = 0; i < incremental.length; i++) {
+            incremental[i].merge(target, source, offsets[i]);
+        }
+    }
+
+    @Override
+    public int offsetOf(SlotReader strategy) {
+        for (int i = 0; i < incremental.length; i++) {
+            if (incremental[i] == strategy) {
+                return offsets[i];
+            }
+        }
+        return -1;
+    }
+}
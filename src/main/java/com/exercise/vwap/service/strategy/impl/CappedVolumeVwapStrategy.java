@@ -0,0 +1,63 @@
+package com.exercise.vwap.service.strategy.impl;
+
+import com.exercise.vwap.service.strategy.IncrementalVwapStrategy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * VWAP with each trade's volume capped, so that a few block trades cannot dominate the average.
+ */
+@Component
+public class CappedVolumeVwapStrategy implements IncrementalVwapStrategy {
+    public static final String NAME = "capped";
+
+    private static final int PRICE_VOLUME = 0;
+    private static final int VOLUME = 1;
+
+    private final double maxVolume;
+
+    @Autowired
+    public CappedVolumeVwapStrategy(@Value("${vwap.strategy.capped.max-volume:1000000}") double maxVolume) {
+        if (!(maxVolume > 0)) {
+            throw new IllegalArgumentException("Volume cap must be positive, got: " + maxVolume);
+        }
+        this.maxVolume = maxVolume;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public int slotCount() {
+        return 2;
+    }
+
+    @Override
+    public void onTrade(double[] slots, int offset, long time, double price, double volume) {
+        double capped = Math.min(volume, maxVolume);
+        slots[offset + PRICE_VOLUME] += price * capped;
+        slots[offset + VOLUME] += capped;
+    }
+
+    @Override
+    public void onCancel(double[] slots, int offset, long time, double price, double volume) {
+        double capped = Math.min(volume, maxVolume);
+        slots[offset + PRICE_VOLUME] -= price * capped;
+        slots[offset + VOLUME] -= capped;
+    }
+
+    @Override
+    public void merge(double[] target, double[] source, int offset) {
+        target[offset + PRICE_VOLUME] += source[offset + PRICE_VOLUME];
+        target[offset + VOLUME] += source[offset + VOLUME];
+    }
+
+    @Override
+    public double calculateVwap(double[] slots, int offset) {
+        double volume = slots[offset + VOLUME];
+        return volume == 0 ? 0.0 : slots[offset + PRICE_VOLUME] / volume;
+    }
+}
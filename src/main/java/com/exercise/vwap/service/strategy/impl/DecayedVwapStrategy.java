@@ -0,0 +1,75 @@
+package com.exercise.vwap.service.strategy.impl;
+
+import com.exercise.vwap.service.strategy.IncrementalVwapStrategy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exponentially time-decayed VWAP: a trade's weight halves every half-life, measured back from
+ * the latest trade in the window. Keeps the decayed sums and the time they are decayed to; both
+ * sums decay by the same factor, so their ratio is the same at any later time.
+ */
+@Component
+public class DecayedVwapStrategy implements IncrementalVwapStrategy {
+    public static final String NAME = "decayed";
+
+    private static final int PRICE_VOLUME = 0;
+    private static final int VOLUME = 1;
+    private static final int TIME = 2;
+
+    private final double decayPerNano;
+
+    @Autowired
+    public DecayedVwapStrategy(@Value("${vwap.strategy.decayed.half-life-seconds:300}") double halfLifeSeconds) {
+        if (!(halfLifeSeconds > 0)) {
+            throw new IllegalArgumentException("Decay half-life must be positive, got: " + halfLifeSeconds);
+        }
+        this.decayPerNano = Math.log(2) / (halfLifeSeconds * 1e9);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public int slotCount() {
+        return 3;
+    }
+
+    @Override
+    public void onTrade(double[] slots, int offset, long time, double price, double volume) {
+        double last = slots[offset + TIME];
+        double weight = 1.0;
+        if (time > last) {
+            double decay = Math.exp(-(time - last) * decayPerNano);
+            slots[offset + PRICE_VOLUME] *= decay;
+            slots[offset + VOLUME] *= decay;
+            slots[offset + TIME] = time;
+        } else {
+            weight = Math.exp(-(last - time) * decayPerNano);
+        }
+        slots[offset + PRICE_VOLUME] += weight * price * volume;
+        slots[offset + VOLUME] += weight * volume;
+    }
+
+    @Override
+    public void merge(double[] target, double[] source, int offset) {
+        double targetTime = target[offset + TIME];
+        double sourceTime = source[offset + TIME];
+        double time = Math.max(targetTime, sourceTime);
+        double targetDecay = Math.exp(-(time - targetTime) * decayPerNano);
+        double sourceDecay = Math.exp(-(time - sourceTime) * decayPerNano);
+        target[offset + PRICE_VOLUME] = target[offset + PRICE_VOLUME] * targetDecay
+                + source[offset + PRICE_VOLUME] * sourceDecay;
+        target[offset + VOLUME] = target[offset + VOLUME] * targetDecay + source[offset + VOLUME] * sourceDecay;
+        target[offset + TIME] = time;
+    }
+
+    @Override
+    public double calculateVwap(double[] slots, int offset) {
+        double volume = slots[offset + VOLUME];
+        return volume == 0 ? 0.0 : slots[offset + PRICE_VOLUME] / volume;
+    }
+}
@@ -2,13 +2,22 @@ package com.exercise.vwap.service.strategy.impl;
 
 import com.exercise.vwap.domain.TradeWindow;
 import com.exercise.vwap.service.strategy.VwapStrategy;
+import org.springframework.context.annotation.Primary;
 import org.springframework.stereotype.Component;
 
 @Component
+@Primary
 public class SimpleVwapStrategy implements VwapStrategy {
+    public static final String NAME = "simple";
+
     @Override
     public double calculateVwap(TradeWindow window) {
         return window.getSumVolume().doubleValue() == 0.0 ? 0 :
                 window.getSumPriceVolume().doubleValue() / window.getSumVolume().doubleValue();
     }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
 }
@@ -0,0 +1,367 @@
+package com.exercise.vwap.service.tier;
+
+import com.exercise.vwap.domain.PriceBar;
+import com.exercise.vwap.domain.TierStats;
+import com.exercise.vwap.domain.TradeWindow;
+import com.exercise.vwap.domain.WindowSnapshot;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Off-heap tier for the windows of pairs that have been pushed out of the heap budget. Each
+ * window is one fixed-size record in a memory-mapped file:
+ * <pre>
+ *   offset  size
+ *   0       8       window start (epoch seconds)
+ *   8       24      sum(price * volume), sum(volume), sum(price^2 * volume)
+ *   32      4       trade count
+ *   36      4       flags: bit 0 sealed
+ *   40      8       version
+ *   48      48      bar open time, open, high, low, close time, close (open is NaN without a bar)
+ * </pre>
+ * The file grows one mapped segment at a time up to {@code maxBytes}, and records freed by
+ * paging a pair back in are reused. The only heap cost of a cold pair is its entry in the
+ * record index. Windows come back as from a checkpoint: sums, second moment, bar, seal and
+ * version survive, the price sketch and incremental strategy state do not.
+ * <p>
+ * The file is scratch space: it is truncated on start-up, and durable copies of cold windows
+ * are the checkpoints, which include them.
+ */
+@Component
+@ConditionalOnProperty(name = "vwap.tier.enabled", havingValue = "true")
+@Slf4j
+public class ColdPairStore implements Closeable {
+    static final String FILE_NAME = "cold-pairs.bin";
+    static final int RECORD_SIZE = 96;
+    private static final int SEALED = 1;
+    private static final long SECONDS_PER_HOUR = 3600;
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final int recordsPerSegment;
+    private final long maxRecords;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+
+    // Everything below is guarded by this
+    private final Map<String, int[]> pairs = new HashMap<>();
+    private int[] free = new int[64];
+    private int freeCount;
+    private int nextRecord;
+    private int windowCount;
+    private long spilledPairs;
+    private long pagedInPairs;
+
+    @Autowired
+    public ColdPairStore(@Value("${vwap.tier.dir:./data/tier}") String directory,
+                         @Value("${vwap.tier.segment-bytes:16777216}") int segmentBytes,
+                         @Value("${vwap.tier.max-bytes:1073741824}") long maxBytes) {
+        this(Path.of(directory), segmentBytes, maxBytes);
+    }
+
+    public ColdPairStore(Path directory, int segmentBytes, long maxBytes) {
+        if (segmentBytes < RECORD_SIZE || maxBytes < segmentBytes) {
+            throw new IllegalArgumentException("Tier segments must hold a window and fit in the tier, got "
+                    + segmentBytes + " of " + maxBytes + " bytes");
+        }
+        this.path = directory.resolve(FILE_NAME);
+        this.recordsPerSegment = segmentBytes / RECORD_SIZE;
+        this.maxRecords = maxBytes / segmentBytes * recordsPerSegment;
+        try {
+            Files.createDirectories(directory);
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open window tier " + path, e);
+        }
+        log.info("Cold pair tier at {}, up to {} windows", path, maxRecords);
+    }
+
+    /**
+     * Writes a pair's windows to the tier, replacing any it already has there. Returns false,
+     * leaving the tier as it was, when there is no room for them.
+     */
+    public synchronized boolean spill(String currencyPair, Collection<TradeWindow> windows) {
+        int[] previous = pairs.get(currencyPair);
+        long room = freeCount + maxRecords - nextRecord + (previous == null ? 0 : previous.length);
+        if (windows.size() > room) {
+            log.warn("Cold pair tier full, cannot spill {} windows of {}", windows.size(), currencyPair);
+            return false;
+        }
+        if (previous != null) {
+            release(pairs.remove(currencyPair));
+        }
+        int[] records = new int[windows.size()];
+        int i = 0;
+        for (TradeWindow window : windows) {
+            records[i] = allocate();
+            write(records[i++], window);
+        }
+        pairs.put(currencyPair, records);
+        windowCount += records.length;
+        spilledPairs++;
+        return true;
+    }
+
+    public synchronized boolean contains(String currencyPair) {
+        return pairs.containsKey(currencyPair);
+    }
+
+    /**
+     * Reads a cold pair's windows back without removing them, or returns null if the pair is
+     * not in the tier. Follow with {@link #remove} once the windows are live again.
+     */
+    public synchronized List<TradeWindow> load(String currencyPair) {
+        int[] records = pairs.get(currencyPair);
+        if (records == null) {
+            return null;
+        }
+        List<TradeWindow> windows = new ArrayList<>(records.length);
+        for (int record : records) {
+            windows.add(read(record));
+        }
+        return windows;
+    }
+
+    public synchronized void remove(String currencyPair) {
+        int[] records = pairs.remove(currencyPair);
+        if (records != null) {
+            release(records);
+            pagedInPairs++;
+        }
+    }
+
+    /**
+     * A detached copy of one cold window, or null if the tier does not hold it.
+     */
+    public synchronized TradeWindow read(String currencyPair, LocalDateTime windowStart) {
+        int record = find(currencyPair, windowStart);
+        return record < 0 ? null : read(record);
+    }
+
+    /**
+     * Passes a detached copy of every cold window starting at {@code windowStart} to {@code action}.
+     */
+    public synchronized void forEachWindow(LocalDateTime windowStart, BiConsumer<String, TradeWindow> action) {
+        long start = windowStart.toEpochSecond(ZoneOffset.UTC);
+        pairs.forEach((pair, records) -> {
+            for (int record : records) {
+                if (segment(record).getLong(offset(record)) == start) {
+                    action.accept(pair, read(record));
+                }
+            }
+        });
+    }
+
+    /**
+     * Seals the pair's cold windows that end at or before {@code watermark} (epoch nanoseconds).
+     */
+    public synchronized void seal(String currencyPair, long watermark) {
+        int[] records = pairs.get(currencyPair);
+        if (records == null) {
+            return;
+        }
+        for (int record : records) {
+            MappedByteBuffer segment = segment(record);
+            int offset = offset(record);
+            if (segment.getLong(offset) + SECONDS_PER_HOUR <= Math.floorDiv(watermark, NANOS_PER_SECOND)) {
+                segment.putInt(offset + 36, segment.getInt(offset + 36) | SEALED);
+            }
+        }
+    }
+
+    /**
+     * Frees the cold windows whose start matches {@code expired} and returns the pairs left
+     * with no windows, which are dropped from the tier.
+     */
+    public synchronized List<String> removeExpired(Predicate<LocalDateTime> expired) {
+        List<String> emptied = new ArrayList<>();
+        Iterator<Map.Entry<String, int[]>> entries = pairs.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<String, int[]> entry = entries.next();
+            int[] records = entry.getValue();
+            int kept = 0;
+            for (int record : records) {
+                if (expired.test(windowStart(record))) {
+                    free(record);
+                    windowCount--;
+                } else {
+                    records[kept++] = record;
+                }
+            }
+            if (kept == 0) {
+                entries.remove();
+                emptied.add(entry.getKey());
+            } else if (kept < records.length) {
+                entry.setValue(Arrays.copyOf(records, kept));
+            }
+        }
+        return emptied;
+    }
+
+    /**
+     * Copies of every cold window with trades, for state exports.
+     */
+    public synchronized List<WindowSnapshot> snapshots() {
+        List<WindowSnapshot> snapshots = new ArrayList<>(windowCount);
+        pairs.forEach((pair, records) -> {
+            for (int record : records) {
+                TradeWindow window = read(record);
+                if (window.getTradeCount().get() > 0) {
+                    snapshots.add(WindowSnapshot.of(pair, window));
+                }
+            }
+        });
+        return snapshots;
+    }
+
+    public synchronized void clear() {
+        pairs.clear();
+        freeCount = 0;
+        nextRecord = 0;
+        windowCount = 0;
+    }
+
+    public synchronized int getPairCount() {
+        return pairs.size();
+    }
+
+    public synchronized TierStats getStats() {
+        return new TierStats(pairs.size(), windowCount, sizeInBytes(), spilledPairs, pagedInPairs);
+    }
+
+    /**
+     * Bytes of file mapped so far.
+     */
+    public synchronized long sizeInBytes() {
+        return (long) segments.size() * recordsPerSegment * RECORD_SIZE;
+    }
+
+    @Override
+    @PreDestroy
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Failed to close window tier {}", path, e);
+        }
+    }
+
+    private int find(String currencyPair, LocalDateTime windowStart) {
+        int[] records = pairs.get(currencyPair);
+        if (records != null) {
+            long start = windowStart.toEpochSecond(ZoneOffset.UTC);
+            for (int record : records) {
+                if (segment(record).getLong(offset(record)) == start) {
+                    return record;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private void write(int record, TradeWindow window) {
+        MappedByteBuffer segment = segment(record);
+        int offset = offset(record);
+        PriceBar bar = window.getBar();
+        segment.putLong(offset, window.getWindowStart().toEpochSecond(ZoneOffset.UTC));
+        segment.putDouble(offset + 8, window.getSumPriceVolume().get());
+        segment.putDouble(offset + 16, window.getSumVolume().get());
+        segment.putDouble(offset + 24, window.getSumPriceSquaredVolume().get());
+        segment.putInt(offset + 32, window.getTradeCount().get());
+        segment.putInt(offset + 36, window.isSealed() ? SEALED : 0);
+        segment.putLong(offset + 40, window.getVersion());
+        segment.putLong(offset + 48, bar != null ? bar.getOpenTime() : 0);
+        segment.putDouble(offset + 56, bar != null ? bar.getOpen() : Double.NaN);
+        segment.putDouble(offset + 64, bar != null ? bar.getHigh() : Double.NaN);
+        segment.putDouble(offset + 72, bar != null ? bar.getLow() : Double.NaN);
+        segment.putLong(offset + 80, bar != null ? bar.getCloseTime() : 0);
+        segment.putDouble(offset + 88, bar != null ? bar.getClose() : Double.NaN);
+    }
+
+    private TradeWindow read(int record) {
+        MappedByteBuffer segment = segment(record);
+        int offset = offset(record);
+        PriceBar bar = null;
+        if (!Double.isNaN(segment.getDouble(offset + 56))) {
+            bar = new PriceBar(segment.getLong(offset + 48), segment.getDouble(offset + 56),
+                    segment.getDouble(offset + 64), segment.getDouble(offset + 72),
+                    segment.getLong(offset + 80), segment.getDouble(offset + 88));
+        }
+        TradeWindow window = TradeWindow.fromTotals(windowStart(record), segment.getDouble(offset + 8),
+                segment.getDouble(offset + 16), segment.getDouble(offset + 24), segment.getInt(offset + 32), bar);
+        window.restoreVersion((segment.getInt(offset + 36) & SEALED) != 0, segment.getLong(offset + 40));
+        // Records keep pair totals only
+        window.markVenuesUnknown();
+        return window;
+    }
+
+    private LocalDateTime windowStart(int record) {
+        return LocalDateTime.ofEpochSecond(segment(record).getLong(offset(record)), 0, ZoneOffset.UTC);
+    }
+
+    private int allocate() {
+        if (freeCount > 0) {
+            return free[--freeCount];
+        }
+        if (nextRecord == segments.size() * recordsPerSegment) {
+            mapSegment();
+        }
+        return nextRecord++;
+    }
+
+    private void release(int[] records) {
+        for (int record : records) {
+            free(record);
+        }
+        windowCount -= records.length;
+    }
+
+    private void free(int record) {
+        if (freeCount == free.length) {
+            free = Arrays.copyOf(free, free.length * 2);
+        }
+        free[freeCount++] = record;
+    }
+
+    private void mapSegment() {
+        long segmentBytes = (long) recordsPerSegment * RECORD_SIZE;
+        try {
+            segments.add(channel.map(FileChannel.MapMode.READ_WRITE, segments.size() * segmentBytes, segmentBytes));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to grow window tier " + path, e);
+        }
+    }
+
+    private MappedByteBuffer segment(int record) {
+        return segments.get(record / recordsPerSegment);
+    }
+
+    private int offset(int record) {
+        return record % recordsPerSegment * RECORD_SIZE;
+    }
+}
@@ -0,0 +1,75 @@
+package com.exercise.vwap.utils;
+
+/**
+ * Columnar aggregation kernel for bulk paths: sums of {@code price * volume}, {@code volume}
+ * and {@code price * price * volume} over primitive arrays.
+ * <p>
+ * Uses the incubating Vector API when the JVM was started with
+ * {@code --add-modules jdk.incubator.vector}, and an unrolled scalar loop otherwise. The
+ * vector class is only loaded when the module is present, so the scalar path works on any
+ * JVM. Both reorder the additions, so results can differ from a sequential sum in the
+ * last bits.
+ */
+public final class BatchSums {
+    private static final boolean VECTORIZED =
+            ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()
+                    && !Boolean.getBoolean("vwap.vector.disabled");
+
+    private BatchSums() {
+    }
+
+    public static boolean isVectorized() {
+        return VECTORIZED;
+    }
+
+    /**
+     * Writes {@code sum(prices[i] * volumes[i])} to {@code out[0]}, {@code sum(volumes[i])} to
+     * {@code out[1]} and {@code sum(prices[i] * prices[i] * volumes[i])} to {@code out[2]} for
+     * {@code from <= i < to}.
+     */
+    public static void sums(double[] prices, double[] volumes, int from, int to, double[] out) {
+        if (VECTORIZED) {
+            VectorBatchSums.sums(prices, volumes, from, to, out);
+        } else {
+            scalarSums(prices, volumes, from, to, out);
+        }
+    }
+
+    /**
+     * Scalar fallback. Four independent accumulators break the floating-point add dependency
+     * chain, which the JIT will not do on its own.
+     */
+    static void scalarSums(double[] prices, double[] volumes, int from, int to, double[] out) {
+        double pv0 = 0, pv1 = 0, pv2 = 0, pv3 = 0;
+        double v0 = 0, v1 = 0, v2 = 0, v3 = 0;
+        double ppv0 = 0, ppv1 = 0, ppv2 = 0, ppv3 = 0;
+        int i = from;
+        for (int upper = to - 3; i < upper; i += 4) {
+            double x0 = prices[i] * volumes[i];
+            double x1 = prices[i + 1] * volumes[i + 1];
+            double x2 = prices[i + 2] * volumes[i + 2];
+            double x3 = prices[i + 3] * volumes[i + 3];
+            pv0 += x0;
+            pv1 += x1;
+            pv2 += x2;
+            pv3 += x3;
+            v0 += volumes[i];
+            v1 += volumes[i + 1];
+            v2 += volumes[i + 2];
+            v3 += volumes[i + 3];
+            ppv0 += prices[i] * x0;
+            ppv1 += prices[i + 1] * x1;
+            ppv2 += prices[i + 2] * x2;
+            ppv3 += prices[i + 3] * x3;
+        }
+        for (; i < to; i++) {
+            double x = prices[i] * volumes[i];
+            pv0 += x;
+            v0 += volumes[i];
+            ppv0 += prices[i] * x;
+        }
+        out[0] = (pv0 + pv1) + (pv2 + pv3);
+        out[1] = (v0 + v1) + (v2 + v3);
+        out[2] = (ppv0 + ppv1) + (ppv2 + ppv3);
+    }
+}
@@ -0,0 +1,114 @@
+package com.exercise.vwap.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import com.exercise.vwap.domain.Trade;
+
+/**
+ * Fixed-layout binary form of a trade, shared by the on-disk and on-wire formats.
+ * <pre>
+ *   offset  size  field
+ *   0       8     currency pair, ASCII "XXX/YYY" padded with one zero byte
+ *   8       8     timestamp, nanoseconds since the epoch (timestamps are treated as UTC)
+ *   16      8     price
+ *   24      8     volume
+ * </pre>
+ * All access is absolute so callers can encode into and decode from shared buffers
+ * without touching their position.
+ */
+public class BinaryTradeCodec {
+
+    public static final int TRADE_SIZE = 32;
+
+    private static final int PAIR_OFFSET = 0;
+    private static final int TIME_OFFSET = 8;
+    private static final int PRICE_OFFSET = 16;
+    private static final int VOLUME_OFFSET = 24;
+    private static final int PAIR_LENGTH = 7;
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    public static void encode(ByteBuffer buffer, int offset, Trade trade) {
+        buffer.putLong(offset + PAIR_OFFSET, encodePair(trade.getCurrencyPair()));
+        buffer.putLong(offset + TIME_OFFSET, toEpochNanos(trade.getTimestamp()));
+        buffer.putDouble(offset + PRICE_OFFSET, trade.getPrice());
+        buffer.putDouble(offset + VOLUME_OFFSET, trade.getVolume());
+    }
+
+    public static Trade decode(ByteBuffer buffer, int offset) {
+        return new Trade(
+                fromEpochNanos(buffer.getLong(offset + TIME_OFFSET)),
+                decodePair(buffer.getLong(offset + PAIR_OFFSET)),
+                buffer.getDouble(offset + PRICE_OFFSET),
+                buffer.getDouble(offset + VOLUME_OFFSET));
+    }
+
+    /**
+     * Decodes a trade, resolving the pair through {@code pairs} so repeated pairs do not
+     * allocate a new string per trade.
+     */
+    public static Trade decode(ByteBuffer buffer, int offset, PairCache pairs) {
+        return new Trade(
+                fromEpochNanos(buffer.getLong(offset + TIME_OFFSET)),
+                pairs.decode(buffer.getLong(offset + PAIR_OFFSET)),
+                buffer.getDouble(offset + PRICE_OFFSET),
+                buffer.getDouble(offset + VOLUME_OFFSET));
+    }
+
+    /**
+     * Packs a seven character pair into the low bytes of a long, first character lowest.
+     */
+    public static long encodePair(String currencyPair) {
+        if (currencyPair.length() != PAIR_LENGTH) {
+            throw new IllegalArgumentException("Invalid currency pair format. Expected format: XXX/YYY, got: "
+                    + currencyPair);
+        }
+        long packed = 0;
+        for (int i = PAIR_LENGTH - 1; i >= 0; i--) {
+            packed = (packed << 8) | (currencyPair.charAt(i) & 0xFF);
+        }
+        return packed;
+    }
+
+    public static String decodePair(long packed) {
+        byte[] bytes = new byte[PAIR_LENGTH];
+        for (int i = 0; i < PAIR_LENGTH; i++) {
+            bytes[i] = (byte) (packed >>> (i * 8));
+        }
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    public static long toEpochNanos(LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZoneOffset.UTC) * NANOS_PER_SECOND + timestamp.getNano();
+    }
+
+    public static LocalDateTime fromEpochNanos(long epochNanos) {
+        return LocalDateTime.ofEpochSecond(
+                Math.floorDiv(epochNanos, NANOS_PER_SECOND),
+                (int) Math.floorMod(epochNanos, NANOS_PER_SECOND),
+                ZoneOffset.UTC);
+    }
+
+    /**
+     * Small direct-mapped cache of decoded pair strings. Not thread-safe; use one per decoder.
+     */
+    public static class PairCache {
+        private static final int SLOTS = 64;
+        private final long[] keys = new long[SLOTS];
+        private final String[] values = new String[SLOTS];
+
+        public String decode(long packed) {
+            int slot = (int) ((packed * 0x9E3779B97F4A7C15L) >>> 58); // top 6 bits, SLOTS = 64
+            String cached = values[slot];
+            if (cached != null && keys[slot] == packed) {
+                return cached;
+            }
+            String pair = decodePair(packed);
+            keys[slot] = packed;
+            values[slot] = pair;
+            return pair;
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package com.exercise.vwap.utils;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
 
 public class TimeParser {
 
@@ -9,55 +12,106 @@ public class TimeParser {
     private static final int MIN_MINUTE = 0;
     private static final int MAX_MINUTE = 59;
 
+    // Today's date, recomputed once the clock passes the next local midnight
+    private static volatile CachedDate today = CachedDate.now();
+
+    /**
+     * Parses "h:mm AM" style times (parts separated by runs of whitespace or colons) into
+     * today's date. Scans the string in place, so a valid time allocates only the result.
+     */
     public static LocalDateTime parse(String timeStamp) {
         if (timeStamp == null || timeStamp.trim().isEmpty()) {
             throw new IllegalArgumentException("Time stamp cannot be null or empty");
         }
 
-        String[] parts = timeStamp.split("[\\s:]+");
-        if (parts.length != 3) {
+        int length = timeStamp.length();
+        if (isSeparator(timeStamp.charAt(0))) {
+            throw new IllegalArgumentException("Invalid time format: " + timeStamp);
+        }
+        int hourEnd = tokenEnd(timeStamp, 0);
+        int minuteStart = tokenStart(timeStamp, hourEnd);
+        int minuteEnd = tokenEnd(timeStamp, minuteStart);
+        int periodStart = tokenStart(timeStamp, minuteEnd);
+        int periodEnd = tokenEnd(timeStamp, periodStart);
+        if (minuteStart == length || periodStart == length || tokenStart(timeStamp, periodEnd) != length) {
             throw new IllegalArgumentException("Invalid time format: " + timeStamp);
         }
 
         try {
-            int hour = Integer.parseInt(parts[0]);
-            int minute = Integer.parseInt(parts[1]);
-            String period = parts[2].toUpperCase();
+            int hour = Integer.parseInt(timeStamp, 0, hourEnd, 10);
+            int minute = Integer.parseInt(timeStamp, minuteStart, minuteEnd, 10);
+            boolean pm = isPeriod(timeStamp, periodStart, periodEnd, "PM");
 
-            validateTimeComponents(hour, minute, period, timeStamp);
+            validateTimeComponents(hour, minute, timeStamp, pm || isPeriod(timeStamp, periodStart, periodEnd, "AM"));
 
-            return createDateTime(hour, minute, period);
+            return createDateTime(hour, minute, pm);
         } catch (NumberFormatException e) {
             throw new IllegalArgumentException("Invalid time format: " + timeStamp);
         }
     }
 
-    private static void validateTimeComponents(int hour, int minute, String period, String timeStamp) {
+    private static boolean isSeparator(char c) {
+        // The separators of the original "[\\s:]+" split
+        return c == ':' || c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static int tokenEnd(String s, int from) {
+        int i = from;
+        while (i < s.length() && !isSeparator(s.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int tokenStart(String s, int from) {
+        int i = from;
+        while (i < s.length() && isSeparator(s.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isPeriod(String s, int from, int to, String period) {
+        return to - from == period.length() && s.regionMatches(true, from, period, 0, period.length());
+    }
+
+    private static void validateTimeComponents(int hour, int minute, String timeStamp, boolean validPeriod) {
         if (hour < MIN_HOUR || hour > MAX_HOUR) {
             throw new IllegalArgumentException("Hour must be between 1 and 12: " + timeStamp);
         }
         if (minute < MIN_MINUTE || minute > MAX_MINUTE) {
             throw new IllegalArgumentException("Minute must be between 0 and 59: " + timeStamp);
         }
-        if (!period.equals("AM") && !period.equals("PM")) {
+        if (!validPeriod) {
             throw new IllegalArgumentException("Period must be AM or PM: " + timeStamp);
         }
     }
 
-    private static LocalDateTime createDateTime(int hour, int minute, String period) {
+    private static LocalDateTime createDateTime(int hour, int minute, boolean pm) {
         // Convert to 24-hour format
-        int hour24 = switch (period) {
-            case "AM" -> hour == 12 ? 0 : hour;
-            case "PM" -> hour == 12 ? 12 : hour + 12;
-            default -> throw new IllegalArgumentException("Invalid period: " + period);
-        };
-
-        return LocalDateTime.of(
-                LocalDateTime.now().getYear(),
-                LocalDateTime.now().getMonthValue(),
-                LocalDateTime.now().getDayOfMonth(),
-                hour24,
-                minute
-        );
+        int hour24 = pm ? (hour == 12 ? 12 : hour + 12) : (hour == 12 ? 0 : hour);
+
+        CachedDate date = today;
+        if (System.currentTimeMillis() >= date.validUntilMillis) {
+            date = CachedDate.now();
+            today = date;
+        }
+        return LocalDateTime.of(date.date, LocalTime.of(hour24, minute));
+    }
+
+    private static final class CachedDate {
+        private final LocalDate date;
+        private final long validUntilMillis;
+
+        private CachedDate(LocalDate date, long validUntilMillis) {
+            this.date = date;
+            this.validUntilMillis = validUntilMillis;
+        }
+
+        static CachedDate now() {
+            ZoneId zone = ZoneId.systemDefault();
+            LocalDate date = LocalDate.now(zone);
+            return new CachedDate(date, date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli());
+        }
     }
 }
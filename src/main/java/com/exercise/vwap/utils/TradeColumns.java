@@ -0,0 +1,72 @@
+package com.exercise.vwap.utils;
+
+import com.exercise.vwap.domain.TradeWindow;
+
+/**
+ * Fixed-size columnar buffer of (time, price, volume, venue) tuples bound for one window. Bulk paths
+ * append to it and flush it into the window in one {@link TradeWindow#addTrades} call, so
+ * the window's atomics are touched once per batch instead of once per trade.
+ */
+public class TradeColumns {
+    private final long[] times;
+    private final double[] prices;
+    private final double[] volumes;
+    private final int[] venues;
+    private int size;
+
+    public TradeColumns(int capacity) {
+        this.times = new long[capacity];
+        this.prices = new double[capacity];
+        this.volumes = new double[capacity];
+        this.venues = new int[capacity];
+    }
+
+    /**
+     * Appends a trade, returning true once the buffer is full and must be flushed. The time is
+     * only read by windows that keep a bar; callers that have none can pass 0.
+     */
+    public boolean add(long time, double price, double volume) {
+        return add(time, price, volume, -1);
+    }
+
+    /**
+     * As {@link #add(long, double, double)}, for a trade on an interned venue id; negative for none.
+     */
+    public boolean add(long time, double price, double volume, int venue) {
+        venues[size] = venue;
+        times[size] = time;
+        prices[size] = price;
+        volumes[size] = volume;
+        return ++size == prices.length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void flushInto(TradeWindow window) {
+        if (size > 0) {
+            window.addTrades(times, prices, volumes, venues, 0, size);
+            size = 0;
+        }
+    }
+
+    /**
+     * As {@link #flushInto(TradeWindow)}, writing the notional and volume of the trades the window
+     * took, which stops short of the rest at its trade limit, to {@code taken[0]} and
+     * {@code taken[1]}. Returns how many trades, from the front of the buffer, the window took.
+     */
+    public int flushInto(TradeWindow window, double[] taken) {
+        int accepted = size > 0 ? window.addTrades(times, prices, volumes, venues, 0, size) : 0;
+        double notional = 0;
+        double volume = 0;
+        for (int i = 0; i < accepted; i++) {
+            notional += prices[i] * volumes[i];
+            volume += volumes[i];
+        }
+        taken[0] = notional;
+        taken[1] = volume;
+        size = 0;
+        return accepted;
+    }
+}
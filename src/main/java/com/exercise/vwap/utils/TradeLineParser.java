@@ -0,0 +1,73 @@
+package com.exercise.vwap.utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+
+import com.exercise.vwap.domain.Trade;
+import com.exercise.vwap.domain.TradeInput;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Parses one line of a trade capture file: either CSV ({@code timestamp,currencyPair,price,volume}
+ * with optional {@code ,id} and {@code ,venue} fields, either of which may be left empty) or an
+ * NDJSON object with the fields of {@link TradeInput}.
+ */
+public class TradeLineParser {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * Returns the trade on this line, or null for lines that carry no trade (blank lines,
+     * {@code #} comments and CSV headers).
+     *
+     * @throws IllegalArgumentException if the line is not a valid trade
+     */
+    public static Trade parse(String line) {
+        String trimmed = line.strip();
+        if (trimmed.isEmpty() || trimmed.charAt(0) == '#' || Character.isLetter(trimmed.charAt(0))) {
+            return null;
+        }
+        if (trimmed.charAt(0) == '{') {
+            TradeInput input;
+            try {
+                input = MAPPER.readValue(trimmed, TradeInput.class);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Invalid trade JSON: " + trimmed, e);
+            }
+            return new Trade(parseTimestamp(input.getTimestamp()), input.getCurrencyPair(),
+                    input.getPrice(), input.getVolume(), input.getId(), input.getVenue());
+        }
+
+        String[] fields = trimmed.split(",", -1);
+        if (fields.length < 4 || fields.length > 6) {
+            throw new IllegalArgumentException("Expected 4 to 6 CSV fields: " + trimmed);
+        }
+        return new Trade(parseTimestamp(fields[0]), fields[1].strip(),
+                Double.parseDouble(fields[2].strip()), Double.parseDouble(fields[3].strip()),
+                optionalField(fields, 4), optionalField(fields, 5));
+    }
+
+    private static String optionalField(String[] fields, int index) {
+        if (index >= fields.length) {
+            return null;
+        }
+        String value = fields[index].strip();
+        return value.isEmpty() ? null : value;
+    }
+
+    /**
+     * Accepts ISO-8601 local date-times (with {@code T} or a space as separator) and the
+     * {@code h:mm AM} form understood by {@link TimeParser}.
+     */
+    public static LocalDateTime parseTimestamp(String timestamp) {
+        if (timestamp == null) {
+            throw new IllegalArgumentException("Time stamp cannot be null or empty");
+        }
+        String trimmed = timestamp.strip();
+        if (trimmed.length() > 10 && trimmed.charAt(4) == '-') {
+            return LocalDateTime.parse(trimmed.replace(' ', 'T'));
+        }
+        return TimeParser.parse(trimmed);
+    }
+}
@@ -0,0 +1,43 @@
+package com.exercise.vwap.utils;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API implementation of {@link BatchSums}; only loaded when the incubator module is
+ * present.
+ */
+final class VectorBatchSums {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    private VectorBatchSums() {
+    }
+
+    static void sums(double[] prices, double[] volumes, int from, int to, double[] out) {
+        DoubleVector priceVolume = DoubleVector.zero(SPECIES);
+        DoubleVector volume = DoubleVector.zero(SPECIES);
+        DoubleVector priceSquaredVolume = DoubleVector.zero(SPECIES);
+        int i = from;
+        for (int upper = from + SPECIES.loopBound(to - from); i < upper; i += SPECIES.length()) {
+            DoubleVector p = DoubleVector.fromArray(SPECIES, prices, i);
+            DoubleVector v = DoubleVector.fromArray(SPECIES, volumes, i);
+            DoubleVector pv = p.mul(v);
+            priceVolume = priceVolume.add(pv);
+            volume = volume.add(v);
+            priceSquaredVolume = p.fma(pv, priceSquaredVolume);
+        }
+        double sumPriceVolume = priceVolume.reduceLanes(VectorOperators.ADD);
+        double sumVolume = volume.reduceLanes(VectorOperators.ADD);
+        double sumPriceSquaredVolume = priceSquaredVolume.reduceLanes(VectorOperators.ADD);
+        for (; i < to; i++) {
+            double pv = prices[i] * volumes[i];
+            sumPriceVolume += pv;
+            sumVolume += volumes[i];
+            sumPriceSquaredVolume += prices[i] * pv;
+        }
+        out[0] = sumPriceVolume;
+        out[1] = sumVolume;
+        out[2] = sumPriceSquaredVolume;
+    }
+}
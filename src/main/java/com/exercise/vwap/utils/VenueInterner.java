@@ -0,0 +1,117 @@
+package com.exercise.vwap.utils;
+
+import com.exercise.vwap.domain.Trade;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps venue names to small dense ids, so per-venue state can be kept in arrays and keyed by an
+ * int rather than a string. Ids are handed out in order of first sight and never reused. Once
+ * {@code maxVenues} names have ids, or up front when the allowed venues are listed, the table is
+ * closed: further venues get none and are only counted in their pair's totals. Looking up a known
+ * venue allocates nothing, since ids stay within the boxed-Integer cache, and turning away an
+ * unknown one takes no lock.
+ */
+@Slf4j
+public class VenueInterner {
+    public static final int NO_VENUE = -1;
+    // Integer.valueOf caches -128..127, so lookups never box a new Integer
+    public static final int MAX_VENUES = 128;
+    // Turned-away names remembered so each is logged once; beyond this they are not logged
+    private static final int MAX_LOGGED_REJECTIONS = 1024;
+
+    private final int maxVenues;
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private final Set<String> rejected = ConcurrentHashMap.newKeySet();
+    private volatile String[] names = new String[0];
+    private volatile boolean closed;
+
+    public VenueInterner(int maxVenues) {
+        this(maxVenues, List.of());
+    }
+
+    /**
+     * @param allowedVenues venues given ids up front, in order; when not empty, no other venue
+     *                      gets one
+     */
+    public VenueInterner(int maxVenues, Collection<String> allowedVenues) {
+        if (maxVenues < 0 || maxVenues > MAX_VENUES) {
+            throw new IllegalArgumentException("Venue count must be between 0 and " + MAX_VENUES
+                    + ", got: " + maxVenues);
+        }
+        if (allowedVenues.size() > maxVenues) {
+            throw new IllegalArgumentException("Allowed venues " + allowedVenues + " exceed the venue count "
+                    + maxVenues);
+        }
+        for (String venue : allowedVenues) {
+            if (!Trade.isValidVenue(venue)) {
+                throw new IllegalArgumentException("Invalid allowed venue: " + venue);
+            }
+        }
+        this.maxVenues = maxVenues;
+        allowedVenues.forEach(this::assign);
+        closed = !allowedVenues.isEmpty() || maxVenues == 0;
+    }
+
+    /**
+     * The venue's id, assigning the next one if it has none. Returns {@link #NO_VENUE} for a
+     * null venue or once the table is closed.
+     */
+    public int intern(String venue) {
+        if (venue == null) {
+            return NO_VENUE;
+        }
+        Integer id = ids.get(venue);
+        if (id != null) {
+            return id;
+        }
+        return closed ? reject(venue) : assign(venue);
+    }
+
+    /**
+     * The venue's id, or {@link #NO_VENUE} if it has never been seen.
+     */
+    public int idOf(String venue) {
+        Integer id = venue == null ? null : ids.get(venue);
+        return id == null ? NO_VENUE : id;
+    }
+
+    public String nameOf(int id) {
+        String[] current = names;
+        return id >= 0 && id < current.length ? current[id] : null;
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    private synchronized int assign(String venue) {
+        Integer id = ids.get(venue);
+        if (id != null) {
+            return id;
+        }
+        if (names.length == maxVenues) {
+            closed = true;
+            return reject(venue);
+        }
+        String[] grown = Arrays.copyOf(names, names.length + 1);
+        grown[names.length] = venue;
+        // Name first, so any thread that finds the id can also resolve it
+        names = grown;
+        ids.put(venue, names.length - 1);
+        return names.length - 1;
+    }
+
+    private int reject(String venue) {
+        if (!rejected.contains(venue) && rejected.size() < MAX_LOGGED_REJECTIONS && rejected.add(venue)) {
+            log.warn("Venue table closed at {} venues, not tracking venue {} separately", names.length, venue);
+        }
+        return NO_VENUE;
+    }
+}
@@ -0,0 +1,56 @@
+package com.exercise.vwap.controller.v1;
+
+import com.exercise.vwap.service.WindowManager;
+import com.exercise.vwap.service.impl.VwapCalculatorServiceImpl;
+import com.exercise.vwap.service.lanes.ExecutionLane;
+import com.exercise.vwap.service.lanes.ExecutionLanes;
+import com.exercise.vwap.service.metrics.AllocationTracker;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(value = ClusterController.class, properties = {
+        "vwap.cluster.enabled=true", "vwap.lanes.ingest.max-wait-ms=0"})
+@Import({AllocationTracker.class, ExecutionLanes.class})
+class ClusterControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private VwapCalculatorServiceImpl localCalculator;
+
+    @MockBean
+    private WindowManager windowManager;
+
+    @Autowired
+    private ExecutionLanes executionLanes;
+
+    @Test
+    void testForwardedTradesBypassFullIngestLane() throws Exception {
+        ExecutionLane ingest = executionLanes.getIngest();
+        int held = 0;
+        while (ingest.tryEnter()) {
+            held++;
+        }
+        try {
+            mockMvc.perform(post("/api/v1/vwap/internal/trades")
+                            .contentType("application/json")
+                            .content("[{\"timestamp\":\"2024-01-01T09:30:00\",\"currencyPair\":\"EUR/USD\","
+                                    + "\"price\":1.1,\"volume\":1000}]"))
+                    .andExpect(status().isOk());
+        } finally {
+            for (int i = 0; i < held; i++) {
+                ingest.exit();
+            }
+        }
+        verify(localCalculator).processTrades(anyList());
+    }
+}
@@ -1,21 +1,44 @@
 package com.exercise.vwap.controller.v1;
 
+import com.exercise.vwap.config.BinaryVwapResultConverter;
+import com.exercise.vwap.domain.AllocationStats;
+import com.exercise.vwap.domain.PairActivity;
 import com.exercise.vwap.domain.TradeInput;
+import com.exercise.vwap.domain.VenueVwap;
+import com.exercise.vwap.domain.VolumeProfileResult;
+import com.exercise.vwap.domain.VwapBandsResult;
+import com.exercise.vwap.domain.VwapBarResult;
+import com.exercise.vwap.domain.VwapResult;
 import com.exercise.vwap.service.VwapCalculatorService;
+import com.exercise.vwap.service.cluster.NodeUnavailableException;
+import com.exercise.vwap.service.lanes.ExecutionLane;
+import com.exercise.vwap.service.lanes.ExecutionLanes;
+import com.exercise.vwap.service.metrics.AllocationTracker;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.Arrays;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(VwapController.class)
+@Import({AllocationTracker.class, ExecutionLanes.class})
 class VwapControllerTest {
     @Autowired
     private MockMvc mockMvc;
@@ -26,6 +49,12 @@ class VwapControllerTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private AllocationTracker allocationTracker;
+
+    @Autowired
+    private ExecutionLanes executionLanes;
+
     @Test
     void testProcessTradesArray() throws Exception {
         // Sample trade data as per specification
@@ -62,6 +91,182 @@ class VwapControllerTest {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    void testGetVwapValidatesSealedHours() throws Exception {
+        LocalDateTime hour = LocalDateTime.of(2024, 1, 1, 9, 0);
+        when(vwapCalculator.getVwap(eq("AUD/USD"), any()))
+                .thenReturn(new VwapResult("AUD/USD", hour, 0.6905, true, 3));
+        when(vwapCalculator.getVwap(eq("EUR/USD"), any()))
+                .thenReturn(new VwapResult("EUR/USD", hour, 1.1, false, 0));
+
+        String etag = mockMvc.perform(get("/api/v1/vwap/pair/AUD/USD").param("timestamp", "9:30 AM"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.sealed").value(true))
+                .andExpect(jsonPath("$.version").value(3))
+                .andReturn().getResponse().getHeader("ETag");
+        assertNotNull(etag);
+        mockMvc.perform(get("/api/v1/vwap/pair/AUD/USD").param("timestamp", "9:30 AM")
+                        .header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/api/v1/vwap/pair/EUR/USD").param("timestamp", "9:30 AM"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("ETag"));
+    }
+
+    @Test
+    void testGetBar() throws Exception {
+        when(vwapCalculator.getBar(eq("AUD/USD"), any())).thenReturn(new VwapBarResult(
+                "AUD/USD", LocalDateTime.of(2024, 1, 1, 9, 0), 0.6905,
+                0.69, 0.692, 0.689, 0.691, 12, 1000, 690.5));
+
+        mockMvc.perform(get("/api/v1/vwap/pair/AUD/USD/bar").param("timestamp", "9:30 AM"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.open").value(0.69))
+                .andExpect(jsonPath("$.close").value(0.691))
+                .andExpect(jsonPath("$.tradeCount").value(12));
+    }
+
+    @Test
+    void testGetBarNotTracked() throws Exception {
+        when(vwapCalculator.getBar(eq("AUD/USD"), any())).thenThrow(new IllegalStateException("No bar"));
+
+        mockMvc.perform(get("/api/v1/vwap/pair/AUD/USD/bar"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testGetBands() throws Exception {
+        when(vwapCalculator.getBands(eq("AUD/USD"), any(), eq(3.0))).thenReturn(new VwapBandsResult(
+                "AUD/USD", LocalDateTime.of(2024, 1, 1, 9, 0), 0.6905, 0.001, 3.0, 0.6875, 0.6935));
+
+        mockMvc.perform(get("/api/v1/vwap/pair/AUD/USD/bands").param("k", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lower").value(0.6875))
+                .andExpect(jsonPath("$.upper").value(0.6935));
+    }
+
+    @Test
+    void testGetBandsRejectsInvalidWidth() throws Exception {
+        when(vwapCalculator.getBands(eq("AUD/USD"), any(), eq(-1.0)))
+                .thenThrow(new IllegalArgumentException("Band width must be positive"));
+
+        mockMvc.perform(get("/api/v1/vwap/pair/AUD/USD/bands").param("k", "-1"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testGetBandsUnavailableWhenNodeDoesNotAnswer() throws Exception {
+        when(vwapCalculator.getBands(eq("AUD/USD"), any(), eq(2.0)))
+                .thenThrow(new NodeUnavailableException(List.of("http://localhost:8082"), null));
+
+        mockMvc.perform(get("/api/v1/vwap/pair/AUD/USD/bands"))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    void testGetTopPairs() throws Exception {
+        when(vwapCalculator.getTopPairs(2, "notional")).thenReturn(List.of(
+                PairActivity.of("USD/JPY", LocalDateTime.of(2024, 1, 1, 9, 0), 1000, 150_000),
+                PairActivity.of("EUR/USD", LocalDateTime.of(2024, 1, 1, 9, 0), 3000, 3300)));
+        when(vwapCalculator.getTopPairs(0, "volume")).thenThrow(new IllegalArgumentException("n"));
+
+        mockMvc.perform(get("/api/v1/vwap/top").param("n", "2").param("by", "notional"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].currencyPair").value("USD/JPY"))
+                .andExpect(jsonPath("$[0].vwap").value(150.0))
+                .andExpect(jsonPath("$[1].volume").value(3000.0));
+        mockMvc.perform(get("/api/v1/vwap/top").param("n", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testGetVenueVwap() throws Exception {
+        LocalDateTime hour = LocalDateTime.of(2024, 1, 1, 9, 0);
+        when(vwapCalculator.getVenueVwap(eq("EUR/USD"), any(), eq("EBS")))
+                .thenReturn(new VwapResult("EUR/USD", hour, 1.12));
+        when(vwapCalculator.getVenueBreakdown(eq("EUR/USD"), any())).thenReturn(List.of(
+                new VenueVwap("EBS", 1.12, 5000, 3), new VenueVwap("REUTERS", 1.13, 1000, 1)));
+
+        mockMvc.perform(get("/api/v1/vwap/pair/EUR/USD").param("timestamp", "9:30 AM").param("venue", "EBS"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.vwap").value(1.12));
+        mockMvc.perform(get("/api/v1/vwap/pair").param("currencyPair", "EUR/USD").param("venue", "EBS")
+                        .param("strategy", "capped"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v1/vwap/pair/EUR/USD/venues").param("timestamp", "9:30 AM"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[1].venue").value("REUTERS"))
+                .andExpect(jsonPath("$[0].tradeCount").value(3));
+    }
+
+    @Test
+    void testGetVolumeProfile() throws Exception {
+        LocalDate day = LocalDate.of(2024, 1, 2);
+        double[] fractions = new double[24];
+        fractions[9] = 1.0;
+        when(vwapCalculator.getVolumeProfile("EUR/USD", day, 60))
+                .thenReturn(new VolumeProfileResult("EUR/USD", day, 5, 60, fractions, fractions));
+        when(vwapCalculator.getVolumeProfile("GBP/USD", day, 60))
+                .thenThrow(new IllegalStateException("No volume profile"));
+
+        mockMvc.perform(get("/api/v1/vwap/pair/EUR/USD/profile").param("date", "2024-01-02")
+                        .param("bucketMinutes", "60"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.daysObserved").value(5))
+                .andExpect(jsonPath("$.fractions[9]").value(1.0));
+        mockMvc.perform(get("/api/v1/vwap/pair/GBP/USD/profile").param("date", "2024-01-02")
+                        .param("bucketMinutes", "60"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/v1/vwap/pair/EUR/USD/profile").param("date", "2 Jan"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testCancelTrade() throws Exception {
+        when(vwapCalculator.cancelTrade("AUD/USD", "t-1"))
+                .thenReturn(new VwapResult("AUD/USD", LocalDateTime.of(2024, 1, 1, 9, 0), 0.6901));
+        when(vwapCalculator.cancelTrade("AUD/USD", "t-2"))
+                .thenThrow(new IllegalStateException("Trade t-2 is not among the recently applied trades"));
+
+        mockMvc.perform(delete("/api/v1/vwap/pair/AUD/USD/trades/t-1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.vwap").value(0.6901));
+        mockMvc.perform(delete("/api/v1/vwap/pair/AUD/USD/trades/t-2"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testAmendTrade() throws Exception {
+        when(vwapCalculator.amendTrade("AUD/USD", "t-1", 0.6910, 5000))
+                .thenReturn(new VwapResult("AUD/USD", LocalDateTime.of(2024, 1, 1, 9, 0), 0.6907));
+        when(vwapCalculator.amendTrade("AUD/USD", "t-1", 0.6910, -5))
+                .thenThrow(new IllegalArgumentException("Trade volume must be positive"));
+
+        mockMvc.perform(put("/api/v1/vwap/pair/AUD/USD/trades/t-1")
+                        .contentType("application/json")
+                        .content("{\"price\":0.6910,\"volume\":5000}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.vwap").value(0.6907));
+        mockMvc.perform(put("/api/v1/vwap/pair/AUD/USD/trades/t-1")
+                        .contentType("application/json")
+                        .content("{\"price\":0.6910,\"volume\":-5}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testGetVwapWithNamedStrategy() throws Exception {
+        when(vwapCalculator.getVwap(eq("AUD/USD"), any(), eq("decayed")))
+                .thenReturn(new VwapResult("AUD/USD", LocalDateTime.of(2024, 1, 1, 9, 0), 0.6911));
+        when(vwapCalculator.getVwap(eq("AUD/USD"), any(), eq("twap")))
+                .thenThrow(new IllegalArgumentException("Unknown VWAP strategy: twap"));
+
+        mockMvc.perform(get("/api/v1/vwap/pair/AUD/USD").param("strategy", "decayed"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.vwap").value(0.6911));
+        mockMvc.perform(get("/api/v1/vwap/pair/AUD/USD").param("strategy", "twap"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void testInvalidTradeData() throws Exception {
         Object[][] invalidTrades = {
@@ -73,4 +278,101 @@ class VwapControllerTest {
                         .content(objectMapper.writeValueAsString(Arrays.asList(invalidTrades))))
                 .andExpect(status().isOk()); // Should still return OK but log error
     }
-}
\ No newline at end of file
+
+    @Test
+    void testIngestAllocationIsChargedPerTrade() throws Exception {
+        allocationTracker.reset();
+        Object[][] trades = {
+                {"9:30 AM", "AUD/USD", 0.6905, 106198},
+                {"9:31 AM", "USD/JPY", "142.497", "30,995"}
+        };
+
+        mockMvc.perform(post("/api/v1/vwap/trades")
+                        .contentType("application/json")
+                        .content(objectMapper.writeValueAsString(Arrays.asList(trades))))
+                .andExpect(status().isOk());
+
+        AllocationStats stats = allocationTracker.getStats().stream()
+                .filter(s -> s.getEndpoint().equals("POST /api/v1/vwap/trades"))
+                .findFirst().orElseThrow();
+        assertEquals(1, stats.getCalls());
+        assertEquals(2, stats.getItems());
+        assertTrue(stats.getAllocatedBytes() > 0);
+        assertEquals(stats.getAllocatedBytes() / 2.0, stats.getBytesPerItem());
+    }
+
+    @Test
+    void testQueriesAreShedWhenQueryLaneIsFull() throws Exception {
+        ExecutionLane query = executionLanes.getQuery();
+        int held = 0;
+        while (query.tryEnter()) {
+            held++;
+        }
+        try {
+            mockMvc.perform(get("/api/v1/vwap/pair/AUD/USD"))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string("Retry-After", "1"));
+
+            // Ingest has its own lane
+            mockMvc.perform(post("/api/v1/vwap/trades")
+                            .contentType("application/json")
+                            .content("[]"))
+                    .andExpect(status().isOk());
+        } finally {
+            for (int i = 0; i < held; i++) {
+                query.exit();
+            }
+        }
+        assertEquals(0, executionLanes.getIngest().getStatus().getActive());
+    }
+
+    @Test
+    void testGetVwapDefaultsToJson() throws Exception {
+        when(vwapCalculator.getVwap(eq("AUD/USD"), any()))
+                .thenReturn(new VwapResult("AUD/USD", LocalDateTime.of(2024, 1, 1, 9, 0), 0.6905));
+
+        mockMvc.perform(get("/api/v1/vwap/pair/AUD/USD").accept("*/*"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/json"))
+                .andExpect(jsonPath("$.vwap").value(0.6905));
+    }
+
+    @Test
+    void testGetVwapBinary() throws Exception {
+        LocalDateTime windowStart = LocalDateTime.of(2024, 1, 1, 9, 0);
+        when(vwapCalculator.getVwap(eq("AUD/USD"), any()))
+                .thenReturn(new VwapResult("AUD/USD", windowStart, 0.6905));
+
+        byte[] body = mockMvc.perform(get("/api/v1/vwap/pair/AUD/USD")
+                        .accept(BinaryVwapResultConverter.VWAP_BINARY))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(BinaryVwapResultConverter.VWAP_BINARY))
+                .andExpect(header().longValue("Content-Length", BinaryVwapResultConverter.RECORD_SIZE))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        ByteBuffer buffer = ByteBuffer.wrap(body).order(ByteOrder.LITTLE_ENDIAN);
+        byte[] pair = new byte[7];
+        buffer.get(pair).get();
+        assertEquals("AUD/USD", new String(pair));
+        assertEquals(windowStart.toEpochSecond(ZoneOffset.UTC), buffer.getLong());
+        assertEquals(0.6905, buffer.getDouble());
+    }
+
+    @Test
+    void testSnapshotBinary() throws Exception {
+        LocalDateTime windowStart = LocalDateTime.of(2024, 1, 1, 9, 0);
+        when(vwapCalculator.getSnapshot(any())).thenReturn(List.of(
+                new VwapResult("AUD/USD", windowStart, 0.6905),
+                new VwapResult("USD/JPY", windowStart, 142.497)));
+
+        byte[] body = mockMvc.perform(get("/api/v1/vwap/snapshot")
+                        .accept(BinaryVwapResultConverter.VWAP_BINARY))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+
+        ByteBuffer buffer = ByteBuffer.wrap(body).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(4 + 2 * BinaryVwapResultConverter.RECORD_SIZE, body.length);
+        assertEquals(2, buffer.getInt());
+        assertEquals(142.497, buffer.getDouble(4 + BinaryVwapResultConverter.RECORD_SIZE + 16));
+    }
+}
@@ -0,0 +1,106 @@
+package com.exercise.vwap.domain;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("BarAccumulator Tests")
+class BarAccumulatorTest {
+    private static final LocalDateTime HOUR = LocalDateTime.of(2024, 1, 1, 10, 0);
+
+    @Test
+    @DisplayName("Should have no bar before the first trade")
+    void emptyBar() {
+        assertNull(new BarAccumulator().snapshot());
+        assertNull(new TradeWindow(HOUR, 0, true).getBar());
+        assertNull(new TradeWindow(HOUR).getBar());
+    }
+
+    @Test
+    @DisplayName("Should take open and close by trade time, not arrival order")
+    void outOfOrderTrades() {
+        TradeWindow window = new TradeWindow(HOUR, 0, true);
+        window.addTrade(new Trade(HOUR.plusMinutes(30), "EUR/USD", 1.20, 100));
+        window.addTrade(new Trade(HOUR.plusMinutes(5), "EUR/USD", 1.10, 100));
+        window.addTrade(new Trade(HOUR.plusMinutes(50), "EUR/USD", 1.15, 100));
+        window.addTrade(new Trade(HOUR.plusMinutes(10), "EUR/USD", 1.05, 100));
+
+        PriceBar bar = window.getBar();
+        assertEquals(1.10, bar.getOpen());
+        assertEquals(1.20, bar.getHigh());
+        assertEquals(1.05, bar.getLow());
+        assertEquals(1.15, bar.getClose());
+        assertEquals(5 * 60 * 1_000_000_000L, bar.getOpenTime());
+        assertEquals(4, window.getTradeCount().get());
+    }
+
+    @Test
+    @DisplayName("Should give ties to the first trade for the open and the last for the close")
+    void ties() {
+        BarAccumulator accumulator = new BarAccumulator();
+        accumulator.add(0, 1.0);
+        accumulator.add(0, 2.0);
+        accumulator.add(0, 3.0);
+
+        PriceBar bar = accumulator.snapshot();
+        assertEquals(1.0, bar.getOpen());
+        assertEquals(3.0, bar.getClose());
+    }
+
+    @Test
+    @DisplayName("Should build the same bar from a batch as from single trades")
+    void batchMatchesSingleTrades() {
+        long[] times = {30, 10, 20, 10, 40};
+        double[] prices = {1.3, 1.1, 1.5, 1.0, 1.2};
+        double[] volumes = {1, 1, 1, 1, 1};
+        TradeWindow batched = new TradeWindow(HOUR, 0, true);
+        batched.addTrades(times, prices, volumes, 0, times.length);
+        BarAccumulator single = new BarAccumulator();
+        for (int i = 0; i < times.length; i++) {
+            single.add(times[i], prices[i]);
+        }
+
+        assertEquals(single.snapshot(), batched.getBar());
+        assertEquals(new PriceBar(10, 1.1, 1.5, 1.0, 40, 1.2), batched.getBar());
+    }
+
+    @Test
+    @DisplayName("Should merge partial windows in any order into one bar")
+    void mergeIsOrderIndependent() {
+        TradeWindow early = new TradeWindow(HOUR, 0, true);
+        early.addTrade(new Trade(HOUR.plusMinutes(1), "EUR/USD", 1.1, 100));
+        early.addTrade(new Trade(HOUR.plusMinutes(20), "EUR/USD", 1.4, 100));
+        TradeWindow late = new TradeWindow(HOUR, 0, true);
+        late.addTrade(new Trade(HOUR.plusMinutes(40), "EUR/USD", 0.9, 100));
+        late.addTrade(new Trade(HOUR.plusMinutes(59), "EUR/USD", 1.2, 100));
+
+        TradeWindow forward = new TradeWindow(HOUR, 0, true);
+        forward.merge(early);
+        forward.merge(late);
+        TradeWindow backward = new TradeWindow(HOUR, 0, true);
+        backward.merge(late);
+        backward.merge(early);
+
+        assertEquals(forward.getBar(), backward.getBar());
+        assertEquals(1.1, forward.getBar().getOpen());
+        assertEquals(1.4, forward.getBar().getHigh());
+        assertEquals(0.9, forward.getBar().getLow());
+        assertEquals(1.2, forward.getBar().getClose());
+    }
+
+    @Test
+    @DisplayName("Should carry the bar through a window snapshot")
+    void snapshotRoundTrip() {
+        TradeWindow window = new TradeWindow(HOUR, 0, true);
+        window.addTrade(new Trade(HOUR.plusSeconds(90).plusNanos(5), "EUR/USD", 1.1, 100));
+
+        TradeWindow restored = WindowSnapshot.of("EUR/USD", window).toTradeWindow();
+
+        assertEquals(window.getBar(), restored.getBar());
+        assertEquals(90_000_000_005L, restored.getBar().getOpenTime());
+        assertNull(WindowSnapshot.of("EUR/USD", new TradeWindow(HOUR)).toTradeWindow().getBar());
+    }
+}
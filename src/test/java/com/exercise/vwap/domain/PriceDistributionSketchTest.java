@@ -0,0 +1,102 @@
+package com.exercise.vwap.domain;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("PriceDistributionSketch Tests")
+class PriceDistributionSketchTest {
+
+    @Nested
+    @DisplayName("Quantile Accuracy Tests")
+    class QuantileAccuracyTests {
+        @Test
+        @DisplayName("Should return zero for empty sketch")
+        void emptySketch() {
+            PriceDistributionSketch sketch = new PriceDistributionSketch(100);
+            assertEquals(0.0, sketch.quantile(0.5));
+        }
+
+        @Test
+        @DisplayName("Should weight quantiles by volume")
+        void volumeWeightedMedian() {
+            PriceDistributionSketch sketch = new PriceDistributionSketch(100);
+            sketch.add(1.0, 100);
+            sketch.add(2.0, 1);
+            sketch.add(3.0, 1);
+
+            assertEquals(1.0, sketch.quantile(0.5), 0.05);
+        }
+
+        @Test
+        @DisplayName("Should approximate uniform distribution quantiles")
+        void uniformDistribution() {
+            PriceDistributionSketch sketch = new PriceDistributionSketch(100);
+            Random random = new Random(42);
+            for (int i = 0; i < 100_000; i++) {
+                sketch.add(random.nextDouble() * 100, 1.0);
+            }
+
+            assertEquals(50.0, sketch.quantile(0.5), 1.0);
+            assertEquals(5.0, sketch.quantile(0.05), 0.5);
+            assertEquals(95.0, sketch.quantile(0.95), 0.5);
+        }
+
+        @Test
+        @DisplayName("Should reject quantile outside [0, 1]")
+        void rejectInvalidQuantile() {
+            PriceDistributionSketch sketch = new PriceDistributionSketch(100);
+            assertThrows(IllegalArgumentException.class, () -> sketch.quantile(1.5));
+        }
+    }
+
+    @Nested
+    @DisplayName("Memory Bound Tests")
+    class MemoryBoundTests {
+        @Test
+        @DisplayName("Should keep centroid count bounded by compression")
+        void boundedCentroids() {
+            PriceDistributionSketch sketch = new PriceDistributionSketch(50);
+            for (int i = 0; i < 200_000; i++) {
+                sketch.add(i % 997, 1 + (i % 7));
+            }
+            assertTrue(sketch.getCentroidCount() <= 51);
+        }
+    }
+
+    @Nested
+    @DisplayName("Merge Tests")
+    class MergeTests {
+        @Test
+        @DisplayName("Should merge sketches through TradeWindow.merge")
+        void mergeWindows() {
+            LocalDateTime start = LocalDateTime.of(2024, 1, 1, 10, 0);
+            TradeWindow low = new TradeWindow(start, 100);
+            TradeWindow high = new TradeWindow(start, 100);
+            for (int i = 0; i < 1000; i++) {
+                low.addTrade(new Trade(start, "EUR/USD", 1.0 + i * 0.0001, 1000));
+                high.addTrade(new Trade(start, "EUR/USD", 2.0 + i * 0.0001, 1000));
+            }
+
+            low.merge(high);
+
+            assertEquals(2000, low.getTradeCount().get());
+            assertEquals(1.05, low.getPriceQuantile(0.25), 0.01);
+            assertEquals(2.05, low.getPriceQuantile(0.75), 0.01);
+            assertEquals(low.getVwap(), 1.54995, 0.0001);
+        }
+
+        @Test
+        @DisplayName("Should report NaN when window has no sketch")
+        void windowWithoutSketch() {
+            TradeWindow window = new TradeWindow(LocalDateTime.of(2024, 1, 1, 10, 0));
+            assertFalse(window.hasPriceDistribution());
+            assertTrue(Double.isNaN(window.getPriceQuantile(0.5)));
+        }
+    }
+}
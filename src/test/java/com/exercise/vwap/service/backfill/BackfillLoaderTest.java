@@ -0,0 +1,246 @@
+package com.exercise.vwap.service.backfill;
+
+import com.exercise.vwap.domain.BackfillResult;
+import com.exercise.vwap.domain.PriceBar;
+import com.exercise.vwap.domain.Trade;
+import com.exercise.vwap.domain.TradeWindow;
+import com.exercise.vwap.domain.WindowState;
+import com.exercise.vwap.service.checkpoint.CheckpointScheduler;
+import com.exercise.vwap.service.dedup.TradeDeduplicator;
+import com.exercise.vwap.service.impl.MemorySafeHourlyWindowManager;
+import com.exercise.vwap.service.journal.TradeJournal;
+import com.exercise.vwap.service.replication.ReplicationLog;
+import com.exercise.vwap.service.strategy.VwapStrategyRegistry;
+import com.exercise.vwap.service.strategy.impl.CappedVolumeVwapStrategy;
+import com.exercise.vwap.service.strategy.impl.SimpleVwapStrategy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("BackfillLoader Tests")
+class BackfillLoaderTest {
+    private static final LocalDateTime HOUR = LocalDateTime.of(2024, 1, 1, 10, 0);
+
+    @TempDir
+    Path directory;
+
+    private MemorySafeHourlyWindowManager windowManager;
+
+    @BeforeEach
+    void setUp() {
+        windowManager = new MemorySafeHourlyWindowManager();
+    }
+
+    private BackfillLoader loader(long chunkSize) {
+        return new BackfillLoader(windowManager, directory, 4, chunkSize, 0);
+    }
+
+    @Test
+    @DisplayName("Should aggregate CSV and NDJSON lines across many chunks")
+    void aggregatesAcrossChunks() throws IOException {
+        StringBuilder capture = new StringBuilder("timestamp,currencyPair,price,volume\n");
+        double sumPriceVolume = 0;
+        double sumVolume = 0;
+        for (int i = 0; i < 500; i++) {
+            double price = 1.1 + (i % 7) * 0.01;
+            int volume = 100 + i;
+            if (i % 2 == 0) {
+                capture.append("2024-01-01T10:").append(String.format("%02d", i % 60)).append(":00,EUR/USD,")
+                        .append(price).append(',').append(volume).append("\r\n");
+            } else {
+                capture.append("{\"timestamp\":\"2024-01-01 10:15:00\",\"currencyPair\":\"EUR/USD\",\"price\":")
+                        .append(price).append(",\"volume\":").append(volume).append("}\n");
+            }
+            sumPriceVolume += price * volume;
+            sumVolume += volume;
+        }
+        capture.append("2024-01-01T11:05:00,USD/JPY,142.5,10");
+        Files.writeString(directory.resolve("capture.csv"), capture);
+
+        BackfillResult result = loader(256).load("capture.csv");
+
+        assertEquals(501, result.getTrades());
+        assertEquals(0, result.getRejected());
+        assertEquals(2, result.getWindows());
+        TradeWindow window = windowManager.getWindow("EUR/USD", HOUR);
+        assertEquals(500, window.getTradeCount().get());
+        assertEquals(sumPriceVolume / sumVolume, window.getVwap(), 1e-12);
+        assertEquals(142.5, windowManager.getWindow("USD/JPY", HOUR.plusHours(1)).getVwap());
+    }
+
+    @Test
+    @DisplayName("Should merge into windows that already hold live trades")
+    void mergesWithLiveState() throws IOException {
+        windowManager.applyTrade(new Trade(HOUR.plusMinutes(1), "EUR/USD", 1.0, 100));
+        Files.writeString(directory.resolve("capture.csv"), "2024-01-01T10:30:00,EUR/USD,2.0,100\n");
+
+        loader(1024).load("capture.csv");
+
+        TradeWindow window = windowManager.getWindow("EUR/USD", HOUR);
+        assertEquals(2, window.getTradeCount().get());
+        assertEquals(1.5, window.getVwap(), 1e-12);
+    }
+
+    @Test
+    @DisplayName("Should build bars from CSV and NDJSON timestamps when enabled")
+    void buildsBars() throws IOException {
+        windowManager = new MemorySafeHourlyWindowManager(1000, 100, 24, 0, true);
+        Files.writeString(directory.resolve("capture.csv"), String.join("\n",
+                "2024-01-01T10:30:00.25,EUR/USD,1.3,100",
+                "2024-01-01T10:05,EUR/USD,1.2,100",
+                "{\"timestamp\":\"2024-01-01T10:59:59\",\"currencyPair\":\"EUR/USD\",\"price\":1.1,\"volume\":100}",
+                "2024-01-01 10:45:00,EUR/USD,1.0,100",
+                ""));
+
+        new BackfillLoader(windowManager, directory, 1, 1024, 0, true).load("capture.csv");
+
+        PriceBar bar = windowManager.getWindow("EUR/USD", HOUR).getBar();
+        assertEquals(new PriceBar(5 * 60_000_000_000L, 1.2, 1.3, 1.0, 3_599_000_000_000L, 1.1), bar);
+    }
+
+    @Test
+    @DisplayName("Should feed backfilled trades to the incremental strategies")
+    void feedsStrategies() throws IOException {
+        CappedVolumeVwapStrategy capped = new CappedVolumeVwapStrategy(150);
+        VwapStrategyRegistry registry = new VwapStrategyRegistry(List.of(new SimpleVwapStrategy(), capped));
+        windowManager.setStrategyRegistry(registry);
+        MemorySafeHourlyWindowManager expected = new MemorySafeHourlyWindowManager();
+        expected.setStrategyRegistry(registry);
+        Trade live = new Trade(HOUR.plusMinutes(1), "EUR/USD", 1.0, 100);
+        windowManager.applyTrade(live);
+        expected.applyTrade(live);
+        Files.writeString(directory.resolve("capture.csv"), String.join("\n",
+                "2024-01-01T10:30:00,EUR/USD,2.0,1000",
+                "2024-01-01T11:30:00,EUR/USD,1.5,100",
+                ""));
+        expected.applyTrade(new Trade(HOUR.plusMinutes(30), "EUR/USD", 2.0, 1000));
+        expected.applyTrade(new Trade(HOUR.plusMinutes(90), "EUR/USD", 1.5, 100));
+
+        BackfillLoader loader = loader(1024);
+        loader.setStrategyRegistry(registry);
+        loader.load("capture.csv");
+
+        for (LocalDateTime hour : List.of(HOUR, HOUR.plusHours(1))) {
+            double vwap = capped.calculateVwap(windowManager.getWindow("EUR/USD", hour));
+            assertFalse(Double.isNaN(vwap));
+            assertEquals(capped.calculateVwap(expected.getWindow("EUR/USD", hour)), vwap, 1e-12);
+        }
+    }
+
+    @Test
+    @DisplayName("Should skip trades already ingested live or earlier in the capture")
+    void skipsDuplicates() throws IOException {
+        TradeDeduplicator deduplicator = new TradeDeduplicator(true, 24, 10_000, 0.001, true);
+        windowManager.setDeduplicator(deduplicator);
+        windowManager.applyTrade(new Trade(HOUR.plusMinutes(5), "EUR/USD", 1.2, 100));
+        windowManager.applyTrade(new Trade(HOUR.plusMinutes(6), "EUR/USD", 1.4, 100, "t-7"));
+        Files.writeString(directory.resolve("capture.csv"), String.join("\n",
+                "2024-01-01T10:05:00,EUR/USD,1.2,100",
+                "2024-01-01T10:30:00.5,EUR/USD,1.3,100",
+                "2024-01-01T10:30:00.500,EUR/USD,1.3,100",
+                "{\"timestamp\":\"2024-01-01T10:06\",\"currencyPair\":\"EUR/USD\",\"price\":1.4,\"volume\":100,"
+                        + "\"id\":\"t-7\"}",
+                ""));
+        BackfillLoader loader = loader(1024);
+        loader.setDeduplicator(deduplicator);
+
+        BackfillResult result = loader.load("capture.csv");
+
+        assertEquals(1, result.getTrades());
+        assertEquals(3, result.getDuplicates());
+        TradeWindow window = windowManager.getWindow("EUR/USD", HOUR);
+        assertEquals(3, window.getTradeCount().get());
+        assertEquals(1.3, window.getVwap(), 1e-12);
+    }
+
+    @Test
+    @DisplayName("Should count malformed lines as rejected")
+    void rejectsMalformedLines() throws IOException {
+        Files.writeString(directory.resolve("capture.csv"), String.join("\n",
+                "# comment",
+                "2024-01-01T10:00:00,EUR/USD,1.1,100",
+                "2024-01-01T10:00:00,eur/usd,1.1,100",
+                "2024-01-01T10:00:00,EUR/USD,-1.1,100",
+                "2024-01-01T10:00:00,EUR/USD,1.1",
+                "2024-13-01T10:00:00,EUR/USD,1.1,100",
+                "{\"timestamp\":\"2024-01-01T10:00:00\",\"price\":1.1,\"volume\":100}",
+                ""));
+
+        BackfillResult result = loader(1024).load("capture.csv");
+
+        assertEquals(1, result.getTrades());
+        assertEquals(5, result.getRejected());
+    }
+
+    @Test
+    @DisplayName("Should refuse files outside the backfill directory")
+    void refusesPathTraversal() {
+        BackfillLoader loader = loader(1024);
+        assertThrows(IllegalArgumentException.class, () -> loader.load("../outside.csv"));
+        assertThrows(IllegalArgumentException.class, () -> loader.load("missing.csv"));
+    }
+
+    @Test
+    @DisplayName("Should refuse links that lead outside the backfill directory")
+    void refusesEscapingLinks(@TempDir Path outside) throws IOException {
+        Path secret = Files.writeString(outside.resolve("secret.csv"), "2024-01-01T10:30:00,EUR/USD,2.0,100\n");
+        Files.createSymbolicLink(directory.resolve("link.csv"), secret);
+        Files.createSymbolicLink(directory.resolve("out"), outside);
+        Files.writeString(directory.resolve("capture.csv"), "2024-01-01T10:30:00,EUR/USD,2.0,100\n");
+        Files.createSymbolicLink(directory.resolve("inside.csv"), directory.resolve("capture.csv"));
+        BackfillLoader loader = loader(1024);
+
+        assertThrows(IllegalArgumentException.class, () -> loader.load("link.csv"));
+        assertThrows(IllegalArgumentException.class, () -> loader.load("out/secret.csv"));
+        assertEquals(1, loader.load("inside.csv").getTrades());
+        assertEquals(1, windowManager.getWindow("EUR/USD", HOUR).getTradeCount().get());
+    }
+
+    @Test
+    @DisplayName("Should checkpoint after a load and refuse to run with the journal but no checkpoints")
+    void checkpointsAfterLoad() throws IOException {
+        CheckpointScheduler checkpointScheduler = mock(CheckpointScheduler.class);
+        when(checkpointScheduler.checkpoint()).thenReturn(true, false);
+        BackfillLoader loader = loader(1024);
+        loader.setCheckpointScheduler(checkpointScheduler);
+        Files.writeString(directory.resolve("capture.csv"), "2024-01-01T10:30:00,EUR/USD,2.0,100\n");
+
+        loader.load("capture.csv");
+        verify(checkpointScheduler).checkpoint();
+        assertThrows(IllegalStateException.class, () -> loader.load("capture.csv"));
+
+        assertThrows(IllegalStateException.class, () -> new BackfillLoader(windowManager,
+                Optional.of(mock(TradeJournal.class)), Optional.empty(), directory.toString(), 1, 8, 0, false));
+    }
+
+    @Test
+    @DisplayName("Should send backfilled windows to replicas through the next snapshot")
+    void replicatesThroughSnapshot() throws IOException {
+        ReplicationLog replicationLog = new ReplicationLog(windowManager, 100);
+        windowManager.applyTrade(new Trade(HOUR.plusMinutes(1), "EUR/USD", 1.0, 100));
+        MemorySafeHourlyWindowManager replica = new MemorySafeHourlyWindowManager();
+        replica.applyTrade(replicationLog.read(0, 100).getTrades().get(0).toTrade());
+        Files.writeString(directory.resolve("capture.csv"), "2024-01-01T10:30:00,EUR/USD,2.0,100\n");
+
+        loader(1024).load("capture.csv");
+
+        assertTrue(replicationLog.read(1, 100).isResyncRequired());
+        WindowState snapshot = windowManager.exportState();
+        replica.importState(snapshot);
+        windowManager.applyTrade(new Trade(HOUR.plusMinutes(45), "EUR/USD", 3.0, 100));
+        replica.applyTrade(replicationLog.read(snapshot.getSequence(), 100).getTrades().get(0).toTrade());
+        assertEquals(3, replica.getWindow("EUR/USD", HOUR).getTradeCount().get());
+        assertEquals(windowManager.getWindow("EUR/USD", HOUR).getVwap(), replica.getWindow("EUR/USD", HOUR).getVwap());
+    }
+}
@@ -0,0 +1,129 @@
+package com.exercise.vwap.service.checkpoint;
+
+import com.exercise.vwap.domain.PriceBar;
+import com.exercise.vwap.domain.Trade;
+import com.exercise.vwap.domain.TradeWindow;
+import com.exercise.vwap.domain.WindowCheckpoint;
+import com.exercise.vwap.domain.WindowSnapshot;
+import com.exercise.vwap.domain.WindowState;
+import com.exercise.vwap.service.impl.MemorySafeHourlyWindowManager;
+import com.exercise.vwap.service.strategy.VwapStrategyRegistry;
+import com.exercise.vwap.service.strategy.impl.CappedVolumeVwapStrategy;
+import com.exercise.vwap.service.strategy.impl.SimpleVwapStrategy;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("CheckpointStore Tests")
+class CheckpointStoreTest {
+    private static final LocalDateTime WINDOW_START = LocalDateTime.of(2024, 1, 1, 10, 0);
+
+    @TempDir
+    Path directory;
+
+    private static WindowCheckpoint checkpoint(long journalSequence, double sumVolume) {
+        return new WindowCheckpoint(journalSequence, new WindowState(journalSequence + 1, List.of(
+                new WindowSnapshot("EUR/USD", WINDOW_START, 1.1 * sumVolume, sumVolume, 3),
+                new WindowSnapshot("USD/JPY", WINDOW_START.plusHours(1), 142.5 * 10, 10, 1))));
+    }
+
+    @Test
+    @DisplayName("Should return null when no checkpoint exists")
+    void emptyDirectory() {
+        assertNull(new CheckpointStore(directory).load());
+    }
+
+    @Test
+    @DisplayName("Should round-trip window accumulators")
+    void roundTrip() {
+        new CheckpointStore(directory).write(checkpoint(42, 1000));
+
+        CheckpointStore reopened = new CheckpointStore(directory);
+        WindowCheckpoint loaded = reopened.load();
+
+        assertEquals(42, loaded.getJournalSequence());
+        assertEquals(43, loaded.getState().getSequence());
+        assertEquals(42, reopened.getJournalSequence());
+        List<WindowSnapshot> windows = loaded.getState().getWindows();
+        assertEquals(2, windows.size());
+        assertEquals("EUR/USD", windows.get(0).getCurrencyPair());
+        assertEquals(WINDOW_START, windows.get(0).getWindowStart());
+        assertEquals(1100.0, windows.get(0).getSumPriceVolume(), 1e-9);
+        assertEquals(3, windows.get(0).getTradeCount());
+        assertEquals(WINDOW_START.plusHours(1), windows.get(1).getWindowStart());
+    }
+
+    @Test
+    @DisplayName("Should round-trip bars and moments and leave windows without them unset")
+    void roundTripBars() {
+        PriceBar bar = new PriceBar(1_000, 1.1, 1.3, 1.0, 3_599_000_000_000L, 1.2);
+        new CheckpointStore(directory).write(new WindowCheckpoint(7, new WindowState(8, List.of(
+                new WindowSnapshot("EUR/USD", WINDOW_START, 1.1 * 10, 10, 1.21 * 10, 4, bar),
+                new WindowSnapshot("USD/JPY", WINDOW_START, 142.5 * 10, 10, 1)))));
+
+        List<WindowSnapshot> windows = new CheckpointStore(directory).load().getState().getWindows();
+
+        assertEquals(bar, windows.get(0).getBar());
+        assertEquals(12.1, windows.get(0).getSumPriceSquaredVolume(), 1e-12);
+        assertNull(windows.get(1).getBar());
+        assertTrue(Double.isNaN(windows.get(1).getSumPriceSquaredVolume()));
+    }
+
+    @Test
+    @DisplayName("Should restore price sketches and strategy state after a restart")
+    void roundTripSketchesAndStrategies() {
+        CappedVolumeVwapStrategy capped = new CappedVolumeVwapStrategy(1000);
+        VwapStrategyRegistry registry = new VwapStrategyRegistry(List.of(new SimpleVwapStrategy(), capped));
+        MemorySafeHourlyWindowManager live = new MemorySafeHourlyWindowManager(100, 10, 24, 100);
+        live.setStrategyRegistry(registry);
+        for (int i = 0; i < 200; i++) {
+            live.applyTrade(new Trade(WINDOW_START.plusSeconds(i), "EUR/USD", 1.0 + (i % 50) / 100.0, 100 + i * 10));
+        }
+        new CheckpointStore(directory).write(new WindowCheckpoint(5, live.exportState()));
+
+        MemorySafeHourlyWindowManager restored = new MemorySafeHourlyWindowManager(100, 10, 24, 100);
+        restored.setStrategyRegistry(registry);
+        restored.importState(new CheckpointStore(directory).load().getState());
+
+        TradeWindow expected = live.getWindow("EUR/USD", WINDOW_START);
+        TradeWindow actual = restored.getWindow("EUR/USD", WINDOW_START);
+        assertTrue(actual.hasPriceDistribution());
+        for (double q : new double[]{0.05, 0.5, 0.95}) {
+            assertEquals(expected.getPriceQuantile(q), actual.getPriceQuantile(q), 1e-9);
+        }
+        assertEquals(expected.getStrategyVwap(capped), actual.getStrategyVwap(capped), 1e-12);
+        assertNotEquals(actual.getVwap(), actual.getStrategyVwap(capped), 1e-6);
+
+        // Trades after the restart keep feeding the restored sketch and strategies
+        restored.applyTrade(new Trade(WINDOW_START.plusMinutes(30), "EUR/USD", 3.0, 5000));
+        assertEquals(3.0, actual.getPriceQuantile(1.0), 1e-12);
+    }
+
+    @Test
+    @DisplayName("Should keep the previous image and fall back to it when the current is corrupt")
+    void fallbackToPrevious() throws IOException {
+        CheckpointStore store = new CheckpointStore(directory);
+        store.write(checkpoint(10, 1000));
+        store.write(checkpoint(20, 2000));
+        assertEquals(10, store.getPreviousJournalSequence());
+
+        try (FileChannel channel = FileChannel.open(directory.resolve(CheckpointStore.CURRENT),
+                StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{9, 9, 9, 9}), 60);
+        }
+
+        WindowCheckpoint loaded = new CheckpointStore(directory).load();
+        assertEquals(10, loaded.getJournalSequence());
+        assertEquals(1000, loaded.getState().getWindows().get(0).getSumVolume());
+    }
+}
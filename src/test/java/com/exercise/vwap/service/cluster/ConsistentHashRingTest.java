@@ -0,0 +1,68 @@
+package com.exercise.vwap.service.cluster;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ConsistentHashRing Tests")
+class ConsistentHashRingTest {
+    private static final List<String> NODES =
+            List.of("http://localhost:8081", "http://localhost:8082", "http://localhost:8083");
+
+    private static List<String> samplePairs() {
+        List<String> pairs = new ArrayList<>();
+        for (char a = 'A'; a <= 'Z'; a++) {
+            for (char b = 'A'; b <= 'Z'; b++) {
+                pairs.add("" + a + b + "X/USD");
+            }
+        }
+        return pairs;
+    }
+
+    @Test
+    @DisplayName("Should assign the same owner on every lookup")
+    void stableOwnership() {
+        ConsistentHashRing ring = new ConsistentHashRing(NODES, 128);
+        ConsistentHashRing other = new ConsistentHashRing(NODES, 128);
+        for (String pair : samplePairs()) {
+            assertEquals(ring.ownerOf(pair), other.ownerOf(pair));
+        }
+    }
+
+    @Test
+    @DisplayName("Should spread pairs across all nodes")
+    void evenSpread() {
+        ConsistentHashRing ring = new ConsistentHashRing(NODES, 128);
+        Map<String, Integer> counts = new HashMap<>();
+        List<String> pairs = samplePairs();
+        pairs.forEach(pair -> counts.merge(ring.ownerOf(pair), 1, Integer::sum));
+
+        assertEquals(3, counts.size());
+        counts.values().forEach(count -> assertTrue(count > pairs.size() / 6));
+    }
+
+    @Test
+    @DisplayName("Should only move pairs owned by a removed node")
+    void minimalMovementOnRemoval() {
+        ConsistentHashRing full = new ConsistentHashRing(NODES, 128);
+        ConsistentHashRing reduced = new ConsistentHashRing(NODES.subList(0, 2), 128);
+        for (String pair : samplePairs()) {
+            String before = full.ownerOf(pair);
+            if (!before.equals(NODES.get(2))) {
+                assertEquals(before, reduced.ownerOf(pair));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should reject empty membership")
+    void rejectEmptyMembership() {
+        assertThrows(IllegalArgumentException.class, () -> new ConsistentHashRing(List.of(), 16));
+    }
+}
@@ -0,0 +1,38 @@
+package com.exercise.vwap.service.cluster;
+
+import com.exercise.vwap.domain.Trade;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@DisplayName("TradeForwarder Tests")
+class TradeForwarderTest {
+    private static final String NODE = "http://node-b";
+    private static final LocalDateTime TIME = LocalDateTime.of(2024, 1, 1, 9, 30);
+
+    @Test
+    @DisplayName("Should drop and count a batch the owner turns away, even when the caller flushes")
+    void dropsRejectedBatchInCallingThread() {
+        ClusterNodeClient client = mock(ClusterNodeClient.class);
+        doThrow(HttpServerErrorException.create(HttpStatus.SERVICE_UNAVAILABLE, "Service Unavailable", null, null,
+                null)).when(client).forwardTrades(eq(NODE), anyList());
+        TradeForwarder forwarder = new TradeForwarder(client, 1, 60_000);
+
+        // The buffer holds ten trades; the eleventh is flushed by the caller
+        for (int i = 0; i < 11; i++) {
+            forwarder.forward(NODE, new Trade(TIME, "EUR/USD", 1.1, 1000));
+        }
+        forwarder.close();
+
+        assertEquals(0, forwarder.getForwardedTrades());
+        assertEquals(11, forwarder.getDroppedTrades());
+    }
+}
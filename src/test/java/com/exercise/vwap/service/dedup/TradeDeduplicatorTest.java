@@ -0,0 +1,154 @@
+package com.exercise.vwap.service.dedup;
+
+import com.exercise.vwap.domain.DedupStats;
+import com.exercise.vwap.domain.Trade;
+import com.exercise.vwap.utils.BinaryTradeCodec;
+import com.exercise.vwap.utils.BlockedBloomFilter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("TradeDeduplicator Tests")
+class TradeDeduplicatorTest {
+    private static final LocalDateTime HOUR = LocalDateTime.of(2024, 1, 1, 10, 0);
+
+    private static TradeDeduplicator deduplicator(int hours, boolean hashContent) {
+        return new TradeDeduplicator(true, hours, 10_000, 0.001, hashContent);
+    }
+
+    @Nested
+    @DisplayName("Identity Tests")
+    class IdentityTests {
+        @Test
+        @DisplayName("Should flag a repeated trade id and pass new ones")
+        void repeatedIds() {
+            TradeDeduplicator dedup = deduplicator(24, false);
+
+            assertFalse(dedup.isDuplicate(new Trade(HOUR, "EUR/USD", 1.1, 100, "t-1")));
+            assertFalse(dedup.isDuplicate(new Trade(HOUR, "EUR/USD", 1.1, 100, "t-2")));
+            // Same id, resent with a slightly different time in the same hour
+            assertTrue(dedup.isDuplicate(new Trade(HOUR.plusSeconds(1), "EUR/USD", 1.1, 100, "t-1")));
+            // Ids are scoped to the pair
+            assertFalse(dedup.isDuplicate(new Trade(HOUR, "GBP/USD", 1.1, 100, "t-1")));
+
+            DedupStats stats = dedup.getStats();
+            assertEquals(4, stats.getChecked());
+            assertEquals(1, stats.getDuplicates());
+        }
+
+        @Test
+        @DisplayName("Should hash content only when enabled")
+        void contentHashing() {
+            TradeDeduplicator byId = deduplicator(24, false);
+            TradeDeduplicator byContent = deduplicator(24, true);
+            Trade trade = new Trade(HOUR.plusNanos(5), "EUR/USD", 1.1, 100);
+
+            assertFalse(byId.isDuplicate(trade));
+            assertFalse(byId.isDuplicate(trade));
+            assertFalse(byContent.isDuplicate(trade));
+            assertTrue(byContent.isDuplicate(new Trade(HOUR.plusNanos(5), "EUR/USD", 1.1, 100)));
+            assertFalse(byContent.isDuplicate(new Trade(HOUR.plusNanos(6), "EUR/USD", 1.1, 100)));
+            assertFalse(byContent.isDuplicate(new Trade(HOUR.plusNanos(5), "EUR/USD", 1.1, 101)));
+        }
+
+        @Test
+        @DisplayName("Should give unmaterialised trades the same identity as trades")
+        void primitiveIdentityMatchesTrade() {
+            TradeDeduplicator dedup = deduplicator(24, true);
+            long pair = BinaryTradeCodec.encodePair("EUR/USD");
+            long nanos = BinaryTradeCodec.toEpochNanos(HOUR.plusMinutes(3));
+
+            assertFalse(dedup.isDuplicate(new Trade(HOUR.plusMinutes(3), "EUR/USD", 1.1, 100)));
+            assertTrue(dedup.isDuplicate(pair, nanos, 1.1, 100));
+            assertFalse(dedup.isDuplicate(new Trade(HOUR.plusMinutes(3), "EUR/USD", 1.1, 100, "t-9")));
+            assertTrue(dedup.isDuplicate(pair, nanos, "t-9"));
+        }
+
+        @Test
+        @DisplayName("Should check nothing when disabled")
+        void disabled() {
+            TradeDeduplicator dedup = new TradeDeduplicator(false, 24, 10_000, 0.001, true);
+            Trade trade = new Trade(HOUR, "EUR/USD", 1.1, 100, "t-1");
+
+            assertFalse(dedup.isDuplicate(trade));
+            assertFalse(dedup.isDuplicate(trade));
+            assertEquals(0, dedup.sizeInBytes());
+        }
+    }
+
+    @Nested
+    @DisplayName("Rotation Tests")
+    class RotationTests {
+        @Test
+        @DisplayName("Should forget an hour once its filter is reused")
+        void reusesFilters() {
+            TradeDeduplicator dedup = deduplicator(2, false);
+            Trade early = new Trade(HOUR, "EUR/USD", 1.1, 100, "t-1");
+
+            assertFalse(dedup.isDuplicate(early));
+            assertFalse(dedup.isDuplicate(new Trade(HOUR.plusHours(1), "EUR/USD", 1.1, 100, "t-2")));
+            assertTrue(dedup.isDuplicate(early));
+            // Hour 12 takes hour 10's filter; hour 10 is no longer checked
+            assertFalse(dedup.isDuplicate(new Trade(HOUR.plusHours(2), "EUR/USD", 1.1, 100, "t-3")));
+            assertFalse(dedup.isDuplicate(early));
+            assertEquals(1, dedup.getStats().getUnchecked());
+        }
+
+        @Test
+        @DisplayName("Should keep a fixed size whatever the volume")
+        void fixedSize() {
+            TradeDeduplicator dedup = deduplicator(4, false);
+            long size = dedup.sizeInBytes();
+            for (int i = 0; i < 100_000; i++) {
+                dedup.isDuplicate(new Trade(HOUR.plusSeconds(i), "EUR/USD", 1.1, 100, "t-" + i));
+            }
+
+            assertEquals(size, dedup.sizeInBytes());
+            assertEquals(size, dedup.getStats().getSizeInBytes());
+        }
+    }
+
+    @Nested
+    @DisplayName("Bloom Filter Tests")
+    class BloomFilterTests {
+        @Test
+        @DisplayName("Should stay near the configured false positive rate at the expected load")
+        void falsePositiveRate() {
+            BlockedBloomFilter filter = new BlockedBloomFilter(100_000, 0.01);
+            for (long i = 0; i < 100_000; i++) {
+                filter.put(hash(i), hash(~i));
+            }
+            int falsePositives = 0;
+            for (long i = 100_000; i < 300_000; i++) {
+                if (filter.mightContain(hash(i), hash(~i))) {
+                    falsePositives++;
+                }
+            }
+
+            double rate = falsePositives / 200_000.0;
+            assertTrue(rate < 0.01, "false positive rate " + rate);
+        }
+
+        @Test
+        @DisplayName("Should report every added key and forget them on clear")
+        void noFalseNegatives() {
+            BlockedBloomFilter filter = new BlockedBloomFilter(1000, 0.001);
+            for (long i = 0; i < 1000; i++) {
+                filter.put(hash(i), hash(~i));
+            }
+            for (long i = 0; i < 1000; i++) {
+                assertTrue(filter.put(hash(i), hash(~i)));
+            }
+            filter.clear();
+            assertFalse(filter.mightContain(hash(1), hash(~1L)));
+        }
+
+        private long hash(long key) {
+            return TradeDeduplicator.contentHash(key, 0, 0, 0);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.exercise.vwap.service.impl;
+
+import com.exercise.vwap.domain.Trade;
+import com.exercise.vwap.service.AckMode;
+import com.exercise.vwap.service.dedup.TradeDeduplicator;
+import com.exercise.vwap.service.metrics.AllocationTracker;
+import com.exercise.vwap.service.profile.IntradayVolumeProfiles;
+import com.exercise.vwap.service.strategy.impl.SimpleVwapStrategy;
+import com.exercise.vwap.utils.TimeParser;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.IntConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Allocation budgets for the steady-state ingest path, measured with the per-thread
+ * allocation counter. The budgets hold for interpreted code, so they do not depend on the
+ * JIT eliminating anything; a regex, a split or an eagerly formatted log line per trade
+ * blows through them. Tagged so that the build runs them in a JVM where no class has been
+ * retransformed by an inline mock.
+ */
+@Tag("allocation")
+@DisplayName("Ingest allocation budget Tests")
+class IngestAllocationBudgetTest {
+    // LocalDateTime + LocalTime + Trade, with some headroom
+    private static final double PARSE_BUDGET_BYTES = 128;
+    // The truncated window start and the listener iterator
+    private static final double APPLY_BUDGET_BYTES = 64;
+
+    private static final int WARMUP = 20_000;
+    private static final int MEASURED = 50_000;
+    private static final String[] PAIRS = {"EUR/USD", "USD/JPY", "GBP/USD", "AUD/USD"};
+
+    private final AllocationTracker tracker = new AllocationTracker();
+    private MemorySafeHourlyWindowManager windowManager;
+    private VwapCalculatorServiceImpl service;
+    private Trade[] trades;
+    private final Object[] sink = new Object[1024];
+
+    @BeforeEach
+    void setUp() {
+        assumeTrue(tracker.isEnabled(), "JVM does not count per-thread allocation");
+        windowManager = new MemorySafeHourlyWindowManager();
+        service = new VwapCalculatorServiceImpl(windowManager, new SimpleVwapStrategy(), Optional.empty(),
+                AckMode.APPLY);
+        LocalDateTime hour = LocalDateTime.of(2024, 1, 1, 10, 0);
+        trades = new Trade[1024];
+        for (int i = 0; i < trades.length; i++) {
+            trades[i] = new Trade(hour.plusMinutes(i % 60), PAIRS[i % PAIRS.length], 1.0 + i * 1e-4, 1000 + i);
+        }
+    }
+
+    @Test
+    @DisplayName("Parsing a trade should allocate only the trade and its timestamp")
+    void parsingStaysWithinBudget() {
+        String[] times = {"9:30 AM", "9:31 AM", "12:00 PM", "11:59 PM"};
+
+        double perTrade = bytesPerOperation(i -> sink[i & 1023] = new Trade(
+                TimeParser.parse(times[i & 3]), PAIRS[i & 3], 1.1050, 100_000));
+
+        assertTrue(perTrade <= PARSE_BUDGET_BYTES, "parsing allocated " + perTrade + " bytes per trade");
+    }
+
+    @Test
+    @DisplayName("Applying a trade to an existing window should stay within budget")
+    void singleTradeIngestStaysWithinBudget() {
+        double perTrade = bytesPerOperation(i -> service.processTrade(trades[i & 1023]));
+
+        assertTrue(perTrade <= APPLY_BUDGET_BYTES, "ingest allocated " + perTrade + " bytes per trade");
+    }
+
+    @Test
+    @DisplayName("Batched ingest should stay within the per-trade budget")
+    void batchIngestStaysWithinBudget() {
+        List<Trade> batch = new ArrayList<>(List.of(trades));
+
+        double perBatch = bytesPerOperation(i -> service.processTrades(batch), WARMUP / 100, MEASURED / 100);
+
+        double perTrade = perBatch / batch.size();
+        assertTrue(perTrade <= APPLY_BUDGET_BYTES, "batched ingest allocated " + perTrade + " bytes per trade");
+    }
+
+    @Test
+    @DisplayName("Duplicate checks should not add to the ingest budget")
+    void deduplicatedIngestStaysWithinBudget() {
+        windowManager.setDeduplicator(new TradeDeduplicator(true, 4, 100_000, 0.001, true));
+
+        double perTrade = bytesPerOperation(i -> service.processTrade(trades[i & 1023]));
+
+        assertTrue(perTrade <= APPLY_BUDGET_BYTES, "deduplicated ingest allocated " + perTrade + " bytes per trade");
+    }
+
+    @Test
+    @DisplayName("Volume profiles should not add to the ingest budget")
+    void profiledIngestStaysWithinBudget() {
+        windowManager.setVolumeProfiles(new IntradayVolumeProfiles(10, null));
+
+        double perTrade = bytesPerOperation(i -> service.processTrade(trades[i & 1023]));
+
+        assertTrue(perTrade <= APPLY_BUDGET_BYTES, "profiled ingest allocated " + perTrade + " bytes per trade");
+    }
+
+    private double bytesPerOperation(IntConsumer operation) {
+        return bytesPerOperation(operation, WARMUP, MEASURED);
+    }
+
+    private double bytesPerOperation(IntConsumer operation, int warmup, int measured) {
+        for (int i = 0; i < warmup; i++) {
+            operation.accept(i);
+        }
+        long before = tracker.currentThreadAllocatedBytes();
+        for (int i = 0; i < measured; i++) {
+            operation.accept(i);
+        }
+        return (double) (tracker.currentThreadAllocatedBytes() - before) / measured;
+    }
+}
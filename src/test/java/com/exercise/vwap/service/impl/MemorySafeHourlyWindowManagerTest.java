@@ -1,14 +1,25 @@
 package com.exercise.vwap.service.impl;
 
+import com.exercise.vwap.domain.IngestTuning;
+import com.exercise.vwap.domain.PairActivity;
 import com.exercise.vwap.domain.Trade;
 import com.exercise.vwap.domain.TradeWindow;
+import com.exercise.vwap.domain.VenueVwap;
+import com.exercise.vwap.domain.VolumeProfileResult;
+import com.exercise.vwap.domain.WindowState;
+import com.exercise.vwap.service.dedup.TradeDeduplicator;
+import com.exercise.vwap.service.profile.IntradayVolumeProfiles;
+import com.exercise.vwap.service.tier.ColdPairStore;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.test.util.ReflectionTestUtils;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
@@ -146,6 +157,10 @@ class MemorySafeHourlyWindowManagerTest {
             windowManager.addTrade(new Trade(baseTime, "EUR/USD", 1.0, 1000000));
             windowManager.addTrade(new Trade(baseTime.plusHours(3), "EUR/USD", 1.0, 1000000));
 
+            // Wait for async processing so cleanup sees both windows
+            await().atMost(2, TimeUnit.SECONDS).until(() ->
+                    windowManager.getWindowCounts().getOrDefault("EUR/USD", 0) == 2);
+
             // Trigger cleanup
             windowManager.cleanupExpiredWindows(baseTime.plusHours(4));
 
@@ -217,6 +232,745 @@ class MemorySafeHourlyWindowManagerTest {
         }
     }
 
+    @Nested
+    @DisplayName("State Export Tests")
+    class StateExportTests {
+        @Test
+        @DisplayName("Should sequence applied trades for listeners")
+        void sequenceAppliedTrades() {
+            List<Long> sequences = new ArrayList<>();
+            windowManager.addTradeListener((sequence, trade) -> sequences.add(sequence));
+
+            windowManager.applyTrade(new Trade(baseTime, "EUR/USD", 1.0, 1000));
+            windowManager.applyTrade(new Trade(baseTime, "GBP/USD", 1.2, 1000));
+
+            assertEquals(List.of(1L, 2L), sequences);
+            assertEquals(2, windowManager.getAppliedSequence());
+        }
+
+        @Test
+        @DisplayName("Should round-trip state through export and import")
+        void exportAndImport() {
+            windowManager.applyTrade(new Trade(baseTime, "EUR/USD", 1.0, 1000));
+            windowManager.applyTrade(new Trade(baseTime, "EUR/USD", 2.0, 3000));
+            windowManager.applyTrade(new Trade(baseTime.plusHours(1), "GBP/USD", 1.3, 1000));
+
+            WindowState state = windowManager.exportState();
+            assertEquals(3, state.getSequence());
+            assertEquals(2, state.getWindows().size());
+
+            MemorySafeHourlyWindowManager replica = new MemorySafeHourlyWindowManager(
+                    TEST_QUEUE_CAPACITY, TEST_MAX_CURRENCY_PAIRS, TEST_WINDOW_RETENTION_HOURS);
+            replica.importState(state);
+
+            assertEquals(1.75, replica.getWindow("EUR/USD", baseTime).getVwap(), 0.0001);
+            assertEquals(1.3, replica.getWindow("GBP/USD", baseTime.plusHours(1)).getVwap(), 0.0001);
+            assertEquals(3, replica.getAppliedSequence());
+        }
+
+        @Test
+        @DisplayName("Should apply drained batches and publish trades in queue order")
+        void drainedBatchesKeepOrder() {
+            List<Double> published = new ArrayList<>();
+            windowManager.addTradeListener((sequence, trade) -> published.add(trade.getPrice()));
+
+            double sumPriceVolume = 0;
+            for (int i = 0; i < 900; i++) {
+                double price = 1.0 + (i % 10) * 0.1;
+                String pair = i % 3 == 0 ? "GBP/USD" : "EUR/USD";
+                windowManager.addTrade(new Trade(baseTime.plusSeconds(i), pair, price, 100));
+                if (pair.equals("EUR/USD")) {
+                    sumPriceVolume += price * 100;
+                }
+            }
+            windowManager.awaitQueueDrained();
+
+            TradeWindow window = windowManager.getWindow("EUR/USD", baseTime);
+            assertEquals(600, window.getTradeCount().get());
+            assertEquals(sumPriceVolume / 60_000, window.getVwap(), 1e-12);
+            assertEquals(900, windowManager.getAppliedSequence());
+            for (int i = 0; i < 900; i++) {
+                assertEquals(1.0 + (i % 10) * 0.1, published.get(i));
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Rollover Pre-warm Tests")
+    class PrewarmTests {
+        @Test
+        @DisplayName("Should pre-create next hour's windows for pairs trading this hour")
+        void prewarmActivePairs() {
+            LocalDateTime nextHour = baseTime.plusHours(1);
+            windowManager.applyTrade(new Trade(baseTime.plusMinutes(30), "EUR/USD", 1.1, 1000));
+            windowManager.applyTrade(new Trade(baseTime.minusHours(1), "GBP/USD", 1.3, 1000));
+
+            assertEquals(1, windowManager.prewarmWindows(nextHour));
+            assertEquals(0, windowManager.prewarmWindows(nextHour));
+            assertEquals(2, windowManager.getWindowCounts().get("EUR/USD"));
+            assertEquals(1, windowManager.getWindowCounts().get("GBP/USD"));
+        }
+
+        @Test
+        @DisplayName("Should apply the first trade of the hour to the pre-created window")
+        void firstTradeUsesPrewarmedWindow() {
+            LocalDateTime nextHour = baseTime.plusHours(1);
+            windowManager.applyTrade(new Trade(baseTime, "EUR/USD", 1.1, 1000));
+            windowManager.prewarmWindows(nextHour);
+            TradeWindow prewarmed = windowManager.getWindow("EUR/USD", nextHour);
+
+            windowManager.applyTrade(new Trade(nextHour, "EUR/USD", 1.2, 1000));
+
+            assertSame(prewarmed, windowManager.getWindow("EUR/USD", nextHour));
+            assertEquals(1.2, prewarmed.getVwap(), 1e-12);
+        }
+
+        @Test
+        @DisplayName("Should keep empty pre-created windows out of snapshots and exports")
+        void emptyPrewarmedWindowsStayHidden() {
+            LocalDateTime nextHour = baseTime.plusHours(1);
+            windowManager.applyTrade(new Trade(baseTime, "EUR/USD", 1.1, 1000));
+            windowManager.prewarmWindows(nextHour);
+
+            assertTrue(windowManager.getWindows(nextHour).isEmpty());
+            assertEquals(1, windowManager.exportState().getWindows().size());
+            assertEquals(0.0, windowManager.getWindow("EUR/USD", nextHour).getVwap());
+        }
+    }
+
+    @Nested
+    @DisplayName("Band Filter Tests")
+    class BandFilterTests {
+        @BeforeEach
+        void enableFilter() {
+            ReflectionTestUtils.setField(windowManager, "bandFilterK", 3.0);
+            ReflectionTestUtils.setField(windowManager, "bandFilterMinTrades", 10);
+            ReflectionTestUtils.setField(windowManager, "bandFilterMinWidthBps", 1.0);
+        }
+
+        private void seedWindow() {
+            for (int i = 0; i < 10; i++) {
+                double price = 1.1000 + (i % 2) * 0.0010;
+                windowManager.applyTrade(new Trade(baseTime.plusMinutes(i), "EUR/USD", price, 1000));
+            }
+        }
+
+        @Test
+        @DisplayName("Should drop trades outside the band and keep those inside")
+        void dropsOutliers() {
+            seedWindow();
+            // VWAP 1.1005, sigma 0.0005, so the band is 1.0990 to 1.1020
+            windowManager.applyTrade(new Trade(baseTime.plusMinutes(20), "EUR/USD", 1.1015, 1000));
+            windowManager.applyTrade(new Trade(baseTime.plusMinutes(21), "EUR/USD", 1.2000, 1000));
+            windowManager.addTrade(new Trade(baseTime.plusMinutes(22), "EUR/USD", 0.9000, 1000));
+            windowManager.addTrade(new Trade(baseTime.plusMinutes(23), "EUR/USD", 1.1000, 1000));
+            windowManager.awaitQueueDrained();
+
+            TradeWindow window = windowManager.getWindow("EUR/USD", baseTime);
+            assertEquals(12, window.getTradeCount().get());
+            assertEquals(2, windowManager.getBandRejectedTrades());
+        }
+
+        @Test
+        @DisplayName("Should accept everything until the window has enough trades")
+        void acceptsDuringWarmUp() {
+            windowManager.applyTrade(new Trade(baseTime, "EUR/USD", 1.1, 1000));
+            windowManager.applyTrade(new Trade(baseTime.plusMinutes(1), "EUR/USD", 2.2, 1000));
+
+            assertEquals(2, windowManager.getWindow("EUR/USD", baseTime).getTradeCount().get());
+            assertEquals(0, windowManager.getBandRejectedTrades());
+        }
+
+        @Test
+        @DisplayName("Should not freeze a window whose prices have not moved")
+        void minimumWidthAppliesToFlatWindows() {
+            for (int i = 0; i < 10; i++) {
+                windowManager.applyTrade(new Trade(baseTime.plusMinutes(i), "EUR/USD", 1.1000, 1000));
+            }
+            // Zero variance, but 1 bp of 1.1 still admits a 0.5 pip move
+            windowManager.applyTrade(new Trade(baseTime.plusMinutes(20), "EUR/USD", 1.10005, 1000));
+
+            assertEquals(11, windowManager.getWindow("EUR/USD", baseTime).getTradeCount().get());
+        }
+
+        @Test
+        @DisplayName("Should filter a drained batch as it would filter the same trades one by one")
+        void batchMatchesTradeByTrade() {
+            MemorySafeHourlyWindowManager oneByOne = new MemorySafeHourlyWindowManager(
+                    TEST_QUEUE_CAPACITY, TEST_MAX_CURRENCY_PAIRS, TEST_WINDOW_RETENTION_HOURS);
+            ReflectionTestUtils.setField(oneByOne, "bandFilterK", 3.0);
+            ReflectionTestUtils.setField(oneByOne, "bandFilterMinTrades", 10);
+            ReflectionTestUtils.setField(oneByOne, "bandFilterMinWidthBps", 1.0);
+            // The price walks away from the seed prices, with an outlier every seventh trade
+            List<Trade> trades = new ArrayList<>();
+            for (int i = 0; i < 60; i++) {
+                double price = i < 10 ? 1.1000 + (i % 2) * 0.0010 : i % 7 == 0 ? 1.2 : 1.1000 + (i - 9) * 0.0004;
+                trades.add(new Trade(baseTime.plusSeconds(i), i % 3 == 0 ? "GBP/USD" : "EUR/USD", price, 1000));
+            }
+            trades.forEach(oneByOne::applyTrade);
+
+            ReflectionTestUtils.invokeMethod(windowManager, "processBatchInternal",
+                    new ArrayList<>(trades), new IdentityHashMap<>());
+
+            assertTrue(oneByOne.getBandRejectedTrades() > 0);
+            assertEquals(oneByOne.getBandRejectedTrades(), windowManager.getBandRejectedTrades());
+            for (String pair : List.of("EUR/USD", "GBP/USD")) {
+                TradeWindow expected = oneByOne.getWindow(pair, baseTime);
+                TradeWindow actual = windowManager.getWindow(pair, baseTime);
+                assertEquals(expected.getTradeCount().get(), actual.getTradeCount().get());
+                assertEquals(expected.getVwap(), actual.getVwap(), 1e-12);
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Watermark Tests")
+    class WatermarkTests {
+        @Test
+        @DisplayName("Should seal an hour once the watermark passes it and version late trades")
+        void sealsAndVersionsLateTrades() {
+            windowManager.applyTrade(new Trade(baseTime.plusMinutes(30), "EUR/USD", 1.1, 1000));
+            windowManager.applyTrade(new Trade(baseTime.plusHours(1).plusSeconds(10), "EUR/USD", 1.2, 1000));
+
+            TradeWindow closed = windowManager.getWindow("EUR/USD", baseTime);
+            assertEquals(baseTime.plusHours(1).plusSeconds(5), windowManager.getWatermark("EUR/USD"));
+            assertTrue(closed.isSealed());
+            assertEquals(0, closed.getVersion());
+            assertFalse(windowManager.getWindow("EUR/USD", baseTime.plusHours(1)).isSealed());
+
+            windowManager.applyTrade(new Trade(baseTime.plusMinutes(45), "EUR/USD", 1.3, 1000));
+
+            assertEquals(2, closed.getTradeCount().get());
+            assertEquals(1.2, closed.getVwap(), 1e-12);
+            assertEquals(1, closed.getVersion());
+            assertEquals(1, windowManager.getLateTrades());
+        }
+
+        @Test
+        @DisplayName("Should treat trades within the out-of-orderness bound as on time")
+        void toleratesOutOfOrderTrades() {
+            windowManager.applyTrade(new Trade(baseTime.plusHours(1).plusSeconds(3), "EUR/USD", 1.2, 1000));
+            windowManager.applyTrade(new Trade(baseTime.plusMinutes(59).plusSeconds(59), "EUR/USD", 1.1, 1000));
+
+            TradeWindow window = windowManager.getWindow("EUR/USD", baseTime);
+            assertFalse(window.isSealed());
+            assertEquals(0, window.getVersion());
+            assertEquals(0, windowManager.getLateTrades());
+        }
+
+        @Test
+        @DisplayName("Should drop trades later than the allowed lateness")
+        void dropsTradesBeyondAllowedLateness() {
+            ReflectionTestUtils.setField(windowManager, "allowedLatenessSeconds", 60L);
+            windowManager.applyTrade(new Trade(baseTime.plusMinutes(30), "EUR/USD", 1.1, 1000));
+            windowManager.applyTrade(new Trade(baseTime.plusHours(1).plusSeconds(30), "EUR/USD", 1.2, 1000));
+            // 25s past the seal: accepted
+            windowManager.applyTrade(new Trade(baseTime.plusMinutes(50), "EUR/USD", 1.3, 1000));
+            windowManager.applyTrade(new Trade(baseTime.plusHours(1).plusMinutes(10), "EUR/USD", 1.2, 1000));
+            // Watermark now 11:09:55, over nine minutes past the seal: dropped
+            windowManager.applyTrade(new Trade(baseTime.plusMinutes(55), "EUR/USD", 1.4, 1000));
+
+            TradeWindow closed = windowManager.getWindow("EUR/USD", baseTime);
+            assertEquals(2, closed.getTradeCount().get());
+            assertEquals(1, closed.getVersion());
+            assertEquals(1, windowManager.getLateTrades());
+            assertEquals(1, windowManager.getDroppedLateTrades());
+        }
+
+        @Test
+        @DisplayName("Should bump a sealed window's version once per batch and on corrections")
+        void versionsBatchesAndCorrections() {
+            windowManager.applyTrade(new Trade(baseTime.plusMinutes(30), "EUR/USD", 1.1, 1000, "t-1"));
+            windowManager.applyTrade(new Trade(baseTime.plusHours(2), "EUR/USD", 1.2, 1000));
+            TradeWindow closed = windowManager.getWindow("EUR/USD", baseTime);
+
+            List<Trade> late = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                late.add(new Trade(baseTime.plusMinutes(i), "EUR/USD", 1.1, 1000));
+            }
+            late.forEach(windowManager::addTrade);
+            windowManager.awaitQueueDrained();
+
+            assertEquals(11, closed.getTradeCount().get());
+            assertEquals(10, windowManager.getLateTrades());
+            long afterLateTrades = closed.getVersion();
+            assertTrue(afterLateTrades >= 1 && afterLateTrades <= 10, "version " + afterLateTrades);
+
+            windowManager.cancelTrade("EUR/USD", "t-1");
+            assertEquals(afterLateTrades + 1, closed.getVersion());
+        }
+    }
+
+    @Nested
+    @DisplayName("Top Pairs Tests")
+    class TopPairsTests {
+        @Test
+        @DisplayName("Should rank pairs of the latest hour by volume and by notional")
+        void ranksLatestHour() {
+            windowManager.applyTrade(new Trade(baseTime, "EUR/USD", 1.1, 3000));
+            windowManager.applyTrade(new Trade(baseTime, "USD/JPY", 150.0, 1000));
+            windowManager.applyTrade(new Trade(baseTime, "GBP/USD", 1.25, 2000, "t-1"));
+
+            assertEquals(List.of("EUR/USD", "GBP/USD"), pairs(windowManager.getTopPairs(2, false)));
+            assertEquals(List.of("USD/JPY", "EUR/USD", "GBP/USD"), pairs(windowManager.getTopPairs(5, true)));
+
+            windowManager.amendTrade("GBP/USD", "t-1", 1.25, 5000);
+            assertEquals(List.of("GBP/USD", "EUR/USD"), pairs(windowManager.getTopPairs(2, false)));
+            windowManager.cancelTrade("GBP/USD", "t-1");
+            assertEquals(List.of("EUR/USD", "USD/JPY"), pairs(windowManager.getTopPairs(3, false)));
+
+            windowManager.applyTrade(new Trade(baseTime.plusHours(1), "AUD/USD", 0.65, 10));
+            List<PairActivity> top = windowManager.getTopPairs(3, false);
+            assertEquals(List.of("AUD/USD"), pairs(top));
+            assertEquals(baseTime.plusHours(1), top.get(0).getWindowStart());
+        }
+
+        @Test
+        @DisplayName("Should rank batched trades and rebuild on import")
+        void ranksBatchesAndImports() {
+            for (int i = 0; i < 100; i++) {
+                String pair = i % 3 == 0 ? "EUR/USD" : "GBP/USD";
+                windowManager.addTrade(new Trade(baseTime.plusSeconds(i), pair, 1.1, 100));
+            }
+            windowManager.awaitQueueDrained();
+
+            List<PairActivity> top = windowManager.getTopPairs(2, false);
+            assertEquals(List.of("GBP/USD", "EUR/USD"), pairs(top));
+            assertEquals(6600, top.get(0).getVolume(), 1e-9);
+
+            WindowState state = windowManager.exportState();
+            MemorySafeHourlyWindowManager restored = new MemorySafeHourlyWindowManager(
+                    TEST_QUEUE_CAPACITY, TEST_MAX_CURRENCY_PAIRS, TEST_WINDOW_RETENTION_HOURS);
+            restored.importState(state);
+            assertEquals(top, restored.getTopPairs(2, false));
+        }
+
+        @Test
+        @DisplayName("Should rank only the trades a full window takes, batched or one by one")
+        void ranksOnlyAcceptedTrades() {
+            MemorySafeHourlyWindowManager oneByOne = new MemorySafeHourlyWindowManager(
+                    TEST_QUEUE_CAPACITY, TEST_MAX_CURRENCY_PAIRS, TEST_WINDOW_RETENTION_HOURS);
+            List<Trade> trades = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                trades.add(new Trade(baseTime.plusSeconds(i + 1), "EUR/USD", 1.1, 100));
+            }
+            for (MemorySafeHourlyWindowManager manager : List.of(windowManager, oneByOne)) {
+                manager.applyTrade(new Trade(baseTime, "EUR/USD", 1.1, 100));
+                // Leave the window room for two more trades
+                manager.getWindow("EUR/USD", baseTime).getTradeCount().set(999_998);
+            }
+
+            trades.forEach(oneByOne::applyTrade);
+            ReflectionTestUtils.invokeMethod(windowManager, "processBatchInternal",
+                    new ArrayList<>(trades), new IdentityHashMap<>());
+
+            assertEquals(300, oneByOne.getTopPairs(1, false).get(0).getVolume(), 1e-9);
+            assertEquals(oneByOne.getTopPairs(1, false), windowManager.getTopPairs(1, false));
+        }
+
+        private List<String> pairs(List<PairActivity> top) {
+            return top.stream().map(PairActivity::getCurrencyPair).toList();
+        }
+    }
+
+    @Nested
+    @DisplayName("Venue Tests")
+    class VenueTests {
+        @Test
+        @DisplayName("Should roll venue trades up into the pair and break them out by venue")
+        void rollsUpAndBreaksOut() {
+            windowManager.applyTrade(new Trade(baseTime, "EUR/USD", 1.10, 1000, "t-1", "EBS"));
+            windowManager.applyTrade(new Trade(baseTime, "EUR/USD", 1.20, 3000, null, "REUTERS"));
+            windowManager.applyTrade(new Trade(baseTime, "EUR/USD", 1.30, 1000));
+            for (int i = 0; i < 10; i++) {
+                windowManager.addTrade(new Trade(baseTime.plusSeconds(i), "EUR/USD", 1.00, 100, null,
+                        i % 2 == 0 ? "EBS" : null));
+            }
+            windowManager.awaitQueueDrained();
+
+            TradeWindow pair = windowManager.getWindow("EUR/USD", baseTime);
+            assertEquals(13, pair.getTradeCount().get());
+            assertEquals((1100 + 3600 + 1300 + 1000) / 6000.0, pair.getVwap(), 1e-12);
+
+            TradeWindow ebs = windowManager.getVenueWindow("EUR/USD", baseTime, "EBS");
+            assertEquals(6, ebs.getTradeCount().get());
+            assertEquals((1100 + 500) / 1500.0, ebs.getVwap(), 1e-12);
+            assertEquals(1.20, windowManager.getVenueWindow("EUR/USD", baseTime, "REUTERS").getVwap(), 1e-12);
+            assertEquals(0, windowManager.getVenueWindow("EUR/USD", baseTime, "CME").getTradeCount().get());
+            assertEquals(0, windowManager.getVenueWindow("GBP/USD", baseTime, "EBS").getTradeCount().get());
+
+            List<VenueVwap> venues = windowManager.getVenueBreakdown("EUR/USD", baseTime);
+            assertEquals(List.of("EBS", "REUTERS"), venues.stream().map(VenueVwap::getVenue).toList());
+            assertEquals(1500, venues.get(0).getVolume(), 1e-9);
+            assertEquals(List.of(), windowManager.getVenueBreakdown("GBP/USD", baseTime));
+        }
+
+        @Test
+        @DisplayName("Should keep the venue of a corrected trade and track only configured venues")
+        void correctionsAndLimit() {
+            windowManager.setMaxVenues(1);
+            windowManager.applyTrade(new Trade(baseTime, "EUR/USD", 1.10, 1000, "t-1", "EBS"));
+            windowManager.applyTrade(new Trade(baseTime, "EUR/USD", 1.20, 1000, null, "REUTERS"));
+
+            windowManager.amendTrade("EUR/USD", "t-1", 1.15, 2000);
+            TradeWindow ebs = windowManager.getVenueWindow("EUR/USD", baseTime, "EBS");
+            assertEquals(1, ebs.getTradeCount().get());
+            assertEquals(1.15, ebs.getVwap(), 1e-12);
+            assertEquals(2, windowManager.getWindow("EUR/USD", baseTime).getTradeCount().get());
+            assertEquals(0, windowManager.getVenueWindow("EUR/USD", baseTime, "REUTERS").getTradeCount().get());
+
+            windowManager.cancelTrade("EUR/USD", "t-1");
+            assertEquals(List.of(), windowManager.getVenueBreakdown("EUR/USD", baseTime));
+        }
+
+        @Test
+        @DisplayName("Should refuse the venue split of windows restored without it")
+        void restoredWithoutVenues() {
+            windowManager.applyTrade(new Trade(baseTime, "EUR/USD", 1.10, 1000, null, "EBS"));
+            MemorySafeHourlyWindowManager restored = new MemorySafeHourlyWindowManager();
+            restored.importState(windowManager.exportState());
+            restored.applyTrade(new Trade(baseTime, "EUR/USD", 1.20, 1000, null, "EBS"));
+
+            assertEquals(2, restored.getWindow("EUR/USD", baseTime).getTradeCount().get());
+            assertThrows(IllegalStateException.class, () -> restored.getVenueWindow("EUR/USD", baseTime, "EBS"));
+            assertThrows(IllegalStateException.class, () -> restored.getVenueBreakdown("EUR/USD", baseTime));
+
+            windowManager.replayTrade(new Trade(baseTime, "GBP/USD", 1.30, 1000));
+            assertThrows(IllegalStateException.class, () -> windowManager.getVenueBreakdown("GBP/USD", baseTime));
+            assertEquals(1000, windowManager.getVenueWindow("EUR/USD", baseTime, "EBS").getSumVolume().get(), 1e-9);
+            assertEquals(List.of(), restored.getVenueBreakdown("USD/JPY", baseTime));
+        }
+    }
+
+    @Nested
+    @DisplayName("Volume Profile Tests")
+    class VolumeProfileTests {
+        @Test
+        @DisplayName("Should feed profiles from single, batched and corrected trades")
+        void feedsProfiles() {
+            windowManager.setVolumeProfiles(new IntradayVolumeProfiles(10, null));
+            LocalDateTime nine = baseTime.withHour(9).withMinute(0);
+            windowManager.applyTrade(new Trade(nine, "EUR/USD", 1.1, 1000, "t-1"));
+            for (int i = 0; i < 10; i++) {
+                windowManager.addTrade(new Trade(nine.plusHours(1), "EUR/USD", 1.1, 300));
+            }
+            windowManager.awaitQueueDrained();
+            windowManager.amendTrade("EUR/USD", "t-1", 1.1, 2000);
+
+            VolumeProfileResult profile = windowManager.getVolumeProfile("EUR/USD",
+                    baseTime.toLocalDate().plusDays(1), 60);
+            assertEquals(1, profile.getDaysObserved());
+            assertEquals(0.4, profile.getFractions()[9], 1e-6);
+            assertEquals(0.6, profile.getFractions()[10], 1e-6);
+            assertNull(windowManager.getVolumeProfile("GBP/USD", baseTime.toLocalDate().plusDays(1), 60));
+        }
+
+        @Test
+        @DisplayName("Should report no profile when profiles are disabled")
+        void disabledByDefault() {
+            windowManager.applyTrade(new Trade(baseTime, "EUR/USD", 1.1, 1000));
+
+            assertNull(windowManager.getVolumeProfile("EUR/USD", baseTime.toLocalDate().plusDays(1), 1));
+        }
+    }
+
+    @Nested
+    @DisplayName("Tuning Tests")
+    class TuningTests {
+        @Test
+        @DisplayName("Should resize the queue and consumers without losing queued trades")
+        void resizesQueueAndConsumers() {
+            for (int i = 0; i < 500; i++) {
+                windowManager.addTrade(new Trade(baseTime.plusSeconds(i), "EUR/USD", 1.1, 10));
+            }
+            assertEquals(new IngestTuning(10, 4, TEST_MAX_CURRENCY_PAIRS, TEST_WINDOW_RETENTION_HOURS),
+                    windowManager.tune(new IngestTuning(10, 4, null, null)));
+            for (int i = 0; i < 500; i++) {
+                windowManager.addTrade(new Trade(baseTime.plusSeconds(i), "EUR/USD", 1.1, 10));
+            }
+            windowManager.tune(new IngestTuning(2000, 1, null, null));
+            windowManager.awaitQueueDrained();
+
+            assertEquals(1000, windowManager.getWindow("EUR/USD", baseTime).getTradeCount().get());
+            assertEquals(new IngestTuning(2000, 1, TEST_MAX_CURRENCY_PAIRS, TEST_WINDOW_RETENTION_HOURS),
+                    windowManager.getTuning());
+            await().atMost(1, TimeUnit.SECONDS).until(() -> windowManager.getActiveThreads() == 1);
+        }
+
+        @Test
+        @DisplayName("Should trim pairs and windows when the limits are lowered")
+        void lowersLimits() {
+            LocalDateTime now = LocalDateTime.now();
+            windowManager.applyTrade(new Trade(now.minusHours(1), "EUR/USD", 1.1, 1000));
+            windowManager.applyTrade(new Trade(now, "EUR/USD", 1.1, 1000));
+            windowManager.applyTrade(new Trade(now, "GBP/USD", 1.3, 1000));
+            windowManager.applyTrade(new Trade(now, "USD/JPY", 150.0, 1000));
+
+            windowManager.tune(new IngestTuning(null, null, 2, 1));
+
+            Map<String, Integer> counts = windowManager.getWindowCounts();
+            assertEquals(Map.of("GBP/USD", 1, "USD/JPY", 1), counts);
+        }
+
+        @Test
+        @DisplayName("Should reject out-of-range settings and change nothing")
+        void rejectsInvalidSettings() {
+            IngestTuning before = windowManager.getTuning();
+
+            assertThrows(IllegalArgumentException.class,
+                    () -> windowManager.tune(new IngestTuning(50, 0, null, null)));
+            assertThrows(IllegalArgumentException.class,
+                    () -> windowManager.tune(new IngestTuning(null, null, null, 0)));
+            assertEquals(before, windowManager.getTuning());
+        }
+
+        @Test
+        @DisplayName("Should keep a single consumer while anything depends on trade order")
+        void keepsSingleConsumerForOrderedState() {
+            windowManager.addTradeListener((sequence, trade) -> { });
+            assertThrows(IllegalArgumentException.class,
+                    () -> windowManager.tune(new IngestTuning(null, 2, null, null)));
+
+            MemorySafeHourlyWindowManager filtered = new MemorySafeHourlyWindowManager(
+                    TEST_QUEUE_CAPACITY, TEST_MAX_CURRENCY_PAIRS, TEST_WINDOW_RETENTION_HOURS);
+            ReflectionTestUtils.setField(filtered, "bandFilterK", 3.0);
+            assertThrows(IllegalArgumentException.class,
+                    () -> filtered.tune(new IngestTuning(null, 2, null, null)));
+            ReflectionTestUtils.setField(filtered, "bandFilterK", 0.0);
+            ReflectionTestUtils.setField(filtered, "allowedLatenessSeconds", 60L);
+            assertThrows(IllegalArgumentException.class,
+                    () -> filtered.tune(new IngestTuning(null, 2, null, null)));
+            assertEquals(1, windowManager.getTuning().getConsumers());
+            assertEquals(1, filtered.getTuning().getConsumers());
+        }
+
+        @Test
+        @DisplayName("Should refuse trade listeners while several consumers run")
+        void refusesListenerWithSeveralConsumers() {
+            windowManager.tune(new IngestTuning(null, 2, null, null));
+
+            assertThrows(IllegalStateException.class,
+                    () -> windowManager.addTradeListener((sequence, trade) -> { }));
+        }
+    }
+
+    @Nested
+    @DisplayName("Cold Tier Tests")
+    class ColdTierTests {
+        private static final String[] PAIRS = {"EUR/USD", "GBP/USD", "USD/JPY", "AUD/USD", "USD/CHF"};
+
+        @TempDir
+        Path directory;
+
+        private ColdPairStore coldPairs;
+
+        @BeforeEach
+        void setUp() {
+            coldPairs = new ColdPairStore(directory, 1 << 16, 1 << 20);
+            windowManager.setColdPairStore(coldPairs);
+        }
+
+        private void tradeEveryPair() {
+            for (int i = 0; i < PAIRS.length; i++) {
+                windowManager.applyTrade(new Trade(baseTime.plusMinutes(i), PAIRS[i], 1.0 + i, 1000));
+            }
+        }
+
+        @Test
+        @DisplayName("Should spill pairs over the limit instead of dropping them")
+        void spillsOverPairLimit() {
+            tradeEveryPair();
+
+            assertEquals(TEST_MAX_CURRENCY_PAIRS, windowManager.getWindowCounts().size());
+            assertEquals(2, coldPairs.getPairCount());
+            assertTrue(coldPairs.contains("EUR/USD"));
+            // Cold pairs are still queryable without being paged in
+            assertEquals(1.0, windowManager.getWindow("EUR/USD", baseTime).getVwap(), 1e-12);
+            assertEquals(5, windowManager.getWindows(baseTime).size());
+            assertEquals(5, windowManager.exportState().getWindows().size());
+            assertEquals(2, coldPairs.getPairCount());
+        }
+
+        @Test
+        @DisplayName("Should page a cold pair back in on its next trade")
+        void pagesInOnTrade() {
+            tradeEveryPair();
+
+            windowManager.applyTrade(new Trade(baseTime.plusMinutes(30), "EUR/USD", 2.0, 1000));
+
+            assertFalse(coldPairs.contains("EUR/USD"));
+            assertTrue(windowManager.getWindowCounts().containsKey("EUR/USD"));
+            TradeWindow window = windowManager.getWindow("EUR/USD", baseTime);
+            assertEquals(2, window.getTradeCount().get());
+            assertEquals(1.5, window.getVwap(), 1e-12);
+            assertEquals(2, coldPairs.getPairCount());
+        }
+
+        @Test
+        @DisplayName("Should keep resident window state under the heap budget")
+        void enforcesHeapBudget() {
+            windowManager = new MemorySafeHourlyWindowManager(TEST_QUEUE_CAPACITY, 100, TEST_WINDOW_RETENTION_HOURS);
+            windowManager.setColdPairStore(coldPairs);
+            long budget = 2 * new TradeWindow(baseTime).estimateSizeInBytes() + 2048;
+            ReflectionTestUtils.setField(windowManager, "heapBudgetBytes", budget);
+
+            for (int hour = 0; hour < 2; hour++) {
+                for (String pair : PAIRS) {
+                    windowManager.applyTrade(new Trade(baseTime.plusHours(hour), pair, 1.1, 1000));
+                    long resident = windowManager.getResidentBytes();
+                    assertTrue(resident <= budget, "resident " + resident);
+                }
+            }
+
+            assertEquals(PAIRS.length, windowManager.getWindowCounts().size() + coldPairs.getPairCount());
+            for (String pair : PAIRS) {
+                assertEquals(1000, windowManager.getWindow(pair, baseTime.plusHours(1)).getSumVolume().get(), 1e-9);
+            }
+        }
+
+        @Test
+        @DisplayName("Should expire cold windows and forget pairs left empty")
+        void expiresColdWindows() {
+            tradeEveryPair();
+
+            windowManager.cleanupExpiredWindows(baseTime.plusHours(TEST_WINDOW_RETENTION_HOURS + 1));
+
+            assertEquals(0, coldPairs.getPairCount());
+            assertNull(windowManager.getWatermark("EUR/USD"));
+            assertEquals(0, windowManager.getWindowCounts().size());
+        }
+    }
+
+    @Nested
+    @DisplayName("Deduplication Tests")
+    class DeduplicationTests {
+        @Test
+        @DisplayName("Should drop resent trades on the single and batch paths")
+        void dropsDuplicates() {
+            TradeDeduplicator deduplicator = new TradeDeduplicator(true, 4, 10_000, 0.001, true);
+            windowManager.setDeduplicator(deduplicator);
+            Trade withId = new Trade(baseTime, "EUR/USD", 1.1, 1000, "t-1");
+            Trade withoutId = new Trade(baseTime.plusMinutes(1), "EUR/USD", 1.2, 1000);
+
+            windowManager.applyTrade(withId);
+            windowManager.applyTrade(withoutId);
+            windowManager.applyTrade(withId);
+            for (int i = 0; i < 20; i++) {
+                windowManager.addTrade(i % 2 == 0 ? withId : withoutId);
+            }
+            windowManager.addTrade(new Trade(baseTime.plusMinutes(2), "EUR/USD", 1.3, 1000, "t-2"));
+            windowManager.awaitQueueDrained();
+
+            TradeWindow window = windowManager.getWindow("EUR/USD", baseTime);
+            assertEquals(3, window.getTradeCount().get());
+            assertEquals(1.2, window.getVwap(), 1e-12);
+            assertEquals(21, deduplicator.getStats().getDuplicates());
+        }
+    }
+
+    @Nested
+    @DisplayName("Correction Tests")
+    class CorrectionTests {
+        @Test
+        @DisplayName("Should take a cancelled trade back out of its window")
+        void cancelRestoresWindow() {
+            windowManager.applyTrade(new Trade(baseTime, "EUR/USD", 1.1000, 1000, "t-1"));
+            windowManager.applyTrade(new Trade(baseTime.plusMinutes(1), "EUR/USD", 1.2000, 3000, "t-2"));
+
+            TradeWindow window = windowManager.cancelTrade("EUR/USD", "t-2");
+
+            assertSame(windowManager.getWindow("EUR/USD", baseTime), window);
+            assertEquals(1, window.getTradeCount().get());
+            assertEquals(1.1000, window.getVwap(), 1e-12);
+            assertEquals(1000, window.getSumVolume().get(), 1e-9);
+            assertEquals(0.0, window.getVwapVariance(), 1e-12);
+            assertEquals(1, windowManager.getIndexedTrades());
+        }
+
+        @Test
+        @DisplayName("Should replace an amended trade's contribution in its own window")
+        void amendReplacesContribution() {
+            windowManager.applyTrade(new Trade(baseTime.plusMinutes(5), "EUR/USD", 1.1000, 1000, "t-1"));
+            windowManager.applyTrade(new Trade(baseTime.plusMinutes(6), "EUR/USD", 1.3000, 1000, "t-2"));
+
+            TradeWindow window = windowManager.amendTrade("EUR/USD", "t-2", 1.2000, 3000);
+
+            assertEquals(2, window.getTradeCount().get());
+            assertEquals((1.1 * 1000 + 1.2 * 3000) / 4000, window.getVwap(), 1e-12);
+            // Amend again: the index now holds the amended contribution
+            windowManager.amendTrade("EUR/USD", "t-2", 1.1000, 1000);
+            assertEquals(1.1000, window.getVwap(), 1e-12);
+        }
+
+        @Test
+        @DisplayName("Should find a trade that was still queued when the cancel arrived")
+        void cancelWaitsForQueuedTrade() {
+            windowManager.addTrade(new Trade(baseTime, "EUR/USD", 1.1000, 1000, "t-1"));
+
+            TradeWindow window = windowManager.cancelTrade("EUR/USD", "t-1");
+
+            assertEquals(0, window.getTradeCount().get());
+            assertEquals(0.0, window.getSumVolume().get(), 1e-9);
+        }
+
+        @Test
+        @DisplayName("Should reject unknown, already cancelled and mismatched trade ids")
+        void rejectsUnknownTrades() {
+            windowManager.applyTrade(new Trade(baseTime, "EUR/USD", 1.1000, 1000, "t-1"));
+            windowManager.applyTrade(new Trade(baseTime, "EUR/USD", 1.1000, 1000));
+
+            assertThrows(IllegalStateException.class, () -> windowManager.cancelTrade("EUR/USD", "t-2"));
+            assertThrows(IllegalStateException.class, () -> windowManager.cancelTrade("GBP/USD", "t-1"));
+            windowManager.cancelTrade("EUR/USD", "t-1");
+            assertThrows(IllegalStateException.class, () -> windowManager.cancelTrade("EUR/USD", "t-1"));
+            assertEquals(1, windowManager.getWindow("EUR/USD", baseTime).getTradeCount().get());
+        }
+
+        @Test
+        @DisplayName("Should forget the oldest trades beyond the index capacity")
+        void indexIsBounded() {
+            windowManager.setTradeIndexCapacity(2);
+            windowManager.applyTrade(new Trade(baseTime, "EUR/USD", 1.1000, 1000, "t-1"));
+            windowManager.applyTrade(new Trade(baseTime, "EUR/USD", 1.1000, 1000, "t-2"));
+            windowManager.applyTrade(new Trade(baseTime, "EUR/USD", 1.1000, 1000, "t-3"));
+
+            assertEquals(2, windowManager.getIndexedTrades());
+            assertThrows(IllegalStateException.class, () -> windowManager.cancelTrade("EUR/USD", "t-1"));
+            assertEquals(2, windowManager.cancelTrade("EUR/USD", "t-3").getTradeCount().get());
+        }
+
+        @Test
+        @DisplayName("Should index trades applied through the batch path")
+        void indexesBatchedTrades() {
+            windowManager.setTradeIndexCapacity(10);
+            for (int i = 0; i < 50; i++) {
+                windowManager.addTrade(new Trade(baseTime.plusSeconds(i), "EUR/USD", 1.1000, 1000, "t-" + i));
+            }
+            windowManager.awaitQueueDrained();
+
+            assertEquals(10, windowManager.getIndexedTrades());
+            assertEquals(49, windowManager.cancelTrade("EUR/USD", "t-49").getTradeCount().get());
+        }
+
+        @Test
+        @DisplayName("Should not index batched trades a full window turned away")
+        void skipsTradesPastWindowLimit() {
+            windowManager.applyTrade(new Trade(baseTime, "EUR/USD", 1.1000, 1000));
+            // Leave the window room for two more trades
+            windowManager.getWindow("EUR/USD", baseTime).getTradeCount().set(999_998);
+            List<Trade> trades = new ArrayList<>();
+            for (int i = 1; i <= 3; i++) {
+                trades.add(new Trade(baseTime.plusSeconds(i), "EUR/USD", 1.1000, 1000, "t-" + i));
+            }
+
+            ReflectionTestUtils.invokeMethod(windowManager, "processBatchInternal", trades, new IdentityHashMap<>());
+
+            assertEquals(2, windowManager.getIndexedTrades());
+            assertThrows(IllegalStateException.class, () -> windowManager.cancelTrade("EUR/USD", "t-3"));
+            assertEquals(999_999, windowManager.cancelTrade("EUR/USD", "t-2").getTradeCount().get());
+        }
+    }
+
     @Nested
     @DisplayName("Edge Case Tests")
     class EdgeCaseTests {
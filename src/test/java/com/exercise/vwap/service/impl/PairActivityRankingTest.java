@@ -0,0 +1,142 @@
+package com.exercise.vwap.service.impl;
+
+import com.exercise.vwap.domain.PairActivity;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("PairActivityRanking Tests")
+class PairActivityRankingTest {
+    private static final LocalDateTime HOUR = LocalDateTime.of(2024, 1, 1, 10, 0);
+
+    @Test
+    @DisplayName("Should match a full sort after random trades and reversals")
+    void matchesFullSort() {
+        PairActivityRanking ranking = new PairActivityRanking();
+        Map<String, double[]> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            String pair = "P" + random.nextInt(500);
+            double price = 0.5 + random.nextDouble();
+            double volume = 1 + random.nextInt(10_000);
+            // Now and then take part of a pair's volume back out, as a cancel would
+            double[] totals = expected.computeIfAbsent(pair, k -> new double[2]);
+            if (random.nextInt(10) == 0 && totals[0] > volume) {
+                volume = -volume;
+            }
+            ranking.record(pair, HOUR, price * volume, volume);
+            totals[0] += volume;
+            totals[1] += price * volume;
+        }
+
+        assertRanked(expected, ranking.top(50, PairActivityRanking.VOLUME), 0);
+        assertRanked(expected, ranking.top(50, PairActivityRanking.NOTIONAL), 1);
+        assertEquals(500, ranking.top(1000, PairActivityRanking.VOLUME).size());
+    }
+
+    private static void assertRanked(Map<String, double[]> expected, List<PairActivity> top, int metric) {
+        List<Map.Entry<String, double[]>> sorted = expected.entrySet().stream()
+                .sorted(Comparator.comparingDouble((Map.Entry<String, double[]> e) -> e.getValue()[metric]).reversed())
+                .toList();
+        assertEquals(50, top.size());
+        for (int i = 0; i < top.size(); i++) {
+            double[] totals = sorted.get(i).getValue();
+            assertEquals(totals[metric], metric == 0 ? top.get(i).getVolume() : top.get(i).getNotional(), 1e-6);
+        }
+    }
+
+    @Test
+    @DisplayName("Should start afresh in a later hour and ignore earlier ones")
+    void followsLatestHour() {
+        PairActivityRanking ranking = new PairActivityRanking();
+        ranking.record("EUR/USD", HOUR, 1100, 1000);
+        ranking.record("GBP/USD", HOUR.plusHours(1), 2500, 2000);
+        ranking.record("EUR/USD", HOUR, 1100, 1000);
+
+        List<PairActivity> top = ranking.top(10, PairActivityRanking.VOLUME);
+        assertEquals(1, top.size());
+        assertEquals("GBP/USD", top.get(0).getCurrencyPair());
+        assertEquals(HOUR.plusHours(1), top.get(0).getWindowStart());
+        assertEquals(1.25, top.get(0).getVwap(), 1e-12);
+    }
+
+    @Test
+    @DisplayName("Should drop pairs whose trades were all taken back out")
+    void omitsEmptiedPairs() {
+        PairActivityRanking ranking = new PairActivityRanking();
+        ranking.record("EUR/USD", HOUR, 1100, 1000);
+        ranking.record("GBP/USD", HOUR, 1250, 1000);
+        ranking.record("EUR/USD", HOUR, -1100, -1000);
+
+        List<PairActivity> top = ranking.top(10, PairActivityRanking.NOTIONAL);
+        assertEquals(List.of("GBP/USD"), top.stream().map(PairActivity::getCurrencyPair).toList());
+    }
+
+    @Test
+    @DisplayName("Should place pairs as they are recorded, leaving the query only to read")
+    void placesOnRecord() {
+        PairActivityRanking ranking = new PairActivityRanking();
+        ranking.record("EUR/USD", HOUR, 1100, 1000);
+        ranking.record("GBP/USD", HOUR, 2500, 2000);
+        ranking.record("USD/JPY", HOUR, 150_000, 1000);
+
+        Object hour = ((AtomicReference<?>) ReflectionTestUtils.getField(ranking, "current")).get();
+        assertNull(((AtomicReference<?>) ReflectionTestUtils.getField(hour, "moved")).get());
+        assertEquals(List.of("GBP/USD", "EUR/USD"), ranking.top(2, PairActivityRanking.VOLUME).stream()
+                .map(PairActivity::getCurrencyPair).toList());
+    }
+
+    @Test
+    @DisplayName("Should rank correctly while queried during concurrent recording")
+    void ranksUnderConcurrentRecording() throws Exception {
+        PairActivityRanking ranking = new PairActivityRanking();
+        int threads = 4;
+        int tradesPerThread = 20_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        CountDownLatch done = new CountDownLatch(threads);
+        try {
+            for (int t = 0; t < threads; t++) {
+                executor.submit(() -> {
+                    for (int i = 0; i < tradesPerThread; i++) {
+                        // Pair Pk gets k units per round, so the final order is known
+                        int k = 1 + i % 100;
+                        ranking.record("P" + k, HOUR, 1.1 * k, k);
+                    }
+                    done.countDown();
+                });
+            }
+            Future<?> reader = executor.submit(() -> {
+                while (done.getCount() > 0) {
+                    List<PairActivity> top = ranking.top(10, PairActivityRanking.VOLUME);
+                    for (int i = 1; i < top.size(); i++) {
+                        assertTrue(top.get(i - 1).getVolume() >= top.get(i).getVolume());
+                    }
+                }
+            });
+            assertTrue(done.await(30, TimeUnit.SECONDS));
+            reader.get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<PairActivity> top = ranking.top(3, PairActivityRanking.NOTIONAL);
+        assertEquals(List.of("P100", "P99", "P98"), top.stream().map(PairActivity::getCurrencyPair).toList());
+        assertEquals(100.0 * threads * tradesPerThread / 100, top.get(0).getVolume(), 1e-6);
+        assertEquals(100, ranking.size());
+    }
+}
@@ -0,0 +1,163 @@
+package com.exercise.vwap.service.impl;
+
+import com.exercise.vwap.domain.PairActivity;
+import com.exercise.vwap.domain.Trade;
+import com.exercise.vwap.domain.TradeEvent;
+import com.exercise.vwap.domain.TradeWindow;
+import com.exercise.vwap.domain.VwapResult;
+import com.exercise.vwap.domain.WindowSnapshot;
+import com.exercise.vwap.service.VwapCalculatorService;
+import com.exercise.vwap.service.WindowManager;
+import com.exercise.vwap.service.cluster.ClusterNodeClient;
+import com.exercise.vwap.service.cluster.ConsistentHashRing;
+import com.exercise.vwap.service.cluster.NodeUnavailableException;
+import com.exercise.vwap.service.strategy.impl.SimpleVwapStrategy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("PartitionedVwapCalculatorService Tests")
+class PartitionedVwapCalculatorServiceTest {
+    private static final String SELF = "http://localhost:8081";
+    private static final String PEER = "http://localhost:8082";
+
+    private VwapCalculatorService localService;
+    private WindowManager windowManager;
+    private ClusterNodeClient client;
+    private ConsistentHashRing ring;
+    private PartitionedVwapCalculatorService service;
+    private LocalDateTime baseTime;
+    private String localPair;
+    private String remotePair;
+
+    @BeforeEach
+    void setUp() {
+        localService = mock(VwapCalculatorService.class);
+        windowManager = mock(WindowManager.class);
+        client = mock(ClusterNodeClient.class);
+        ring = new ConsistentHashRing(List.of(SELF, PEER), 128);
+        service = new PartitionedVwapCalculatorService(localService, windowManager,
+                new SimpleVwapStrategy(), ring, SELF, client, 2, 10);
+        baseTime = LocalDateTime.of(2024, 1, 1, 10, 0);
+
+        for (String pair : List.of("EUR/USD", "GBP/USD", "AUD/USD", "USD/JPY", "USD/CHF", "NZD/USD")) {
+            if (SELF.equals(ring.ownerOf(pair)) && localPair == null) {
+                localPair = pair;
+            } else if (PEER.equals(ring.ownerOf(pair)) && remotePair == null) {
+                remotePair = pair;
+            }
+        }
+        assertNotNull(localPair);
+        assertNotNull(remotePair);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should process locally owned trades in place")
+    void localTrade() {
+        Trade trade = new Trade(baseTime, localPair, 1.1, 1000);
+        service.processTrade(trade);
+        verify(localService).processTrade(trade);
+        verifyNoInteractions(client);
+    }
+
+    @Test
+    @DisplayName("Should forward remotely owned trades in batches")
+    void forwardRemoteTrades() {
+        service.processTrade(new Trade(baseTime, remotePair, 1.1, 1000));
+        service.processTrade(new Trade(baseTime, remotePair, 1.2, 1000));
+
+        await().atMost(2, TimeUnit.SECONDS).until(() -> mockingDetails(client).getInvocations().stream()
+                .filter(invocation -> invocation.getMethod().getName().equals("forwardTrades"))
+                .mapToInt(invocation -> invocation.<List<TradeEvent>>getArgument(1).size())
+                .sum() == 2);
+        verify(client, atLeastOnce()).forwardTrades(eq(PEER), anyList());
+        verify(localService, never()).processTrade(any());
+    }
+
+    @Test
+    @DisplayName("Should merge windows gathered from every node for snapshots")
+    void snapshotMergesAcrossNodes() {
+        TradeWindow localWindow = new TradeWindow(baseTime);
+        localWindow.addTrade(new Trade(baseTime, remotePair, 1.0, 1000));
+        when(windowManager.getWindows(baseTime)).thenReturn(Map.of(remotePair, localWindow));
+        when(client.fetchWindows(eq(PEER), eq(baseTime), isNull())).thenReturn(List.of(
+                new WindowSnapshot(remotePair, baseTime, 2.0 * 3000, 3000, 1)));
+
+        List<VwapResult> snapshot = service.getSnapshot(baseTime);
+
+        assertEquals(1, snapshot.size());
+        // (1.0 * 1000 + 2.0 * 3000) / 4000
+        assertEquals(1.75, snapshot.get(0).getVwap(), 0.0001);
+    }
+
+    @Test
+    @DisplayName("Should merge the top pairs of every node for the latest hour")
+    void topPairsMergeAcrossNodes() {
+        when(windowManager.getTopPairs(2, false)).thenReturn(List.of(
+                PairActivity.of(localPair, baseTime.plusHours(1), 500, 550),
+                PairActivity.of(remotePair, baseTime.plusHours(1), 100, 150)));
+        when(client.fetchTopPairs(PEER, 2, false)).thenReturn(List.of(
+                PairActivity.of(remotePair, baseTime.plusHours(1), 700, 1050),
+                PairActivity.of("USD/CAD", baseTime, 9000, 12000)));
+
+        List<PairActivity> top = service.getTopPairs(2, "volume");
+
+        assertEquals(2, top.size());
+        assertEquals(remotePair, top.get(0).getCurrencyPair());
+        assertEquals(800, top.get(0).getVolume(), 1e-9);
+        assertEquals(1.5, top.get(0).getVwap(), 1e-12);
+        assertEquals(localPair, top.get(1).getCurrencyPair());
+    }
+
+    @Test
+    @DisplayName("Should query only the owning node for a remote pair")
+    void remoteVwap() {
+        when(client.fetchWindows(eq(PEER), eq(baseTime), eq(List.of(remotePair)))).thenReturn(List.of(
+                new WindowSnapshot(remotePair, baseTime, 1.5 * 100, 100, 1)));
+
+        VwapResult result = service.getVwap(remotePair, baseTime);
+
+        assertEquals(1.5, result.getVwap(), 0.0001);
+        verifyNoInteractions(localService);
+    }
+
+    @Test
+    @DisplayName("Should fail queries that need an unreachable node")
+    void unreachableNode() {
+        when(windowManager.getWindows(baseTime)).thenReturn(Map.of());
+        when(windowManager.getTopPairs(anyInt(), anyBoolean())).thenReturn(List.of());
+        when(client.fetchWindows(eq(PEER), any(), any())).thenThrow(new RuntimeException("connection refused"));
+        when(client.fetchTopPairs(eq(PEER), anyInt(), anyBoolean()))
+                .thenThrow(new RuntimeException("connection refused"));
+
+        NodeUnavailableException e = assertThrows(NodeUnavailableException.class,
+                () -> service.getSnapshot(baseTime));
+        assertEquals(List.of(PEER), e.getNodes());
+        assertThrows(NodeUnavailableException.class, () -> service.getVwaps(List.of(localPair, remotePair), baseTime));
+        assertThrows(NodeUnavailableException.class, () -> service.getBands(remotePair, baseTime, 2));
+        assertThrows(NodeUnavailableException.class, () -> service.getTopPairs(5, "volume"));
+    }
+
+    @Test
+    @DisplayName("Should reject configuration that omits this node")
+    void rejectMissingSelf() {
+        assertThrows(IllegalStateException.class, () -> new PartitionedVwapCalculatorService(localService,
+                windowManager, new SimpleVwapStrategy(), ring, "http://localhost:9999", client, 2, 10));
+    }
+}
@@ -2,10 +2,20 @@ package com.exercise.vwap.service.impl;
 
 import com.exercise.vwap.domain.Trade;
 import com.exercise.vwap.domain.TradeWindow;
+import com.exercise.vwap.domain.VenueVwap;
+import com.exercise.vwap.domain.VolumeProfileResult;
+import com.exercise.vwap.domain.VwapBandsResult;
+import com.exercise.vwap.domain.VwapBarResult;
+import com.exercise.vwap.domain.VwapDistributionResult;
 import com.exercise.vwap.domain.VwapResult;
+import com.exercise.vwap.service.AckMode;
 import com.exercise.vwap.service.VwapCalculatorService;
 import com.exercise.vwap.service.WindowManager;
+import com.exercise.vwap.service.journal.TradeJournal;
 import com.exercise.vwap.service.strategy.VwapStrategy;
+import com.exercise.vwap.service.strategy.VwapStrategyRegistry;
+import com.exercise.vwap.service.strategy.impl.CappedVolumeVwapStrategy;
+import com.exercise.vwap.service.strategy.impl.SimpleVwapStrategy;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -16,8 +26,18 @@ import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
 import static org.mockito.Mockito.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -109,6 +129,103 @@ class VwapCalculatorServiceImplTest {
         }
     }
 
+    @Nested
+    @DisplayName("Journaled Ingest Tests")
+    class JournaledIngestTests {
+        @Mock
+        private TradeJournal tradeJournal;
+
+        @Test
+        @DisplayName("Should journal before enqueueing without waiting in ENQUEUE mode")
+        void enqueueAck() {
+            var service = new VwapCalculatorServiceImpl(windowManager, vwapStrategy,
+                    Optional.of(tradeJournal), AckMode.ENQUEUE);
+            Trade trade = new Trade(baseTime, "EUR/USD", 1.1234, 1000000);
+            when(tradeJournal.append(trade)).thenReturn(7L);
+
+            service.processTrade(trade);
+
+            var order = inOrder(tradeJournal, windowManager);
+            order.verify(tradeJournal).append(trade);
+            order.verify(windowManager).addTrade(trade);
+            verify(tradeJournal, never()).awaitDurable(anyLong());
+        }
+
+        @Test
+        @DisplayName("Should wait once per batch in JOURNAL mode")
+        void journalAckBatch() {
+            var service = new VwapCalculatorServiceImpl(windowManager, vwapStrategy,
+                    Optional.of(tradeJournal), AckMode.JOURNAL);
+            Trade first = new Trade(baseTime, "EUR/USD", 1.1, 1000);
+            Trade second = new Trade(baseTime, "EUR/USD", 1.2, 1000);
+            when(tradeJournal.append(first)).thenReturn(1L);
+            when(tradeJournal.append(second)).thenReturn(2L);
+
+            service.processTrades(List.of(first, second));
+
+            verify(tradeJournal).awaitDurable(2L);
+            verify(windowManager).addTrade(first);
+            verify(windowManager).addTrade(second);
+        }
+
+        @Test
+        @DisplayName("Should journal concurrent producers' trades in the order they are queued")
+        void journalsInQueueOrder() throws Exception {
+            var service = new VwapCalculatorServiceImpl(windowManager, vwapStrategy,
+                    Optional.of(tradeJournal), AckMode.ENQUEUE);
+            List<Trade> journaled = Collections.synchronizedList(new ArrayList<>());
+            List<Trade> queued = Collections.synchronizedList(new ArrayList<>());
+            when(tradeJournal.append(any())).thenAnswer(invocation -> {
+                journaled.add(invocation.getArgument(0));
+                // Widen the gap between append and enqueue that another producer could slip into
+                LockSupport.parkNanos(20_000);
+                return (long) journaled.size();
+            });
+            doAnswer(invocation -> queued.add(invocation.getArgument(0))).when(windowManager).addTrade(any());
+
+            ExecutorService producers = Executors.newFixedThreadPool(4);
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int p = 0; p < 4; p++) {
+                    int producer = p;
+                    futures.add(producers.submit(() -> {
+                        for (int i = 0; i < 200; i++) {
+                            Trade trade = new Trade(baseTime.plusSeconds(i), "EUR/USD", 1.1, 1 + producer);
+                            if (i % 2 == 0) {
+                                service.processTrade(trade);
+                            } else {
+                                service.processTrades(List.of(trade, trade));
+                            }
+                        }
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get(30, TimeUnit.SECONDS);
+                }
+            } finally {
+                producers.shutdownNow();
+            }
+
+            assertEquals(1200, journaled.size());
+            assertEquals(journaled, queued);
+        }
+
+        @Test
+        @DisplayName("Should apply synchronously in APPLY mode")
+        void applyAck() {
+            var service = new VwapCalculatorServiceImpl(windowManager, vwapStrategy,
+                    Optional.of(tradeJournal), AckMode.APPLY);
+            Trade trade = new Trade(baseTime, "EUR/USD", 1.1234, 1000000);
+            when(tradeJournal.append(trade)).thenReturn(3L);
+
+            service.processTrade(trade);
+
+            verify(tradeJournal).awaitDurable(3L);
+            verify(windowManager).applyTrade(trade);
+            verify(windowManager, never()).addTrade(any());
+        }
+    }
+
     @Nested
     @DisplayName("VWAP Calculation Tests")
     class VwapCalculationTests {
@@ -174,6 +291,288 @@ class VwapCalculatorServiceImplTest {
         }
     }
 
+    @Nested
+    @DisplayName("VWAP Distribution Tests")
+    class VwapDistributionTests {
+        @Test
+        @DisplayName("Should return median and requested quantiles next to VWAP")
+        void shouldReturnDistribution() {
+            TradeWindow window = new TradeWindow(baseTime.truncatedTo(ChronoUnit.HOURS), 100);
+            window.addTrade(new Trade(baseTime, "EUR/USD", 1.10, 1000));
+            window.addTrade(new Trade(baseTime, "EUR/USD", 1.20, 1000));
+            window.addTrade(new Trade(baseTime, "EUR/USD", 1.30, 1000));
+            when(windowManager.getWindow("EUR/USD", baseTime)).thenReturn(window);
+            when(vwapStrategy.calculateVwap(window)).thenReturn(1.20);
+
+            VwapDistributionResult result = vwapCalculatorService.getVwapDistribution(
+                    "EUR/USD", baseTime, new double[]{0.0, 1.0});
+
+            assertEquals(1.20, result.getVwap());
+            assertEquals(1.20, result.getMedian(), 0.0001);
+            assertEquals(1.10, result.getQuantiles().get(0.0), 0.0001);
+            assertEquals(1.30, result.getQuantiles().get(1.0), 0.0001);
+        }
+
+        @Test
+        @DisplayName("Should fail when window carries no price sketch")
+        void shouldFailWithoutSketch() {
+            when(windowManager.getWindow("EUR/USD", baseTime)).thenReturn(new TradeWindow(baseTime));
+
+            assertThrows(IllegalStateException.class, () ->
+                    vwapCalculatorService.getVwapDistribution("EUR/USD", baseTime, new double[]{0.5}));
+        }
+
+        @Test
+        @DisplayName("Should reject quantiles outside [0, 1]")
+        void shouldRejectInvalidQuantiles() {
+            assertThrows(IllegalArgumentException.class, () ->
+                    vwapCalculatorService.getVwapDistribution("EUR/USD", baseTime, new double[]{1.5}));
+            verifyNoInteractions(windowManager);
+        }
+    }
+
+    @Nested
+    @DisplayName("Bar Tests")
+    class BarTests {
+        @Test
+        @DisplayName("Should return OHLC, count, volume and notional next to VWAP")
+        void shouldReturnBar() {
+            TradeWindow window = new TradeWindow(baseTime.truncatedTo(ChronoUnit.HOURS), 0, true);
+            window.addTrade(new Trade(baseTime.plusMinutes(1), "EUR/USD", 1.20, 1000));
+            window.addTrade(new Trade(baseTime, "EUR/USD", 1.10, 1000));
+            window.addTrade(new Trade(baseTime.plusMinutes(2), "EUR/USD", 1.30, 2000));
+            when(windowManager.getWindow("EUR/USD", baseTime)).thenReturn(window);
+            when(vwapStrategy.calculateVwap(window)).thenReturn(1.225);
+
+            VwapBarResult result = vwapCalculatorService.getBar("EUR/USD", baseTime);
+
+            assertEquals(1.225, result.getVwap());
+            assertEquals(1.10, result.getOpen());
+            assertEquals(1.30, result.getHigh());
+            assertEquals(1.10, result.getLow());
+            assertEquals(1.30, result.getClose());
+            assertEquals(3, result.getTradeCount());
+            assertEquals(4000, result.getVolume());
+            assertEquals(4900, result.getNotional(), 1e-9);
+        }
+
+        @Test
+        @DisplayName("Should fail when window keeps no bar")
+        void shouldFailWithoutBar() {
+            when(windowManager.getWindow("EUR/USD", baseTime)).thenReturn(new TradeWindow(baseTime));
+
+            assertThrows(IllegalStateException.class, () -> vwapCalculatorService.getBar("EUR/USD", baseTime));
+        }
+    }
+
+    @Nested
+    @DisplayName("Band Tests")
+    class BandTests {
+        @Test
+        @DisplayName("Should put bands k volume-weighted standard deviations around VWAP")
+        void shouldReturnBands() {
+            TradeWindow window = new TradeWindow(baseTime.truncatedTo(ChronoUnit.HOURS));
+            window.addTrade(new Trade(baseTime, "EUR/USD", 1.10, 3000));
+            window.addTrade(new Trade(baseTime, "EUR/USD", 1.20, 1000));
+            when(windowManager.getWindow("EUR/USD", baseTime)).thenReturn(window);
+            when(vwapStrategy.calculateVwap(window)).thenReturn(window.getVwap());
+
+            VwapBandsResult result = vwapCalculatorService.getBands("EUR/USD", baseTime, 2);
+
+            // Weighted mean 1.125, weighted variance 0.75 * 0.025^2 + 0.25 * 0.075^2
+            double stdDev = Math.sqrt(0.001875);
+            assertEquals(1.125, result.getVwap(), 1e-12);
+            assertEquals(stdDev, result.getStdDev(), 1e-9);
+            assertEquals(1.125 - 2 * stdDev, result.getLower(), 1e-9);
+            assertEquals(1.125 + 2 * stdDev, result.getUpper(), 1e-9);
+        }
+
+        @Test
+        @DisplayName("Should match batch and single-trade moments")
+        void batchMatchesSingleTrades() {
+            TradeWindow single = new TradeWindow(baseTime);
+            TradeWindow batched = new TradeWindow(baseTime);
+            double[] prices = {1.10, 1.12, 1.09, 1.15, 1.11};
+            double[] volumes = {100, 250, 75, 10, 500};
+            for (int i = 0; i < prices.length; i++) {
+                single.addTrade(new Trade(baseTime, "EUR/USD", prices[i], volumes[i]));
+            }
+            batched.addTrades(new long[prices.length], prices, volumes, 0, prices.length);
+
+            assertEquals(single.getVwapVariance(), batched.getVwapVariance(), 1e-12);
+        }
+
+        @Test
+        @DisplayName("Should fail when the window's second moment is unknown")
+        void shouldFailWithoutMoments() {
+            TradeWindow restored = TradeWindow.fromTotals(baseTime, 1100, 1000, 1);
+            when(windowManager.getWindow("EUR/USD", baseTime)).thenReturn(restored);
+
+            assertThrows(IllegalStateException.class, () -> vwapCalculatorService.getBands("EUR/USD", baseTime, 2));
+        }
+
+        @Test
+        @DisplayName("Should reject non-positive band widths")
+        void shouldRejectInvalidWidth() {
+            assertThrows(IllegalArgumentException.class, () -> vwapCalculatorService.getBands("EUR/USD", baseTime, 0));
+            verifyNoInteractions(windowManager);
+        }
+    }
+
+    @Nested
+    @DisplayName("Named Strategy Tests")
+    class NamedStrategyTests {
+        private final CappedVolumeVwapStrategy capped = new CappedVolumeVwapStrategy(1000);
+        private final VwapStrategyRegistry registry =
+                new VwapStrategyRegistry(List.of(new SimpleVwapStrategy(), capped));
+        private VwapCalculatorServiceImpl service;
+
+        @BeforeEach
+        void setUpService() {
+            service = new VwapCalculatorServiceImpl(windowManager, vwapStrategy, Optional.empty(), AckMode.ENQUEUE,
+                    Optional.of(registry));
+        }
+
+        @Test
+        @DisplayName("Should answer with the strategy selected by name")
+        void selectsByName() {
+            TradeWindow window = new TradeWindow(baseTime.truncatedTo(ChronoUnit.HOURS), 0, false, registry);
+            window.addTrade(new Trade(baseTime, "EUR/USD", 1.0, 1000));
+            window.addTrade(new Trade(baseTime, "EUR/USD", 2.0, 9000));
+            when(windowManager.getWindow("EUR/USD", baseTime)).thenReturn(window);
+
+            assertEquals(1.5, service.getVwap("EUR/USD", baseTime, "capped").getVwap(), 1e-12);
+            assertEquals(1.9, service.getVwap("EUR/USD", baseTime, "simple").getVwap(), 1e-12);
+            verifyNoInteractions(vwapStrategy);
+        }
+
+        @Test
+        @DisplayName("Should fail for windows that carry no strategy state")
+        void failsWithoutState() {
+            when(windowManager.getWindow("EUR/USD", baseTime)).thenReturn(new TradeWindow(baseTime));
+
+            assertThrows(IllegalStateException.class, () -> service.getVwap("EUR/USD", baseTime, "capped"));
+        }
+
+        @Test
+        @DisplayName("Should reject unknown strategy names")
+        void rejectsUnknownName() {
+            assertThrows(IllegalArgumentException.class, () -> service.getVwap("EUR/USD", baseTime, "twap"));
+            verifyNoInteractions(windowManager);
+        }
+    }
+
+    @Nested
+    @DisplayName("Correction Tests")
+    class CorrectionTests {
+        @Test
+        @DisplayName("Should return the corrected VWAP of the trade's window")
+        void shouldReturnCorrectedVwap() {
+            TradeWindow window = new TradeWindow(baseTime.truncatedTo(ChronoUnit.HOURS));
+            window.addTrade(new Trade(baseTime, "EUR/USD", 1.10, 1000));
+            when(windowManager.amendTrade("EUR/USD", "t-1", 1.10, 1000)).thenReturn(window);
+            when(vwapStrategy.calculateVwap(window)).thenReturn(1.10);
+
+            VwapResult result = vwapCalculatorService.amendTrade("EUR/USD", "t-1", 1.10, 1000);
+
+            assertEquals(1.10, result.getVwap());
+            assertEquals(baseTime.truncatedTo(ChronoUnit.HOURS), result.getWindowStart());
+        }
+
+        @Test
+        @DisplayName("Should reject corrections without an id or with an invalid amount")
+        void shouldValidateCorrections() {
+            assertThrows(IllegalArgumentException.class, () -> vwapCalculatorService.cancelTrade("EUR/USD", " "));
+            assertThrows(IllegalArgumentException.class, () -> vwapCalculatorService.cancelTrade("EURUSD", "t-1"));
+            assertThrows(IllegalArgumentException.class,
+                    () -> vwapCalculatorService.amendTrade("EUR/USD", "t-1", 1.10, 0));
+            assertThrows(IllegalArgumentException.class,
+                    () -> vwapCalculatorService.amendTrade("EUR/USD", "t-1", Double.NaN, 1000));
+            verifyNoInteractions(windowManager);
+        }
+    }
+
+    @Nested
+    @DisplayName("Top Pairs Tests")
+    class TopPairsTests {
+        @Test
+        @DisplayName("Should rank by volume unless notional is asked for")
+        void shouldSelectMetric() {
+            vwapCalculatorService.getTopPairs(10, null);
+            vwapCalculatorService.getTopPairs(5, "notional");
+
+            verify(windowManager).getTopPairs(10, false);
+            verify(windowManager).getTopPairs(5, true);
+        }
+
+        @Test
+        @DisplayName("Should reject an out of range count or unknown metric")
+        void shouldValidateRequest() {
+            assertThrows(IllegalArgumentException.class, () -> vwapCalculatorService.getTopPairs(0, "volume"));
+            assertThrows(IllegalArgumentException.class, () -> vwapCalculatorService.getTopPairs(1001, "volume"));
+            assertThrows(IllegalArgumentException.class, () -> vwapCalculatorService.getTopPairs(10, "trades"));
+            verifyNoInteractions(windowManager);
+        }
+    }
+
+    @Nested
+    @DisplayName("Venue Tests")
+    class VenueTests {
+        @Test
+        @DisplayName("Should report the venue's own volume-weighted VWAP")
+        void shouldComputeVenueVwap() {
+            TradeWindow venueWindow = TradeWindow.fromTotals(baseTime, 1.2 * 3000, 3000, 2);
+            when(windowManager.getVenueWindow("EUR/USD", baseTime, "EBS")).thenReturn(venueWindow);
+            List<VenueVwap> breakdown = List.of(VenueVwap.of("EBS", venueWindow));
+            when(windowManager.getVenueBreakdown("EUR/USD", baseTime)).thenReturn(breakdown);
+
+            VwapResult result = vwapCalculatorService.getVenueVwap("EUR/USD", baseTime, "EBS");
+
+            assertEquals(1.2, result.getVwap(), 1e-12);
+            assertEquals(breakdown, vwapCalculatorService.getVenueBreakdown("EUR/USD", baseTime));
+            verifyNoInteractions(vwapStrategy);
+        }
+
+        @Test
+        @DisplayName("Should reject a blank venue")
+        void shouldValidateVenue() {
+            assertThrows(IllegalArgumentException.class, () ->
+                    vwapCalculatorService.getVenueVwap("EUR/USD", baseTime, " "));
+            assertThrows(IllegalArgumentException.class, () ->
+                    vwapCalculatorService.getVenueBreakdown("EURUSD", baseTime));
+            verifyNoInteractions(windowManager);
+        }
+    }
+
+    @Nested
+    @DisplayName("Volume Profile Tests")
+    class VolumeProfileTests {
+        @Test
+        @DisplayName("Should serve the manager's profile and 404 without one")
+        void shouldServeProfile() {
+            LocalDate day = baseTime.toLocalDate();
+            VolumeProfileResult profile = new VolumeProfileResult("EUR/USD", day, 3, 60, new double[24],
+                    new double[24]);
+            when(windowManager.getVolumeProfile("EUR/USD", day, 60)).thenReturn(profile);
+
+            assertSame(profile, vwapCalculatorService.getVolumeProfile("EUR/USD", day, 60));
+            assertThrows(IllegalStateException.class, () -> vwapCalculatorService.getVolumeProfile("GBP/USD", day, 60));
+        }
+
+        @Test
+        @DisplayName("Should reject buckets that do not divide the day")
+        void shouldValidateBuckets() {
+            LocalDate day = baseTime.toLocalDate();
+            assertThrows(IllegalArgumentException.class,
+                    () -> vwapCalculatorService.getVolumeProfile("EUR/USD", day, 7));
+            assertThrows(IllegalArgumentException.class,
+                    () -> vwapCalculatorService.getVolumeProfile("EUR/USD", day, 0));
+            assertThrows(IllegalArgumentException.class,
+                    () -> vwapCalculatorService.getVolumeProfile("EUR/USD", null, 1));
+            verifyNoInteractions(windowManager);
+        }
+    }
+
     @Nested
     @DisplayName("Error Handling Tests")
     class ErrorHandlingTests {
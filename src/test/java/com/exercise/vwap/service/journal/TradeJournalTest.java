@@ -0,0 +1,226 @@
+package com.exercise.vwap.service.journal;
+
+import com.exercise.vwap.domain.Trade;
+import com.exercise.vwap.domain.TradeCorrection;
+import com.exercise.vwap.domain.TradeWindow;
+import com.exercise.vwap.service.impl.MemorySafeHourlyWindowManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("TradeJournal Tests")
+class TradeJournalTest {
+    private static final int SEGMENT_SIZE = TradeJournal.RECORD_SIZE * 4;
+
+    @TempDir
+    Path directory;
+
+    private LocalDateTime baseTime;
+
+    @BeforeEach
+    void setUp() {
+        baseTime = LocalDateTime.of(2024, 1, 1, 10, 0, 15, 123_000_000);
+    }
+
+    private TradeJournal open(List<Trade> replayed) {
+        return new TradeJournal(directory, SEGMENT_SIZE, 100, replayed::add);
+    }
+
+    @Test
+    @DisplayName("Should make appended trades durable")
+    void appendAndAwait() {
+        try (TradeJournal journal = open(new ArrayList<>())) {
+            long first = journal.append(new Trade(baseTime, "EUR/USD", 1.1, 1000));
+            long second = journal.append(new Trade(baseTime, "EUR/USD", 1.2, 2000));
+
+            journal.awaitDurable(second);
+
+            assertEquals(1, first);
+            assertEquals(2, second);
+            assertTrue(journal.getDurableSequence() >= 2);
+        }
+    }
+
+    @Test
+    @DisplayName("Should replay trades across segments after restart")
+    void replayAfterRestart() throws IOException {
+        try (TradeJournal journal = open(new ArrayList<>())) {
+            for (int i = 0; i < 10; i++) {
+                journal.append(new Trade(baseTime.plusMinutes(i), "EUR/USD", 1.0 + i, 100 + i));
+            }
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(3, files.count());
+        }
+
+        List<Trade> replayed = new ArrayList<>();
+        try (TradeJournal journal = open(replayed)) {
+            assertEquals(11, journal.append(new Trade(baseTime, "GBP/USD", 1.3, 1)));
+        }
+
+        assertEquals(10, replayed.size());
+        assertEquals(baseTime.plusMinutes(9), replayed.get(9).getTimestamp());
+        assertEquals("EUR/USD", replayed.get(9).getCurrencyPair());
+        assertEquals(10.0, replayed.get(9).getPrice());
+        assertEquals(109.0, replayed.get(9).getVolume());
+    }
+
+    @Test
+    @DisplayName("Should stop replay at a torn record and overwrite it")
+    void tornRecord() throws IOException {
+        try (TradeJournal journal = open(new ArrayList<>())) {
+            journal.append(new Trade(baseTime, "EUR/USD", 1.1, 1000));
+            journal.append(new Trade(baseTime, "EUR/USD", 1.2, 1000));
+        }
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        // Corrupt the price of the second record
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{1, 2, 3}), TradeJournal.RECORD_SIZE + 24);
+        }
+
+        List<Trade> replayed = new ArrayList<>();
+        try (TradeJournal journal = open(replayed)) {
+            assertEquals(2, journal.append(new Trade(baseTime, "GBP/USD", 1.3, 1)));
+        }
+        assertEquals(1, replayed.size());
+
+        List<Trade> second = new ArrayList<>();
+        open(second).close();
+        assertEquals(2, second.size());
+        assertEquals("GBP/USD", second.get(1).getCurrencyPair());
+    }
+
+    @Test
+    @DisplayName("Should replay only records after the checkpoint sequence")
+    void replayAfterCheckpoint() {
+        try (TradeJournal journal = open(new ArrayList<>())) {
+            for (int i = 0; i < 6; i++) {
+                journal.append(new Trade(baseTime, "EUR/USD", 1.0 + i, 100));
+            }
+        }
+
+        List<Trade> replayed = new ArrayList<>();
+        new TradeJournal(directory, SEGMENT_SIZE, 100, replayed::add, 4).close();
+
+        assertEquals(2, replayed.size());
+        assertEquals(5.0, replayed.get(0).getPrice());
+    }
+
+    @Test
+    @DisplayName("Should reject segment sizes whose byte count overflows an int")
+    void rejectsOversizedSegments() {
+        assertEquals(64 * 1024 * 1024, TradeJournal.segmentBytes(64));
+        assertTrue(TradeJournal.segmentBytes(TradeJournal.MAX_SEGMENT_SIZE_MB) > 0);
+        assertThrows(IllegalArgumentException.class, () -> TradeJournal.segmentBytes(2048));
+        assertThrows(IllegalArgumentException.class, () -> TradeJournal.segmentBytes(0));
+    }
+
+    @Test
+    @DisplayName("Should delete only segments fully covered by a checkpoint")
+    void deleteCoveredSegments() throws IOException {
+        try (TradeJournal journal = open(new ArrayList<>())) {
+            for (int i = 0; i < 10; i++) {
+                journal.append(new Trade(baseTime, "EUR/USD", 1.0 + i, 100));
+            }
+            // Segments hold sequences 1-4, 5-8 and 9-12
+            assertEquals(0, journal.deleteSegmentsUpTo(3));
+            assertEquals(1, journal.deleteSegmentsUpTo(6));
+            assertEquals(1, journal.deleteSegmentsUpTo(100));
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    @DisplayName("Should start after the checkpoint when the journal is behind it")
+    void journalBehindCheckpoint() {
+        try (TradeJournal journal = open(new ArrayList<>())) {
+            journal.append(new Trade(baseTime, "EUR/USD", 1.0, 100));
+        }
+
+        List<Trade> replayed = new ArrayList<>();
+        try (TradeJournal journal = new TradeJournal(directory, SEGMENT_SIZE, 100, replayed::add, 50)) {
+            assertEquals(51, journal.append(new Trade(baseTime, "EUR/USD", 2.0, 100)));
+        }
+        assertTrue(replayed.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should replay amendments and cancellations after restart")
+    void replayCorrectionsAfterRestart() {
+        MemorySafeHourlyWindowManager live = new MemorySafeHourlyWindowManager();
+        try (TradeJournal journal = new TradeJournal(directory, SEGMENT_SIZE, 100, live::applyTrade,
+                live::applyCorrection, 0)) {
+            live.addTradeListener(journal);
+            for (int i = 1; i <= 3; i++) {
+                Trade trade = new Trade(baseTime.plusSeconds(i), "EUR/USD", 1.0 + i / 10.0, 1000 * i, "t-" + i);
+                journal.append(trade);
+                live.applyTrade(trade);
+            }
+            // Does not fit in the first segment's last slot, so both records go to the next one
+            live.amendTrade("EUR/USD", "t-2", 1.5, 500);
+            live.cancelTrade("EUR/USD", "t-3");
+        }
+
+        MemorySafeHourlyWindowManager restored = new MemorySafeHourlyWindowManager();
+        List<TradeCorrection> corrections = new ArrayList<>();
+        new TradeJournal(directory, SEGMENT_SIZE, 100, restored::applyTrade, correction -> {
+            corrections.add(correction);
+            restored.applyCorrection(correction);
+        }, 0).close();
+
+        assertEquals(2, corrections.size());
+        assertEquals(2000, corrections.get(0).getOriginal().getVolume());
+        assertEquals(500, corrections.get(0).getAmended().getVolume());
+        assertNull(corrections.get(1).getAmended());
+        TradeWindow expected = live.getWindow("EUR/USD", baseTime);
+        TradeWindow actual = restored.getWindow("EUR/USD", baseTime);
+        assertEquals(2, actual.getTradeCount().get());
+        assertEquals(expected.getSumVolume().get(), actual.getSumVolume().get(), 1e-9);
+        assertEquals(expected.getVwap(), actual.getVwap(), 1e-12);
+    }
+
+    @Test
+    @DisplayName("Should not replay an amendment whose replacement was never written")
+    void tornAmendment() throws IOException {
+        try (TradeJournal journal = open(new ArrayList<>())) {
+            journal.append(new Trade(baseTime, "EUR/USD", 1.1, 1000, "t-1"));
+            journal.appendCorrection(new TradeCorrection(new Trade(baseTime, "EUR/USD", 1.1, 1000, "t-1"),
+                    new Trade(baseTime, "EUR/USD", 1.2, 1000, "t-1")));
+        }
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(TradeJournal.RECORD_SIZE), 2L * TradeJournal.RECORD_SIZE);
+        }
+
+        List<Trade> replayed = new ArrayList<>();
+        List<TradeCorrection> corrections = new ArrayList<>();
+        try (TradeJournal journal = new TradeJournal(directory, SEGMENT_SIZE, 100, replayed::add, corrections::add,
+                0)) {
+            assertEquals(2, journal.append(new Trade(baseTime, "EUR/USD", 1.3, 1000)));
+        }
+        assertEquals(1, replayed.size());
+        assertTrue(corrections.isEmpty());
+    }
+}
@@ -0,0 +1,63 @@
+package com.exercise.vwap.service.lanes;
+
+import com.exercise.vwap.domain.LaneStatus;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ExecutionLane Tests")
+class ExecutionLaneTest {
+
+    @Test
+    @DisplayName("Should admit up to the limit and reject beyond it")
+    void shouldRejectBeyondLimit() {
+        ExecutionLane lane = new ExecutionLane("query", 2, 0);
+
+        assertTrue(lane.tryEnter());
+        assertTrue(lane.tryEnter());
+        assertFalse(lane.tryEnter());
+
+        LaneStatus status = lane.getStatus();
+        assertEquals(2, status.getActive());
+        assertEquals(2, status.getAdmitted());
+        assertEquals(1, status.getRejected());
+
+        lane.exit();
+        assertTrue(lane.tryEnter());
+    }
+
+    @Test
+    @DisplayName("Should admit a waiting request once a permit is released")
+    void shouldAdmitWaiterOnRelease() throws Exception {
+        ExecutionLane lane = new ExecutionLane("ingest", 1, 5_000);
+        assertTrue(lane.tryEnter());
+
+        CompletableFuture<Boolean> waiter = CompletableFuture.supplyAsync(lane::tryEnter);
+        Thread.sleep(50);
+        assertFalse(waiter.isDone());
+
+        lane.exit();
+        assertTrue(waiter.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("Should keep lanes independent")
+    void shouldKeepLanesIndependent() {
+        ExecutionLanes lanes = new ExecutionLanes(true, 1, 0, 1, 0);
+
+        assertTrue(lanes.getIngest().tryEnter());
+        assertFalse(lanes.getIngest().tryEnter());
+        assertTrue(lanes.getQuery().tryEnter());
+    }
+
+    @Test
+    @DisplayName("Should reject invalid limits")
+    void shouldRejectInvalidLimits() {
+        assertThrows(IllegalArgumentException.class, () -> new ExecutionLane("query", 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new ExecutionLane("query", 1, -1));
+    }
+}
@@ -0,0 +1,97 @@
+package com.exercise.vwap.service.metrics;
+
+import com.exercise.vwap.domain.AllocationStats;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+@DisplayName("AllocationTracker Tests")
+class AllocationTrackerTest {
+    private static final int ONE_MB = 1 << 20;
+
+    private AllocationTracker tracker;
+    private byte[] retained;
+
+    @BeforeEach
+    void setUp() {
+        tracker = new AllocationTracker();
+        assumeTrue(tracker.isEnabled(), "JVM does not count per-thread allocation");
+    }
+
+    @Test
+    @DisplayName("Should charge allocation between begin and end to the endpoint")
+    void shouldChargeAllocationToEndpoint() {
+        tracker.begin();
+        retained = new byte[ONE_MB];
+        tracker.countItems(4);
+        tracker.end("POST /trades");
+
+        AllocationStats stats = tracker.getStats().get(0);
+        assertEquals("POST /trades", stats.getEndpoint());
+        assertEquals(1, stats.getCalls());
+        assertEquals(4, stats.getItems());
+        assertTrue(stats.getAllocatedBytes() >= ONE_MB, "allocated " + stats.getAllocatedBytes());
+        assertTrue(stats.getAllocatedBytes() < 2 * ONE_MB, "allocated " + stats.getAllocatedBytes());
+        assertEquals(stats.getAllocatedBytes() / 4.0, stats.getBytesPerItem());
+    }
+
+    @Test
+    @DisplayName("Should fold nested measurements into the outermost one")
+    void shouldFoldNestedMeasurements() {
+        tracker.begin();
+        tracker.begin();
+        tracker.countItems(1);
+        tracker.end("inner");
+        tracker.countItems(1);
+        tracker.end("outer");
+
+        List<AllocationStats> stats = tracker.getStats();
+        assertEquals(1, stats.size());
+        assertEquals("outer", stats.get(0).getEndpoint());
+        assertEquals(2, stats.get(0).getItems());
+    }
+
+    @Test
+    @DisplayName("Should ignore items and ends outside a measurement")
+    void shouldIgnoreCallsOutsideMeasurement() {
+        tracker.countItems(10);
+        tracker.end("stray");
+        tracker.begin();
+        tracker.end("GET /snapshot");
+
+        AllocationStats stats = tracker.getStats().get(0);
+        assertEquals(1, tracker.getStats().size());
+        assertEquals(0, stats.getItems());
+        assertEquals(0.0, stats.getBytesPerItem());
+    }
+
+    @Test
+    @DisplayName("Should accumulate calls per endpoint until reset")
+    void shouldAccumulateUntilReset() {
+        for (int i = 0; i < 3; i++) {
+            tracker.begin();
+            tracker.end("GET /pair");
+        }
+        assertEquals(3, tracker.getStats().get(0).getCalls());
+
+        tracker.reset();
+        assertTrue(tracker.getStats().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should do nothing when disabled")
+    void shouldDoNothingWhenDisabled() {
+        AllocationTracker disabled = new AllocationTracker(false);
+        disabled.begin();
+        disabled.end("GET /pair");
+
+        assertFalse(disabled.isEnabled());
+        assertEquals(-1, disabled.currentThreadAllocatedBytes());
+        assertTrue(disabled.getStats().isEmpty());
+    }
+}
@@ -0,0 +1,114 @@
+package com.exercise.vwap.service.profile;
+
+import com.exercise.vwap.domain.VolumeProfileResult;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("IntradayVolumeProfiles Tests")
+class IntradayVolumeProfilesTest {
+    private static final LocalDate DAY = LocalDate.of(2024, 1, 2);
+    private static final int NINE = 9 * 60;
+    private static final int TEN = 10 * 60;
+
+    @TempDir
+    Path directory;
+
+    private static LocalDateTime at(LocalDate day, int hour, int minute) {
+        return day.atTime(hour, minute, 30);
+    }
+
+    @Test
+    @DisplayName("Should serve the finished day's shares from the next open and decay older days")
+    void buildsDecayedCurve() {
+        IntradayVolumeProfiles profiles = new IntradayVolumeProfiles(1, null);
+        profiles.record("EUR/USD", at(DAY, 9, 0), 1000);
+        profiles.record("EUR/USD", at(DAY, 10, 0), 3000);
+
+        assertNull(profiles.profile("EUR/USD", DAY, 1));
+        VolumeProfileResult open = profiles.profile("EUR/USD", DAY.plusDays(1), 1);
+        assertEquals(1, open.getDaysObserved());
+        assertEquals(0.25, open.getFractions()[NINE], 1e-7);
+        assertEquals(0.75, open.getFractions()[TEN], 1e-7);
+        assertEquals(1.0, open.getCumulative()[IntradayVolumeProfiles.MINUTES_PER_DAY - 1], 1e-6);
+
+        profiles.record("EUR/USD", at(DAY.plusDays(1), 9, 0), 500);
+        profiles.record("EUR/USD", at(DAY, 11, 0), 1e9); // already folded
+        // A weekend without trades is skipped, not decayed
+        VolumeProfileResult monday = profiles.profile("EUR/USD", DAY.plusDays(4), 60);
+        assertEquals(2, monday.getDaysObserved());
+        assertEquals(24, monday.getFractions().length);
+        assertEquals(0.5 * 0.25 + 0.5 * 1.0, monday.getFractions()[9], 1e-6);
+        assertEquals(0.375, monday.getFractions()[10], 1e-6);
+        assertEquals(0.0, monday.getFractions()[11], 1e-12);
+        assertEquals(0.625, monday.getCumulative()[9], 1e-6);
+
+        assertThrows(IllegalStateException.class, () -> profiles.profile("EUR/USD", DAY, 1));
+        assertNull(profiles.profile("GBP/USD", DAY, 1));
+    }
+
+    @Test
+    @DisplayName("Should take corrected volume back out of its minute")
+    void correctsVolume() {
+        IntradayVolumeProfiles profiles = new IntradayVolumeProfiles(10, null);
+        profiles.record("EUR/USD", at(DAY, 9, 0), 1000);
+        profiles.record("EUR/USD", at(DAY, 10, 0), 1000);
+        profiles.record("EUR/USD", at(DAY, 10, 0), -1000);
+
+        assertEquals(1.0, profiles.profile("EUR/USD", DAY.plusDays(1), 1).getFractions()[NINE], 1e-7);
+    }
+
+    @Test
+    @DisplayName("Should save profiles and load them on start-up")
+    void roundTrip() {
+        IntradayVolumeProfiles profiles = new IntradayVolumeProfiles(10, directory);
+        profiles.record("EUR/USD", at(DAY, 9, 0), 1000);
+        profiles.record("EUR/USD", at(DAY.plusDays(1), 10, 0), 1000);
+        profiles.record("USD/JPY", at(DAY, 23, 59), 10);
+        profiles.close();
+
+        IntradayVolumeProfiles restored = new IntradayVolumeProfiles(10, directory);
+        assertEquals(2, restored.getPairCount());
+        VolumeProfileResult before = profiles.profile("EUR/USD", DAY.plusDays(2), 1);
+        VolumeProfileResult after = restored.profile("EUR/USD", DAY.plusDays(2), 1);
+        assertEquals(2, after.getDaysObserved());
+        assertArrayEquals(before.getFractions(), after.getFractions(), 0);
+        assertEquals(1.0, restored.profile("USD/JPY", DAY.plusDays(1), 1).getFractions()[23 * 60 + 59], 1e-7);
+        restored.close();
+    }
+
+    @Test
+    @DisplayName("Should keep the saved current day only when the journal replay starts where it was saved")
+    void keepsCurrentDayOnlyForMatchingReplay() {
+        IntradayVolumeProfiles profiles = new IntradayVolumeProfiles(10, directory);
+        profiles.record("EUR/USD", at(DAY, 9, 0), 1000);
+        profiles.saveWithCheckpoints();
+        profiles.write(profiles.encode(5));
+        profiles.record("EUR/USD", at(DAY, 10, 0), 1000);
+        // Saving is left to checkpoints, so this trade is not saved
+        profiles.close();
+
+        IntradayVolumeProfiles matching = new IntradayVolumeProfiles(10, directory);
+        matching.prepareForReplay(5);
+        matching.record("EUR/USD", at(DAY, 10, 0), 3000);
+        assertEquals(0.25, matching.profile("EUR/USD", DAY.plusDays(1), 1).getFractions()[NINE], 1e-7);
+
+        // A whole-journal replay re-records the day, which must not count twice
+        IntradayVolumeProfiles replayed = new IntradayVolumeProfiles(10, directory);
+        replayed.prepareForReplay(0);
+        replayed.record("EUR/USD", at(DAY, 9, 0), 1000);
+        replayed.record("EUR/USD", at(DAY, 10, 0), 3000);
+        assertEquals(0.25, replayed.profile("EUR/USD", DAY.plusDays(1), 1).getFractions()[NINE], 1e-7);
+
+        profiles.save();
+        IntradayVolumeProfiles unsequenced = new IntradayVolumeProfiles(10, directory);
+        unsequenced.prepareForReplay(5);
+        assertNull(unsequenced.profile("EUR/USD", DAY.plusDays(1), 1));
+    }
+}
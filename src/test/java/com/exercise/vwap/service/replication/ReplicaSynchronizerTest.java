@@ -0,0 +1,56 @@
+package com.exercise.vwap.service.replication;
+
+import com.exercise.vwap.domain.ReplicationBatch;
+import com.exercise.vwap.domain.Trade;
+import com.exercise.vwap.domain.TradeWindow;
+import com.exercise.vwap.service.impl.MemorySafeHourlyWindowManager;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestClient;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ReplicaSynchronizer Tests")
+class ReplicaSynchronizerTest {
+    private static final LocalDateTime BASE_TIME = LocalDateTime.of(2024, 1, 1, 10, 0);
+
+    @Test
+    @DisplayName("Should converge with the primary through amendments and cancellations")
+    void convergesThroughCorrections() {
+        MemorySafeHourlyWindowManager primary = new MemorySafeHourlyWindowManager();
+        ReplicationLog replicationLog = new ReplicationLog(primary, 100);
+        for (int i = 1; i <= 3; i++) {
+            primary.applyTrade(new Trade(BASE_TIME.plusSeconds(i), "EUR/USD", 1.0 + i / 10.0, 1000 * i, "t-" + i));
+        }
+        primary.amendTrade("EUR/USD", "t-1", 1.5, 4000);
+        primary.cancelTrade("EUR/USD", "t-2");
+
+        MemorySafeHourlyWindowManager replica = new MemorySafeHourlyWindowManager();
+        // Nothing listens on the primary URL; the test feeds batches in directly
+        ReplicaSynchronizer synchronizer = new ReplicaSynchronizer(replica, RestClient.create(),
+                "http://localhost:1", 100, 60_000, 5000);
+        try {
+            ReplicationBatch batch = replicationLog.read(0, 100);
+            assertEquals(5, batch.getTrades().size());
+            synchronizer.apply(batch);
+
+            TradeWindow expected = primary.getWindow("EUR/USD", BASE_TIME);
+            TradeWindow actual = replica.getWindow("EUR/USD", BASE_TIME);
+            assertEquals(2, actual.getTradeCount().get());
+            assertEquals(expected.getSumVolume().get(), actual.getSumVolume().get(), 1e-9);
+            assertEquals(expected.getVwap(), actual.getVwap(), 1e-12);
+            assertEquals(5, synchronizer.getStatus().getAppliedSequence());
+
+            // The replica indexes the amended trade, so a later correction finds it there too
+            primary.cancelTrade("EUR/USD", "t-1");
+            synchronizer.apply(replicationLog.read(5, 100));
+            assertEquals(primary.getWindow("EUR/USD", BASE_TIME).getVwap(),
+                    replica.getWindow("EUR/USD", BASE_TIME).getVwap(), 1e-12);
+            assertEquals(1, replica.getWindow("EUR/USD", BASE_TIME).getTradeCount().get());
+        } finally {
+            synchronizer.shutdown();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.exercise.vwap.service.replication;
+
+import com.exercise.vwap.domain.ReplicationBatch;
+import com.exercise.vwap.domain.Trade;
+import com.exercise.vwap.domain.TradeWindow;
+import com.exercise.vwap.service.WindowManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("ReplicationLog Tests")
+class ReplicationLogTest {
+    private WindowManager windowManager;
+    private ReplicationLog replicationLog;
+    private LocalDateTime baseTime;
+
+    @BeforeEach
+    void setUp() {
+        windowManager = mock(WindowManager.class);
+        replicationLog = new ReplicationLog(windowManager, 4);
+        baseTime = LocalDateTime.of(2024, 1, 1, 10, 0);
+    }
+
+    private void append(long sequence, double price) {
+        replicationLog.onTradeApplied(sequence, new Trade(baseTime, "EUR/USD", price, 1000));
+    }
+
+    @Test
+    @DisplayName("Should register itself as a trade listener")
+    void registersListener() {
+        verify(windowManager).addTradeListener(replicationLog);
+    }
+
+    @Test
+    @DisplayName("Should return trades after the requested sequence")
+    void readsFromPosition() {
+        append(1, 1.1);
+        append(2, 1.2);
+        append(3, 1.3);
+
+        ReplicationBatch batch = replicationLog.read(1, 10);
+
+        assertFalse(batch.isResyncRequired());
+        assertEquals(2, batch.getFirstSequence());
+        assertEquals(3, batch.getHeadSequence());
+        assertEquals(2, batch.getTrades().size());
+        assertEquals(1.2, batch.getTrades().get(0).getPrice());
+    }
+
+    @Test
+    @DisplayName("Should cap batch size")
+    void capsBatch() {
+        append(1, 1.1);
+        append(2, 1.2);
+        append(3, 1.3);
+
+        assertEquals(1, replicationLog.read(0, 1).getTrades().size());
+    }
+
+    @Test
+    @DisplayName("Should request resync when position has been overwritten")
+    void resyncWhenOverwritten() {
+        for (int i = 1; i <= 6; i++) {
+            append(i, 1.0 + i / 10.0);
+        }
+
+        assertTrue(replicationLog.read(1, 10).isResyncRequired());
+        assertEquals(4, replicationLog.read(2, 10).getTrades().size());
+    }
+
+    @Test
+    @DisplayName("Should request resync after a sequence gap")
+    void resyncAfterGap() {
+        append(1, 1.1);
+        append(10, 1.2);
+
+        assertTrue(replicationLog.read(1, 10).isResyncRequired());
+        assertEquals(0, replicationLog.read(10, 10).getTrades().size());
+    }
+
+    @Test
+    @DisplayName("Should request resync when replica is ahead of primary")
+    void resyncWhenAhead() {
+        append(1, 1.1);
+        assertTrue(replicationLog.read(5, 10).isResyncRequired());
+    }
+
+    @Test
+    @DisplayName("Should send replicas behind a merged window to the snapshot")
+    void resyncsAcrossMergedWindow() {
+        append(1, 1.1);
+        replicationLog.onWindowMerged(2, "EUR/USD", new TradeWindow(baseTime));
+        append(3, 1.3);
+
+        assertTrue(replicationLog.read(1, 10).isResyncRequired());
+        ReplicationBatch batch = replicationLog.read(2, 10);
+        assertFalse(batch.isResyncRequired());
+        assertEquals(1.3, batch.getTrades().get(0).getPrice());
+    }
+}
@@ -0,0 +1,42 @@
+package com.exercise.vwap.service.rollover;
+
+import com.exercise.vwap.domain.Trade;
+import com.exercise.vwap.service.impl.MemorySafeHourlyWindowManager;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("WindowCleaner Tests")
+class WindowCleanerTest {
+
+    @Test
+    @DisplayName("Should drop windows past retention on its own schedule")
+    void shouldDropExpiredWindows() {
+        MemorySafeHourlyWindowManager windowManager = new MemorySafeHourlyWindowManager(100, 10, 2);
+        LocalDateTime now = LocalDateTime.now();
+        windowManager.applyTrade(new Trade(now.minusHours(5), "EUR/USD", 1.1, 1000));
+        windowManager.applyTrade(new Trade(now.minusHours(5), "GBP/USD", 1.3, 1000));
+        windowManager.applyTrade(new Trade(now, "GBP/USD", 1.3, 1000));
+        assertEquals(2, windowManager.getWindowCounts().get("GBP/USD"));
+
+        WindowCleaner cleaner = new WindowCleaner(windowManager, 20, TimeUnit.MILLISECONDS);
+        try {
+            await().atMost(2, TimeUnit.SECONDS).until(() -> !windowManager.getWindowCounts().containsKey("EUR/USD"));
+            assertEquals(1, windowManager.getWindowCounts().get("GBP/USD"));
+        } finally {
+            cleaner.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Should reject a non-positive interval")
+    void shouldRejectInvalidInterval() {
+        MemorySafeHourlyWindowManager windowManager = new MemorySafeHourlyWindowManager();
+        assertThrows(IllegalArgumentException.class, () -> new WindowCleaner(windowManager, 0, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,54 @@
+package com.exercise.vwap.service.rollover;
+
+import com.exercise.vwap.service.WindowManager;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DisplayName("WindowPrewarmer Tests")
+class WindowPrewarmerTest {
+
+    @Test
+    @DisplayName("Should run the lead time before the next boundary")
+    void shouldScheduleBeforeBoundary() {
+        LocalDateTime now = LocalDateTime.of(2024, 1, 1, 10, 15);
+
+        assertEquals(44 * 60_000 + 30_000, WindowPrewarmer.millisUntilNextRun(now, 30));
+    }
+
+    @Test
+    @DisplayName("Should move to the following hour once inside the lead window")
+    void shouldSkipToFollowingHour() {
+        LocalDateTime now = LocalDateTime.of(2024, 1, 1, 10, 59, 45);
+
+        // Next run is 11:59:30
+        assertEquals((59 * 60 + 45) * 1000, WindowPrewarmer.millisUntilNextRun(now, 30));
+    }
+
+    @Test
+    @DisplayName("Should pre-warm the hour after the current one")
+    void shouldPrewarmNextHour() {
+        WindowManager windowManager = mock(WindowManager.class);
+        LocalDateTime nextHour = LocalDateTime.of(2024, 1, 1, 11, 0);
+        when(windowManager.prewarmWindows(nextHour)).thenReturn(3);
+        WindowPrewarmer prewarmer = new WindowPrewarmer(windowManager, 30, false);
+
+        assertEquals(3, prewarmer.prewarm(LocalDateTime.of(2024, 1, 1, 10, 59, 30)));
+        verify(windowManager).prewarmWindows(nextHour);
+        prewarmer.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should reject a lead outside the hour")
+    void shouldRejectInvalidLead() {
+        WindowManager windowManager = mock(WindowManager.class);
+        assertThrows(IllegalArgumentException.class, () -> new WindowPrewarmer(windowManager, 0, false));
+        assertThrows(IllegalArgumentException.class, () -> new WindowPrewarmer(windowManager, 3600, false));
+    }
+}
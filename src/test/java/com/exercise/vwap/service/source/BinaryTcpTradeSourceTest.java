@@ -0,0 +1,142 @@
+package com.exercise.vwap.service.source;
+
+import com.exercise.vwap.domain.Trade;
+import com.exercise.vwap.utils.BinaryTradeCodec;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("BinaryTcpTradeSource Tests")
+class BinaryTcpTradeSourceTest {
+    private static final LocalDateTime TIME = LocalDateTime.of(2024, 1, 1, 10, 15);
+
+    private final List<Trade> received = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean failIngest = new AtomicBoolean();
+    private BinaryTcpTradeSource source;
+    private SocketChannel client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        source = new BinaryTcpTradeSource("127.0.0.1", 0, 100, 2);
+        source.start(trades -> {
+            if (failIngest.get()) {
+                throw new IllegalStateException("journal unavailable");
+            }
+            received.addAll(trades);
+        });
+        client = SocketChannel.open(new InetSocketAddress("127.0.0.1", source.getLocalPort()));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        client.close();
+        source.stop();
+    }
+
+    private static void putFrame(ByteBuffer buffer, long batchId, Trade... trades) {
+        buffer.putInt(BinaryTcpTradeSource.HEADER_SIZE + trades.length * BinaryTradeCodec.TRADE_SIZE);
+        buffer.putLong(batchId).putInt(trades.length);
+        for (Trade trade : trades) {
+            BinaryTradeCodec.encode(buffer, buffer.position(), trade);
+            buffer.position(buffer.position() + BinaryTradeCodec.TRADE_SIZE);
+        }
+    }
+
+    private ByteBuffer readAcks(int count) throws IOException {
+        ByteBuffer acks = ByteBuffer.allocate(count * BinaryTcpTradeSource.ACK_SIZE);
+        while (acks.hasRemaining()) {
+            if (client.read(acks) < 0) {
+                fail("Connection closed before all acks arrived");
+            }
+        }
+        return acks.flip();
+    }
+
+    @Test
+    @DisplayName("Should decode pipelined batches and acknowledge each in order")
+    void pipelinedBatches() throws IOException {
+        ByteBuffer out = ByteBuffer.allocate(1024);
+        putFrame(out, 7, new Trade(TIME, "EUR/USD", 1.10, 100), new Trade(TIME, "USD/JPY", 142.5, 10));
+        putFrame(out, 8, new Trade(TIME.plusSeconds(1), "EUR/USD", 1.20, 200));
+        client.write(out.flip());
+
+        ByteBuffer acks = readAcks(2);
+        assertEquals(7, acks.getLong());
+        assertEquals(BinaryTcpTradeSource.STATUS_ACCEPTED, acks.getInt());
+        assertEquals(2, acks.getInt());
+        assertEquals(8, acks.getLong());
+        assertEquals(BinaryTcpTradeSource.STATUS_ACCEPTED, acks.getInt());
+        assertEquals(1, acks.getInt());
+
+        assertEquals(3, received.size());
+        assertEquals("USD/JPY", received.get(1).getCurrencyPair());
+        assertEquals(TIME.plusSeconds(1), received.get(2).getTimestamp());
+        assertEquals(200, received.get(2).getVolume());
+    }
+
+    @Test
+    @DisplayName("Should assemble a frame split across writes")
+    void splitFrame() throws IOException {
+        ByteBuffer out = ByteBuffer.allocate(1024);
+        putFrame(out, 1, new Trade(TIME, "EUR/USD", 1.10, 100));
+        out.flip();
+        client.write(out.slice(0, 10));
+        client.write(out.slice(10, out.limit() - 10));
+
+        assertEquals(1, readAcks(1).getLong());
+        assertEquals(1, received.size());
+    }
+
+    @Test
+    @DisplayName("Should drop invalid trades and report the accepted count")
+    void invalidTrade() throws IOException {
+        ByteBuffer out = ByteBuffer.allocate(1024);
+        putFrame(out, 3, new Trade(TIME, "EUR/USD", 1.10, 100), new Trade(TIME, "EUR/USD", 1.10, 100));
+        // Corrupt the second trade's price to a negative value
+        out.putDouble(4 + BinaryTcpTradeSource.HEADER_SIZE + BinaryTradeCodec.TRADE_SIZE + 16, -1.0);
+        client.write(out.flip());
+
+        ByteBuffer acks = readAcks(1);
+        assertEquals(3, acks.getLong());
+        assertEquals(BinaryTcpTradeSource.STATUS_ACCEPTED, acks.getInt());
+        assertEquals(1, acks.getInt());
+        assertEquals(1, received.size());
+    }
+
+    @Test
+    @DisplayName("Should report a failed status when ingest rejects the batch")
+    void ingestFailure() throws IOException {
+        failIngest.set(true);
+        ByteBuffer out = ByteBuffer.allocate(1024);
+        putFrame(out, 5, new Trade(TIME, "EUR/USD", 1.10, 100));
+        client.write(out.flip());
+
+        ByteBuffer acks = readAcks(1);
+        assertEquals(5, acks.getLong());
+        assertEquals(BinaryTcpTradeSource.STATUS_FAILED, acks.getInt());
+        assertEquals(0, acks.getInt());
+    }
+
+    @Test
+    @DisplayName("Should close the connection on a malformed frame")
+    void malformedFrame() throws IOException {
+        ByteBuffer out = ByteBuffer.allocate(16);
+        out.putInt(13).putLong(1).putInt(0);
+        client.write(out.flip());
+
+        assertEquals(-1, client.read(ByteBuffer.allocate(16)));
+        assertTrue(received.isEmpty());
+    }
+}
@@ -0,0 +1,142 @@
+package com.exercise.vwap.service.source;
+
+import com.exercise.vwap.domain.Trade;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("FileTailTradeSource Tests")
+class FileTailTradeSourceTest {
+
+    @TempDir
+    Path directory;
+
+    private final List<Trade> received = new CopyOnWriteArrayList<>();
+    private FileTailTradeSource source;
+
+    private Path capture() {
+        return directory.resolve("trades.csv");
+    }
+
+    private FileTailTradeSource startSource() {
+        source = new FileTailTradeSource(capture(), directory.resolve("trades.offset"), 5, 100);
+        source.start(received::addAll);
+        return source;
+    }
+
+    private void append(String text) throws IOException {
+        Files.writeString(capture(), text, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private void awaitReceived(int count) {
+        await().atMost(Duration.ofSeconds(5)).until(() -> received.size() >= count);
+        assertEquals(count, received.size());
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (source != null) {
+            source.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("Should wait for the file and only consume complete lines")
+    void consumesCompleteLines() throws IOException {
+        startSource();
+        append("2024-01-01T10:00:00,EUR/USD,1.10,100\n2024-01-01T10:00:01,EUR/");
+        awaitReceived(1);
+
+        append("USD,1.20,200\n{\"timestamp\":\"2024-01-01T10:00:02\",\"currencyPair\":\"USD/JPY\",\"price\":142.5,\"volume\":10}\n");
+        awaitReceived(3);
+        assertEquals(1.20, received.get(1).getPrice());
+        assertEquals("USD/JPY", received.get(2).getCurrencyPair());
+    }
+
+    @Test
+    @DisplayName("Should keep the optional id and venue of CSV and NDJSON lines")
+    void keepsIdAndVenue() throws IOException {
+        append("2024-01-01T10:00:00,EUR/USD,1.10,100,t-1,EBS\n2024-01-01T10:00:01,EUR/USD,1.20,100,,REUTERS\n"
+                + "2024-01-01T10:00:02,EUR/USD,1.30,100,t-3\n"
+                + "{\"timestamp\":\"2024-01-01T10:00:03\",\"currencyPair\":\"USD/JPY\",\"price\":142.5,"
+                + "\"volume\":10,\"id\":\"t-4\",\"venue\":\"CME\"}\n");
+        startSource();
+
+        awaitReceived(4);
+        assertEquals("t-1", received.get(0).getId());
+        assertEquals("EBS", received.get(0).getVenue());
+        assertNull(received.get(1).getId());
+        assertEquals("REUTERS", received.get(1).getVenue());
+        assertEquals("t-3", received.get(2).getId());
+        assertNull(received.get(2).getVenue());
+        assertEquals("t-4", received.get(3).getId());
+        assertEquals("CME", received.get(3).getVenue());
+    }
+
+    @Test
+    @DisplayName("Should skip invalid lines without stalling")
+    void skipsInvalidLines() throws IOException {
+        append("timestamp,currencyPair,price,volume\n2024-01-01T10:00:00,EURUSD,1.10,100\n"
+                + "2024-01-01T10:00:00,EUR/USD,1.10,100\n");
+        startSource();
+
+        awaitReceived(1);
+        await().atMost(Duration.ofSeconds(5)).until(() -> source.getRejectedLines() == 1);
+    }
+
+    @Test
+    @DisplayName("Should resume from the persisted offset after a restart")
+    void resumesFromOffset() throws IOException {
+        append("2024-01-01T10:00:00,EUR/USD,1.10,100\n");
+        startSource();
+        awaitReceived(1);
+        source.stop();
+
+        append("2024-01-01T10:00:01,EUR/USD,1.20,100\n");
+        startSource();
+
+        awaitReceived(2);
+        assertEquals(1.20, received.get(1).getPrice());
+    }
+
+    @Test
+    @DisplayName("Should drain the old file and follow the new one after rotation")
+    void followsRotation() throws IOException {
+        append("2024-01-01T10:00:00,EUR/USD,1.10,100\n");
+        startSource();
+        awaitReceived(1);
+
+        append("2024-01-01T10:00:01,EUR/USD,1.20,100\n");
+        Files.move(capture(), directory.resolve("trades.csv.1"));
+        append("2024-01-01T10:00:02,EUR/USD,1.30,100\n");
+
+        awaitReceived(3);
+        assertEquals(1.20, received.get(1).getPrice());
+        assertEquals(1.30, received.get(2).getPrice());
+    }
+
+    @Test
+    @DisplayName("Should re-read a truncated file from the start")
+    void rereadsTruncatedFile() throws IOException {
+        append("2024-01-01T10:00:00,EUR/USD,1.10,100\n2024-01-01T10:00:01,EUR/USD,1.20,100\n");
+        startSource();
+        awaitReceived(2);
+
+        Files.writeString(capture(), "2024-01-01T10:00:02,GBP/USD,1.30,100\n", StandardOpenOption.TRUNCATE_EXISTING);
+
+        awaitReceived(3);
+        assertEquals("GBP/USD", received.get(2).getCurrencyPair());
+    }
+}
@@ -0,0 +1,149 @@
+package com.exercise.vwap.service.source;
+
+import com.exercise.vwap.domain.Trade;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("SharedMemoryTradeRing Tests")
+class SharedMemoryTradeRingTest {
+    private static final LocalDateTime TIME = LocalDateTime.of(2024, 1, 1, 10, 0);
+
+    @TempDir
+    Path directory;
+
+    private Path ringFile() {
+        return directory.resolve("trades.ring");
+    }
+
+    private static Trade trade(int i) {
+        return new Trade(TIME.plusNanos(i), i % 2 == 0 ? "EUR/USD" : "USD/JPY", 1.0 + i, 100);
+    }
+
+    @Test
+    @DisplayName("Should refuse to overwrite unconsumed slots")
+    void fullRing() {
+        try (SharedMemoryTradeRing producer = SharedMemoryTradeRing.open(ringFile(), 4);
+             SharedMemoryTradeRing consumer = SharedMemoryTradeRing.open(ringFile(), 4)) {
+            for (int i = 0; i < 4; i++) {
+                assertTrue(producer.offer(trade(i)));
+            }
+            assertFalse(producer.offer(trade(4)));
+
+            List<Trade> polled = new ArrayList<>();
+            assertEquals(2, consumer.poll(polled, 2));
+            assertFalse(producer.offer(trade(4)), "Polled slots are not free until released");
+            consumer.release(2);
+            assertTrue(producer.offer(trade(4)));
+            assertEquals(1.0, polled.get(0).getPrice());
+        }
+    }
+
+    @Test
+    @DisplayName("Should hand over every trade in order across wrap-around")
+    void concurrentHandoff() throws InterruptedException {
+        int total = 100_000;
+        List<Trade> received = new ArrayList<>();
+        try (SharedMemoryTradeRing consumer = SharedMemoryTradeRing.open(ringFile(), 64);
+             SharedMemoryTradeRing producer = SharedMemoryTradeRing.open(ringFile(), 64)) {
+            Thread publisher = new Thread(() -> {
+                for (int i = 0; i < total; i++) {
+                    while (!producer.offer(trade(i))) {
+                        Thread.onSpinWait();
+                    }
+                }
+            });
+            publisher.start();
+            while (received.size() < total) {
+                consumer.release(consumer.poll(received, 16));
+            }
+            publisher.join();
+        }
+        for (int i = 0; i < total; i++) {
+            assertEquals(1.0 + i, received.get(i).getPrice());
+        }
+    }
+
+    @Test
+    @DisplayName("Should resume from the consumed sequence stored in the file")
+    void resumesAfterReopen() {
+        try (SharedMemoryTradeRing ring = SharedMemoryTradeRing.open(ringFile(), 8)) {
+            for (int i = 0; i < 3; i++) {
+                ring.offer(trade(i));
+            }
+            ring.release(ring.poll(new ArrayList<>(), 2));
+        }
+        try (SharedMemoryTradeRing reopened = SharedMemoryTradeRing.open(ringFile(), 1024)) {
+            assertEquals(8, reopened.getCapacity());
+            List<Trade> rest = new ArrayList<>();
+            assertEquals(1, reopened.poll(rest, 10));
+            assertEquals(3.0, rest.get(0).getPrice());
+        }
+    }
+
+    @Test
+    @DisplayName("Should reject files that are not trade rings")
+    void rejectsForeignFile() throws Exception {
+        Files.write(ringFile(), new byte[1024]);
+        assertThrows(IllegalStateException.class, () -> SharedMemoryTradeRing.open(ringFile(), 8));
+        assertThrows(IllegalArgumentException.class,
+                () -> SharedMemoryTradeRing.open(directory.resolve("other.ring"), 12));
+    }
+
+    @Test
+    @DisplayName("Should feed published trades to the sink through the source")
+    void sourceDeliversTrades() {
+        List<Trade> received = new CopyOnWriteArrayList<>();
+        SharedMemoryTradeSource source = new SharedMemoryTradeSource(ringFile(), 16, 8, 50);
+        source.start(received::addAll);
+        try (SharedMemoryTradeRing producer = SharedMemoryTradeRing.open(ringFile(), 16)) {
+            for (int i = 0; i < 100; i++) {
+                while (!producer.offer(trade(i))) {
+                    Thread.onSpinWait();
+                }
+            }
+            await().atMost(Duration.ofSeconds(5)).until(() -> received.size() == 100);
+            assertEquals(100, producer.consumerSequence());
+        } finally {
+            source.stop();
+        }
+        assertEquals("USD/JPY", received.get(99).getCurrencyPair());
+    }
+
+    @Test
+    @DisplayName("Should hand a failed batch to the sink again without duplicates")
+    void retriesFailedBatch() {
+        List<Trade> received = new CopyOnWriteArrayList<>();
+        int[] calls = {0};
+        SharedMemoryTradeSource source = new SharedMemoryTradeSource(ringFile(), 16, 16, 50);
+        source.start(batch -> {
+            if (calls[0]++ == 0) {
+                throw new IllegalStateException("sink unavailable");
+            }
+            received.addAll(batch);
+        });
+        try (SharedMemoryTradeRing producer = SharedMemoryTradeRing.open(ringFile(), 16)) {
+            for (int i = 0; i < 10; i++) {
+                assertTrue(producer.offer(trade(i)));
+            }
+            await().atMost(Duration.ofSeconds(5)).until(() -> producer.consumerSequence() == 10);
+        } finally {
+            source.stop();
+        }
+        assertEquals(10, received.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(1.0 + i, received.get(i).getPrice());
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.exercise.vwap.service.strategy;
+
+import com.exercise.vwap.domain.Trade;
+import com.exercise.vwap.domain.TradeWindow;
+import com.exercise.vwap.service.strategy.impl.CappedVolumeVwapStrategy;
+import com.exercise.vwap.service.strategy.impl.DecayedVwapStrategy;
+import com.exercise.vwap.service.strategy.impl.SimpleVwapStrategy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("VwapStrategyRegistry Tests")
+class VwapStrategyRegistryTest {
+    private static final LocalDateTime HOUR = LocalDateTime.of(2024, 1, 1, 10, 0);
+
+    private final SimpleVwapStrategy simple = new SimpleVwapStrategy();
+    private final DecayedVwapStrategy decayed = new DecayedVwapStrategy(60);
+    private final CappedVolumeVwapStrategy capped = new CappedVolumeVwapStrategy(1000);
+    private VwapStrategyRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new VwapStrategyRegistry(List.of(simple, decayed, capped));
+    }
+
+    private TradeWindow window() {
+        return new TradeWindow(HOUR, 0, false, registry);
+    }
+
+    @Nested
+    @DisplayName("Registry Tests")
+    class RegistryTests {
+        @Test
+        @DisplayName("Should look strategies up by name")
+        void lookUpByName() {
+            assertSame(decayed, registry.get("decayed"));
+            assertEquals(List.of("simple", "decayed", "capped"), registry.getNames());
+            assertThrows(IllegalArgumentException.class, () -> registry.get("twap"));
+        }
+
+        @Test
+        @DisplayName("Should refuse two strategies with the same name")
+        void duplicateNames() {
+            assertThrows(IllegalStateException.class, () ->
+                    new VwapStrategyRegistry(List.of(capped, new CappedVolumeVwapStrategy(5))));
+        }
+
+        @Test
+        @DisplayName("Should give every incremental strategy its own slots")
+        void slotLayout() {
+            assertEquals(0, registry.offsetOf(decayed));
+            assertEquals(3, registry.offsetOf(capped));
+            assertEquals(5, registry.newSlots().length);
+            assertNull(new VwapStrategyRegistry(List.of(simple)).newSlots());
+        }
+
+        @Test
+        @DisplayName("Should leave windows without slots when per-trade updates are disabled")
+        void disabled() {
+            VwapStrategyRegistry off = new VwapStrategyRegistry(List.of(simple, decayed), false);
+            TradeWindow window = new TradeWindow(HOUR, 0, false, off);
+            window.addTrade(new Trade(HOUR, "EUR/USD", 1.1, 100));
+
+            assertTrue(Double.isNaN(decayed.calculateVwap(window)));
+            assertSame(decayed, off.get("decayed"));
+        }
+    }
+
+    @Nested
+    @DisplayName("Strategy Tests")
+    class StrategyTests {
+        @Test
+        @DisplayName("Should cap each trade's volume")
+        void cappedVolume() {
+            TradeWindow window = window();
+            window.addTrade(new Trade(HOUR, "EUR/USD", 1.0, 1000));
+            window.addTrade(new Trade(HOUR, "EUR/USD", 2.0, 1_000_000));
+
+            assertEquals(1.5, capped.calculateVwap(window), 1e-12);
+            assertEquals(2.0, simple.calculateVwap(window), 1e-2);
+        }
+
+        @Test
+        @DisplayName("Should halve a trade's weight every half-life")
+        void decayedWeights() {
+            TradeWindow window = window();
+            window.addTrade(new Trade(HOUR, "EUR/USD", 1.0, 100));
+            window.addTrade(new Trade(HOUR.plusMinutes(1), "EUR/USD", 2.0, 100));
+
+            // Weights 0.5 and 1
+            assertEquals((0.5 * 1.0 + 2.0) / 1.5, decayed.calculateVwap(window), 1e-12);
+        }
+
+        @Test
+        @DisplayName("Should give the same decayed VWAP whatever the arrival order")
+        void decayedOutOfOrder() {
+            TradeWindow inOrder = window();
+            TradeWindow reversed = window();
+            Trade first = new Trade(HOUR.plusSeconds(10), "EUR/USD", 1.0, 100);
+            Trade second = new Trade(HOUR.plusSeconds(100), "EUR/USD", 1.5, 300);
+            inOrder.addTrade(first);
+            inOrder.addTrade(second);
+            reversed.addTrade(second);
+            reversed.addTrade(first);
+
+            assertEquals(decayed.calculateVwap(inOrder), decayed.calculateVwap(reversed), 1e-12);
+        }
+
+        @Test
+        @DisplayName("Should update strategies from batches and merge partial windows")
+        void batchAndMerge() {
+            TradeWindow single = window();
+            single.addTrade(new Trade(HOUR.plusSeconds(1), "EUR/USD", 1.0, 500));
+            single.addTrade(new Trade(HOUR.plusSeconds(50), "EUR/USD", 1.2, 5000));
+            single.addTrade(new Trade(HOUR.plusSeconds(90), "EUR/USD", 1.1, 200));
+
+            TradeWindow early = window();
+            early.addTrades(new long[]{1_000_000_000L, 50_000_000_000L}, new double[]{1.0, 1.2},
+                    new double[]{500, 5000}, 0, 2);
+            TradeWindow late = window();
+            late.addTrade(new Trade(HOUR.plusSeconds(90), "EUR/USD", 1.1, 200));
+            late.merge(early);
+
+            assertEquals(capped.calculateVwap(single), capped.calculateVwap(late), 1e-12);
+            assertEquals(decayed.calculateVwap(single), decayed.calculateVwap(late), 1e-12);
+        }
+
+        @Test
+        @DisplayName("Should report strategies as unknown after merging trades they never saw")
+        void mergeWithoutSlots() {
+            TradeWindow live = window();
+            live.addTrade(new Trade(HOUR.plusSeconds(1), "EUR/USD", 1.0, 500));
+            live.merge(new TradeWindow(HOUR));
+            assertEquals(1.0, capped.calculateVwap(live), 1e-12);
+
+            TradeWindow partial = new TradeWindow(HOUR, 0, false);
+            partial.addTrade(new Trade(HOUR.plusSeconds(2), "EUR/USD", 1.2, 100));
+            live.merge(partial);
+
+            assertTrue(Double.isNaN(capped.calculateVwap(live)));
+            assertTrue(Double.isNaN(decayed.calculateVwap(live)));
+            assertNull(live.getStrategySlots());
+            assertEquals(2, live.getTradeCount().get());
+        }
+
+        @Test
+        @DisplayName("Should take a removed trade back out of every strategy")
+        void removeTrade() {
+            TradeWindow expected = window();
+            expected.addTrade(new Trade(HOUR.plusSeconds(10), "EUR/USD", 1.0, 500));
+            expected.addTrade(new Trade(HOUR.plusSeconds(90), "EUR/USD", 1.1, 200));
+
+            TradeWindow corrected = window();
+            corrected.addTrade(new Trade(HOUR.plusSeconds(10), "EUR/USD", 1.0, 500));
+            corrected.addTrade(new Trade(HOUR.plusSeconds(50), "EUR/USD", 1.2, 5000));
+            corrected.addTrade(new Trade(HOUR.plusSeconds(90), "EUR/USD", 1.1, 200));
+            corrected.removeTrade(50_000_000_000L, 1.2, 5000);
+
+            assertEquals(2, corrected.getTradeCount().get());
+            assertEquals(simple.calculateVwap(expected), simple.calculateVwap(corrected), 1e-12);
+            assertEquals(capped.calculateVwap(expected), capped.calculateVwap(corrected), 1e-12);
+            assertEquals(decayed.calculateVwap(expected), decayed.calculateVwap(corrected), 1e-12);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.exercise.vwap.service.tier;
+
+import com.exercise.vwap.domain.PriceBar;
+import com.exercise.vwap.domain.TierStats;
+import com.exercise.vwap.domain.Trade;
+import com.exercise.vwap.domain.TradeWindow;
+import com.exercise.vwap.utils.BinaryTradeCodec;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ColdPairStore Tests")
+class ColdPairStoreTest {
+    private static final LocalDateTime HOUR = LocalDateTime.of(2024, 1, 1, 10, 0);
+    private static final int SEGMENT_BYTES = 10 * ColdPairStore.RECORD_SIZE;
+
+    @TempDir
+    Path directory;
+
+    private ColdPairStore store;
+
+    @AfterEach
+    void tearDown() {
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    private static TradeWindow window(LocalDateTime start, double price, boolean bar) {
+        TradeWindow window = new TradeWindow(start, 0, bar);
+        window.addTrade(new Trade(start.plusMinutes(5), "EUR/USD", price, 1000));
+        window.addTrade(new Trade(start.plusMinutes(10), "EUR/USD", price + 0.01, 3000));
+        return window;
+    }
+
+    private static List<TradeWindow> windows(int count) {
+        List<TradeWindow> windows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            windows.add(window(HOUR.plusHours(i), 1.1, false));
+        }
+        return windows;
+    }
+
+    @Test
+    @DisplayName("Should round-trip sums, bar, seal and version")
+    void roundTrip() {
+        store = new ColdPairStore(directory, SEGMENT_BYTES, 2 * SEGMENT_BYTES);
+        TradeWindow sealed = window(HOUR, 1.1, true);
+        sealed.seal();
+        sealed.bumpVersion();
+        TradeWindow open = window(HOUR.plusHours(1), 1.2, false);
+
+        assertTrue(store.spill("EUR/USD", List.of(sealed, open)));
+
+        assertTrue(store.contains("EUR/USD"));
+        List<TradeWindow> loaded = store.load("EUR/USD");
+        assertEquals(2, loaded.size());
+        TradeWindow first = loaded.get(0);
+        assertEquals(HOUR, first.getWindowStart());
+        assertEquals(sealed.getVwap(), first.getVwap(), 1e-15);
+        assertEquals(sealed.getVwapVariance(), first.getVwapVariance(), 1e-15);
+        assertEquals(2, first.getTradeCount().get());
+        assertTrue(first.isSealed());
+        assertEquals(1, first.getVersion());
+        PriceBar bar = first.getBar();
+        assertEquals(1.1, bar.getOpen(), 1e-15);
+        assertEquals(1.11, bar.getClose(), 1e-15);
+        assertFalse(loaded.get(1).isSealed());
+        assertFalse(loaded.get(1).hasBar());
+
+        assertEquals(open.getVwap(), store.read("EUR/USD", HOUR.plusHours(1)).getVwap(), 1e-15);
+        assertNull(store.read("EUR/USD", HOUR.plusHours(2)));
+        assertNull(store.read("GBP/USD", HOUR));
+    }
+
+    @Test
+    @DisplayName("Should reuse freed records and refuse a spill that does not fit")
+    void boundedSize() {
+        store = new ColdPairStore(directory, SEGMENT_BYTES, 2 * SEGMENT_BYTES);
+
+        assertTrue(store.spill("EUR/USD", windows(15)));
+        assertFalse(store.spill("GBP/USD", windows(10)));
+        assertFalse(store.contains("GBP/USD"));
+        assertEquals(15, store.getStats().getWindows());
+
+        store.load("EUR/USD");
+        store.remove("EUR/USD");
+        assertTrue(store.spill("GBP/USD", windows(10)));
+        assertTrue(store.spill("USD/JPY", windows(10)));
+
+        TierStats stats = store.getStats();
+        assertEquals(2, stats.getPairs());
+        assertEquals(20, stats.getWindows());
+        assertEquals(2L * SEGMENT_BYTES, stats.getSizeInBytes());
+        assertEquals(3, stats.getSpilledPairs());
+        assertEquals(1, stats.getPagedInPairs());
+    }
+
+    @Test
+    @DisplayName("Should seal by watermark, list windows by hour and expire them")
+    void sealListAndExpire() {
+        store = new ColdPairStore(directory, SEGMENT_BYTES, 2 * SEGMENT_BYTES);
+        store.spill("EUR/USD", windows(3));
+        store.spill("GBP/USD", windows(1));
+
+        store.seal("EUR/USD", BinaryTradeCodec.toEpochNanos(HOUR.plusHours(2)));
+        assertTrue(store.read("EUR/USD", HOUR).isSealed());
+        assertTrue(store.read("EUR/USD", HOUR.plusHours(1)).isSealed());
+        assertFalse(store.read("EUR/USD", HOUR.plusHours(2)).isSealed());
+
+        Map<String, TradeWindow> atTen = new HashMap<>();
+        store.forEachWindow(HOUR, atTen::put);
+        assertEquals(2, atTen.size());
+        assertEquals(4, store.snapshots().size());
+
+        List<String> emptied = store.removeExpired(start -> start.isBefore(HOUR.plusHours(1)));
+        assertEquals(List.of("GBP/USD"), emptied);
+        assertNull(store.read("EUR/USD", HOUR));
+        assertNotNull(store.read("EUR/USD", HOUR.plusHours(2)));
+        assertEquals(2, store.getStats().getWindows());
+    }
+}
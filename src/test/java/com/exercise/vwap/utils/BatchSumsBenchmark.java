@@ -0,0 +1,104 @@
+package com.exercise.vwap.utils;
+
+import com.exercise.vwap.domain.Trade;
+import com.exercise.vwap.domain.TradeWindow;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDateTime;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the batch kernels with per-trade accumulation. Not run by the build; start it
+ * with {@code main} on the test classpath (after {@code mvn test-compile}).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class BatchSumsBenchmark {
+    private static final LocalDateTime WINDOW_START = LocalDateTime.of(2024, 1, 1, 10, 0);
+
+    @Param({"1024", "65536"})
+    int size;
+
+    long[] times;
+    double[] prices;
+    double[] volumes;
+    Trade[] trades;
+    final double[] out = new double[3];
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        times = new long[size];
+        prices = new double[size];
+        volumes = new double[size];
+        trades = new Trade[size];
+        for (int i = 0; i < size; i++) {
+            prices[i] = 1 + random.nextDouble();
+            volumes[i] = random.nextInt(1_000_000) + 1;
+            trades[i] = new Trade(WINDOW_START, "EUR/USD", prices[i], volumes[i]);
+        }
+    }
+
+    @Benchmark
+    public void sequential(Blackhole blackhole) {
+        double sumPriceVolume = 0;
+        double sumVolume = 0;
+        for (int i = 0; i < size; i++) {
+            sumPriceVolume += prices[i] * volumes[i];
+            sumVolume += volumes[i];
+        }
+        blackhole.consume(sumPriceVolume);
+        blackhole.consume(sumVolume);
+    }
+
+    @Benchmark
+    public double[] scalarKernel() {
+        BatchSums.scalarSums(prices, volumes, 0, size, out);
+        return out;
+    }
+
+    @Benchmark
+    public double[] vectorKernel() {
+        VectorBatchSums.sums(prices, volumes, 0, size, out);
+        return out;
+    }
+
+    @Benchmark
+    public TradeWindow windowPerTrade() {
+        TradeWindow window = new TradeWindow(WINDOW_START);
+        for (Trade trade : trades) {
+            window.addTrade(trade);
+        }
+        return window;
+    }
+
+    @Benchmark
+    public TradeWindow windowBatch() {
+        TradeWindow window = new TradeWindow(WINDOW_START);
+        window.addTrades(times, prices, volumes, 0, size);
+        return window;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(BatchSumsBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,54 @@
+package com.exercise.vwap.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("BatchSums Tests")
+class BatchSumsTest {
+
+    @Test
+    @DisplayName("Should run the vector kernel when the incubator module is present")
+    void vectorizedUnderTests() {
+        // Surefire adds jdk.incubator.vector, so both kernels are exercised by the build
+        assertTrue(BatchSums.isVectorized());
+    }
+
+    @Test
+    @DisplayName("Should match a sequential sum for every length and offset")
+    void matchesSequentialSum() {
+        Random random = new Random(42);
+        double[] prices = new double[300];
+        double[] volumes = new double[300];
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = 1 + random.nextDouble();
+            volumes[i] = random.nextInt(1_000_000) + 1;
+        }
+        double[] vector = new double[3];
+        double[] scalar = new double[3];
+        for (int from = 0; from < 9; from++) {
+            for (int to = from; to <= prices.length; to += 7) {
+                double sumPriceVolume = 0;
+                double sumVolume = 0;
+                double sumPriceSquaredVolume = 0;
+                for (int i = from; i < to; i++) {
+                    sumPriceVolume += prices[i] * volumes[i];
+                    sumVolume += volumes[i];
+                    sumPriceSquaredVolume += prices[i] * prices[i] * volumes[i];
+                }
+                BatchSums.sums(prices, volumes, from, to, vector);
+                BatchSums.scalarSums(prices, volumes, from, to, scalar);
+
+                assertEquals(sumPriceVolume, vector[0], Math.abs(sumPriceVolume) * 1e-14);
+                assertEquals(sumVolume, vector[1], sumVolume * 1e-14);
+                assertEquals(sumPriceVolume, scalar[0], Math.abs(sumPriceVolume) * 1e-14);
+                assertEquals(sumVolume, scalar[1], sumVolume * 1e-14);
+                assertEquals(sumPriceSquaredVolume, vector[2], sumPriceSquaredVolume * 1e-14);
+                assertEquals(sumPriceSquaredVolume, scalar[2], sumPriceSquaredVolume * 1e-14);
+            }
+        }
+    }
+}
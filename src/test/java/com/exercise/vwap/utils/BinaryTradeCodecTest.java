@@ -0,0 +1,58 @@
+package com.exercise.vwap.utils;
+
+import com.exercise.vwap.domain.Trade;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("BinaryTradeCodec Tests")
+class BinaryTradeCodecTest {
+
+    @Test
+    @DisplayName("Should round-trip a trade at an offset")
+    void roundTrip() {
+        LocalDateTime timestamp = LocalDateTime.of(2024, 3, 15, 9, 30, 1, 999_999_999);
+        Trade trade = new Trade(timestamp, "AUD/USD", 0.6905, 106198);
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+
+        BinaryTradeCodec.encode(buffer, 16, trade);
+        Trade decoded = BinaryTradeCodec.decode(buffer, 16);
+
+        assertEquals(timestamp, decoded.getTimestamp());
+        assertEquals("AUD/USD", decoded.getCurrencyPair());
+        assertEquals(0.6905, decoded.getPrice());
+        assertEquals(106198, decoded.getVolume());
+        assertEquals(0, buffer.position());
+    }
+
+    @Test
+    @DisplayName("Should reject frames with a NaN or infinite price or volume")
+    void rejectsNonFiniteAmounts() {
+        ByteBuffer buffer = ByteBuffer.allocate(BinaryTradeCodec.TRADE_SIZE);
+        BinaryTradeCodec.encode(buffer, 0, new Trade(LocalDateTime.of(2024, 3, 15, 9, 30), "AUD/USD", 0.6905, 100));
+
+        buffer.putDouble(16, Double.NaN);
+        assertThrows(IllegalArgumentException.class, () -> BinaryTradeCodec.decode(buffer, 0));
+        buffer.putDouble(16, 0.6905);
+        buffer.putDouble(24, Double.POSITIVE_INFINITY);
+        assertThrows(IllegalArgumentException.class, () -> BinaryTradeCodec.decode(buffer, 0));
+    }
+
+    @Test
+    @DisplayName("Should pack and unpack currency pairs")
+    void pairPacking() {
+        assertEquals("USD/JPY", BinaryTradeCodec.decodePair(BinaryTradeCodec.encodePair("USD/JPY")));
+        assertThrows(IllegalArgumentException.class, () -> BinaryTradeCodec.encodePair("EURUSD"));
+    }
+
+    @Test
+    @DisplayName("Should handle timestamps before the epoch")
+    void preEpoch() {
+        LocalDateTime timestamp = LocalDateTime.of(1969, 12, 31, 23, 59, 59, 500);
+        assertEquals(timestamp, BinaryTradeCodec.fromEpochNanos(BinaryTradeCodec.toEpochNanos(timestamp)));
+    }
+}
@@ -0,0 +1,54 @@
+package com.exercise.vwap.utils;
+
+import com.exercise.vwap.domain.Trade;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("VenueInterner Tests")
+class VenueInternerTest {
+
+    @Test
+    @DisplayName("Should hand out ids until the limit and turn later venues away")
+    void closesAtLimit() {
+        VenueInterner venues = new VenueInterner(2);
+
+        assertEquals(0, venues.intern("EBS"));
+        assertEquals(1, venues.intern("REUTERS"));
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(VenueInterner.NO_VENUE, venues.intern("V" + i));
+        }
+
+        assertEquals(0, venues.intern("EBS"));
+        assertEquals(2, venues.size());
+        assertEquals(VenueInterner.NO_VENUE, venues.idOf("V1"));
+    }
+
+    @Test
+    @DisplayName("Should give ids only to the allowed venues")
+    void allowsListedVenues() {
+        VenueInterner venues = new VenueInterner(4, List.of("EBS", "CME"));
+
+        assertEquals(1, venues.idOf("CME"));
+        assertEquals(VenueInterner.NO_VENUE, venues.intern("REUTERS"));
+        assertEquals(0, venues.intern("EBS"));
+        assertEquals(2, venues.size());
+        assertThrows(IllegalArgumentException.class, () -> new VenueInterner(1, List.of("EBS", "CME")));
+        assertThrows(IllegalArgumentException.class, () -> new VenueInterner(4, List.of("EBS FX")));
+    }
+
+    @Test
+    @DisplayName("Should reject trades with malformed venue names")
+    void rejectsMalformedNames() {
+        LocalDateTime timestamp = LocalDateTime.of(2024, 1, 1, 10, 0);
+
+        assertEquals("LMAX-2", new Trade(timestamp, "EUR/USD", 1.1, 100, null, "LMAX-2").getVenue());
+        for (String venue : new String[]{"", "EBS FX", "x".repeat(Trade.MAX_VENUE_LENGTH + 1), "EBS\n"}) {
+            assertThrows(IllegalArgumentException.class, () -> new Trade(timestamp, "EUR/USD", 1.1, 100, null, venue));
+        }
+    }
+}